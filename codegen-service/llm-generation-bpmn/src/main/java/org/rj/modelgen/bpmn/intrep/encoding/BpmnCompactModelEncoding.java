@@ -0,0 +1,15 @@
+package org.rj.modelgen.bpmn.intrep.encoding;
+
+import org.rj.modelgen.llm.intrep.encoding.CompactGraphModelEncoding;
+
+import java.util.Map;
+
+/**
+ * Compact encoding of the BPMN intermediate model, abbreviating the additional fields of BPMN element nodes and connections
+ */
+public class BpmnCompactModelEncoding extends CompactGraphModelEncoding {
+    public BpmnCompactModelEncoding() {
+        super(Map.of("elementType", "t", "description", "d", "properties", "p"),
+              Map.of("description", "d"));
+    }
+}
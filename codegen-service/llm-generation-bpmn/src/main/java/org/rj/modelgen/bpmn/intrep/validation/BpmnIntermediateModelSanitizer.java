@@ -1,14 +1,20 @@
 package org.rj.modelgen.bpmn.intrep.validation;
 
+import org.rj.modelgen.bpmn.intrep.encoding.BpmnCompactModelEncoding;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
 import org.rj.modelgen.llm.validation.IntermediateModelSanitizer;
 
 public class BpmnIntermediateModelSanitizer extends IntermediateModelSanitizer {
+    private final IntermediateModelEncoding encoding;
+
     public BpmnIntermediateModelSanitizer() {
         super();
+        this.encoding = new BpmnCompactModelEncoding();
     }
 
     @Override
     protected String performCustomSanitization(String content) {
-        return content;
+        // Responses may mirror the compact form of models in the context; always restore the standard form
+        return encoding.decode(content);
     }
 }
@@ -0,0 +1,36 @@
+package org.rj.modelgen.bpmn.llm.context.provider.impl;
+
+import org.rj.modelgen.bpmn.exception.BpmnGenerationException;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptGenerator;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptType;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnPromptPlaceholders;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.provider.ContextSummarizer;
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProvider;
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProviderOptions;
+
+public class BudgetedBpmnGenerationContextProvider extends TokenBudgetedContextProvider {
+    private final BpmnGenerationPromptGenerator promptGenerator;
+
+    /**
+     * BPMN generation context provider which fits history into a token budget.  History is summarized as the list of
+     * original user requests, recovered from the generated prompts so that repeated template and schema content is
+     * not retained in the summary
+     */
+    public BudgetedBpmnGenerationContextProvider(BpmnGenerationPromptGenerator promptGenerator, TokenBudgetedContextProviderOptions options) {
+        super(options, ContextSummarizer.userRequests(prompt -> promptGenerator
+                .extractSubstitution(BpmnGenerationPromptType.Generate, BpmnPromptPlaceholders.PROMPT, prompt)
+                .orElse(prompt)));
+
+        this.promptGenerator = promptGenerator;
+    }
+
+    @Override
+    public Context newContext() {
+        final var initialState = promptGenerator.getPrompt(BpmnGenerationPromptType.GenerationInitialPrompt)
+                .orElseThrow(() -> new BpmnGenerationException("Cannot create initial BPMN generation context state"));
+
+        return super.newContext().withEntry(ContextEntry.forModel(initialState));
+    }
+}
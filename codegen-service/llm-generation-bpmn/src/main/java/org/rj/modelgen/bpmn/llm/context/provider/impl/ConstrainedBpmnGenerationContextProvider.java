@@ -17,12 +17,9 @@ public class ConstrainedBpmnGenerationContextProvider extends DefaultConstrained
 
     @Override
     public Context newContext() {
-        final var context = super.newContext();
-
         final var initialState = promptGenerator.getPrompt(BpmnGenerationPromptType.GenerationInitialPrompt)
                 .orElseThrow(() -> new BpmnGenerationException("Cannot create initial BPMN generation context state"));
 
-        context.addEntry(ContextEntry.forModel(initialState));
-        return context;
+        return super.newContext().withEntry(ContextEntry.forModel(initialState));
     }
 }
@@ -1,37 +1,71 @@
 package org.rj.modelgen.bpmn.models.generation;
 
+import org.rj.modelgen.bpmn.intrep.encoding.BpmnCompactModelEncoding;
 import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.llm.context.provider.impl.BudgetedBpmnGenerationContextProvider;
+import org.rj.modelgen.bpmn.llm.context.provider.impl.ConstrainedBpmnGenerationContextProvider;
 import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptGenerator;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptType;
 import org.rj.modelgen.bpmn.models.generation.data.BpmnGenerationModelInputPayload;
 import org.rj.modelgen.bpmn.models.generation.signals.*;
 import org.rj.modelgen.bpmn.models.generation.states.*;
+import org.rj.modelgen.llm.context.provider.ContextProvider;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
 import org.rj.modelgen.llm.model.ModelInterface;
 import org.rj.modelgen.llm.schema.ModelSchema;
+import org.rj.modelgen.llm.session.PromptCoalescer;
 import org.rj.modelgen.llm.state.*;
 import org.rj.modelgen.llm.util.Util;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
 public class BpmnGenerationExecutionModel extends ModelInterfaceStateMachine {
     public static BpmnGenerationExecutionModel create(ModelInterface modelInterface, ModelSchema modelSchema,
                                                       BpmnGenerationExecutionModelOptions options) {
         final var modelClass = BpmnIntermediateModel.class;
 
-        final var generationPrompt = options.shouldUseHistory()
-                ? Util.loadStringResource("content/bpmn-prompt-template")
-                : Util.loadStringResource("content/bpmn-prompt-template-no-history");
+        // Static instructions and schema form a system prompt which is identical for every request, so that it can be
+        // served from the provider prompt cache.  Only the current state and request vary in the generation prompt
+        final var systemPrompt = Util.loadStringResource(options.shouldUseDeltaResponses()
+                ? "content/bpmn-system-prompt-delta"
+                : "content/bpmn-system-prompt");
+
+        final var generationPrompt = Util.loadStringResource(options.shouldUseHistory()
+                ? "content/bpmn-prompt-template"
+                : "content/bpmn-prompt-template-no-history");
 
         final var promptGenerator = BpmnGenerationPromptGenerator.create(
+                systemPrompt,
                 generationPrompt,
                 "<not-implemented>",
                 "<not-implemented>"
         );
 
+        if (options.shouldUsePartitionedGeneration()) {
+            promptGenerator
+                    .withAvailablePrompt(BpmnGenerationPromptType.PartitionSystem, Util.loadStringResource("content/bpmn-system-prompt-partition"))
+                    .withAvailablePrompt(BpmnGenerationPromptType.Outline, Util.loadStringResource("content/bpmn-outline-prompt"))
+                    .withAvailablePrompt(BpmnGenerationPromptType.GeneratePartition, Util.loadStringResource("content/bpmn-partition-prompt"));
+        }
+
+        if (options.getExampleSelector() != null) {
+            promptGenerator.withAvailablePrompt(BpmnGenerationPromptType.FewShotExamples, Util.loadStringResource("content/bpmn-examples-prompt"));
+        }
+
+        final var contextProvider = createContextProvider(promptGenerator, options);
+
         // Build model states
         final var stateInit = new StartBpmnGeneration();
-        final var statePrepareRequest = new PrepareBpmnModelGenerationRequest(modelSchema, promptGenerator);
-        final var stateSubmitToLlm = new SubmitBpmnGenerationRequestToLlm();
+        final var modelEncoding = createModelEncoding(options);
+
+        final var statePrepareRequest = new PrepareBpmnModelGenerationRequest(modelSchema, promptGenerator, contextProvider,
+                modelEncoding, options.getSchemaPromptFormat(), options.getModelSlicer(), options.getExampleSelector());
+        final var stateSubmitToLlm = options.shouldUsePartitionedGeneration()
+                ? new SubmitPartitionedBpmnGenerationRequestToLlm(options.shouldUseDeltaResponses(), modelSchema, options.getResponseLength(),
+                                                                  promptGenerator, options.getSchemaPromptFormat(), options.getMaxPartitions())
+                : new SubmitBpmnGenerationRequestToLlm(options.shouldUseDeltaResponses(), modelSchema, options.getResponseLength());
         final var stateValidateLlmResponse = new ValidateBpmnLlmIntermediateModelResponse(modelSchema, modelClass);
         final var stateGenerateBpmnXml = new GenerateBpmnFromIntermediateModel();
         final var stateValidateBpmnModelCorrectness = new ValidateBpmnModelCorrectness();
@@ -50,15 +84,63 @@ public class BpmnGenerationExecutionModel extends ModelInterfaceStateMachine {
                 new ModelInterfaceTransitionRule(stateValidateBpmnModelCorrectness, BpmnGenerationSignals.CompleteGeneration, stateComplete)
         ));
 
-        return new BpmnGenerationExecutionModel(modelInterface, states, rules);
+        return new BpmnGenerationExecutionModel(modelInterface, states, rules, options);
     }
 
+    /**
+     * @param options       Model options
+     * @return              Encoding in which models are submitted, which also applies to any few-shot examples
+     */
+    public static IntermediateModelEncoding createModelEncoding(BpmnGenerationExecutionModelOptions options) {
+        return options.shouldUseCompactModelEncoding()
+                ? new BpmnCompactModelEncoding()
+                : IntermediateModelEncoding.none();
+    }
+
+    // History is fitted into the context budget per request only if enabled; otherwise the complete history is submitted
+    static ContextProvider createContextProvider(BpmnGenerationPromptGenerator promptGenerator, BpmnGenerationExecutionModelOptions options) {
+        return (options.shouldUseHistory() && options.shouldUseContextBudget())
+                ? new BudgetedBpmnGenerationContextProvider(promptGenerator, options.getContextBudget())
+                : new ConstrainedBpmnGenerationContextProvider(promptGenerator);
+    }
+
+    private final PromptCoalescer<BpmnGenerationResult> coalescer;
+    private volatile BiConsumer<String, BpmnGenerationResult> completionListener;
+
     private BpmnGenerationExecutionModel(ModelInterface modelInterface, List<ModelInterfaceState> states,
-                                         ModelInterfaceTransitionRules rules) {
+                                         ModelInterfaceTransitionRules rules, BpmnGenerationExecutionModelOptions options) {
         super(modelInterface, states, rules);
+        this.coalescer = options.shouldUseCoalescedPrompts()
+                ? new PromptCoalescer<>(this::executeRequest, options.getMaxCoalescedPrompts())
+                : null;
     }
 
     public Mono<BpmnGenerationResult> executeModel(String sessionId, String request) {
+        // Prompts arriving while an earlier generation for the session is in progress are merged into one request
+        if (coalescer != null && sessionId != null) return coalescer.submit(sessionId, request);
+
+        return executeRequest(sessionId, request);
+    }
+
+    /**
+     * Register a listener which is notified of the result of each generation for a session.  The listener is called
+     * before any other work for the session may start, and so may update the session state without further locking
+     *
+     * @param listener      Listener accepting the session ID and generation result
+     */
+    public void setCompletionListener(BiConsumer<String, BpmnGenerationResult> listener) {
+        this.completionListener = listener;
+    }
+
+    /**
+     * @param sessionId     Session ID
+     * @return              Number of prompts for the session waiting to be merged into its next generation request
+     */
+    public int getPendingPrompts(String sessionId) {
+        return (coalescer != null) ? coalescer.getPendingPrompts(sessionId) : 0;
+    }
+
+    private Mono<BpmnGenerationResult> executeRequest(String sessionId, String request) {
         final var initialState = ModelInterfaceState.defaultStateId(StartBpmnGeneration.class);
 
         final var input = new BpmnGenerationModelInputPayload(sessionId, request);
@@ -68,4 +150,10 @@ public class BpmnGenerationExecutionModel extends ModelInterfaceStateMachine {
         return this.execute(initialState, BpmnGenerationSignals.StartBpmnGeneration, input)
                 .map(BpmnGenerationResult::fromModelExecutionResult);
     }
+
+    @Override
+    protected void onExecutionComplete(String sessionId, ModelInterfaceExecutionResult result) {
+        final var listener = completionListener;
+        if (listener != null) listener.accept(sessionId, BpmnGenerationResult.fromModelExecutionResult(result));
+    }
 }
@@ -1,7 +1,26 @@
 package org.rj.modelgen.bpmn.models.generation;
 
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProviderOptions;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlicer;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
+import org.rj.modelgen.llm.retrieval.FewShotExampleSelector;
+import org.rj.modelgen.llm.schema.SchemaPromptFormat;
+import org.rj.modelgen.llm.session.PromptCoalescer;
+
 public class BpmnGenerationExecutionModelOptions {
     private boolean useHistory = true;
+    private boolean useContextBudget = false;
+    private boolean useDeltaResponses = false;
+    private boolean useCompactModelEncoding = true;
+    private SchemaPromptFormat schemaPromptFormat = SchemaPromptFormat.TypeSignature;
+    private GraphModelSlicer modelSlicer = null;
+    private boolean usePartitionedGeneration = false;
+    private int maxPartitions = 6;
+    private boolean useCoalescedPrompts = false;
+    private int maxCoalescedPrompts = PromptCoalescer.DEFAULT_MAX_BATCH_SIZE;
+    private FewShotExampleSelector exampleSelector = null;
+    private TokenBudgetedContextProviderOptions contextBudget = TokenBudgetedContextProviderOptions.defaultOptions();
+    private ResponseLengthOptions responseLength = ResponseLengthOptions.defaultOptions();
 
     public BpmnGenerationExecutionModelOptions() { }
 
@@ -9,6 +28,10 @@ public class BpmnGenerationExecutionModelOptions {
         return new BpmnGenerationExecutionModelOptions();
     }
 
+    /**
+     * @return      Whether session history may be submitted with each request.  If disabled, only the current model
+     *              state is submitted, embedded within each prompt
+     */
     public boolean shouldUseHistory() {
         return useHistory;
     }
@@ -21,4 +44,209 @@ public class BpmnGenerationExecutionModelOptions {
         setUseHistory(useHistory);
         return this;
     }
+
+    /**
+     * @return      Whether session history is fitted into the context budget per request, as full, summarized or
+     *              latest-model-only history.  If disabled, the complete history is submitted with each request.
+     *              Has no effect unless history is enabled
+     */
+    public boolean shouldUseContextBudget() {
+        return useContextBudget;
+    }
+
+    public void setUseContextBudget(boolean useContextBudget) {
+        this.useContextBudget = useContextBudget;
+    }
+
+    public BpmnGenerationExecutionModelOptions withUseContextBudget(boolean useContextBudget) {
+        setUseContextBudget(useContextBudget);
+        return this;
+    }
+
+    /**
+     * @return      Whether the LLM is asked to return only its changes to the current model, as a list of edit
+     *              operations, rather than the complete updated model.  Changes are applied locally and the result
+     *              validated as normal.  A complete model is accepted in place of changes, and is requested instead
+     *              if the changes cannot be applied
+     */
+    public boolean shouldUseDeltaResponses() {
+        return useDeltaResponses;
+    }
+
+    public void setUseDeltaResponses(boolean useDeltaResponses) {
+        this.useDeltaResponses = useDeltaResponses;
+    }
+
+    public BpmnGenerationExecutionModelOptions withUseDeltaResponses(boolean useDeltaResponses) {
+        setUseDeltaResponses(useDeltaResponses);
+        return this;
+    }
+
+    /**
+     * @return      Whether models are submitted in compact form within the prompt context, omitting empty fields and
+     *              abbreviating field names.  Responses are accepted in either form
+     */
+    public boolean shouldUseCompactModelEncoding() {
+        return useCompactModelEncoding;
+    }
+
+    public void setUseCompactModelEncoding(boolean useCompactModelEncoding) {
+        this.useCompactModelEncoding = useCompactModelEncoding;
+    }
+
+    public BpmnGenerationExecutionModelOptions withUseCompactModelEncoding(boolean useCompactModelEncoding) {
+        setUseCompactModelEncoding(useCompactModelEncoding);
+        return this;
+    }
+
+    /**
+     * @return      Form in which the model schema is rendered in prompts.  Responses are always validated against the
+     *              full schema
+     */
+    public SchemaPromptFormat getSchemaPromptFormat() {
+        return schemaPromptFormat;
+    }
+
+    public void setSchemaPromptFormat(SchemaPromptFormat schemaPromptFormat) {
+        this.schemaPromptFormat = schemaPromptFormat;
+    }
+
+    public BpmnGenerationExecutionModelOptions withSchemaPromptFormat(SchemaPromptFormat schemaPromptFormat) {
+        setSchemaPromptFormat(schemaPromptFormat);
+        return this;
+    }
+
+    /**
+     * @return      Slicer which selects the excerpt of a large model relevant to each request, so that only that
+     *              excerpt is submitted and the response is merged back into the complete model.  Null if the
+     *              complete model is always submitted
+     */
+    public GraphModelSlicer getModelSlicer() {
+        return modelSlicer;
+    }
+
+    public void setModelSlicer(GraphModelSlicer modelSlicer) {
+        this.modelSlicer = modelSlicer;
+    }
+
+    public BpmnGenerationExecutionModelOptions withModelSlicer(GraphModelSlicer modelSlicer) {
+        setModelSlicer(modelSlicer);
+        return this;
+    }
+
+    /**
+     * @return      Whether new processes are generated in partitions: the LLM first outlines the phases of the
+     *              process, and each phase is then generated in parallel and the results stitched into one model.
+     *              Edits to an existing process are always generated in a single request
+     */
+    public boolean shouldUsePartitionedGeneration() {
+        return usePartitionedGeneration;
+    }
+
+    public void setUsePartitionedGeneration(boolean usePartitionedGeneration) {
+        this.usePartitionedGeneration = usePartitionedGeneration;
+    }
+
+    public BpmnGenerationExecutionModelOptions withUsePartitionedGeneration(boolean usePartitionedGeneration) {
+        setUsePartitionedGeneration(usePartitionedGeneration);
+        return this;
+    }
+
+    /**
+     * @return      Maximum number of partitions in partitioned generation, which are generated in parallel
+     */
+    public int getMaxPartitions() {
+        return maxPartitions;
+    }
+
+    public void setMaxPartitions(int maxPartitions) {
+        this.maxPartitions = maxPartitions;
+    }
+
+    public BpmnGenerationExecutionModelOptions withMaxPartitions(int maxPartitions) {
+        setMaxPartitions(maxPartitions);
+        return this;
+    }
+
+    /**
+     * @return      Whether prompts submitted for a session while a generation is in progress are merged, once it
+     *              completes, into a single generation request holding each prompt as an ordered instruction
+     */
+    public boolean shouldUseCoalescedPrompts() {
+        return useCoalescedPrompts;
+    }
+
+    public void setUseCoalescedPrompts(boolean useCoalescedPrompts) {
+        this.useCoalescedPrompts = useCoalescedPrompts;
+    }
+
+    public BpmnGenerationExecutionModelOptions withUseCoalescedPrompts(boolean useCoalescedPrompts) {
+        setUseCoalescedPrompts(useCoalescedPrompts);
+        return this;
+    }
+
+    /**
+     * @return      Maximum number of prompts merged into one generation request when prompts are coalesced
+     */
+    public int getMaxCoalescedPrompts() {
+        return maxCoalescedPrompts;
+    }
+
+    public void setMaxCoalescedPrompts(int maxCoalescedPrompts) {
+        this.maxCoalescedPrompts = maxCoalescedPrompts;
+    }
+
+    public BpmnGenerationExecutionModelOptions withMaxCoalescedPrompts(int maxCoalescedPrompts) {
+        setMaxCoalescedPrompts(maxCoalescedPrompts);
+        return this;
+    }
+
+    /**
+     * @return      Selector of the examples most relevant to each request, which are included in its prompt as a
+     *              guide to the expected output.  Null if no examples are included
+     */
+    public FewShotExampleSelector getExampleSelector() {
+        return exampleSelector;
+    }
+
+    public void setExampleSelector(FewShotExampleSelector exampleSelector) {
+        this.exampleSelector = exampleSelector;
+    }
+
+    public BpmnGenerationExecutionModelOptions withExampleSelector(FewShotExampleSelector exampleSelector) {
+        setExampleSelector(exampleSelector);
+        return this;
+    }
+
+    /**
+     * @return      Token budget within which session history is fitted for each request, if the context budget is used
+     */
+    public TokenBudgetedContextProviderOptions getContextBudget() {
+        return contextBudget;
+    }
+
+    public void setContextBudget(TokenBudgetedContextProviderOptions contextBudget) {
+        this.contextBudget = contextBudget;
+    }
+
+    public BpmnGenerationExecutionModelOptions withContextBudget(TokenBudgetedContextProviderOptions contextBudget) {
+        setContextBudget(contextBudget);
+        return this;
+    }
+
+    /**
+     * @return      Sizing of the response token limit for each request, and continuation of responses truncated by it
+     */
+    public ResponseLengthOptions getResponseLength() {
+        return responseLength;
+    }
+
+    public void setResponseLength(ResponseLengthOptions responseLength) {
+        this.responseLength = responseLength;
+    }
+
+    public BpmnGenerationExecutionModelOptions withResponseLength(ResponseLengthOptions responseLength) {
+        setResponseLength(responseLength);
+        return this;
+    }
 }
@@ -5,6 +5,7 @@ import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
 import org.rj.modelgen.bpmn.models.generation.states.BpmnGenerationComplete;
 import org.rj.modelgen.bpmn.models.generation.states.SubmitBpmnGenerationRequestToLlm;
 import org.rj.modelgen.llm.state.ModelInterfaceExecutionResult;
+import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,11 +18,19 @@ public class BpmnGenerationResult {
     private final ModelInterfaceExecutionResult executionResults;
 
     public static BpmnGenerationResult fromModelExecutionResult(ModelInterfaceExecutionResult result) {
-        final var successResult = Optional.ofNullable(result).map(ModelInterfaceExecutionResult::getResult)
-                .flatMap(state -> state.getAs(BpmnGenerationComplete.class));
+        // Results are held by the signal into the completion state, since states are shared between executions
+        final var successResult = Optional.ofNullable(result)
+                .filter(x -> x.getResult() != null && x.getResult().getAs(BpmnGenerationComplete.class).isPresent())
+                .map(ModelInterfaceExecutionResult::getExecutionPath)
+                .filter(path -> !path.isEmpty())
+                .map(path -> path.get(path.size() - 1).getInputSignal().getPayload());
 
-        return successResult.map(res ->
-            new BpmnGenerationResult(true, res.getIntermediateModel(), res.getGeneratedBpmn(), res.getBpmnValidationMessages(), result)
+        return successResult.map(payload ->
+            new BpmnGenerationResult(true,
+                    payload.get(StandardModelData.IntermediateModel),
+                    payload.get(StandardModelData.GeneratedBpmn),
+                    payload.getOrElse(StandardModelData.BpmnValidationMessages, List.<String>of()),
+                    result)
         ).orElseGet(() ->
             new BpmnGenerationResult(false, null, null, null, result)
         );
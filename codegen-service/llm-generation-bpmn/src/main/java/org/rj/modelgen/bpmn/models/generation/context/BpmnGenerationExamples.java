@@ -0,0 +1,109 @@
+package org.rj.modelgen.bpmn.models.generation.context;
+
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.intrep.model.ElementConnection;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.intrep.IntermediateModelParser;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
+import org.rj.modelgen.llm.retrieval.Bm25Index;
+import org.rj.modelgen.llm.retrieval.IndexedDocument;
+import org.rj.modelgen.llm.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Corpus of example process definitions shipped with the BPMN generation module, indexed for retrieval of few-shot
+ * examples by the names and descriptions of their elements.  Examples are held in the encoding in which models are
+ * submitted, so that they are included in prompts as retrieved and their token sizes are those of the submitted form
+ */
+public class BpmnGenerationExamples {
+    private static final Logger LOG = LoggerFactory.getLogger(BpmnGenerationExamples.class);
+    private static final String EXAMPLE_RESOURCE = "generation-examples/input/example-%d-input.json";
+
+    private static final IntermediateModelParser<BpmnIntermediateModel> parser = new IntermediateModelParser<>(BpmnIntermediateModel.class);
+
+    /**
+     * @param encoding  Encoding in which models are submitted
+     * @return          Index over the example corpus, held on the heap
+     */
+    public static Bm25Index buildIndex(IntermediateModelEncoding encoding) {
+        return Bm25Index.build(loadCorpus(encoding));
+    }
+
+    /**
+     * Open the index over the example corpus from the given file, which is memory-mapped.  The index is built and
+     * written to the file if it does not yet exist, or if it was built from a different corpus or encoding
+     *
+     * @param file      Index file
+     * @param encoding  Encoding in which models are submitted
+     * @return          Index
+     */
+    public static Bm25Index openIndex(Path file, IntermediateModelEncoding encoding) {
+        final var corpus = loadCorpus(encoding);
+        final var existing = Files.exists(file) ? tryOpen(file) : Optional.<Bm25Index>empty();
+        if (existing.isPresent() && existing.get().getCorpusHash() == Bm25Index.corpusHash(corpus)) {
+            return existing.get();
+        }
+
+        LOG.info("Building generation example index '{}' over {} examples", file, corpus.size());
+        Bm25Index.build(corpus).write(file);
+        return Bm25Index.open(file);
+    }
+
+    /**
+     * @param encoding  Encoding in which models are submitted
+     * @return          Each example in the corpus, with content in the given encoding of its minified form
+     */
+    public static List<IndexedDocument> loadCorpus(IntermediateModelEncoding encoding) {
+        final var examples = new ArrayList<IndexedDocument>();
+        for (int n = 1; ; ++n) {
+            final var id = String.format(EXAMPLE_RESOURCE, n);
+            final var content = Util.loadOptionalStringResource(id);
+            if (content.isEmpty()) break;
+
+            examples.add(toDocument(id, content.get(), encoding));
+        }
+
+        return examples;
+    }
+
+    // Index files written by an earlier version are unreadable, and are rebuilt in the same way as a stale index
+    private static Optional<Bm25Index> tryOpen(Path file) {
+        try {
+            return Optional.of(Bm25Index.open(file));
+        }
+        catch (LlmGenerationConfigException ex) {
+            LOG.warn("Rebuilding unreadable generation example index ({})", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    static IndexedDocument toDocument(String id, String serialized, IntermediateModelEncoding encoding) {
+        final var model = parser.parse(serialized).getValueIfPresent()
+                .orElseThrow(() -> new LlmGenerationConfigException(String.format("Generation example '%s' is not a valid model", id)));
+
+        final var text = model.getNodes().stream()
+                .flatMap(node -> Stream.concat(
+                        Stream.of(node.getName(), node.getDescription()),
+                        Optional.ofNullable(node.getConnectedTo()).stream().flatMap(Collection::stream).map(ElementConnection::getDescription)))
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining("\n"));
+
+        try {
+            return new IndexedDocument(id, text, encoding.encode(Util.serializeOrThrow(Util.getObjectMapper().readTree(serialized))));
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to load generation example '%s': %s", id, ex.getMessage()), ex);
+        }
+    }
+}
@@ -8,7 +8,8 @@ import org.rj.modelgen.llm.prompt.TemplatedPromptGenerator;
 import java.util.List;
 
 public class BpmnGenerationPromptGenerator extends TemplatedPromptGenerator<BpmnGenerationPromptGenerator, BpmnGenerationPromptType> {
-    public static BpmnGenerationPromptGenerator create(String generationPrompt,
+    public static BpmnGenerationPromptGenerator create(String systemPrompt,
+                                                       String generationPrompt,
                                                        String schemaErrorCorrectionPrompt,
                                                        String bpmnErrorCorrectionPrompt) {
 
@@ -17,6 +18,7 @@ public class BpmnGenerationPromptGenerator extends TemplatedPromptGenerator<Bpmn
         final var generationInitialPrompt = buildInitialNodeData().serialize();
 
         return new BpmnGenerationPromptGenerator()
+                .withAvailablePrompt(BpmnGenerationPromptType.System, systemPrompt)
                 .withAvailablePrompt(BpmnGenerationPromptType.Generate, generationPrompt)
                 .withAvailablePrompt(BpmnGenerationPromptType.GenerationInitialPrompt, generationInitialPrompt)
                 .withAvailablePrompt(BpmnGenerationPromptType.CorrectSchemaErrors, schemaErrorCorrectionPrompt)
@@ -1,7 +1,12 @@
 package org.rj.modelgen.bpmn.models.generation.context;
 
 public enum BpmnGenerationPromptType {
+    System,
     Generate,
+    PartitionSystem,
+    Outline,
+    GeneratePartition,
+    FewShotExamples,
     GenerationInitialPrompt,
     CorrectSchemaErrors,
     CorrectBpmnErrors
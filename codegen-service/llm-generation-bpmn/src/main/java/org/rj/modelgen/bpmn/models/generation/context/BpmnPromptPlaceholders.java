@@ -1,6 +1,16 @@
 package org.rj.modelgen.bpmn.models.generation.context;
 
+import org.rj.modelgen.llm.prompt.PromptPlaceholder;
 import org.rj.modelgen.llm.prompt.StandardPromptPlaceholders;
 
-public interface BpmnPromptPlaceholders extends StandardPromptPlaceholders { }
+public interface BpmnPromptPlaceholders extends StandardPromptPlaceholders {
+    PromptPlaceholder MAX_PARTITIONS = new PromptPlaceholder("MAX_PARTITIONS");
+    PromptPlaceholder OUTLINE = new PromptPlaceholder("OUTLINE");
+    PromptPlaceholder PARTITION_ID = new PromptPlaceholder("PARTITION_ID");
+    PromptPlaceholder PARTITION_NAME = new PromptPlaceholder("PARTITION_NAME");
+    PromptPlaceholder PARTITION_LANE = new PromptPlaceholder("PARTITION_LANE");
+    PromptPlaceholder PARTITION_DESCRIPTION = new PromptPlaceholder("PARTITION_DESCRIPTION");
+    PromptPlaceholder PARTITION_BOUNDARY = new PromptPlaceholder("PARTITION_BOUNDARY");
+    PromptPlaceholder EXAMPLES = new PromptPlaceholder("EXAMPLES");
+}
 
@@ -0,0 +1,206 @@
+package org.rj.modelgen.bpmn.models.generation.partition;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.rj.modelgen.bpmn.exception.BpmnGenerationException;
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.intrep.model.ElementConnection;
+import org.rj.modelgen.bpmn.intrep.model.ElementNode;
+import org.rj.modelgen.llm.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stitches the independently-generated models of each partition of a process outline into a single model:
+ *
+ * <ul>
+ *     <li>Node IDs which conflict with those of an earlier partition are renamed, along with references to them
+ *     within the same partition</li>
+ *     <li>Connections to a partition ID are resolved to the entry node of that partition, which is its first node
+ *     other than a start event</li>
+ *     <li>Start events are retained only in the first partition</li>
+ *     <li>Flows in the outline which were not connected explicitly are connected from each open path of the source
+ *     partition, via an exclusive gateway if the source partition continues to more than one other</li>
+ * </ul>
+ *
+ * Connections to unknown nodes are removed.  The stitched model must still be validated as normal
+ */
+public final class BpmnPartitionStitcher {
+    private static final Logger LOG = LoggerFactory.getLogger(BpmnPartitionStitcher.class);
+
+    private static final String START_EVENT = "startEvent";
+    private static final String END_EVENT = "endEvent";
+    private static final String EXCLUSIVE_GATEWAY = "exclusiveGateway";
+
+    // Fields of the stitched model are null where not generated, and must be omitted to conform to the model schema
+    private static final ObjectMapper SERIALIZER = Util.getObjectMapper().copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private BpmnPartitionStitcher() { }
+
+    /**
+     * Stitch partition models into a single model
+     *
+     * @param outline       Process outline
+     * @param fragments     Model of each partition, in the order of partitions in the outline
+     * @return              Stitched model
+     */
+    public static BpmnIntermediateModel stitch(BpmnProcessOutline outline, List<BpmnIntermediateModel> fragments) {
+        final var partitions = outline.getPartitions();
+        if (fragments.size() != partitions.size()) {
+            throw new BpmnGenerationException(String.format("Expected %d partition models but received %d", partitions.size(), fragments.size()));
+        }
+
+        final Set<String> usedIds = new HashSet<>();
+        partitions.forEach(x -> usedIds.add(x.getId()));
+
+        final Map<String, List<ElementNode>> partitionNodes = new LinkedHashMap<>();
+        final Map<String, Map<String, String>> partitionIds = new HashMap<>();
+        final Map<String, String> entryNodes = new HashMap<>();
+        for (int i = 0; i < partitions.size(); ++i) {
+            final var partitionId = partitions.get(i).getId();
+            final var nodes = Optional.ofNullable(fragments.get(i)).map(BpmnIntermediateModel::getNodes).orElse(List.of());
+
+            // Start events of later partitions are replaced by the connections from earlier partitions
+            final var retained = new ArrayList<ElementNode>();
+            final Map<String, String> ids = new HashMap<>();
+            final List<String> removedStarts = new ArrayList<>();
+            for (final var node : nodes) {
+                if (i > 0 && START_EVENT.equals(node.getElementType())) {
+                    removedStarts.add(node.getId());
+                    continue;
+                }
+
+                final var id = uniqueId(partitionId, node.getId(), usedIds);
+                if (node.getId() != null) ids.putIfAbsent(node.getId(), id);
+                node.setId(id);
+                retained.add(node);
+            }
+
+            if (retained.isEmpty()) throw new BpmnGenerationException(String.format("Partition '%s' contains no nodes", partitionId));
+
+            entryNodes.put(partitionId, retained.get(0).getId());
+            removedStarts.forEach(x -> ids.putIfAbsent(x, retained.get(0).getId()));
+            partitionNodes.put(partitionId, retained);
+            partitionIds.put(partitionId, ids);
+        }
+
+        // Resolve connections within each partition, to partition IDs, and to nodes already unique across partitions
+        final Map<String, Set<String>> connectedPartitions = new HashMap<>();
+        for (final var partition : partitionNodes.entrySet()) {
+            final var ids = partitionIds.get(partition.getKey());
+            final var connected = connectedPartitions.computeIfAbsent(partition.getKey(), __ -> new HashSet<>());
+            for (final var node : partition.getValue()) {
+                if (node.getConnectedTo() == null) continue;
+
+                final var resolved = new ArrayList<ElementConnection>();
+                for (final var connection : node.getConnectedTo()) {
+                    final var target = connection.getTargetNode();
+                    if (target == null) continue;
+
+                    if (ids.containsKey(target)) {
+                        connection.setTargetNode(ids.get(target));
+                    }
+                    else if (entryNodes.containsKey(target)) {
+                        connection.setTargetNode(entryNodes.get(target));
+                        connected.add(target);
+                    }
+                    else if (!usedIds.contains(target)) {
+                        LOG.warn("Removing connection from '{}' to unknown node '{}' in partition '{}'", node.getId(), target, partition.getKey());
+                        continue;
+                    }
+                    resolved.add(connection);
+                }
+                node.setConnectedTo(resolved);
+            }
+        }
+
+        final var model = new BpmnIntermediateModel();
+        for (final var partition : partitionNodes.entrySet()) {
+            model.getNodes().addAll(partition.getValue());
+
+            final var flows = outline.getFlowsFrom(partition.getKey()).stream()
+                    .filter(x -> !connectedPartitions.get(partition.getKey()).contains(x.getTo()))
+                    .toList();
+            if (!flows.isEmpty()) {
+                connectOpenPaths(model, partition.getKey(), partition.getValue(), flows, entryNodes, usedIds);
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Serialize a stitched model, omitting any fields which were not generated
+     *
+     * @param model     Stitched model
+     * @return          Serialized model
+     */
+    public static String serialize(BpmnIntermediateModel model) {
+        try {
+            return SERIALIZER.writeValueAsString(model);
+        }
+        catch (Exception ex) {
+            throw new BpmnGenerationException(String.format("Failed to serialize stitched model (%s)", ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Connect the open paths of a partition, i.e. nodes with no outgoing connections other than end events, to the
+     * entry nodes of the partitions which follow it
+     */
+    private static void connectOpenPaths(BpmnIntermediateModel model, String partitionId, List<ElementNode> nodes,
+                                         List<BpmnProcessOutline.Flow> flows, Map<String, String> entryNodes, Set<String> usedIds) {
+        final var openPaths = nodes.stream()
+                .filter(x -> !END_EVENT.equals(x.getElementType()))
+                .filter(x -> x.getConnectedTo() == null || x.getConnectedTo().isEmpty())
+                .toList();
+
+        if (openPaths.isEmpty()) {
+            LOG.warn("Partition '{}' has no open path to connect to the partitions which follow it", partitionId);
+            return;
+        }
+
+        final String target;
+        if (flows.size() == 1) {
+            target = entryNodes.get(flows.get(0).getTo());
+        }
+        else {
+            final var gateway = new ElementNode(uniqueId(partitionId, "next", usedIds), "Next step", EXCLUSIVE_GATEWAY);
+            gateway.setConnectedTo(flows.stream()
+                    .map(x -> new ElementConnection(entryNodes.get(x.getTo()), x.getCondition()))
+                    .toList());
+            model.getNodes().add(gateway);
+            target = gateway.getId();
+        }
+
+        final var description = (flows.size() == 1) ? flows.get(0).getCondition() : null;
+        openPaths.forEach(node -> node.setConnectedTo(List.of(new ElementConnection(target, description))));
+    }
+
+    /**
+     * Returns the given ID if it is not yet in use, or otherwise a unique ID qualified by the partition ID.  The
+     * returned ID is recorded as in use
+     */
+    private static String uniqueId(String partitionId, String id, Set<String> usedIds) {
+        final var base = (id == null || id.isBlank()) ? partitionId + "_node" : id;
+        var candidate = base;
+        if (usedIds.contains(candidate) && !base.startsWith(partitionId + "_")) candidate = partitionId + "_" + base;
+
+        final var qualified = candidate;
+        for (int n = 2; usedIds.contains(candidate); ++n) {
+            candidate = qualified + "_" + n;
+        }
+
+        usedIds.add(candidate);
+        return candidate;
+    }
+}
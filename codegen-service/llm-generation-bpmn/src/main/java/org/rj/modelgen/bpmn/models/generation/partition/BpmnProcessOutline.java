@@ -0,0 +1,200 @@
+package org.rj.modelgen.bpmn.models.generation.partition;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * High-level outline of a process, dividing it into partitions (phases of the process) which can be generated
+ * independently, and the flows between them
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BpmnProcessOutline {
+    private List<Partition> partitions = new ArrayList<>();
+    private List<Flow> flows = new ArrayList<>();
+
+    public BpmnProcessOutline() { }
+
+    /**
+     * Parse an outline.  Returns empty if the content is not a valid outline, i.e. if it has no partitions, if
+     * partition IDs are missing or not unique, or if any flow refers to an unknown partition
+     *
+     * @param content       Serialized outline
+     * @return              Outline, if valid
+     */
+    public static Optional<BpmnProcessOutline> parse(String content) {
+        final BpmnProcessOutline outline;
+        try {
+            outline = Util.getObjectMapper().readValue(content, BpmnProcessOutline.class);
+        }
+        catch (Exception ex) {
+            return Optional.empty();
+        }
+
+        if (outline == null || outline.partitions == null || outline.partitions.isEmpty()) return Optional.empty();
+        if (outline.flows == null) outline.flows = new ArrayList<>();
+
+        final var ids = new HashSet<String>();
+        for (final var partition : outline.partitions) {
+            if (partition == null || partition.id == null || partition.id.isBlank() || !ids.add(partition.id)) return Optional.empty();
+        }
+        for (final var flow : outline.flows) {
+            if (flow == null || !ids.contains(flow.from) || !ids.contains(flow.to)) return Optional.empty();
+        }
+
+        return Optional.of(outline);
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(List<Partition> partitions) {
+        this.partitions = partitions;
+    }
+
+    public List<Flow> getFlows() {
+        return flows;
+    }
+
+    public void setFlows(List<Flow> flows) {
+        this.flows = flows;
+    }
+
+    /**
+     * @param partitionId   Partition ID
+     * @return              Flows from the given partition to others
+     */
+    @JsonIgnore
+    public List<Flow> getFlowsFrom(String partitionId) {
+        return flows.stream().filter(x -> partitionId.equals(x.from)).toList();
+    }
+
+    /**
+     * @param partitionId   Partition ID
+     * @return              Flows into the given partition from others
+     */
+    @JsonIgnore
+    public List<Flow> getFlowsTo(String partitionId) {
+        return flows.stream().filter(x -> partitionId.equals(x.to)).toList();
+    }
+
+    /**
+     * @return      Readable summary of the outline, for inclusion in the prompt for each partition
+     */
+    public String describe() {
+        final var description = new StringBuilder();
+        for (final var partition : partitions) {
+            description.append(String.format("* \"%s\" (ID \"%s\"%s)", partition.getName(), partition.id,
+                    partition.lane == null || partition.lane.isBlank() ? "" : ", " + partition.lane));
+
+            final var next = getFlowsFrom(partition.id).stream()
+                    .map(x -> "\"" + x.to + "\"" + (x.condition == null || x.condition.isBlank() ? "" : " if " + x.condition))
+                    .collect(Collectors.joining(", "));
+            description.append(next.isEmpty() ? ", which ends the process" : ", continuing to " + next).append('\n');
+        }
+
+        return description.toString();
+    }
+
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Partition {
+        private String id;
+        private String name;
+        private String lane;
+        private String description;
+
+        public Partition() { }
+
+        public Partition(String id, String name, String lane, String description) {
+            this.id = id;
+            this.name = name;
+            this.lane = lane;
+            this.description = description;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return (name == null || name.isBlank()) ? id : name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return      Participant or system responsible for the partition
+         */
+        public String getLane() {
+            return lane;
+        }
+
+        public void setLane(String lane) {
+            this.lane = lane;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Flow {
+        private String from;
+        private String to;
+        private String condition;
+
+        public Flow() { }
+
+        public Flow(String from, String to, String condition) {
+            this.from = from;
+            this.to = to;
+            this.condition = condition;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public void setFrom(String from) {
+            this.from = from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public void setTo(String to) {
+            this.to = to;
+        }
+
+        /**
+         * @return      Condition under which the process follows this flow, if the source partition has several
+         */
+        public String getCondition() {
+            return condition;
+        }
+
+        public void setCondition(String condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package org.rj.modelgen.bpmn.models.generation.states;
 
-import org.camunda.bpm.model.bpmn.BpmnModelInstance;
-import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.session.history.ModelHistory;
 import org.rj.modelgen.llm.state.ModelInterfaceSignal;
 import org.rj.modelgen.llm.state.ModelInterfaceState;
 import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
+import java.util.Optional;
 
+/**
+ * Terminal state of a successful generation.  Its results are read from the payload of its input signal, via
+ * {@link org.rj.modelgen.bpmn.models.generation.BpmnGenerationResult}, since the state is shared by all executions.
+ * The generated model is recorded in the session model history here, once it has passed all validation
+ */
 public class BpmnGenerationComplete extends ModelInterfaceState {
-    private BpmnIntermediateModel intermediateModel;
-    private BpmnModelInstance generatedBpmn;
-    private List<String> bpmnValidationMessages = List.of();
-
     public BpmnGenerationComplete() {
         super(BpmnGenerationComplete.class);
     }
@@ -25,23 +27,20 @@ public class BpmnGenerationComplete extends ModelInterfaceState {
 
     @Override
     protected Mono<ModelInterfaceSignal> invokeAction(ModelInterfaceSignal inputSignal) {
+        final String sessionId = inputSignal.getPayload().get(StandardModelData.SessionId);
+        final String model = inputSignal.getPayload().get(StandardModelData.SanitizedContent);
 
-        this.intermediateModel = getPayload().get(StandardModelData.IntermediateModel);
-        this.generatedBpmn = getPayload().get(StandardModelData.GeneratedBpmn);
-        this.bpmnValidationMessages = getPayload().get(StandardModelData.BpmnValidationMessages);
-
-        return terminalSignal();
-    }
-
-    public BpmnIntermediateModel getIntermediateModel() {
-        return intermediateModel;
-    }
+        if (sessionId != null && model != null) {
+            final var session = getModelInterface().getOrCreateSession(sessionId);
+            final var prompt = Optional.ofNullable(session.getContext())
+                    .flatMap(Context::getLatestUserEntry)
+                    .map(ContextEntry::getContent)
+                    .orElse(null);
 
-    public BpmnModelInstance getGeneratedBpmn() {
-        return generatedBpmn;
-    }
+            session.getOrCreateAttachment(ModelHistory.class, ModelHistory::new).commit(model, prompt);
+            getModelInterface().updateSession(session);     // History has changed, so the session may be persisted
+        }
 
-    public List<String> getBpmnValidationMessages() {
-        return bpmnValidationMessages;
+        return terminalSignal();
     }
 }
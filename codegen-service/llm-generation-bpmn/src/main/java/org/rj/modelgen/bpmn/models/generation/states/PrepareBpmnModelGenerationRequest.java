@@ -8,19 +8,55 @@ import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptType;
 import org.rj.modelgen.bpmn.models.generation.signals.BpmnGenerationSignals;
 import org.rj.modelgen.llm.context.Context;
 import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.context.provider.ContextProvider;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlicer;
 import org.rj.modelgen.llm.prompt.PromptSubstitution;
+import org.rj.modelgen.llm.retrieval.FewShotExampleSelector;
 import org.rj.modelgen.llm.schema.ModelSchema;
+import org.rj.modelgen.llm.schema.SchemaPromptFormat;
 import org.rj.modelgen.llm.statemodel.states.common.PrepareModelGenerationRequest;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 public class PrepareBpmnModelGenerationRequest extends PrepareModelGenerationRequest {
     private final BpmnGenerationPromptGenerator promptGenerator;
+    private final FewShotExampleSelector exampleSelector;
 
     public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator) {
-        super(PrepareBpmnModelGenerationRequest.class, modelSchema, new ConstrainedBpmnGenerationContextProvider(promptGenerator));
+        this(modelSchema, promptGenerator, new ConstrainedBpmnGenerationContextProvider(promptGenerator));
+    }
+
+    public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator, ContextProvider contextProvider) {
+        this(modelSchema, promptGenerator, contextProvider, IntermediateModelEncoding.none());
+    }
+
+    public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator, ContextProvider contextProvider,
+                                             IntermediateModelEncoding modelEncoding) {
+        this(modelSchema, promptGenerator, contextProvider, modelEncoding, SchemaPromptFormat.JsonSchema);
+    }
+
+    public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator, ContextProvider contextProvider,
+                                             IntermediateModelEncoding modelEncoding, SchemaPromptFormat schemaFormat) {
+        this(modelSchema, promptGenerator, contextProvider, modelEncoding, schemaFormat, null);
+    }
+
+    public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator, ContextProvider contextProvider,
+                                             IntermediateModelEncoding modelEncoding, SchemaPromptFormat schemaFormat, GraphModelSlicer modelSlicer) {
+        this(modelSchema, promptGenerator, contextProvider, modelEncoding, schemaFormat, modelSlicer, null);
+    }
+
+    public PrepareBpmnModelGenerationRequest(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator, ContextProvider contextProvider,
+                                             IntermediateModelEncoding modelEncoding, SchemaPromptFormat schemaFormat, GraphModelSlicer modelSlicer,
+                                             FewShotExampleSelector exampleSelector) {
+        super(PrepareBpmnModelGenerationRequest.class, modelSchema, contextProvider,
+              buildSystemPrompt(modelSchema, promptGenerator, modelEncoding, schemaFormat, modelSlicer), modelEncoding, modelSlicer);
         this.promptGenerator = promptGenerator;
+        this.exampleSelector = exampleSelector;
     }
 
     @Override
@@ -28,17 +64,44 @@ public class PrepareBpmnModelGenerationRequest extends PrepareModelGenerationReq
         return "Prepare BPMN model generation request";
     }
 
+    private static String buildSystemPrompt(ModelSchema modelSchema, BpmnGenerationPromptGenerator promptGenerator,
+                                            IntermediateModelEncoding modelEncoding, SchemaPromptFormat schemaFormat,
+                                            GraphModelSlicer modelSlicer) {
+        return promptGenerator.getPrompt(BpmnGenerationPromptType.System, List.of(
+                new PromptSubstitution(BpmnPromptPlaceholders.SCHEMA_CONTENT, modelSchema.getPromptContent(schemaFormat)),
+                new PromptSubstitution(BpmnPromptPlaceholders.MODEL_ENCODING, Optional.ofNullable(modelEncoding)
+                        .map(IntermediateModelEncoding::getDescription).orElse("")),
+                new PromptSubstitution(BpmnPromptPlaceholders.MODEL_SLICING, Optional.ofNullable(modelSlicer)
+                        .map(GraphModelSlicer::getDescription).orElse(""))))
+
+                .orElse(null);
+    }
+
     @Override
     protected String buildGenerationPrompt(ModelSchema modelSchema, Context context, String request) {
         return promptGenerator.getPrompt(BpmnGenerationPromptType.Generate, List.of(
-                new PromptSubstitution(BpmnPromptPlaceholders.SCHEMA_CONTENT, modelSchema.getSchemaContent()),
-                new PromptSubstitution(BpmnPromptPlaceholders.CURRENT_STATE, context.getLatestModelEntry()
+                new PromptSubstitution(BpmnPromptPlaceholders.CURRENT_STATE, context.getLatestSubmittedEntryForRole(ContextRole.MODEL)
                         .orElseGet(() -> ContextEntry.forModel("{}")).getContent()),
                 new PromptSubstitution(BpmnPromptPlaceholders.PROMPT, request)))
 
                 .orElseThrow(() -> new BpmnGenerationException("Could not generate new BPMN generation prompt"));
     }
 
+    // Examples relevant to the request, or an empty string if there are none.  Examples are indexed in the encoding in
+    // which models are submitted, so are included as retrieved
+    @Override
+    protected String buildPromptSupplement(Context context, String request) {
+        final var examples = Optional.ofNullable(exampleSelector).map(selector -> selector.select(request)).orElseGet(List::of);
+        if (examples.isEmpty()) return "";
+
+        return promptGenerator.getPrompt(BpmnGenerationPromptType.FewShotExamples, List.of(
+                new PromptSubstitution(BpmnPromptPlaceholders.EXAMPLES, examples.stream()
+                        .map(example -> "```\n" + example.getContent() + "\n```")
+                        .collect(Collectors.joining("\n")))))
+
+                .orElse("");
+    }
+
     @Override
     public String getSuccessSignalId() {
         return BpmnGenerationSignals.SubmitRequestToLlm.toString();
@@ -2,12 +2,31 @@ package org.rj.modelgen.bpmn.models.generation.states;
 
 import org.rj.modelgen.bpmn.intrep.validation.BpmnIntermediateModelSanitizer;
 import org.rj.modelgen.bpmn.models.generation.signals.BpmnGenerationSignals;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
+import org.rj.modelgen.llm.schema.ModelSchema;
 import org.rj.modelgen.llm.statemodel.states.common.SubmitGenerationRequestToLlm;
 
 public class SubmitBpmnGenerationRequestToLlm extends SubmitGenerationRequestToLlm {
 
     public SubmitBpmnGenerationRequestToLlm() {
-        super(SubmitBpmnGenerationRequestToLlm.class, new BpmnIntermediateModelSanitizer());
+        this(false);
+    }
+
+    public SubmitBpmnGenerationRequestToLlm(boolean acceptDeltaResponses) {
+        this(acceptDeltaResponses, null);
+    }
+
+    public SubmitBpmnGenerationRequestToLlm(boolean acceptDeltaResponses, ModelSchema responseSchema) {
+        this(acceptDeltaResponses, responseSchema, ResponseLengthOptions.defaultOptions());
+    }
+
+    public SubmitBpmnGenerationRequestToLlm(boolean acceptDeltaResponses, ModelSchema responseSchema, ResponseLengthOptions responseLengthOptions) {
+        this(SubmitBpmnGenerationRequestToLlm.class, acceptDeltaResponses, responseSchema, responseLengthOptions);
+    }
+
+    protected SubmitBpmnGenerationRequestToLlm(Class<? extends SubmitBpmnGenerationRequestToLlm> cls, boolean acceptDeltaResponses,
+                                               ModelSchema responseSchema, ResponseLengthOptions responseLengthOptions) {
+        super(cls, new BpmnIntermediateModelSanitizer(), acceptDeltaResponses, responseSchema, responseLengthOptions);
     }
 
     @Override
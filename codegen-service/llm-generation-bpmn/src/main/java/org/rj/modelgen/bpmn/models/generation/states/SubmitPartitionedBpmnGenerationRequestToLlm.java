@@ -0,0 +1,221 @@
+package org.rj.modelgen.bpmn.models.generation.states;
+
+import org.jooq.lambda.tuple.Tuple2;
+import org.rj.modelgen.bpmn.exception.BpmnGenerationException;
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptGenerator;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptType;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnPromptPlaceholders;
+import org.rj.modelgen.bpmn.models.generation.partition.BpmnPartitionStitcher;
+import org.rj.modelgen.bpmn.models.generation.partition.BpmnProcessOutline;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.intrep.IntermediateModelParser;
+import org.rj.modelgen.llm.prompt.PromptSubstitution;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
+import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.schema.ModelSchema;
+import org.rj.modelgen.llm.schema.SchemaPromptFormat;
+import org.rj.modelgen.llm.state.ModelInterfaceSignal;
+import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Generates new processes in partitions.  The LLM is first asked for an outline of the process phases, and each phase
+ * is then generated by a separate request.  Requests for all phases are submitted in parallel and the resulting
+ * models stitched into a single model, so that generation time is bounded by the largest phase rather than by the
+ * complete process.  Edits to an existing process, and processes which are outlined as a single phase, are
+ * generated by a single request as normal
+ */
+public class SubmitPartitionedBpmnGenerationRequestToLlm extends SubmitBpmnGenerationRequestToLlm {
+    private static final Logger LOG = LoggerFactory.getLogger(SubmitPartitionedBpmnGenerationRequestToLlm.class);
+
+    private final BpmnGenerationPromptGenerator promptGenerator;
+    private final String systemPrompt;
+    private final int maxPartitions;
+    private final IntermediateModelParser<BpmnIntermediateModel> parser;
+
+    /**
+     * @param acceptDeltaResponses      Whether edits to an existing process may be returned as a delta
+     * @param responseSchema            Schema to which requests for a complete model are constrained, or null
+     * @param responseLengthOptions     Sizing of the response token limit, and continuation of truncated responses
+     * @param promptGenerator           Prompt generator, which must provide the partition system prompt and the outline
+     *                                  and partition prompts
+     * @param schemaFormat              Form in which the model schema is rendered in the partition system prompt
+     * @param maxPartitions             Maximum number of partitions, which is also the maximum number of requests
+     *                                  submitted in parallel
+     */
+    public SubmitPartitionedBpmnGenerationRequestToLlm(boolean acceptDeltaResponses, ModelSchema responseSchema,
+                                                      ResponseLengthOptions responseLengthOptions,
+                                                      BpmnGenerationPromptGenerator promptGenerator, SchemaPromptFormat schemaFormat,
+                                                      int maxPartitions) {
+        super(SubmitPartitionedBpmnGenerationRequestToLlm.class, acceptDeltaResponses, responseSchema, responseLengthOptions);
+        if (maxPartitions < 2) throw new BpmnGenerationException("Partitioned generation requires at least two partitions");
+        if (responseSchema == null) throw new BpmnGenerationException("Partitioned generation requires a model schema");
+
+        this.promptGenerator = promptGenerator;
+        this.systemPrompt = generatePrompt(BpmnGenerationPromptType.PartitionSystem, List.of(
+                new PromptSubstitution(BpmnPromptPlaceholders.SCHEMA_CONTENT, responseSchema.getPromptContent(schemaFormat))));
+        this.maxPartitions = maxPartitions;
+        this.parser = new IntermediateModelParser<>(BpmnIntermediateModel.class);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Submit partitioned BPMN generation request to LLM";
+    }
+
+    @Override
+    protected Mono<Tuple2<ModelResponse, String>> generate(String sessionId, Context context, ModelInterfaceSignal input) {
+        // Only new processes are partitioned, since edits apply to the existing model as a whole
+        if (getModelInterface().getOrCreateSession(sessionId).getModelResponseCount() > 0) {
+            return super.generate(sessionId, context, input);
+        }
+
+        final String request = input.getPayload().get(StandardModelData.Request);
+        final var outlineContext = partitionContext(generatePrompt(BpmnGenerationPromptType.Outline, List.of(
+                new PromptSubstitution(BpmnPromptPlaceholders.PROMPT, request),
+                new PromptSubstitution(BpmnPromptPlaceholders.MAX_PARTITIONS, String.valueOf(maxPartitions)))));
+
+        final var outlineRequest = buildRequest(sessionId, outlineContext, false, input);
+        return getModelInterface().submit(sessionId, outlineRequest, getHttpOptions(input))
+                .flatMap(outlineResponse -> {
+                    final var outline = Optional.of(outlineResponse)
+                            .filter(ModelResponse::isSuccessful)
+                            .flatMap(x -> BpmnProcessOutline.parse(sanitize(outlineRequest, x)))
+                            .filter(x -> x.getPartitions().size() > 1 && x.getPartitions().size() <= maxPartitions);
+
+                    if (outline.isEmpty()) {
+                        LOG.info("Session {} process was not outlined in multiple partitions; generating in a single request", sessionId);
+                        return generateSingle(sessionId, context, input, outlineResponse);
+                    }
+
+                    return generatePartitions(sessionId, context, input, request, outline.get(), outlineResponse);
+                });
+    }
+
+    private Mono<Tuple2<ModelResponse, String>> generatePartitions(String sessionId, Context context, ModelInterfaceSignal input, String request,
+                                                                   BpmnProcessOutline outline, ModelResponse outlineResponse) {
+        LOG.info("Session {} generating process in {} partitions ({})", sessionId, outline.getPartitions().size(),
+                outline.getPartitions().stream().map(BpmnProcessOutline.Partition::getId).collect(Collectors.joining(", ")));
+
+        final var description = outline.describe();
+        return Flux.fromIterable(outline.getPartitions())
+                .flatMapSequential(partition -> {
+                    final var partitionRequest = buildRequest(sessionId, partitionContext(generatePrompt(BpmnGenerationPromptType.GeneratePartition, List.of(
+                            new PromptSubstitution(BpmnPromptPlaceholders.PROMPT, request),
+                            new PromptSubstitution(BpmnPromptPlaceholders.OUTLINE, description),
+                            new PromptSubstitution(BpmnPromptPlaceholders.PARTITION_ID, partition.getId()),
+                            new PromptSubstitution(BpmnPromptPlaceholders.PARTITION_NAME, partition.getName()),
+                            new PromptSubstitution(BpmnPromptPlaceholders.PARTITION_LANE, Optional.ofNullable(partition.getLane())
+                                    .filter(x -> !x.isBlank()).orElse("the process")),
+                            new PromptSubstitution(BpmnPromptPlaceholders.PARTITION_DESCRIPTION, Optional.ofNullable(partition.getDescription()).orElse("")),
+                            new PromptSubstitution(BpmnPromptPlaceholders.PARTITION_BOUNDARY, describeBoundary(outline, partition))))), true, input);
+
+                    return submitWithContinuation(sessionId, partitionRequest, input)
+                            .map(response -> tuple(response, sanitize(partitionRequest, response)));
+                }, maxPartitions)
+                .collectList()
+                .flatMap(results -> {
+                    final var responses = new ArrayList<ModelResponse>(List.of(outlineResponse));
+                    final var fragments = new ArrayList<BpmnIntermediateModel>();
+                    for (final var result : results) {
+                        responses.add(result.v1);
+
+                        final var fragment = result.v1.isSuccessful() ? parser.parse(result.v2).getValueIfPresent() : Optional.<BpmnIntermediateModel>empty();
+                        if (fragment.isEmpty()) {
+                            LOG.warn("Session {} partition could not be generated; generating in a single request", sessionId);
+                            return generateSingle(sessionId, context, input, combine(responses));
+                        }
+                        fragments.add(fragment.get());
+                    }
+
+                    final BpmnIntermediateModel model;
+                    try {
+                        model = BpmnPartitionStitcher.stitch(outline, fragments);
+                    }
+                    catch (BpmnGenerationException ex) {
+                        LOG.warn("Session {} partitions could not be stitched ({}); generating in a single request", sessionId, ex.getMessage());
+                        return generateSingle(sessionId, context, input, combine(responses));
+                    }
+
+                    final var content = BpmnPartitionStitcher.serialize(model);
+                    final var combined = combine(responses);
+                    combined.setMessage(content);
+
+                    return Mono.just(tuple(combined, content));
+                });
+    }
+
+    /**
+     * Generate the process in a single request, retaining the token usage of any earlier requests
+     */
+    private Mono<Tuple2<ModelResponse, String>> generateSingle(String sessionId, Context context, ModelInterfaceSignal input,
+                                                               ModelResponse previous) {
+        return super.generate(sessionId, context, input)
+                .map(result -> {
+                    final var combined = combine(List.of(previous, result.v1));
+                    combined.setStatus(result.v1.getStatus());
+                    combined.setMessage(result.v1.getMessage());
+                    combined.setError(result.v1.getError());
+
+                    return tuple(combined, result.v2);
+                });
+    }
+
+    /**
+     * Context for outline and partition requests.  These use a dedicated system prompt rather than that of the generation
+     * context, which may ask for changes to an existing model rather than complete data, and which is identical across
+     * all of the requests so that it can be served from the provider prompt cache
+     */
+    private Context partitionContext(String prompt) {
+        return new Context(List.of(ContextEntry.forUser(prompt))).withSystemPrompt(systemPrompt);
+    }
+
+    private String generatePrompt(BpmnGenerationPromptType type, List<PromptSubstitution> substitutions) {
+        return promptGenerator.getPrompt(type, substitutions)
+                .orElseThrow(() -> new BpmnGenerationException(String.format("Could not generate %s prompt for partitioned generation", type)));
+    }
+
+    private static String describeBoundary(BpmnProcessOutline outline, BpmnProcessOutline.Partition partition) {
+        final var boundary = new StringBuilder();
+        boundary.append(outline.getPartitions().get(0) == partition
+                ? "* This phase begins the process, so it must begin with a Start Event\n"
+                : "* This phase continues from an earlier phase, so it must not contain a Start Event\n");
+
+        final var next = outline.getFlowsFrom(partition.getId());
+        boundary.append(next.isEmpty()
+                ? "* This phase ends the process, so every path must finish with an End Event"
+                : "* This phase continues to " + next.stream()
+                        .map(x -> "\"" + x.getTo() + "\"" + (x.getCondition() == null || x.getCondition().isBlank() ? "" : " if " + x.getCondition()))
+                        .collect(Collectors.joining(", ")) +
+                  ".  Connect to those phases by ID, or leave the final nodes of this phase without connections");
+
+        return boundary.toString();
+    }
+
+    /**
+     * Combine the token usage of several responses
+     */
+    private static ModelResponse combine(List<ModelResponse> responses) {
+        final var combined = new ModelResponse();
+        combined.setStatus(ModelResponse.Status.SUCCESS);
+        for (final var response : responses) {
+            combined.setPromptTokenUsage(combined.getPromptTokenUsage() + response.getPromptTokenUsage());
+            combined.setCachedPromptTokenUsage(combined.getCachedPromptTokenUsage() + response.getCachedPromptTokenUsage());
+            combined.setResponseTokenUsage(combined.getResponseTokenUsage() + response.getResponseTokenUsage());
+        }
+
+        return combined;
+    }
+}
@@ -28,7 +28,7 @@ public class ValidateBpmnModelCorrectness extends ModelInterfaceState {
     @Override
     protected Mono<ModelInterfaceSignal> invokeAction(ModelInterfaceSignal input) {
 
-        final BpmnModelInstance bpmn = getPayload().get(StandardModelData.GeneratedBpmn);
+        final BpmnModelInstance bpmn = input.getPayload().get(StandardModelData.GeneratedBpmn);
         if (bpmn == null) {
             // TODO: Generate error signal
         }
@@ -40,7 +40,7 @@ public class ValidateBpmnModelCorrectness extends ModelInterfaceState {
         catch (ModelValidationException ex) {
             // TODO: Generate error signal
             LOG.error("BPMN model failed validation: {}", ex.getMessage());
-            getPayload().put(StandardModelData.BpmnValidationMessages, ex.getMessage());
+            input.getPayload().put(StandardModelData.BpmnValidationMessages, ex.getMessage());
         }
 
         // Additional custom validations
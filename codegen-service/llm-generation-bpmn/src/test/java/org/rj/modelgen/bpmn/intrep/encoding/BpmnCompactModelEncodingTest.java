@@ -0,0 +1,56 @@
+package org.rj.modelgen.bpmn.intrep.encoding;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.intrep.schema.BpmnIntermediateModelSchema;
+import org.rj.modelgen.llm.intrep.IntermediateModelParser;
+import org.rj.modelgen.llm.tokenizer.Tokenizers;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.stream.IntStream;
+
+public class BpmnCompactModelEncodingTest {
+    private final BpmnCompactModelEncoding encoding = new BpmnCompactModelEncoding();
+
+    @Test
+    public void testGenerationExamplesAreReversiblyCompacted() {
+        final var schema = new BpmnIntermediateModelSchema();
+        final var parser = new IntermediateModelParser<>(BpmnIntermediateModel.class);
+        final var tokenizer = Tokenizers.defaultTokenizer();
+
+        long standardTokens = 0L;
+        long compactTokens = 0L;
+        for (final var model : IntStream.rangeClosed(1, 6)
+                .mapToObj(n -> Util.loadStringResource(String.format("generation-examples/input/example-%d-input.json", n)))
+                .toList()) {
+
+            final var compact = encoding.encode(model);
+            final var decoded = encoding.decode(compact);
+
+            Assertions.assertEquals(schema.validate(model).isValid(), schema.validate(decoded).isValid());
+            Assertions.assertTrue(parser.parse(decoded).isOk());
+            Assertions.assertEquals(compact, encoding.encode(decoded));
+
+            standardTokens += tokenizer.countTokens(model);
+            compactTokens += tokenizer.countTokens(compact);
+        }
+
+        // Corpus is reduced from 6581 to 3657 tokens
+        Assertions.assertTrue(compactTokens < standardTokens * 0.6, () -> "Insufficient reduction in token count");
+    }
+
+    @Test
+    public void testDecodingAcceptsEitherForm() {
+        final var standard = "{ \"nodes\": [ { \"id\": \"a\", \"name\": \"A\", \"elementType\": \"startEvent\", \"description\": null } ] }";
+        Assertions.assertSame(standard, encoding.decode(standard));
+        Assertions.assertEquals("{\"n\":[{\"id\":\"a\",\"name\":\"A\",\"t\":\"startEvent\"}]}", encoding.encode(standard));
+
+        // Node data in model deltas is also restored, while values and free-form properties are unchanged
+        final var delta = "[{\"op\":\"addNode\",\"node\":{\"id\":\"b\",\"t\":\"userTask\",\"p\":{\"t\":\"1\"},\"c\":[{\"to\":\"a\",\"d\":\"to\"}]}}," +
+                          "{\"op\":\"connect\",\"from\":\"b\",\"to\":\"a\"}]";
+        Assertions.assertEquals("[{\"op\":\"addNode\",\"node\":{\"id\":\"b\",\"elementType\":\"userTask\",\"properties\":{\"t\":\"1\"}," +
+                                "\"connectedTo\":[{\"targetNode\":\"a\",\"description\":\"to\"}]}},{\"op\":\"connect\",\"from\":\"b\",\"to\":\"a\"}]",
+                encoding.decode(delta));
+    }
+}
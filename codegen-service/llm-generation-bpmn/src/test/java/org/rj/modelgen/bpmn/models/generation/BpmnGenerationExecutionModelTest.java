@@ -0,0 +1,66 @@
+package org.rj.modelgen.bpmn.models.generation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.bpmn.intrep.schema.BpmnIntermediateModelSchema;
+import org.rj.modelgen.bpmn.llm.context.provider.impl.BudgetedBpmnGenerationContextProvider;
+import org.rj.modelgen.bpmn.llm.context.provider.impl.ConstrainedBpmnGenerationContextProvider;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationPromptGenerator;
+import org.rj.modelgen.llm.model.ModelInterface;
+import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.session.history.ModelHistory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+public class BpmnGenerationExecutionModelTest {
+    private static final BpmnGenerationPromptGenerator PROMPT_GENERATOR =
+            BpmnGenerationPromptGenerator.create("system", "${PROMPT}", "initial", "<not-implemented>");
+
+    @Test
+    public void testDefaultOptionsSubmitCompleteHistory() {
+        final var options = BpmnGenerationExecutionModelOptions.defaultOptions();
+
+        Assertions.assertTrue(options.shouldUseHistory());
+        Assertions.assertFalse(options.shouldUseContextBudget());
+        Assertions.assertInstanceOf(ConstrainedBpmnGenerationContextProvider.class,
+                BpmnGenerationExecutionModel.createContextProvider(PROMPT_GENERATOR, options));
+    }
+
+    @Test
+    public void testContextBudgetIsAppliedOnlyWithHistory() {
+        Assertions.assertInstanceOf(BudgetedBpmnGenerationContextProvider.class, BpmnGenerationExecutionModel.createContextProvider(
+                PROMPT_GENERATOR, BpmnGenerationExecutionModelOptions.defaultOptions().withUseContextBudget(true)));
+
+        Assertions.assertInstanceOf(ConstrainedBpmnGenerationContextProvider.class, BpmnGenerationExecutionModel.createContextProvider(
+                PROMPT_GENERATOR, BpmnGenerationExecutionModelOptions.defaultOptions().withUseContextBudget(true).withUseHistory(false)));
+    }
+
+    @Test
+    public void testOnlyValidatedModelsAreCommittedToHistory() {
+        final var valid = "{ \"nodes\": [ " +
+                "{ \"id\": \"start\", \"name\": \"Start\", \"elementType\": \"startEvent\", \"connectedTo\": [ { \"targetNode\": \"end\" } ] }, " +
+                "{ \"id\": \"end\", \"name\": \"End\", \"elementType\": \"endEvent\" } ] }";
+        final var responses = new ArrayDeque<>(List.of(valid, "not a model"));
+
+        final var modelInterface = new ModelInterface((request, metadata, httpOptions) -> Mono.just(response(responses.poll()))) { };
+        final var model = BpmnGenerationExecutionModel.create(modelInterface, new BpmnIntermediateModelSchema(),
+                BpmnGenerationExecutionModelOptions.defaultOptions());
+
+        Assertions.assertTrue(model.executeModel("session", "Create a process").block().isSuccessful());
+        Assertions.assertFalse(model.executeModel("session", "Break the process").block().isSuccessful());
+
+        // Only the first response passed validation, so the rejected response is not a version of the model
+        final var history = modelInterface.getSession("session").orElseThrow().getAttachment(ModelHistory.class).orElseThrow();
+        Assertions.assertEquals(1, history.getVersions().size());
+        Assertions.assertEquals(history.getVersions().get(0).getId(), history.getCurrentVersion());
+    }
+
+    private static ModelResponse response(String message) {
+        final var response = new ModelResponse();
+        response.setStatus(ModelResponse.Status.SUCCESS);
+        response.setMessage(message);
+        return response;
+    }
+}
@@ -0,0 +1,99 @@
+package org.rj.modelgen.bpmn.models.generation.context;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rj.modelgen.bpmn.intrep.encoding.BpmnCompactModelEncoding;
+import org.rj.modelgen.bpmn.intrep.schema.BpmnIntermediateModelSchema;
+import org.rj.modelgen.bpmn.llm.context.provider.impl.ConstrainedBpmnGenerationContextProvider;
+import org.rj.modelgen.bpmn.models.generation.states.PrepareBpmnModelGenerationRequest;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
+import org.rj.modelgen.llm.model.ModelInterface;
+import org.rj.modelgen.llm.retrieval.Bm25Index;
+import org.rj.modelgen.llm.retrieval.FewShotExampleSelector;
+import org.rj.modelgen.llm.retrieval.IndexedDocument;
+import org.rj.modelgen.llm.retrieval.ScoredDocument;
+import org.rj.modelgen.llm.schema.SchemaPromptFormat;
+import org.rj.modelgen.llm.state.ModelInterfaceSignal;
+import org.rj.modelgen.llm.state.ModelInterfaceStateMachine;
+import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
+import org.rj.modelgen.llm.util.Util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BpmnGenerationExamplesTest {
+    @Test
+    public void testRelevantExamplesAreRetrieved(@TempDir Path directory) {
+        final var file = directory.resolve("examples.idx");
+        final var index = BpmnGenerationExamples.openIndex(file, IntermediateModelEncoding.none());
+        Assertions.assertTrue(Files.exists(file));
+        Assertions.assertEquals(6, index.size());
+
+        final var onboarding = index.search("Customer onboarding with sanctions and PEP screening", 2);
+        Assertions.assertTrue(onboarding.stream().map(ScoredDocument::getId).allMatch(x -> x.contains("example-3") || x.contains("example-4")));
+
+        final var expenses = new FewShotExampleSelector(index).select("Expense claims with a receipt check before payment");
+        Assertions.assertFalse(expenses.isEmpty());
+        Assertions.assertTrue(expenses.get(0).getContent().contains("Receipt Check"));
+    }
+
+    @Test
+    public void testExamplesAreIndexedInSubmittedEncoding() {
+        final var encoding = new BpmnCompactModelEncoding();
+        final var standard = BpmnGenerationExamples.loadCorpus(IntermediateModelEncoding.none());
+        final var encoded = BpmnGenerationExamples.buildIndex(encoding).search("Expense claims with a receipt check", 1).get(0);
+
+        final var original = standard.stream().filter(x -> x.getId().equals(encoded.getId())).findFirst().orElseThrow();
+        Assertions.assertEquals(encoding.encode(original.getContent()), encoded.getContent());
+        Assertions.assertEquals(Util.estimateTokenSize(encoded.getContent()), encoded.getTokens());
+        Assertions.assertTrue(encoded.getTokens() < Util.estimateTokenSize(original.getContent()));
+    }
+
+    @Test
+    public void testIndexIsRebuiltForDifferentCorpus(@TempDir Path directory) {
+        final var file = directory.resolve("examples.idx");
+        Bm25Index.build(List.of(new IndexedDocument("stale", "Stale example", "{}"))).write(file);
+
+        final var index = BpmnGenerationExamples.openIndex(file, IntermediateModelEncoding.none());
+        Assertions.assertEquals(6, index.size());
+        Assertions.assertEquals(Bm25Index.corpusHash(BpmnGenerationExamples.loadCorpus(IntermediateModelEncoding.none())), index.getCorpusHash());
+
+        // Changing the encoding changes the indexed content, so also requires the index to be rebuilt
+        final var encoded = BpmnGenerationExamples.openIndex(file, new BpmnCompactModelEncoding());
+        Assertions.assertNotEquals(index.getCorpusHash(), encoded.getCorpusHash());
+        Assertions.assertEquals(encoded.getCorpusHash(), Bm25Index.open(file).getCorpusHash());
+    }
+
+    @Test
+    public void testExamplesAreSubmittedButNotRetainedInSession() {
+        final var generator = BpmnGenerationPromptGenerator.create("system", Util.loadStringResource("content/bpmn-prompt-template-no-history"), "", "")
+                .withAvailablePrompt(BpmnGenerationPromptType.FewShotExamples, Util.loadStringResource("content/bpmn-examples-prompt"));
+        final var state = new PrepareBpmnModelGenerationRequest(new BpmnIntermediateModelSchema(), generator,
+                new ConstrainedBpmnGenerationContextProvider(generator), IntermediateModelEncoding.none(), SchemaPromptFormat.JsonSchema,
+                null, new FewShotExampleSelector(BpmnGenerationExamples.buildIndex(IntermediateModelEncoding.none())));
+
+        final var modelInterface = new ModelInterface(null) { };
+        new ModelInterfaceStateMachine(modelInterface, List.of(state), null);
+
+        final var output = state.invoke(new ModelInterfaceSignal("Prepare")
+                        .withPayloadData(StandardModelData.SessionId, "session")
+                        .withPayloadData(StandardModelData.Context, new Context())
+                        .withPayloadData(StandardModelData.Request, "Expense claims with a receipt check before payment"))
+                .block();
+
+        final Context submitted = output.getPayload().get(StandardModelData.Context);
+        Assertions.assertTrue(submitted.getLatestSubmittedEntryForRole(ContextRole.USER).map(ContextEntry::getContent).orElseThrow().contains("Receipt Check"));
+
+        final var retained = modelInterface.getSession("session").orElseThrow().getContext().getLatestUserEntry().orElseThrow();
+        Assertions.assertFalse(retained.getContent().contains("Receipt Check"));
+        Assertions.assertTrue(retained.getContent().contains("Expense claims with a receipt check before payment"));
+
+        // The session retains the history of the submitted context itself, rather than a copy of it
+        Assertions.assertSame(retained, submitted.getLatestUserEntry().orElseThrow());
+    }
+}
@@ -0,0 +1,95 @@
+package org.rj.modelgen.bpmn.models.generation.partition;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
+import org.rj.modelgen.bpmn.intrep.model.ElementConnection;
+import org.rj.modelgen.bpmn.intrep.model.ElementNode;
+import org.rj.modelgen.bpmn.intrep.schema.BpmnIntermediateModelSchema;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class BpmnPartitionStitcherTest {
+    private static final String OUTLINE = """
+            { "partitions": [
+                { "id": "submit", "name": "Submission", "lane": "Employee", "description": "Submit expense claim" },
+                { "id": "review", "name": "Review", "lane": "Manager", "description": "Review and decide" },
+                { "id": "pay", "name": "Payment", "lane": "Finance", "description": "Pay the claim" },
+                { "id": "reject", "name": "Rejection", "lane": "Manager", "description": "Notify the employee" }
+              ],
+              "flows": [
+                { "from": "submit", "to": "review" },
+                { "from": "review", "to": "pay", "condition": "Approved" },
+                { "from": "review", "to": "reject", "condition": "Rejected" }
+              ] }""";
+
+    @Test
+    public void testOutlineIsValidated() {
+        Assertions.assertTrue(BpmnProcessOutline.parse(OUTLINE).isPresent());
+        Assertions.assertTrue(BpmnProcessOutline.parse("{ \"partitions\": [] }").isEmpty());
+        Assertions.assertTrue(BpmnProcessOutline.parse("{ \"partitions\": [ { \"id\": \"a\" }, { \"id\": \"a\" } ] }").isEmpty());
+        Assertions.assertTrue(BpmnProcessOutline.parse("{ \"partitions\": [ { \"id\": \"a\" } ], \"flows\": [ { \"from\": \"a\", \"to\": \"b\" } ] }").isEmpty());
+        Assertions.assertTrue(BpmnProcessOutline.parse("{ \"nodes\": [] }").isEmpty());
+    }
+
+    @Test
+    public void testPartitionsAreStitchedIntoSingleModel() {
+        final var outline = BpmnProcessOutline.parse(OUTLINE).orElseThrow();
+
+        // Partitions reuse IDs, connect explicitly by partition ID, or leave their final node open
+        final var submit = fragment(
+                node("start", "startEvent", "submit_claim"),
+                node("submit_claim", "userTask", "review"));
+        final var review = fragment(
+                node("start", "startEvent", "check"),
+                node("check", "userTask"));
+        final var pay = fragment(
+                node("check", "serviceTask", "end"),
+                node("end", "endEvent"));
+        final var reject = fragment(
+                node("notify", "sendTask", "end"),
+                node("end", "endEvent"));
+
+        final var model = BpmnPartitionStitcher.stitch(outline, List.of(submit, review, pay, reject));
+        final var nodes = model.getNodes().stream().collect(Collectors.toMap(ElementNode::getId, Function.identity()));
+
+        Assertions.assertEquals(1, model.getNodes().stream().filter(x -> "startEvent".equals(x.getElementType())).count());
+        Assertions.assertEquals(model.getNodes().size(), nodes.size());
+
+        // Explicit connection to a partition resolves to its entry node, which excludes any start event
+        Assertions.assertEquals(List.of("check"), targets(nodes.get("submit_claim")));
+
+        // Open path of a partition with several successors branches through a gateway
+        final var gateway = nodes.get(targets(nodes.get("check")).get(0));
+        Assertions.assertEquals("exclusiveGateway", gateway.getElementType());
+        Assertions.assertEquals(List.of("pay_check", "notify"), targets(gateway));
+        Assertions.assertEquals("Approved", gateway.getConnectedTo().iterator().next().getDescription());
+
+        // Conflicting IDs are qualified by partition, along with references to them within the partition
+        Assertions.assertEquals(List.of("end"), targets(nodes.get("pay_check")));
+        Assertions.assertEquals(List.of("reject_end"), targets(nodes.get("notify")));
+
+        Assertions.assertTrue(new BpmnIntermediateModelSchema().validate(BpmnPartitionStitcher.serialize(model)).isValid());
+    }
+
+    private static BpmnIntermediateModel fragment(ElementNode... nodes) {
+        final var model = new BpmnIntermediateModel();
+        model.getNodes().addAll(List.of(nodes));
+        return model;
+    }
+
+    private static ElementNode node(String id, String elementType, String... targets) {
+        final var node = new ElementNode(id, id, elementType);
+        if (targets.length > 0) {
+            node.setConnectedTo(Arrays.stream(targets).map(x -> new ElementConnection(x, null)).toList());
+        }
+        return node;
+    }
+
+    private static List<String> targets(ElementNode node) {
+        return node.getConnectedTo().stream().map(ElementConnection::getTargetNode).toList();
+    }
+}
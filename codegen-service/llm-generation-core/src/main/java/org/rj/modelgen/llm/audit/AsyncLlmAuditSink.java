@@ -0,0 +1,222 @@
+package org.rj.modelgen.llm.audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.rj.modelgen.llm.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit sink which hands records to a background writer through a lock-free ring buffer.  The calling thread only
+ * makes the sampling decision and enqueues a reference to the payload; serialization, field truncation and the
+ * write to the rotating memory-mapped log all happen on the writer thread, and only for records which are kept.
+ * Records are dropped rather than blocking the caller if the writer falls behind.  The writer parks while the buffer
+ * is empty, and is woken by the first record offered while it is parked, so an idle sink consumes no CPU time
+ */
+public class AsyncLlmAuditSink implements LlmAuditSink {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLlmAuditSink.class);
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+    private static final long CLOSE_TIMEOUT_MS = 5000L;
+
+    private final LlmAuditOptions options;
+    private final MpscRingBuffer<LlmAuditRecord> buffer;
+    private final MappedFileAuditLog log;
+    private final ObjectMapper mapper;
+    private final ReusableOutputStream output;
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile boolean idle;
+    private final AtomicBoolean rejectionReported = new AtomicBoolean(false);
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder sampledOutCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+
+    public AsyncLlmAuditSink(LlmAuditOptions options) {
+        if (options == null) throw new IllegalArgumentException("Cannot create audit sink without valid options");
+
+        this.options = options;
+        this.buffer = new MpscRingBuffer<>(options.getBufferCapacity());
+        this.log = new MappedFileAuditLog(options.getDirectory(), options.getFilePrefix(), options.getSegmentSize(), options.getMaxSegments());
+        this.mapper = Util.getObjectMapper();
+        this.output = new ReusableOutputStream();
+
+        this.running = true;
+        this.writer = new Thread(this::runWriter, "llm-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public boolean record(LlmAuditRecordType type, int requestId, Object payload) {
+        if (!running) {
+            // Requests still in flight during shutdown are rejected, and reported once rather than for every record
+            rejectedCount.increment();
+            if (!rejectionReported.getAndSet(true)) {
+                LOG.warn("Rejecting audit record for request {}; audit sink is closed", requestId);
+            }
+            return false;
+        }
+
+        if (!isSampled(requestId)) {
+            sampledOutCount.increment();
+            return true;
+        }
+
+        if (buffer.offer(new LlmAuditRecord(System.currentTimeMillis(), type, requestId, payload))) {
+            acceptedCount.increment();
+            if (idle) LockSupport.unpark(writer);
+            return true;
+        }
+
+        droppedCount.increment();
+        return false;
+    }
+
+    /**
+     * Determine whether records for the given request are retained.  The decision is a deterministic function of
+     * the request ID, so that the request and response records of a sampled request are always kept together
+     *
+     * @param requestId     ID of the request
+     * @return              True if records for this request should be retained
+     */
+    boolean isSampled(int requestId) {
+        final var rate = options.getSampleRate();
+        if (rate >= 1.0) return true;
+        if (rate <= 0.0) return false;
+
+        final var hash = (requestId + 1L) * 0x9E3779B97F4A7C15L;      // Fibonacci hash to spread sequential IDs
+        return (hash >>> 11) * 0x1.0p-53 < rate;
+    }
+
+    private void runWriter() {
+        var lastFlush = System.nanoTime();
+        var unflushed = false;
+
+        while (running || !buffer.isEmpty()) {
+            final var record = buffer.poll();
+            if (record == null) {
+                final var now = System.nanoTime();
+                if (unflushed && now - lastFlush >= FLUSH_INTERVAL_NANOS) {
+                    log.flush();
+                    unflushed = false;
+                    lastFlush = now;
+                }
+
+                // Producers unpark the writer after an offer if they observe it idle; the buffer is checked again after
+                // publishing the flag, so that a record offered concurrently is never left waiting for the next record
+                idle = true;
+                if (running && buffer.isEmpty()) {
+                    if (unflushed) LockSupport.parkNanos(this, Math.max(0L, lastFlush + FLUSH_INTERVAL_NANOS - now));
+                    else LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+
+            unflushed |= write(record);
+        }
+
+        // Records offered by callers which passed the running check before the sink was closed
+        for (var record = buffer.poll(); record != null; record = buffer.poll()) {
+            write(record);
+        }
+
+        log.close();
+    }
+
+    private boolean write(LlmAuditRecord record) {
+        try {
+            output.reset();
+            try (final var generator = new TruncatingJsonGenerator(
+                    mapper.getFactory().createGenerator((OutputStream)output, JsonEncoding.UTF8), options.getMaxFieldLength())) {
+
+                generator.writeStartObject();
+                generator.writeNumberField("timestamp", record.getTimestamp());
+                generator.writeStringField("type", record.getType().name());
+                generator.writeNumberField("requestId", record.getRequestId());
+                generator.writeFieldName("payload");
+                mapper.writeValue(generator, record.getPayload());
+                generator.writeEndObject();
+            }
+            output.write('\n');
+
+            if (!log.append(output.buffer(), 0, output.size())) {
+                LOG.warn("Dropping audit record for request {}; record size {} exceeds audit log segment size", record.getRequestId(), output.size());
+                droppedCount.increment();
+                return false;
+            }
+
+            writtenCount.increment();
+            return true;
+        }
+        catch (Exception ex) {
+            LOG.warn("Failed to write audit record for request {}: {}", record.getRequestId(), ex.getMessage());
+            droppedCount.increment();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOutCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return      Number of records submitted after the sink was closed
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Output stream which exposes its internal buffer, so the same allocation is reused for every record
+     */
+    private static class ReusableOutputStream extends ByteArrayOutputStream {
+        ReusableOutputStream() {
+            super(8192);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.rj.modelgen.llm.audit;
+
+class DisabledLlmAuditSink implements LlmAuditSink {
+    static final DisabledLlmAuditSink INSTANCE = new DisabledLlmAuditSink();
+
+    private DisabledLlmAuditSink() { }
+
+    @Override
+    public boolean record(LlmAuditRecordType type, int requestId, Object payload) {
+        return true;
+    }
+
+    @Override
+    public void close() { }
+}
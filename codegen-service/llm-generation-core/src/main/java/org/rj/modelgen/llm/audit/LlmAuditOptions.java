@@ -0,0 +1,125 @@
+package org.rj.modelgen.llm.audit;
+
+import java.nio.file.Path;
+
+public class LlmAuditOptions {
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "llm-audit");
+    private String filePrefix = "llm-audit";
+    private double sampleRate = 1.0;
+    private int maxFieldLength = 4096;
+    private int bufferCapacity = 4096;
+    private int segmentSize = 16 * 1024 * 1024;
+    private int maxSegments = 8;
+
+    public LlmAuditOptions() { }
+
+    public static LlmAuditOptions defaultOptions() {
+        return new LlmAuditOptions();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public LlmAuditOptions withDirectory(Path directory) {
+        setDirectory(directory);
+        return this;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+
+    public void setFilePrefix(String filePrefix) {
+        this.filePrefix = filePrefix;
+    }
+
+    public LlmAuditOptions withFilePrefix(String filePrefix) {
+        setFilePrefix(filePrefix);
+        return this;
+    }
+
+    /**
+     * @return      Proportion of requests, in the range [0.0 1.0], which are retained in the audit log
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public LlmAuditOptions withSampleRate(double sampleRate) {
+        setSampleRate(sampleRate);
+        return this;
+    }
+
+    /**
+     * @return      Maximum length of any single string field in an audit record, beyond which it is truncated
+     */
+    public int getMaxFieldLength() {
+        return maxFieldLength;
+    }
+
+    public void setMaxFieldLength(int maxFieldLength) {
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    public LlmAuditOptions withMaxFieldLength(int maxFieldLength) {
+        setMaxFieldLength(maxFieldLength);
+        return this;
+    }
+
+    /**
+     * @return      Maximum number of records pending write, beyond which new records are dropped
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public void setBufferCapacity(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public LlmAuditOptions withBufferCapacity(int bufferCapacity) {
+        setBufferCapacity(bufferCapacity);
+        return this;
+    }
+
+    /**
+     * @return      Size in bytes of each audit log file, before rotating to a new file
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public LlmAuditOptions withSegmentSize(int segmentSize) {
+        setSegmentSize(segmentSize);
+        return this;
+    }
+
+    /**
+     * @return      Number of audit log files retained; the oldest file is deleted on rotation beyond this limit
+     */
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    public LlmAuditOptions withMaxSegments(int maxSegments) {
+        setMaxSegments(maxSegments);
+        return this;
+    }
+}
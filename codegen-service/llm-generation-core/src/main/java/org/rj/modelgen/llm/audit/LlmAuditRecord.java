@@ -0,0 +1,35 @@
+package org.rj.modelgen.llm.audit;
+
+/**
+ * Single entry in the LLM audit log.  The payload is held by reference and only serialized by the audit writer,
+ * after the record has been accepted by the sink
+ */
+public class LlmAuditRecord {
+    private final long timestamp;
+    private final LlmAuditRecordType type;
+    private final int requestId;
+    private final Object payload;
+
+    public LlmAuditRecord(long timestamp, LlmAuditRecordType type, int requestId, Object payload) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.requestId = requestId;
+        this.payload = payload;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public LlmAuditRecordType getType() {
+        return type;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+}
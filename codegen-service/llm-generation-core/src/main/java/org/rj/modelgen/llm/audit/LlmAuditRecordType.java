@@ -0,0 +1,7 @@
+package org.rj.modelgen.llm.audit;
+
+public enum LlmAuditRecordType {
+    Request,
+    Response,
+    Error
+}
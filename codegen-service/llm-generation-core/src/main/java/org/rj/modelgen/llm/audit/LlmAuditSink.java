@@ -0,0 +1,31 @@
+package org.rj.modelgen.llm.audit;
+
+/**
+ * Destination for audit records of LLM requests and responses.  Implementations must be non-blocking and must
+ * not serialize payload data on the calling thread, since records are submitted from the request pipeline
+ */
+public interface LlmAuditSink extends AutoCloseable {
+    /**
+     * Submit a record to the audit log.  The record may be discarded by sampling, or if the sink is saturated
+     *
+     * @param type          Type of record
+     * @param requestId     ID of the LLM request this record relates to
+     * @param payload       Payload object; must not be modified after submission
+     * @return              True if the record was accepted, including records discarded by sampling, or false if it
+     *                      was dropped because the sink is saturated or rejected because the sink has been closed
+     */
+    boolean record(LlmAuditRecordType type, int requestId, Object payload);
+
+    /**
+     * Release any resources held by the sink, writing any records which are still pending
+     */
+    @Override
+    void close();
+
+    /**
+     * @return      Audit sink which discards all records
+     */
+    static LlmAuditSink disabled() {
+        return DisabledLlmAuditSink.INSTANCE;
+    }
+}
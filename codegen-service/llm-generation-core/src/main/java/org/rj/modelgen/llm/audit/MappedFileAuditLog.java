@@ -0,0 +1,147 @@
+package org.rj.modelgen.llm.audit;
+
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Append-only log written through a sequence of fixed-size memory-mapped segment files.  Appends are plain memory
+ * copies into the current mapping; when a segment is full it is flushed, trimmed to its written length and
+ * replaced by a new segment, with the oldest segments deleted beyond the retention limit.  Segments left in the
+ * directory by earlier runs count towards the limit, so retention holds across restarts.  Not thread-safe; this
+ * is intended to be driven by a single background writer
+ */
+class MappedFileAuditLog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileAuditLog.class);
+
+    private final Path directory;
+    private final String filePrefix;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Pattern segmentPattern;
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private boolean existingSegmentsLoaded = false;
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private Path currentSegment;
+    private long segmentSequence = 0L;
+
+    MappedFileAuditLog(Path directory, String filePrefix, int segmentSize, int maxSegments) {
+        if (directory == null) throw new IllegalArgumentException("Cannot create audit log without valid directory");
+        if (segmentSize < 1) throw new IllegalArgumentException("Audit log segment size must be positive");
+
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.segmentPattern = Pattern.compile(Pattern.quote(filePrefix) + "-(\\d+)-(\\d+)\\.log");
+    }
+
+    /**
+     * Append data to the log, rotating to a new segment if it does not fit within the current one
+     *
+     * @param data          Source data
+     * @param offset        Offset of the data within the source array
+     * @param length        Length of the data
+     * @return              True if the data was appended, or false if it is larger than a single segment
+     */
+    boolean append(byte[] data, int offset, int length) throws IOException {
+        if (length > segmentSize) return false;
+
+        if (mapped == null || mapped.remaining() < length) {
+            rotate();
+        }
+
+        mapped.put(data, offset, length);
+        return true;
+    }
+
+    /**
+     * Flush all written data in the current segment to storage
+     */
+    void flush() {
+        if (mapped != null) mapped.force();
+    }
+
+    Path getCurrentSegment() {
+        return currentSegment;
+    }
+
+    private void rotate() throws IOException {
+        closeCurrentSegment();
+
+        Files.createDirectories(directory);
+        if (!existingSegmentsLoaded) {
+            loadExistingSegments();
+            existingSegmentsLoaded = true;
+        }
+
+        currentSegment = directory.resolve(String.format("%s-%d-%06d.log", filePrefix, System.currentTimeMillis(), segmentSequence++));
+        channel = FileChannel.open(currentSegment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+
+        segments.addLast(currentSegment);
+        while (segments.size() > maxSegments) {
+            final var expired = segments.removeFirst();
+            try {
+                Files.deleteIfExists(expired);
+            }
+            catch (IOException ex) {
+                LOG.warn("Failed to delete expired audit log segment {}: {}", expired, ex.getMessage());
+            }
+        }
+    }
+
+    // Segments written by earlier runs, oldest first by creation time and then sequence within the run.  New segment
+    // names continue the sequence, so they cannot collide with an earlier segment created in the same millisecond
+    private void loadExistingSegments() throws IOException {
+        try (final var files = Files.list(directory)) {
+            files.map(file -> tuple(file, segmentPattern.matcher(file.getFileName().toString())))
+                    .filter(x -> x.v2.matches())
+                    .sorted(Comparator.<Tuple2<Path, Matcher>>comparingLong(x -> Long.parseLong(x.v2.group(1)))
+                            .thenComparingLong(x -> Long.parseLong(x.v2.group(2))))
+                    .forEach(x -> {
+                        segments.addLast(x.v1);
+                        segmentSequence = Math.max(segmentSequence, Long.parseLong(x.v2.group(2)) + 1L);
+                    });
+        }
+    }
+
+    private void closeCurrentSegment() {
+        if (channel == null) return;
+
+        final var written = mapped.position();
+        mapped.force();
+        mapped = null;
+
+        try (final var closing = channel) {
+            closing.truncate(written);      // Trim unused mapped space so segments contain only complete records
+        }
+        catch (IOException ex) {
+            LOG.warn("Failed to finalize audit log segment {}: {}", currentSegment, ex.getMessage());
+        }
+        finally {
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeCurrentSegment();
+    }
+}
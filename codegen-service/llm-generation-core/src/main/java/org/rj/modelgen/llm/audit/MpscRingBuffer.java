@@ -0,0 +1,96 @@
+package org.rj.modelgen.llm.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free, multi-producer single-consumer ring buffer.  Each slot carries a sequence number which
+ * producers claim via CAS on the shared producer index; the single consumer reads without any atomic update
+ * other than publishing the slot back to producers.  Offers fail immediately rather than blocking when full
+ *
+ * @param <T>       Element type
+ */
+class MpscRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong(0L);
+    private volatile long consumerIndex = 0L;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Ring buffer capacity must be positive");
+
+        final var size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);     // Next power of two
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Attempt to add an element to the buffer.  Safe for use from any number of threads
+     *
+     * @param element       Element to add
+     * @return              True if the element was added, or false if the buffer is full
+     */
+    boolean offer(T element) {
+        if (element == null) throw new NullPointerException("Cannot add null element to ring buffer");
+
+        long position = producerIndex.get();
+        while (true) {
+            final var index = (int)(position & mask);
+            final var difference = sequences.get(index) - position;
+
+            if (difference == 0L) {
+                if (producerIndex.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);       // Published by the volatile sequence write below
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerIndex.get();
+            }
+            else if (difference < 0L) {
+                return false;                               // Slot has not yet been consumed; buffer is full
+            }
+            else {
+                position = producerIndex.get();             // Slot claimed by another producer; retry
+            }
+        }
+    }
+
+    /**
+     * Remove the next element from the buffer.  Must only be called from the single consumer thread
+     *
+     * @return      Next element, or null if no element is currently available
+     */
+    T poll() {
+        final var position = consumerIndex;
+        final var index = (int)(position & mask);
+        if (sequences.get(index) != position + 1) return null;
+
+        final var element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, position + mask + 1);          // Release slot for the next lap of producers
+        consumerIndex = position + 1;
+
+        return element;
+    }
+
+    /**
+     * @return      Approximate number of elements currently held in the buffer
+     */
+    int size() {
+        return (int)Math.max(0L, Math.min(producerIndex.get() - consumerIndex, capacity()));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
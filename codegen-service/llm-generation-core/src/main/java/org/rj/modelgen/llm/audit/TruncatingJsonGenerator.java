@@ -0,0 +1,52 @@
+package org.rj.modelgen.llm.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+
+import java.io.IOException;
+
+/**
+ * Generator which truncates every string value beyond a maximum length as it is written, so that large
+ * fields (e.g. embedded prompts or model content) never need to be fully encoded into the audit output
+ */
+class TruncatingJsonGenerator extends JsonGeneratorDelegate {
+    private final int maxFieldLength;
+
+    TruncatingJsonGenerator(JsonGenerator delegate, int maxFieldLength) {
+        super(delegate, false);     // Do not delegate object writes, so that nested values also pass through this generator
+        this.maxFieldLength = Math.max(0, maxFieldLength);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null || text.length() <= maxFieldLength) {
+            super.writeString(text);
+            return;
+        }
+
+        super.writeString(truncate(text, text.length()));
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        if (len <= maxFieldLength) {
+            super.writeString(text, offset, len);
+            return;
+        }
+
+        super.writeString(truncate(new String(text, offset, maxFieldLength), len));
+    }
+
+    @Override
+    public void writeString(SerializableString text) throws IOException {
+        writeString(text.getValue());
+    }
+
+    private String truncate(String text, int originalLength) {
+        var end = maxFieldLength;
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) --end;     // Never split a surrogate pair
+
+        return text.substring(0, end) + "...[truncated " + (originalLength - end) + " chars]";
+    }
+}
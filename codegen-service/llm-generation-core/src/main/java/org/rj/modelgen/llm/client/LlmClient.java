@@ -13,4 +13,11 @@ public interface LlmClient {
 
     Mono<ModelResponse> submitModelRequest(ModelRequest request, Map<String, Object> sessionMetadata, ModelRequestHttpOptions httpOptions);
 
+    /**
+     * @return      Whether this client can constrain responses to the schema attached to a request
+     */
+    default boolean supportsStructuredOutput() {
+        return false;
+    }
+
 }
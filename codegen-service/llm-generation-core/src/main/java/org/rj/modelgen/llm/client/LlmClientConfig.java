@@ -1,6 +1,7 @@
 package org.rj.modelgen.llm.client;
 
 import io.netty.handler.codec.http.HttpMethod;
+import org.rj.modelgen.llm.audit.LlmAuditSink;
 import org.rj.modelgen.llm.request.ModelRequestHttpOptions;
 import org.rj.modelgen.llm.request.ModelRequestTransformer;
 import org.rj.modelgen.llm.response.ModelResponseTransformer;
@@ -19,6 +20,9 @@ public abstract class LlmClientConfig<TModelRequest, TModelResponse> {
     private ModelRequestTransformer<TModelRequest> requestTransformer;
     private ModelResponseTransformer<TModelResponse> responseTransformer;
 
+    private LlmAuditSink auditSink = LlmAuditSink.disabled();
+    private boolean structuredOutputSupported = false;
+
     public LlmClientConfig(Class<TModelRequest> requestClass, Class<TModelResponse> responseClass) {
         this.requestClass = requestClass;
         this.responseClass = responseClass;
@@ -64,5 +68,24 @@ public abstract class LlmClientConfig<TModelRequest, TModelResponse> {
         this.responseTransformer = responseTransformer;
     }
 
+    public LlmAuditSink getAuditSink() {
+        return auditSink;
+    }
+
+    public void setAuditSink(LlmAuditSink auditSink) {
+        this.auditSink = auditSink != null ? auditSink : LlmAuditSink.disabled();
+    }
+
+    /**
+     * @return      Whether the backend supports constraining responses to a JSON schema
+     */
+    public boolean isStructuredOutputSupported() {
+        return structuredOutputSupported;
+    }
+
+    public void setStructuredOutputSupported(boolean structuredOutputSupported) {
+        this.structuredOutputSupported = structuredOutputSupported;
+    }
+
 
 }
@@ -2,5 +2,6 @@ package org.rj.modelgen.llm.client;
 
 public enum LlmClientType {
     Default,
-    Mock
+    Mock,
+    Simulator
 }
@@ -0,0 +1,19 @@
+package org.rj.modelgen.llm.context;
+
+/**
+ * Reversible transformation of the content of context entries, e.g. an encoding of the models they hold.  Entries
+ * cache their transformed form for each codec instance, so codecs should be long-lived
+ */
+public interface ContentCodec {
+    /**
+     * @param content       Content in its standard form
+     * @return              Encoded content
+     */
+    String encode(String content);
+
+    /**
+     * @param content       Encoded content
+     * @return              Content in its standard form
+     */
+    String decode(String content);
+}
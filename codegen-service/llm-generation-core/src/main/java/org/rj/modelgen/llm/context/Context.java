@@ -1,24 +1,78 @@
 package org.rj.modelgen.llm.context;
 
-import org.jooq.lambda.Seq;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.StringUtils;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.RandomAccess;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
+/**
+ * Sequence of entries submitted as the context of a model request.  Contexts are immutable versions of an append-only
+ * sequence, and share their entries with the contexts they are derived from: a copy is O(1), and appending to the
+ * latest version of a sequence extends it in place without copying earlier entries.  Appending to an older version
+ * forks the sequence, so that no version is ever changed by another.  The latest entry for each role is indexed, so
+ * that the cost of each turn is independent of the length of the conversation.
+ *
+ * The system prompt, the encoding of model entries and any supplement to the new prompt are request-time views of a
+ * context.  They are applied to the entries only when the context is submitted, see {@link #getSubmittedData()}, so
+ * that deriving a request from the session history neither copies nor transforms the history itself
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)     // Latest entries are serialized for information only
 public class Context {
-    private final List<ContextEntry> data;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int NONE = -1;
+
+    @JsonIgnore
+    private Entries entries;
+    @JsonIgnore
+    private int size;
+    @JsonIgnore
+    private int[] latestByRole;
+    @JsonIgnore
+    private long contentSizeBytes;
+    private transient OffHeapContentStore contentStore;
+
+    // Request-time views, applied to entries only as they are submitted
+    private transient ContextEntry systemEntry;
+    private transient ContextRole encodedRole;
+    private transient ContentCodec codec;
+    private transient String promptSupplement;
+    private transient int supplementedIndex = NONE;
 
     public Context() {
-        this(new ArrayList<>());
+        this(List.of());
+    }
+
+    @JsonCreator
+    public Context(@JsonProperty("data") List<ContextEntry> data) {
+        final var initial = Optional.ofNullable(data).orElseGet(List::of);
+        this.entries = new Entries(Math.max(INITIAL_CAPACITY, initial.size()));
+        this.size = 0;
+        this.latestByRole = new int[ContextRole.values().length];
+        Arrays.fill(latestByRole, NONE);
+
+        initial.forEach(this::append);
     }
 
-    public Context(List<ContextEntry> data) {
-        this.data = Optional.ofNullable(data)
-                .map(ArrayList::new)
-                .orElseGet(ArrayList::new);
+    private Context(Context source) {
+        this.entries = source.entries;
+        this.size = source.size;
+        this.latestByRole = source.latestByRole;
+        this.contentSizeBytes = source.contentSizeBytes;
+        this.contentStore = source.contentStore;
+        this.systemEntry = source.systemEntry;
+        this.encodedRole = source.encodedRole;
+        this.codec = source.codec;
+        this.promptSupplement = source.promptSupplement;
+        this.supplementedIndex = source.supplementedIndex;
     }
 
     public Optional<ContextEntry> getLatestUserEntry() {
@@ -30,46 +84,392 @@ public class Context {
     }
 
     public Optional<ContextEntry> getLatestEntryForRole(ContextRole role) {
-        final var length = data.size();
-        return IntStream.range(0, length)
-                .mapToObj(x -> data.get((length - 1) - x))
-                .filter(x -> (x.getRole() == role))
-                .findFirst();
+        final int index = latestByRole[role.ordinal()];
+        return (index == NONE) ? Optional.empty() : Optional.of(entries.get(index));
+    }
+
+    /**
+     * @param role      Entry role
+     * @return          Latest entry for the given role in the form in which it is submitted, e.g. with models encoded
+     */
+    public Optional<ContextEntry> getLatestSubmittedEntryForRole(ContextRole role) {
+        final int index = latestByRole[role.ordinal()];
+        return (index == NONE) ? Optional.empty() : Optional.of(submittedEntry(index));
     }
 
     public boolean hasLatestUserEntry() {
-        return getLatestUserEntry().isPresent();
+        return latestByRole[ContextRole.USER.ordinal()] != NONE;
     }
 
     public boolean hasLatestModelEntry() {
-        return getLatestModelEntry().isPresent();
+        return latestByRole[ContextRole.MODEL.ordinal()] != NONE;
     }
 
-    public void addEntry(ContextEntry entry) {
-        if (entry == null) return;
-        this.data.add(entry);
+    /**
+     * Returns a new version of this context with the given entry appended.  This context is unchanged, and the new
+     * version holds its content in the same store as this context
+     *
+     * @param entry     Entry to be appended
+     * @return          New context
+     */
+    public Context withEntry(ContextEntry entry) {
+        final var newContext = copy();
+        newContext.append(entry);
+        return newContext;
+    }
+
+    /**
+     * Returns a context holding the given entries in place of the entries of this context, with the same system prompt,
+     * encoding and content store, e.g. the history retained by a context provider.  Any prompt supplement is bound to
+     * an entry of this context, so is not retained
+     *
+     * @param data      Entries of the new context
+     * @return          New context
+     */
+    public Context withHistory(List<ContextEntry> data) {
+        final var newContext = new Context(data);
+        newContext.contentStore = contentStore;
+        newContext.systemEntry = systemEntry;
+        newContext.encodedRole = encodedRole;
+        newContext.codec = codec;
+        return newContext;
+    }
+
+    /**
+     * Returns a version of this context which is submitted with the given system prompt, in place of any system
+     * entries.  The system prompt should be identical across requests, so that it forms a stable prefix which can be
+     * cached by the provider.  It is not part of the context history
+     *
+     * @param systemPrompt      System prompt, or null to submit no system prompt
+     * @return                  New context
+     */
+    public Context withSystemPrompt(String systemPrompt) {
+        if (systemPrompt == null) return withoutSystemPrompt();
+
+        final var newContext = withoutSystemPrompt();
+        if (systemEntry == null || !systemPrompt.equals(systemEntry.getContent())) {
+            newContext.systemEntry = ContextEntry.forSystem(systemPrompt);
+        }
+        else {
+            newContext.systemEntry = systemEntry;       // Retains the token count cached by the entry
+        }
+
+        return newContext;
+    }
+
+    /**
+     * @return      Version of this context which is submitted without any system prompt.  Any system entries held
+     *              in the history, e.g. by contexts restored from earlier sessions, are removed
+     */
+    public Context withoutSystemPrompt() {
+        final var newContext = (latestByRole[ContextRole.SYSTEM.ordinal()] == NONE)
+                ? copy()
+                : withHistory(stream().filter(x -> x.getRole() != ContextRole.SYSTEM).toList());
+
+        newContext.systemEntry = null;
+        return newContext;
+    }
+
+    /**
+     * @return      System prompt with which this context is submitted, or null if none
+     */
+    @JsonIgnore
+    public String getSystemPrompt() {
+        return (systemEntry != null) ? systemEntry.getContent() : null;
+    }
+
+    /**
+     * Returns a version of this context in which all entries for the given role are submitted in the form encoded by
+     * the given codec.  Encoded forms are cached by each entry, so only entries not previously submitted with the
+     * codec are transformed
+     *
+     * @param role          Role of the entries to be encoded
+     * @param codec         Content codec
+     * @return              New context
+     */
+    public Context withEncodedEntries(ContextRole role, ContentCodec codec) {
+        final var newContext = copy();
+        newContext.encodedRole = (codec != null) ? role : null;
+        newContext.codec = codec;
+        return newContext;
+    }
+
+    /**
+     * Returns a copy of this context in which all entries for the given role are decoded by the given codec.  If the
+     * entries are submitted in the form encoded by the codec, they are instead submitted in their standard form, and
+     * the history is unchanged.  Otherwise, the entries in the history are decoded, e.g. for a context restored from
+     * an earlier encoded request
+     *
+     * @param role          Role of the entries to be decoded
+     * @param codec         Content codec
+     * @return              New context
+     */
+    public Context withDecodedEntries(ContextRole role, ContentCodec codec) {
+        if (role == encodedRole && codec == this.codec) return withEncodedEntries(role, null);
+        return withMappedEntries(x -> (x.getRole() == role) ? x.decode(codec) : x);
+    }
+
+    /**
+     * Returns a version of this context in which the current latest user entry, generally the new prompt, is submitted
+     * preceded by the given content, e.g. examples relevant to the prompt.  The supplement remains with that entry in
+     * contexts derived by appending further entries, but is not part of the context history
+     *
+     * @param supplement        Content to precede the latest user entry, or null or empty if none
+     * @return                  New context
+     */
+    public Context withPromptSupplement(String supplement) {
+        final var newContext = copy();
+        newContext.promptSupplement = StringUtils.isEmpty(supplement) ? null : supplement;
+        newContext.supplementedIndex = (newContext.promptSupplement != null) ? latestByRole[ContextRole.USER.ordinal()] : NONE;
+        return newContext;
+    }
+
+    /**
+     * @return      Content which precedes the supplemented user entry when this context is submitted, or null if none
+     */
+    @JsonIgnore
+    public String getPromptSupplement() {
+        return promptSupplement;
+    }
+
+    /**
+     * @return      Version of this context as it is retained in the session history, without the system prompt,
+     *              encoding or prompt supplement with which it is submitted
+     */
+    public Context withoutRequestViews() {
+        final var newContext = withoutSystemPrompt();
+        newContext.encodedRole = null;
+        newContext.codec = null;
+        newContext.promptSupplement = null;
+        newContext.supplementedIndex = NONE;
+        return newContext;
+    }
+
+    /**
+     * Returns a copy of this context in which the content of all entries for the given role is transformed.  Entries
+     * are not modified in place, since they may be shared with other contexts
+     *
+     * @param role          Role of the entries to be transformed
+     * @param transform     Transformation applied to the content of each entry
+     * @return              New context
+     */
+    public Context withTransformedEntries(ContextRole role, UnaryOperator<String> transform) {
+        return withMappedEntries(x -> (x.getRole() == role) ? new ContextEntry(role, transform.apply(x.getContent())) : x);
+    }
+
+    /**
+     * Returns a copy of this context in which each entry is replaced by the result of the given mapping.  Entries
+     * are not modified in place, since they may be shared with other contexts
+     *
+     * @param mapping       Mapping applied to each entry
+     * @return              New context
+     */
+    public Context withMappedEntries(UnaryOperator<ContextEntry> mapping) {
+        return withHistory(stream().map(mapping).toList());
+    }
+
+    /**
+     * Returns a copy of this context in which the latest model entry has the given content, and any earlier model
+     * entries are removed since they are superseded.  The context is unchanged if it has no model entry
+     *
+     * @param model     Content of the latest model entry
+     * @return          New context
+     */
+    public Context withModelState(String model) {
+        return withModelEntry(ContextEntry.forModel(model));
     }
 
-    public void addUserPrompt(String prompt) {
-        addEntry(new ContextEntry(ContextRole.USER, prompt));
+    /**
+     * Returns a copy of this context in which the latest model entry is replaced by the given entry, and any earlier
+     * model entries are removed since they are superseded.  The context is unchanged if it has no model entry
+     *
+     * @param entry     New latest model entry
+     * @return          New context
+     */
+    public Context withModelEntry(ContextEntry entry) {
+        final var latest = getLatestModelEntry().orElse(null);
+        if (latest == null) return copy();
+
+        return withHistory(stream()
+                .filter(x -> x.getRole() != ContextRole.MODEL || x == latest)
+                .map(x -> (x == latest) ? entry : x)
+                .toList());
     }
-    public void addModelResponse(String response) {
-        addEntry(new ContextEntry(ContextRole.MODEL, response));
+
+    /**
+     * Returns a version of this context which holds the content of all current and future entries off-heap in the
+     * given store.  Contexts derived from the new version share its off-heap entries and store, so a context is
+     * scanned for entries to offload only when its store changes, rather than whenever it is replaced
+     *
+     * @param store     Off-heap content store, or null to hold future entries on the heap
+     * @return          This context if it already uses the store, otherwise a new context
+     */
+    public Context withContentStore(OffHeapContentStore store) {
+        if (store == contentStore) return this;
+
+        // Only entries not already held off-heap are offloaded, and the sequence is rebuilt only if any is offloaded
+        ContextEntry[] offloaded = null;
+        for (int i = 0; store != null && i < size; ++i) {
+            final var entry = entries.get(i);
+            if (entry.isOffHeap() || !store.accepts(entry.getContent())) continue;
+
+            if (offloaded == null) offloaded = getData().toArray(ContextEntry[]::new);
+            offloaded[i] = entry.offload(store);
+        }
+
+        final var newContext = (offloaded != null) ? withHistory(Arrays.asList(offloaded)) : copy();
+        newContext.contentStore = store;
+        return newContext;
     }
 
+    /**
+     * @return      Copy of this context, sharing all entries with this context
+     */
     public Context copy() {
-        return new Context(this.data);
+        return new Context(this);
     }
 
+    /**
+     * @return      Read-only view of the entries in the history of this context
+     */
+    @JsonProperty("data")
     public List<ContextEntry> getData() {
-        return data;
+        return new EntryView(entries, size);
+    }
+
+    /**
+     * @return      Read-only view of the entries of this context in the form in which they are submitted; led by any
+     *              system prompt, with entries encoded and the prompt supplemented as required.  Derived
+     *              forms are created only as each entry is read
+     */
+    @JsonIgnore
+    public List<ContextEntry> getSubmittedData() {
+        return new SubmittedView(this);
     }
 
     public Stream<ContextEntry> stream() {
-        return data.stream();
+        return getData().stream();
     }
 
+    /**
+     * @return      Number of entries in the history of this context
+     */
     public int length() {
-        return data.size();
+        return size;
+    }
+
+    /**
+     * @return      Memory held by the content of the entries in the history of this context, counting content held
+     *              off-heap at its compressed size.  Maintained as entries are appended, so is O(1)
+     */
+    @JsonIgnore
+    public long getContentSizeBytes() {
+        return contentSizeBytes;
+    }
+
+    private void append(ContextEntry entry) {
+        if (entry == null) return;
+
+        final var added = (contentStore != null) ? entry.offload(contentStore) : entry;
+        entries = entries.append(size, added);
+        contentSizeBytes += added.isOffHeap() ? added.getOffHeapBytes() : added.getContentLength();
+
+        // Index is shared with earlier versions, so is copied on change
+        if (entry.getRole() != null) {
+            latestByRole = Arrays.copyOf(latestByRole, latestByRole.length);
+            latestByRole[entry.getRole().ordinal()] = size;
+        }
+
+        ++size;
+    }
+
+    private ContextEntry submittedEntry(int index) {
+        final var entry = entries.get(index);
+        final var encoded = (codec != null && entry.getRole() == encodedRole) ? entry.encode(codec) : entry;
+
+        return (promptSupplement != null && index == supplementedIndex)
+                ? ContextEntry.forUser(promptSupplement + encoded.getContent())
+                : encoded;
+    }
+
+    /**
+     * Append-only array of entries shared by all versions of a context derived from the same sequence.  Each version
+     * refers to a prefix of the array; a version may extend the array in place only if it is the longest version
+     */
+    private static final class Entries {
+        private volatile ContextEntry[] array;
+        private int count;
+
+        private Entries(int capacity) {
+            this.array = new ContextEntry[capacity];
+        }
+
+        private ContextEntry get(int index) {
+            return array[index];
+        }
+
+        /**
+         * @return      Entries holding the given prefix of this array followed by the new entry; either this array
+         *              extended in place, or a new array if the prefix has already been extended by another version
+         */
+        private synchronized Entries append(int prefixLength, ContextEntry entry) {
+            if (prefixLength != count) {
+                final var forked = new Entries(Math.max(INITIAL_CAPACITY, prefixLength * 2));
+                System.arraycopy(array, 0, forked.array, 0, prefixLength);
+                forked.count = prefixLength;
+                return forked.append(prefixLength, entry);
+            }
+
+            var current = array;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+
+            current[count++] = entry;
+            array = current;
+            return this;
+        }
+    }
+
+    private static final class EntryView extends AbstractList<ContextEntry> implements RandomAccess {
+        private final Entries entries;
+        private final int size;
+
+        private EntryView(Entries entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+
+        @Override
+        public ContextEntry get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return entries.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static final class SubmittedView extends AbstractList<ContextEntry> implements RandomAccess {
+        private final Context context;
+        private final int offset;
+
+        private SubmittedView(Context context) {
+            this.context = context;
+            this.offset = (context.systemEntry != null) ? 1 : 0;
+        }
+
+        @Override
+        public ContextEntry get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            return (index < offset) ? context.systemEntry : context.submittedEntry(index - offset);
+        }
+
+        @Override
+        public int size() {
+            return context.size + offset;
+        }
     }
 }
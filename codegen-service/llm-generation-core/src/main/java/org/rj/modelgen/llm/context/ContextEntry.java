@@ -1,8 +1,29 @@
 package org.rj.modelgen.llm.context;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.rj.modelgen.llm.tokenizer.Tokenizer;
+
+import java.lang.ref.SoftReference;
+
 public class ContextEntry {
     private ContextRole role;
     private String content;
+    @JsonIgnore
+    private OffHeapContent offHeapContent;
+
+    // Derived forms of the content, which are cached since entries are shared by every version of a session context.
+    // Encoded forms are held softly, since they are otherwise retained only for the duration of a request
+    @JsonIgnore
+    private transient volatile Derived<SoftReference<ContextEntry>> encoded;
+    @JsonIgnore
+    private transient volatile Derived<ContextEntry> decoded;
+    @JsonIgnore
+    private transient volatile Derived<Integer> tokens;
+
+    public static ContextEntry forSystem(String content) {
+        return new ContextEntry(ContextRole.SYSTEM, content);
+    }
 
     public static ContextEntry forUser(String content) {
         return new ContextEntry(ContextRole.USER, content);
@@ -19,19 +40,142 @@ public class ContextEntry {
         this.content = content;
     }
 
+    private ContextEntry(ContextRole role, OffHeapContent offHeapContent) {
+        this.role = role;
+        this.offHeapContent = offHeapContent;
+    }
+
     public ContextRole getRole() {
         return role;
     }
 
     public void setRole(ContextRole role) {
         this.role = role;
+        clearDerived();
     }
 
+    /**
+     * @return      Content of the entry.  Content held off-heap is materialized on each call, so callers should
+     *              retain the result rather than calling repeatedly
+     */
+    @JsonProperty("content")
     public String getContent() {
-        return content;
+        return (offHeapContent != null) ? offHeapContent.materialize() : content;
     }
 
+    @JsonProperty("content")
     public void setContent(String content) {
         this.content = content;
+        this.offHeapContent = null;
+        clearDerived();
+    }
+
+    /**
+     * @return      Length of the content in characters, without materializing content held off-heap
+     */
+    @JsonIgnore
+    public int getContentLength() {
+        if (offHeapContent != null) return offHeapContent.length();
+        return (content != null) ? content.length() : 0;
+    }
+
+    /**
+     * @return      Whether the content of this entry is held off-heap
+     */
+    @JsonIgnore
+    public boolean isOffHeap() {
+        return offHeapContent != null;
+    }
+
+    /**
+     * @return      Off-heap memory held by the compressed content of this entry, or zero if held on the heap
+     */
+    @JsonIgnore
+    public int getOffHeapBytes() {
+        return (offHeapContent != null) ? offHeapContent.getStoredBytes() : 0;
+    }
+
+    /**
+     * Returns an entry holding the content of this entry encoded by the given codec.  The encoded entry is cached, so
+     * that an entry retained across requests is encoded only once, and decoding it with the same codec returns
+     * this entry
+     *
+     * @param codec     Content codec
+     * @return          Entry with encoded content, which is this entry if encoding does not change the content
+     */
+    public ContextEntry encode(ContentCodec codec) {
+        final var cached = encoded;
+        final var cachedEntry = (cached != null && cached.key == codec) ? cached.value.get() : null;
+        if (cachedEntry != null) return cachedEntry;
+
+        final var content = getContent();
+        final var encodedContent = codec.encode(content);
+        final var entry = (encodedContent == null || encodedContent.equals(content)) ? this : new ContextEntry(role, encodedContent);
+
+        // An entry which is already the encoded form of another retains its link to that entry
+        encoded = new Derived<>(codec, new SoftReference<>(entry));
+        if (entry.decoded == null || entry != this) entry.decoded = new Derived<>(codec, this);
+        return entry;
+    }
+
+    /**
+     * Returns an entry holding the content of this entry decoded by the given codec.  Entries obtained by
+     * {@link #encode(ContentCodec)} decode to the entry they were encoded from, without decoding their content
+     *
+     * @param codec     Content codec
+     * @return          Entry with decoded content, which is this entry if decoding does not change the content
+     */
+    public ContextEntry decode(ContentCodec codec) {
+        final var cached = decoded;
+        if (cached != null && cached.key == codec) return cached.value;
+
+        final var content = getContent();
+        final var decodedContent = codec.decode(content);
+        final var entry = (decodedContent == null || decodedContent.equals(content)) ? this : new ContextEntry(role, decodedContent);
+
+        decoded = new Derived<>(codec, entry);
+        if (entry.encoded == null || entry != this) entry.encoded = new Derived<>(codec, new SoftReference<>(this));
+        return entry;
+    }
+
+    /**
+     * @param tokenizer     Tokenizer
+     * @return              Number of tokens in the content of this entry, which is cached for each tokenizer
+     */
+    public int countTokens(Tokenizer tokenizer) {
+        final var cached = tokens;
+        if (cached != null && cached.key == tokenizer) return cached.value;
+
+        final int count = tokenizer.countTokens(getContent());
+        tokens = new Derived<>(tokenizer, count);
+        return count;
+    }
+
+    /**
+     * Returns an entry with the same content held off-heap in the given store.  Entries may be shared between
+     * contexts, so this entry is not modified
+     *
+     * @param store     Off-heap content store
+     * @return          Equivalent entry with off-heap content, or this entry if its content is not accepted by the store
+     */
+    public ContextEntry offload(OffHeapContentStore store) {
+        if (offHeapContent != null || !store.accepts(content)) return this;
+        return new ContextEntry(role, store.store(content));
+    }
+
+    private void clearDerived() {
+        encoded = null;
+        decoded = null;
+        tokens = null;
+    }
+
+    private static final class Derived<T> {
+        private final Object key;
+        private final T value;
+
+        private Derived(Object key, T value) {
+            this.key = key;
+            this.value = value;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package org.rj.modelgen.llm.context;
 
 public enum ContextRole {
+    SYSTEM,
     USER,
     MODEL
 }
@@ -0,0 +1,60 @@
+package org.rj.modelgen.llm.context;
+
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Handle to compressed context content held off-heap by an {@link OffHeapContentStore}.  Handles are shared by all
+ * entries with identical content, and the off-heap memory is released once no entry refers to the handle
+ */
+public final class OffHeapContent {
+    private final ByteBuffer compressed;
+    private final int length;
+    private final int encodedLength;
+
+    OffHeapContent(ByteBuffer compressed, int length, int encodedLength) {
+        this.compressed = compressed;
+        this.length = length;
+        this.encodedLength = encodedLength;
+    }
+
+    /**
+     * @return      Content, decompressed into a new string
+     */
+    public String materialize() {
+        final var inflater = new Inflater();
+        try {
+            final var encoded = new byte[encodedLength];
+            inflater.setInput(compressed.duplicate());
+            final var inflated = inflater.inflate(encoded);
+            if (inflated != encodedLength) throw new LlmGenerationModelException(String.format(
+                    "Off-heap context content is corrupt (expected %d bytes but found %d)", encodedLength, inflated));
+
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+        catch (DataFormatException ex) {
+            throw new LlmGenerationModelException(String.format("Off-heap context content is corrupt (%s)", ex.getMessage()), ex);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return      Length of the content in characters
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return      Off-heap memory held by the compressed content
+     */
+    public int getStoredBytes() {
+        return compressed.capacity();
+    }
+}
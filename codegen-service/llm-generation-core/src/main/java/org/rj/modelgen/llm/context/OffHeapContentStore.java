@@ -0,0 +1,176 @@
+package org.rj.modelgen.llm.context;
+
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Holds large context content outside the Java heap, so that the heap footprint of a session is a few small handles
+ * regardless of the size of the models in its context.  Content is compressed into direct buffers, and is addressed
+ * by its digest so that identical content (for example the same model held by several versions of a session, or by
+ * several sessions) is stored only once.
+ *
+ * Off-heap memory is owned by the {@link OffHeapContent} handles, and is released when the last entry referring to
+ * a handle is collected.  Content is materialized as a string only when it is used to build a request
+ */
+public class OffHeapContentStore {
+    /**
+     * Each offloaded entry costs a digest and compression of its content, plus a handle, direct buffer and index
+     * entry of several hundred bytes in total, so only content of a few kilobytes or more saves heap in practice
+     */
+    public static final int DEFAULT_MIN_CONTENT_LENGTH = 4096;
+
+    private final int minContentLength;
+    private final ConcurrentHashMap<Key, ContentReference> blobs;
+    private final ReferenceQueue<OffHeapContent> released;
+    private final AtomicLong storedBytes;
+
+    public OffHeapContentStore() {
+        this(DEFAULT_MIN_CONTENT_LENGTH);
+    }
+
+    /**
+     * @param minContentLength      Content shorter than this is left on the heap, since the overhead of a handle
+     *                              would outweigh any saving
+     */
+    public OffHeapContentStore(int minContentLength) {
+        this.minContentLength = minContentLength;
+        this.blobs = new ConcurrentHashMap<>();
+        this.released = new ReferenceQueue<>();
+        this.storedBytes = new AtomicLong();
+    }
+
+    /**
+     * @param content       Content to be stored
+     * @return              Whether the content would be held off-heap by this store
+     */
+    public boolean accepts(String content) {
+        return content != null && content.length() >= minContentLength;
+    }
+
+    /**
+     * Store content off-heap, returning the existing handle if identical content is already held
+     *
+     * @param content       Content to be stored
+     * @return              Handle to the stored content
+     */
+    public OffHeapContent store(String content) {
+        purgeReleased();
+
+        final var encoded = content.getBytes(StandardCharsets.UTF_8);
+        final var key = new Key(digest(encoded));
+
+        while (true) {
+            final var existing = blobs.get(key);
+            final var existingContent = (existing == null ? null : existing.get());
+            if (existingContent != null) return existingContent;
+
+            final var blob = compress(encoded, content.length());
+            final var reference = new ContentReference(key, blob, released);
+            final boolean stored = (existing == null)
+                    ? blobs.putIfAbsent(key, reference) == null
+                    : blobs.replace(key, existing, reference);
+
+            if (stored) {
+                storedBytes.addAndGet(reference.storedBytes);
+                return blob;
+            }
+        }
+    }
+
+    /**
+     * @return      Number of distinct content blobs currently held
+     */
+    public int size() {
+        purgeReleased();
+        return blobs.size();
+    }
+
+    /**
+     * @return      Approximate off-heap memory held by all content, after compression and deduplication
+     */
+    public long getStoredBytes() {
+        purgeReleased();
+        return storedBytes.get();
+    }
+
+    private void purgeReleased() {
+        ContentReference reference;
+        while ((reference = (ContentReference)released.poll()) != null) {
+            if (blobs.remove(reference.key, reference)) {
+                storedBytes.addAndGet(-reference.storedBytes);
+            }
+        }
+    }
+
+    private static OffHeapContent compress(byte[] encoded, int length) {
+        final var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+
+            var buffer = new byte[Math.max(64, encoded.length / 2)];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                size += deflater.deflate(buffer, size, buffer.length - size);
+            }
+
+            final var compressed = ByteBuffer.allocateDirect(size);
+            compressed.put(buffer, 0, size).flip();
+            return new OffHeapContent(compressed.asReadOnlyBuffer(), length, encoded.length);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] digest(byte[] encoded) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(encoded);
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new LlmGenerationModelException("Content digest is not supported on this platform", ex);
+        }
+    }
+
+    private static final class Key {
+        private final byte[] digest;
+        private final int hash;
+
+        private Key(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof Key key) && Arrays.equals(digest, key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class ContentReference extends WeakReference<OffHeapContent> {
+        private final Key key;
+        private final long storedBytes;
+
+        private ContentReference(Key key, OffHeapContent content, ReferenceQueue<OffHeapContent> queue) {
+            super(content, queue);
+            this.key = key;
+            this.storedBytes = content.getStoredBytes();
+        }
+    }
+}
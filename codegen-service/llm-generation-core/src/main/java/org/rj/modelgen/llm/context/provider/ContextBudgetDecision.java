@@ -0,0 +1,61 @@
+package org.rj.modelgen.llm.context.provider;
+
+import org.rj.modelgen.llm.context.Context;
+
+/**
+ * Outcome of fitting a context and new prompt into a token budget
+ */
+public class ContextBudgetDecision {
+    private final ContextHistoryMode mode;
+    private final Context context;
+    private final int estimatedTokens;
+    private final int removedEntries;
+    private final boolean withinBudget;
+
+    public ContextBudgetDecision(ContextHistoryMode mode, Context context, int estimatedTokens, int removedEntries, boolean withinBudget) {
+        this.mode = mode;
+        this.context = context;
+        this.estimatedTokens = estimatedTokens;
+        this.removedEntries = removedEntries;
+        this.withinBudget = withinBudget;
+    }
+
+    public ContextHistoryMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return      New context for submission, including the new prompt
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * @return      Estimated prompt tokens required to submit the new context
+     */
+    public int getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    /**
+     * @return      Number of history entries which were removed from the context
+     */
+    public int getRemovedEntries() {
+        return removedEntries;
+    }
+
+    /**
+     * @return      Whether the context fits the budget.  The latest model entry and new prompt are always retained,
+     *              so the context may exceed the budget if they alone are too large
+     */
+    public boolean isWithinBudget() {
+        return withinBudget;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d tokens, %d entries removed%s)", mode, estimatedTokens, removedEntries,
+                withinBudget ? "" : ", exceeds budget");
+    }
+}
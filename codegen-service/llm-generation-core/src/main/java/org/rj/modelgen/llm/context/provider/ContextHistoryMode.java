@@ -0,0 +1,21 @@
+package org.rj.modelgen.llm.context.provider;
+
+/**
+ * Form in which session history is submitted with a new prompt
+ */
+public enum ContextHistoryMode {
+    /**
+     * All history entries are submitted
+     */
+    FullHistory,
+
+    /**
+     * Low-value and older entries are removed, and replaced by a summary where they carry useful information
+     */
+    SummarizedHistory,
+
+    /**
+     * Only the latest model entry is submitted alongside the new prompt
+     */
+    LatestModelOnly
+}
@@ -2,10 +2,27 @@ package org.rj.modelgen.llm.context.provider;
 
 import org.rj.modelgen.llm.context.Context;
 
+import java.util.Optional;
+
 public interface ContextProvider {
 
     Context newContext();
 
     Context withPrompt(Context currentContext, String prompt);
 
+    /**
+     * Generate the context for a new prompt, preceded by a system prompt.  The system prompt is not part of the
+     * session history
+     *
+     * @param currentContext    Current session context
+     * @param systemPrompt      System prompt, or null if not required
+     * @param prompt            New prompt
+     * @return                  New context, beginning with the system prompt
+     */
+    default Context withPrompt(Context currentContext, String systemPrompt, String prompt) {
+        return Optional.ofNullable(withPrompt(currentContext, prompt))
+                .map(context -> context.withSystemPrompt(systemPrompt))
+                .orElse(null);
+    }
+
 }
@@ -0,0 +1,47 @@
+package org.rj.modelgen.llm.context.provider;
+
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.provider.impl.UserRequestContextSummarizer;
+import org.rj.modelgen.llm.tokenizer.Tokenizer;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Summarizes history entries which are removed from a context, so that the information they carry can be retained
+ * in a compact form
+ */
+@FunctionalInterface
+public interface ContextSummarizer {
+    /**
+     * @param removedEntries    Entries removed from the context, in their original order
+     * @param tokenLimit        Maximum size of the summary
+     * @param tokenizer         Tokenizer used to measure the summary
+     * @return                  Summary content, or empty if the entries carry nothing worth retaining
+     */
+    Optional<String> summarize(List<ContextEntry> removedEntries, int tokenLimit, Tokenizer tokenizer);
+
+    /**
+     * @return      Summarizer which discards removed entries
+     */
+    static ContextSummarizer none() {
+        return (entries, tokenLimit, tokenizer) -> Optional.empty();
+    }
+
+    /**
+     * @return      Summarizer which retains an excerpt of each removed user request
+     */
+    static ContextSummarizer userRequests() {
+        return userRequests(Function.identity());
+    }
+
+    /**
+     * @param requestExtractor  Extracts the original request from user entry content, for example to remove
+     *                          prompt template content which is repeated in every entry
+     * @return                  Summarizer which retains an excerpt of each removed user request
+     */
+    static ContextSummarizer userRequests(Function<String, String> requestExtractor) {
+        return new UserRequestContextSummarizer(requestExtractor);
+    }
+}
@@ -46,10 +46,7 @@ public class DefaultConstrainedContextProvider implements ContextProvider {
         if (constrainedCurrentContext == null) return null;
 
         // Default behavior if not overridden; simply append the new prompt to the given constrained context
-        final var newContext = constrainedCurrentContext.copy();
-        newContext.addEntry(ContextEntry.forUser(prompt));
-
-        return newContext;
+        return constrainedCurrentContext.withEntry(ContextEntry.forUser(prompt));
     }
 
     private static Context defaultConstraintFunction(Context currentContext) {
@@ -59,7 +56,7 @@ public class DefaultConstrainedContextProvider implements ContextProvider {
         // will be appended to yield a context that is always fixed length [MODEL, USER]
         return currentContext.getLatestModelEntry()
                 .map(List::of)
-                .map(Context::new)
+                .map(currentContext::withHistory)
 
                 // Return current context as a fallback if it cannot be shortened
                 .orElse(currentContext);
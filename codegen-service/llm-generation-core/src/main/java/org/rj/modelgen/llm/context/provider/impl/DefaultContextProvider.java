@@ -14,10 +14,7 @@ public class DefaultContextProvider implements ContextProvider {
     public Context withPrompt(Context currentContext, String prompt) {
         if (currentContext == null) return null;
 
-        // Simply returns a new extended context
-        final var newContext = currentContext.copy();
-        newContext.addEntry(ContextEntry.forUser(prompt));
-
-        return newContext;
+        // Simply returns a new extended context, which shares all existing entries with the current context
+        return currentContext.withEntry(ContextEntry.forUser(prompt));
     }
 }
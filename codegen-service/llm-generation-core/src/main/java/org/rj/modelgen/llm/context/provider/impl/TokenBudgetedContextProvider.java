@@ -0,0 +1,219 @@
+package org.rj.modelgen.llm.context.provider.impl;
+
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.context.provider.ContextBudgetDecision;
+import org.rj.modelgen.llm.context.provider.ContextHistoryMode;
+import org.rj.modelgen.llm.context.provider.ContextProvider;
+import org.rj.modelgen.llm.context.provider.ContextSummarizer;
+import org.rj.modelgen.llm.tokenizer.Tokenizer;
+import org.rj.modelgen.llm.tokenizer.Tokenizers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Context provider which fits the context for each request into a token budget, derived from the model context window
+ * and any cost limit on prompt tokens.  The history form is decided per request:
+ *
+ * <ol>
+ *     <li>Full history, if it fits the budget and is not disproportionately expensive relative to the latest
+ *         model state alone</li>
+ *     <li>Summarized history.  Low-value entries are removed first: model responses superseded by a later model
+ *         state, and user prompts repeated later in the session.  The oldest remaining user prompts are then removed
+ *         until the context fits, and are replaced by a summary</li>
+ *     <li>The latest model entry only, if no history can be retained within the budget</li>
+ * </ol>
+ *
+ * The latest model entry and the new prompt are always retained, along with any system prompt, which is placed first
+ * so that it forms a stable prefix across requests.  Entries are counted in the form in which they are submitted, and
+ * the full history is retained by appending the new prompt alone, without copying the history
+ */
+public class TokenBudgetedContextProvider implements ContextProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(TokenBudgetedContextProvider.class);
+
+    private static final int TOKENS_PER_MESSAGE = 3;      // Chat message framing: message start, role and separator
+    private static final int TOKENS_PER_REQUEST = 3;      // Priming of the response message
+
+    private final TokenBudgetedContextProviderOptions options;
+    private final ContextSummarizer summarizer;
+    private final Tokenizer tokenizer;
+
+    public TokenBudgetedContextProvider() {
+        this(TokenBudgetedContextProviderOptions.defaultOptions(), ContextSummarizer.userRequests());
+    }
+
+    public TokenBudgetedContextProvider(TokenBudgetedContextProviderOptions options, ContextSummarizer summarizer) {
+        this(options, summarizer, null);
+    }
+
+    /**
+     * @param tokenizer     Tokenizer by which entries are counted, or null to use the tokenizer for the encoding
+     *                      given in the options
+     */
+    public TokenBudgetedContextProvider(TokenBudgetedContextProviderOptions options, ContextSummarizer summarizer, Tokenizer tokenizer) {
+        this.options = Optional.ofNullable(options).orElseGet(TokenBudgetedContextProviderOptions::defaultOptions);
+        this.summarizer = Optional.ofNullable(summarizer).orElseGet(ContextSummarizer::none);
+        this.tokenizer = Optional.ofNullable(tokenizer).orElseGet(() -> Tokenizers.get(this.options.getEncoding()));
+    }
+
+    @Override
+    public Context newContext() {
+        return new Context();
+    }
+
+    @Override
+    public Context withPrompt(Context currentContext, String prompt) {
+        return withPrompt(currentContext, null, prompt);
+    }
+
+    @Override
+    public Context withPrompt(Context currentContext, String systemPrompt, String prompt) {
+        if (currentContext == null) return null;
+
+        final var decision = fit(currentContext, systemPrompt, prompt);
+        if (decision.isWithinBudget()) {
+            LOG.debug("Context for new prompt: {}", decision);
+        }
+        else {
+            LOG.warn("Context for new prompt exceeds budget of {} tokens: {}", options.getPromptTokenBudget(), decision);
+        }
+
+        return decision.getContext();
+    }
+
+    /**
+     * Determine the context to be submitted for a new prompt
+     *
+     * @param currentContext    Current session context
+     * @param prompt            New prompt
+     * @return                  Decision on the form of the new context
+     */
+    public ContextBudgetDecision fit(Context currentContext, String prompt) {
+        return fit(currentContext, null, prompt);
+    }
+
+    /**
+     * Determine the context to be submitted for a new prompt, preceded by a system prompt.  Any prompt supplement of
+     * the current context is submitted with the new prompt, and so is counted with it
+     *
+     * @param currentContext    Current session context
+     * @param systemPrompt      System prompt, or null if not required
+     * @param prompt            New prompt
+     * @return                  Decision on the form of the new context
+     */
+    public ContextBudgetDecision fit(Context currentContext, String systemPrompt, String prompt) {
+        final var source = Optional.ofNullable(currentContext).orElseGet(Context::new);
+        final var supplement = source.getPromptSupplement();
+        final var history = source.withoutSystemPrompt();
+        final var entries = history.getData();
+        final var submitted = history.withPromptSupplement(null).getSubmittedData();
+        final var systemEntry = Optional.ofNullable(systemPrompt).map(ContextEntry::forSystem);
+        final var newEntry = ContextEntry.forUser(prompt);
+        final int budget = options.getPromptTokenBudget();
+
+        // Baseline of the system prompt and latest model state alone, which are always retained
+        final int latestModelIndex = latestIndexOf(entries, ContextRole.MODEL);
+        final int newEntryTokens = entryTokens((supplement == null) ? newEntry : ContextEntry.forUser(supplement + prompt));
+        final int systemTokens = systemEntry.map(this::entryTokens).orElse(0);
+        final int latestModelTokens = (latestModelIndex >= 0) ? entryTokens(submitted.get(latestModelIndex)) : 0;
+        final int baselineTokens = TOKENS_PER_REQUEST + systemTokens + latestModelTokens + newEntryTokens;
+
+        final long costCeiling = Math.max(baselineTokens, (long)Math.floor(baselineTokens * options.getMaxHistoryCostRatio()));
+        final long limit = Math.min(budget, costCeiling);
+
+        final int[] tokens = new int[entries.size()];
+        long fullTokens = TOKENS_PER_REQUEST + systemTokens + newEntryTokens;
+        for (int i = 0; i < entries.size(); ++i) {
+            tokens[i] = entryTokens(submitted.get(i));
+            fullTokens += tokens[i];
+        }
+
+        if (fullTokens <= limit) {
+            return decision(ContextHistoryMode.FullHistory, history.withEntry(newEntry), systemPrompt, supplement, fullTokens, 0, budget);
+        }
+
+        // Remove low-value entries first; superseded model states and prompts which are repeated later in the session
+        final var removed = new boolean[entries.size()];
+        final var laterPrompts = new HashSet<String>();
+        long retainedTokens = fullTokens;
+        for (int i = entries.size() - 1; i >= 0; --i) {
+            final var entry = entries.get(i);
+            final boolean superseded = (entry.getRole() == ContextRole.MODEL && i != latestModelIndex);
+            final boolean repeated = (entry.getRole() == ContextRole.USER && !laterPrompts.add(String.valueOf(entry.getContent())));
+
+            if (superseded || repeated) {
+                removed[i] = true;
+                retainedTokens -= tokens[i];
+            }
+        }
+
+        // Then remove the oldest remaining history, which will be replaced by a summary
+        final int summaryAllowance = options.getSummaryTokenLimit() + TOKENS_PER_MESSAGE;
+        final List<ContextEntry> summarized = new ArrayList<>();
+        for (int i = 0; i < entries.size() && retainedTokens + (summarized.isEmpty() ? 0 : summaryAllowance) > limit; ++i) {
+            if (removed[i] || i == latestModelIndex) continue;
+
+            removed[i] = true;
+            retainedTokens -= tokens[i];
+            summarized.add(entries.get(i));
+        }
+
+        final long historyTokens = retainedTokens;
+        final var summary = summarized.isEmpty() ? Optional.<ContextEntry>empty() :
+                summarizer.summarize(summarized, options.getSummaryTokenLimit(), tokenizer)
+                        .map(ContextEntry::forUser)
+                        .filter(entry -> historyTokens + entryTokens(entry) <= limit);
+
+        final long summarizedTokens = historyTokens + summary.map(this::entryTokens).orElse(0);
+        final int removedCount = countRemoved(removed);
+        final boolean historyRetained = summary.isPresent() || removedCount < entries.size() - (latestModelIndex >= 0 ? 1 : 0);
+
+        if (historyRetained && summarizedTokens <= limit) {
+            final List<ContextEntry> compacted = new ArrayList<>();
+            summary.ifPresent(compacted::add);
+            for (int i = 0; i < entries.size(); ++i) {
+                if (!removed[i]) compacted.add(entries.get(i));
+            }
+
+            return decision(ContextHistoryMode.SummarizedHistory, history.withHistory(compacted).withEntry(newEntry), systemPrompt,
+                    supplement, summarizedTokens, removedCount, budget);
+        }
+
+        final List<ContextEntry> latestOnly = (latestModelIndex >= 0) ? List.of(entries.get(latestModelIndex)) : List.of();
+        return decision(ContextHistoryMode.LatestModelOnly, history.withHistory(latestOnly).withEntry(newEntry), systemPrompt,
+                supplement, baselineTokens, entries.size() - latestOnly.size(), budget);
+    }
+
+    // The new prompt is the latest entry of the given context, and is submitted with any system prompt and supplement
+    private ContextBudgetDecision decision(ContextHistoryMode mode, Context context, String systemPrompt, String supplement,
+                                           long tokens, int removedEntries, int budget) {
+        final var requestContext = context.withSystemPrompt(systemPrompt).withPromptSupplement(supplement);
+        return new ContextBudgetDecision(mode, requestContext, (int)Math.min(tokens, Integer.MAX_VALUE), removedEntries, tokens <= budget);
+    }
+
+    // Counts are cached by each entry, so that history retained across requests is counted only once
+    private int entryTokens(ContextEntry entry) {
+        return TOKENS_PER_MESSAGE + entry.countTokens(tokenizer);
+    }
+
+    private static int latestIndexOf(List<ContextEntry> entries, ContextRole role) {
+        for (int i = entries.size() - 1; i >= 0; --i) {
+            if (entries.get(i).getRole() == role) return i;
+        }
+        return -1;
+    }
+
+    private static int countRemoved(boolean[] removed) {
+        int count = 0;
+        for (final boolean entry : removed) {
+            if (entry) ++count;
+        }
+        return count;
+    }
+}
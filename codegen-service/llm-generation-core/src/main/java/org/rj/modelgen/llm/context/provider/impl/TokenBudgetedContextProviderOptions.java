@@ -0,0 +1,124 @@
+package org.rj.modelgen.llm.context.provider.impl;
+
+import org.rj.modelgen.llm.tokenizer.TokenizerEncoding;
+import org.rj.modelgen.llm.tokenizer.Tokenizers;
+
+public class TokenBudgetedContextProviderOptions {
+    private int contextWindowTokens = 8192;
+    private int reservedResponseTokens = 2048;
+    private int maxPromptTokens = Integer.MAX_VALUE;
+    private double maxHistoryCostRatio = 3.0;
+    private int summaryTokenLimit = 256;
+    private TokenizerEncoding encoding = Tokenizers.DEFAULT_ENCODING;
+
+    public TokenBudgetedContextProviderOptions() { }
+
+    public static TokenBudgetedContextProviderOptions defaultOptions() {
+        return new TokenBudgetedContextProviderOptions();
+    }
+
+    /**
+     * @return      Token budget available for the submitted context, based on both the model context window
+     *              and any cost limit on prompt tokens
+     */
+    public int getPromptTokenBudget() {
+        return Math.max(0, Math.min(contextWindowTokens - reservedResponseTokens, maxPromptTokens));
+    }
+
+    /**
+     * @return      Size of the model context window, covering both the submitted context and the response
+     */
+    public int getContextWindowTokens() {
+        return contextWindowTokens;
+    }
+
+    public void setContextWindowTokens(int contextWindowTokens) {
+        this.contextWindowTokens = contextWindowTokens;
+    }
+
+    public TokenBudgetedContextProviderOptions withContextWindowTokens(int contextWindowTokens) {
+        setContextWindowTokens(contextWindowTokens);
+        return this;
+    }
+
+    /**
+     * @return      Tokens of the context window which are reserved for the model response
+     */
+    public int getReservedResponseTokens() {
+        return reservedResponseTokens;
+    }
+
+    public void setReservedResponseTokens(int reservedResponseTokens) {
+        this.reservedResponseTokens = reservedResponseTokens;
+    }
+
+    public TokenBudgetedContextProviderOptions withReservedResponseTokens(int reservedResponseTokens) {
+        setReservedResponseTokens(reservedResponseTokens);
+        return this;
+    }
+
+    /**
+     * @return      Cost limit on the prompt tokens submitted with any single request
+     */
+    public int getMaxPromptTokens() {
+        return maxPromptTokens;
+    }
+
+    public void setMaxPromptTokens(int maxPromptTokens) {
+        this.maxPromptTokens = maxPromptTokens;
+    }
+
+    public TokenBudgetedContextProviderOptions withMaxPromptTokens(int maxPromptTokens) {
+        setMaxPromptTokens(maxPromptTokens);
+        return this;
+    }
+
+    /**
+     * @return      Maximum cost of submitting history, relative to submitting only the latest model state.  History
+     *              which fits within the budget but exceeds this ratio is compacted anyway
+     */
+    public double getMaxHistoryCostRatio() {
+        return maxHistoryCostRatio;
+    }
+
+    public void setMaxHistoryCostRatio(double maxHistoryCostRatio) {
+        this.maxHistoryCostRatio = maxHistoryCostRatio;
+    }
+
+    public TokenBudgetedContextProviderOptions withMaxHistoryCostRatio(double maxHistoryCostRatio) {
+        setMaxHistoryCostRatio(maxHistoryCostRatio);
+        return this;
+    }
+
+    /**
+     * @return      Maximum size of the summary which replaces history entries removed from the context
+     */
+    public int getSummaryTokenLimit() {
+        return summaryTokenLimit;
+    }
+
+    public void setSummaryTokenLimit(int summaryTokenLimit) {
+        this.summaryTokenLimit = summaryTokenLimit;
+    }
+
+    public TokenBudgetedContextProviderOptions withSummaryTokenLimit(int summaryTokenLimit) {
+        setSummaryTokenLimit(summaryTokenLimit);
+        return this;
+    }
+
+    /**
+     * @return      Encoding used to count context tokens
+     */
+    public TokenizerEncoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(TokenizerEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public TokenBudgetedContextProviderOptions withEncoding(TokenizerEncoding encoding) {
+        setEncoding(encoding);
+        return this;
+    }
+}
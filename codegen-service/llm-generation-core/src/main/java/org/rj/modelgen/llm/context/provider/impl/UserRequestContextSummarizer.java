@@ -0,0 +1,84 @@
+package org.rj.modelgen.llm.context.provider.impl;
+
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.context.provider.ContextSummarizer;
+import org.rj.modelgen.llm.tokenizer.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Summarizes removed history as a list of the user requests it contained.  Model entries are not summarized, since
+ * each model response is superseded by the latest model state.  The most recent requests are retained in preference
+ * to older requests if the summary would exceed its limit
+ */
+public class UserRequestContextSummarizer implements ContextSummarizer {
+    private static final String HEADER = "Summary of earlier requests in this session, oldest first:";
+    private static final String ITEM_PREFIX = "\n- ";
+    private static final String TRUNCATION_MARKER = "...";
+    private static final int MIN_TOKENS_PER_REQUEST = 16;
+
+    private final Function<String, String> requestExtractor;
+
+    public UserRequestContextSummarizer(Function<String, String> requestExtractor) {
+        this.requestExtractor = Optional.ofNullable(requestExtractor).orElseGet(Function::identity);
+    }
+
+    @Override
+    public Optional<String> summarize(List<ContextEntry> removedEntries, int tokenLimit, Tokenizer tokenizer) {
+        final var requests = Optional.ofNullable(removedEntries).orElseGet(List::of).stream()
+                .filter(entry -> entry.getRole() == ContextRole.USER)
+                .map(ContextEntry::getContent)
+                .filter(content -> content != null && !content.isBlank())
+                .flatMap(this::requestsFrom)
+                .map(String::strip)
+                .filter(request -> !request.isEmpty())
+                .toList();
+
+        if (requests.isEmpty()) return Optional.empty();
+
+        final int perRequestLimit = Math.max(MIN_TOKENS_PER_REQUEST, tokenLimit / Math.min(requests.size(), 4));
+        int remaining = tokenLimit - tokenizer.countTokens(HEADER);
+
+        final List<String> items = new ArrayList<>();
+        for (int i = requests.size() - 1; i >= 0 && remaining > 0; --i) {
+            final var item = ITEM_PREFIX + excerpt(requests.get(i), Math.min(perRequestLimit, remaining), tokenizer);
+            final int tokens = tokenizer.countTokens(item);
+            if (tokens > remaining) break;
+
+            items.add(item);
+            remaining -= tokens;
+        }
+
+        if (items.isEmpty()) return Optional.empty();
+
+        Collections.reverse(items);
+        return Optional.of(HEADER + String.join("", items));
+    }
+
+    /**
+     * Requests within a user entry; a summary from an earlier compaction contributes each of its summarized requests
+     */
+    private Stream<String> requestsFrom(String content) {
+        if (content.startsWith(HEADER)) {
+            return Arrays.stream(content.substring(HEADER.length()).split(Pattern.quote(ITEM_PREFIX)));
+        }
+
+        return Stream.of(requestExtractor.apply(content));
+    }
+
+    private static String excerpt(String request, int tokenLimit, Tokenizer tokenizer) {
+        final var singleLine = request.replaceAll("\\s+", " ");
+        final var tokens = tokenizer.encode(singleLine);
+        if (tokens.length <= tokenLimit) return singleLine;
+
+        return tokenizer.decode(Arrays.copyOf(tokens, Math.max(1, tokenLimit - 4))).strip() + TRUNCATION_MARKER;
+    }
+}
@@ -1,12 +1,10 @@
 package org.rj.modelgen.llm.integrations.openai;
 
 import io.netty.handler.codec.http.HttpMethod;
-import org.json.JSONObject;
 import org.rj.modelgen.llm.beans.SubmissionMetadata;
 import org.rj.modelgen.llm.client.LlmClientImpl;
 import org.rj.modelgen.llm.exception.LlmGenerationModelException;
 import org.rj.modelgen.llm.request.ModelRequestHttpOptions;
-import org.rj.modelgen.llm.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -24,11 +22,15 @@ public class OpenAIClient extends LlmClientImpl<OpenAIModelRequest, OpenAIModelR
 
     private final OpenAIClientConfig config;
     private final HttpClient client;
+    private final OpenAIModelRequestWriter requestWriter;
+    private final OpenAIModelResponseDecoder<OpenAIModelResponse> responseDecoder;
 
     public OpenAIClient(OpenAIClientConfig config) {
         super(config);
         this.config = config;
         this.client = buildClient(config);
+        this.requestWriter = new OpenAIModelRequestWriter();
+        this.responseDecoder = new OpenAIModelResponseDecoder<>(config.getResponseClass());
     }
 
     private HttpClient buildClient(OpenAIClientConfig config) {
@@ -41,21 +43,20 @@ public class OpenAIClient extends LlmClientImpl<OpenAIModelRequest, OpenAIModelR
 
     @Override
     protected Mono<OpenAIModelResponse> evaluateModel(OpenAIModelRequest openAIModelRequest, SubmissionMetadata submissionMetadata) {
-        final var submissionPayloadBytes = Util.serializeBinaryOrThrow(openAIModelRequest, ex -> new RuntimeException(
-                String.format("Failed to serialize model request to submission payload (%s)", ex.getMessage()), ex));
-
         return client.request(HttpMethod.POST)
                 .uri(absoluteUri(getSubmissionUri()))
                 .send((clientRequest, outbound) -> {
                     clientRequest = decorateClientRequest(clientRequest, submissionMetadata.getHttpOptions());
-                    return outbound.sendByteArray(Mono.just(submissionPayloadBytes));
+
+                    // Stream the request directly into a pooled buffer from the connection allocator; released once written
+                    return outbound.send(Mono.fromSupplier(() -> requestWriter.write(outbound.alloc(), openAIModelRequest)));
                 })
                 .responseSingle((response, body) -> body
-                        .asByteArray()
-                        .map(this::deserializeResponse)
+                        .map(responseDecoder::decode)     // Decode synchronously; aggregated buffer is released on completion
+                        .switchIfEmpty(Mono.error(() -> new LlmGenerationModelException("Received no response data from OpenAI API")))
                 )
                 .doOnError(t -> LOG.error("LLM client received submission error for request {}: {}", submissionMetadata.getRequestId(), t.getMessage(), t))
-                .doOnSuccess(res -> LOG.info("LLM client received response for request {}: {}", submissionMetadata.getRequestId(), Util.serializeOrThrow(res)))
+                .doOnSuccess(res -> LOG.info("LLM client received response for request {}", submissionMetadata.getRequestId()))
                 .timeout(Duration.ofSeconds(240L));
     }
 
@@ -78,27 +79,6 @@ public class OpenAIClient extends LlmClientImpl<OpenAIModelRequest, OpenAIModelR
         return clientRequest;
     }
 
-    private OpenAIModelResponse deserializeResponse(byte[] serialized) {
-        if (serialized == null) throw new LlmGenerationModelException("Received no response data from OpenAI API");
-
-        try {
-            final var content = new String(serialized);
-            final var json = new JSONObject(content);
-
-            if (json.has(OpenAIConstants.ERROR_RESPONSE_KEY)) {
-                throw new LlmGenerationModelException("Received OpenAI API error response: " +
-                        Optional.ofNullable(json.getJSONObject(OpenAIConstants.ERROR_RESPONSE_KEY))
-                                .map(err -> err.getString(OpenAIConstants.ERROR_RESPONSE_MESSAGE))
-                                .orElse("<unknown-error>"));
-            }
-
-            return Util.deserializeOrThrow(content, config.getResponseClass());
-        }
-        catch (Exception ex) {
-            throw new LlmGenerationModelException("Failure while processing OpenAI API response: " + ex.getMessage(), ex);
-        }
-    }
-
     private URI getSubmissionUri() {
         return URI.create("v1/chat/completions");
     }
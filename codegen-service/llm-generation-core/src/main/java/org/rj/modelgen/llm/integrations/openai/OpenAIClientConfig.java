@@ -9,7 +9,10 @@ import java.util.Map;
 import java.util.function.Supplier;
 
 public class OpenAIClientConfig extends LlmClientConfig<OpenAIModelRequest, OpenAIModelResponse> {
+    public static final String DEFAULT_BASE_URL = "https://api.openai.com/";
+
     private Supplier<String> apiKeyGenerator;
+    private String baseUrl = DEFAULT_BASE_URL;
 
     public OpenAIClientConfig(Supplier<String> apiKeyGenerator) {
         super(OpenAIModelRequest.class, OpenAIModelResponse.class);
@@ -30,7 +33,11 @@ public class OpenAIClientConfig extends LlmClientConfig<OpenAIModelRequest, Open
     }
 
     public String getBaseUrl() {
-        return "https://api.openai.com/";
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl != null ? baseUrl : DEFAULT_BASE_URL;
     }
 
     public Map<String, String> getDefaultHeaders() {
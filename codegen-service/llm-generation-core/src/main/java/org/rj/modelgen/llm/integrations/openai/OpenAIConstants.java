@@ -1,9 +1,12 @@
 package org.rj.modelgen.llm.integrations.openai;
 
 public class OpenAIConstants {
+    public static final String ROLE_SYSTEM = "system";
     public static final String ROLE_USER = "user";
     public static final String ROLE_ASSISTANT = "assistant";
 
+    public static final String FINISH_REASON_LENGTH = "length";
+
     public static final String ERROR_RESPONSE_KEY = "error";
     public static final String ERROR_RESPONSE_MESSAGE = "message";
 }
@@ -1,21 +1,31 @@
 package org.rj.modelgen.llm.integrations.openai;
 
+import org.rj.modelgen.llm.audit.LlmAuditSink;
 import org.rj.modelgen.llm.client.LlmClient;
 import org.rj.modelgen.llm.client.LlmClientImpl;
 import org.rj.modelgen.llm.model.ModelInterface;
+import org.rj.modelgen.llm.session.SessionStore;
 
 import java.util.Optional;
 import java.util.function.Supplier;
 
 public class OpenAIModelInterface extends ModelInterface {
-    private OpenAIModelInterface(LlmClient llmClient) {
-        super(llmClient);
+    private OpenAIModelInterface(LlmClient llmClient, SessionStore sessionStore) {
+        super(llmClient, sessionStore);
     }
 
     public static class Builder {
         private Supplier<String> apiKeyGenerator;
+        private LlmAuditSink auditSink;
+        private SessionStore sessionStore;
+        private String baseUrl;
+        private boolean structuredOutput;
         public Builder() {
             this.apiKeyGenerator = null;
+            this.auditSink = LlmAuditSink.disabled();
+            this.sessionStore = null;
+            this.baseUrl = OpenAIClientConfig.DEFAULT_BASE_URL;
+            this.structuredOutput = false;
         }
 
         public Builder withApiKeyGenerator(Supplier<String> apiKeyGenerator) {
@@ -23,13 +33,36 @@ public class OpenAIModelInterface extends ModelInterface {
             return this;
         }
 
+        public Builder withAuditSink(LlmAuditSink auditSink) {
+            this.auditSink = auditSink;
+            return this;
+        }
+
+        public Builder withSessionStore(SessionStore sessionStore) {
+            this.sessionStore = sessionStore;
+            return this;
+        }
+
+        public Builder withBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder withStructuredOutput(boolean structuredOutput) {
+            this.structuredOutput = structuredOutput;
+            return this;
+        }
+
         public OpenAIModelInterface build() {
             final var keyGenerator = Optional.ofNullable(apiKeyGenerator).orElseGet(() -> (() -> null));
 
             final var llmClientConfig = new OpenAIClientConfig(keyGenerator);
+            llmClientConfig.setAuditSink(auditSink);
+            llmClientConfig.setBaseUrl(baseUrl);
+            llmClientConfig.setStructuredOutputSupported(structuredOutput);
             final var llmClient = new OpenAIClient(llmClientConfig);
 
-            return new OpenAIModelInterface(llmClient);
+            return new OpenAIModelInterface(llmClient, Optional.ofNullable(sessionStore).orElseGet(SessionStore::defaultStore));
         }
     }
 }
@@ -1,5 +1,8 @@
 package org.rj.modelgen.llm.integrations.openai;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.util.List;
 
 public class OpenAIModelRequest {
@@ -7,6 +10,12 @@ public class OpenAIModelRequest {
     private double temperature;
     private List<OpenAIContextMessage> messages;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer max_tokens;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ResponseFormat response_format;
+
     public static OpenAIModelRequest defaultConfig(List<OpenAIContextMessage> context) {
         return new OpenAIModelRequest("gpt-4", 0.7f, context);
     }
@@ -43,4 +52,91 @@ public class OpenAIModelRequest {
         this.messages = messages;
     }
 
+    public Integer getMax_tokens() {
+        return max_tokens;
+    }
+
+    public void setMax_tokens(Integer max_tokens) {
+        this.max_tokens = max_tokens;
+    }
+
+    public ResponseFormat getResponse_format() {
+        return response_format;
+    }
+
+    public void setResponse_format(ResponseFormat response_format) {
+        this.response_format = response_format;
+    }
+
+    /**
+     * Constrains the response to a JSON schema, where supported by the model
+     */
+    public static class ResponseFormat {
+        public static final String TYPE_JSON_SCHEMA = "json_schema";
+
+        private String type;
+        private JsonSchema json_schema;
+
+        public ResponseFormat() { }
+
+        public ResponseFormat(JsonSchema json_schema) {
+            this.type = TYPE_JSON_SCHEMA;
+            this.json_schema = json_schema;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public JsonSchema getJson_schema() {
+            return json_schema;
+        }
+
+        public void setJson_schema(JsonSchema json_schema) {
+            this.json_schema = json_schema;
+        }
+    }
+
+    public static class JsonSchema {
+        private String name;
+        private JsonNode schema;
+        private boolean strict;
+
+        public JsonSchema() { }
+
+        public JsonSchema(String name, JsonNode schema, boolean strict) {
+            this.name = name;
+            this.schema = schema;
+            this.strict = strict;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public JsonNode getSchema() {
+            return schema;
+        }
+
+        public void setSchema(JsonNode schema) {
+            this.schema = schema;
+        }
+
+        public boolean isStrict() {
+            return strict;
+        }
+
+        public void setStrict(boolean strict) {
+            this.strict = strict;
+        }
+    }
+
 }
@@ -16,15 +16,21 @@ public class OpenAIModelRequestTransformer implements ModelRequestTransformer<Op
         final var openAiRequest = new OpenAIModelRequest();
         openAiRequest.setModel(request.getModel());
         openAiRequest.setTemperature(request.getTemperature());
+        openAiRequest.setMax_tokens(request.getMaxTokens());
 
         openAiRequest.setMessages(Optional.ofNullable(request.getContext())
-                .map(Context::getData)
+                .map(Context::getSubmittedData)
                 .orElseGet(List::of)
                 .stream()
 
                 .map(this::transformContextEntry)
                 .collect(Collectors.toList()));
 
+        Optional.ofNullable(request.getResponseSchema())
+                .map(schema -> new OpenAIModelRequest.JsonSchema(schema.getName(), schema.getSchema(), schema.isStrict()))
+                .map(OpenAIModelRequest.ResponseFormat::new)
+                .ifPresent(openAiRequest::setResponse_format);
+
         return openAiRequest;
     }
 
@@ -35,8 +41,9 @@ public class OpenAIModelRequestTransformer implements ModelRequestTransformer<Op
     private String transformRole(ContextRole role) {
         // Transform to a role type expected by the OpenAI API
         return switch (role) {
-            case USER  -> OpenAIConstants.ROLE_USER;
-            default    -> OpenAIConstants.ROLE_ASSISTANT;
+            case SYSTEM -> OpenAIConstants.ROLE_SYSTEM;
+            case USER   -> OpenAIConstants.ROLE_USER;
+            default     -> OpenAIConstants.ROLE_ASSISTANT;
         };
     }
 }
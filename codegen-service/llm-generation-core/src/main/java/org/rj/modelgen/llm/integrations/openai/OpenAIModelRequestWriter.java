@@ -0,0 +1,74 @@
+package org.rj.modelgen.llm.integrations.openai;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serializes OpenAI model requests directly into an outbound network buffer.  The request is streamed through a
+ * Jackson generator into a buffer obtained from the connection allocator, so large prompt content is encoded once
+ * into its final location without any intermediate String or byte[] copies
+ */
+public class OpenAIModelRequestWriter {
+    private static final int BASE_REQUEST_SIZE = 256;
+    private static final int PER_MESSAGE_OVERHEAD = 48;
+    private static final int RESPONSE_SCHEMA_ESTIMATE = 4096;
+
+    private final ObjectWriter writer;
+
+    public OpenAIModelRequestWriter() {
+        this.writer = Util.getObjectMapper().writerFor(OpenAIModelRequest.class);
+    }
+
+    /**
+     * Write the given request into a new buffer from the provided allocator.  Ownership of the returned buffer passes
+     * to the caller, which would normally hand it directly to the outbound connection
+     *
+     * @param allocator     Allocator for the outbound buffer, generally the pooled allocator of the connection
+     * @param request       Request to be serialized
+     * @return              Buffer containing the serialized request
+     */
+    public ByteBuf write(ByteBufAllocator allocator, OpenAIModelRequest request) {
+        if (allocator == null || request == null) throw new LlmGenerationModelException("Cannot write invalid null model request");
+
+        final var buffer = allocator.buffer(estimateSerializedSize(request));
+        try (final var output = new ByteBufOutputStream(buffer);
+             final var generator = writer.getFactory().createGenerator((OutputStream)output, JsonEncoding.UTF8)) {
+
+            writer.writeValue(generator, request);
+            return buffer;
+        }
+        catch (Exception ex) {
+            buffer.release();
+            throw new LlmGenerationModelException(String.format("Failed to serialize model request to submission payload (%s)", ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Estimate the serialized size of a request, so the outbound buffer can generally be allocated once at the
+     * correct size.  The buffer will still grow as required if the estimate is too small
+     */
+    int estimateSerializedSize(OpenAIModelRequest request) {
+        final var messages = Optional.ofNullable(request.getMessages()).orElseGet(List::of);
+
+        long size = BASE_REQUEST_SIZE;
+        for (final var message : messages) {
+            final var content = Optional.ofNullable(message).map(OpenAIContextMessage::getContent).orElse("");
+            size += PER_MESSAGE_OVERHEAD + content.length() + (content.length() >> 3);     // Allow for some escaping
+        }
+
+        if (request.getResponse_format() != null && request.getResponse_format().getJson_schema() != null) {
+            size += RESPONSE_SCHEMA_ESTIMATE;
+        }
+
+        return (int)Math.min(size, Integer.MAX_VALUE - 8);
+    }
+}
@@ -1,8 +1,11 @@
 package org.rj.modelgen.llm.integrations.openai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
+import java.util.Optional;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OpenAIModelResponse {
@@ -13,6 +16,9 @@ public class OpenAIModelResponse {
     private Usage usage;
     private List<Choice> choices;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Error error;
+
     public OpenAIModelResponse() { }
 
     public String getId() {
@@ -63,10 +69,25 @@ public class OpenAIModelResponse {
         this.choices = choices;
     }
 
+    public Error getError() {
+        return error;
+    }
+
+    public void setError(Error error) {
+        this.error = error;
+    }
+
+    @JsonIgnore
+    public boolean hasError() {
+        return error != null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Usage {
         private Integer prompt_tokens;
         private Integer completion_tokens;
         private Integer total_tokens;
+        private PromptTokensDetails prompt_tokens_details;
 
         public Usage() { }
 
@@ -93,6 +114,39 @@ public class OpenAIModelResponse {
         public void setTotal_tokens(Integer total_tokens) {
             this.total_tokens = total_tokens;
         }
+
+        public PromptTokensDetails getPrompt_tokens_details() {
+            return prompt_tokens_details;
+        }
+
+        public void setPrompt_tokens_details(PromptTokensDetails prompt_tokens_details) {
+            this.prompt_tokens_details = prompt_tokens_details;
+        }
+
+        /**
+         * @return      Number of prompt tokens served from the provider prompt cache, or zero if not reported
+         */
+        @JsonIgnore
+        public int getCachedPromptTokens() {
+            return Optional.ofNullable(prompt_tokens_details)
+                    .map(PromptTokensDetails::getCached_tokens)
+                    .orElse(0);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class PromptTokensDetails {
+        private Integer cached_tokens;
+
+        public PromptTokensDetails() { }
+
+        public Integer getCached_tokens() {
+            return cached_tokens;
+        }
+
+        public void setCached_tokens(Integer cached_tokens) {
+            this.cached_tokens = cached_tokens;
+        }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -127,4 +181,37 @@ public class OpenAIModelResponse {
             this.index = index;
         }
     }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Error {
+        private String message;
+        private String type;
+        private String code;
+
+        public Error() { }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public void setCode(String code) {
+            this.code = code;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package org.rj.modelgen.llm.integrations.openai;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Decodes OpenAI API responses in a single streaming pass.  Response data is bound directly from the received
+ * bytes into the response class, and the API error envelope is bound alongside the standard response fields so
+ * that no intermediate String or JSON tree is required
+ *
+ * @param <TResponse>       Response type; must be compatible with the standard OpenAI response structure
+ */
+public class OpenAIModelResponseDecoder<TResponse extends OpenAIModelResponse> {
+    private final ObjectReader reader;
+
+    public OpenAIModelResponseDecoder(Class<TResponse> responseClass) {
+        if (responseClass == null) throw new IllegalArgumentException("Cannot create OpenAI response decoder without valid response class");
+        this.reader = Util.getObjectMapper().readerFor(responseClass);
+    }
+
+    /**
+     * Decode a response directly from the received network buffer.  Does not modify the reference count of the buffer
+     *
+     * @param buffer        Buffer containing the serialized response
+     * @return              Decoded response
+     */
+    public TResponse decode(ByteBuf buffer) {
+        if (buffer == null || !buffer.isReadable()) throw new LlmGenerationModelException("Received no response data from OpenAI API");
+
+        try {
+            // Bind directly from the backing array where available, otherwise stream from the (possibly composite) buffer
+            if (buffer.hasArray()) {
+                return validated(reader.readValue(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes()));
+            }
+
+            try (final var input = new ByteBufInputStream(buffer.duplicate())) {
+                return validated(reader.readValue((InputStream)input));
+            }
+        }
+        catch (LlmGenerationModelException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationModelException("Failure while processing OpenAI API response: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Decode a response from serialized binary data
+     *
+     * @param serialized    Serialized response
+     * @return              Decoded response
+     */
+    public TResponse decode(byte[] serialized) {
+        if (serialized == null) throw new LlmGenerationModelException("Received no response data from OpenAI API");
+
+        try {
+            return validated(reader.readValue(serialized));
+        }
+        catch (LlmGenerationModelException ex) {
+            throw ex;
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationModelException("Failure while processing OpenAI API response: " + ex.getMessage(), ex);
+        }
+    }
+
+    private TResponse validated(TResponse response) {
+        if (response == null) throw new LlmGenerationModelException("Received no response data from OpenAI API");
+
+        if (response.hasError()) {
+            throw new LlmGenerationModelException("Received OpenAI API error response: " +
+                    Optional.ofNullable(response.getError().getMessage()).orElse("<unknown-error>"));
+        }
+
+        return response;
+    }
+}
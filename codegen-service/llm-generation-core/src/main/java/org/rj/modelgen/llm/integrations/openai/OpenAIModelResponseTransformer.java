@@ -15,21 +15,32 @@ public class OpenAIModelResponseTransformer implements ModelResponseTransformer<
     public ModelResponse transform(OpenAIModelResponse response) {
         final var modelResponse = new ModelResponse();
         modelResponse.setStatus(ModelResponse.Status.SUCCESS);  // Will currently return errors before this point if != success
-        modelResponse.setMessage(Optional.ofNullable(response.getChoices()).orElseGet(List::of).stream()
-                        .map(OpenAIModelResponse.Choice::getMessage)
-                        .map(OpenAIContextMessage::getContent)
-                        .filter(msg -> !StringUtils.isBlank(msg))
-                        .findFirst()
-                        .orElse(null));
+
+        final var choice = Optional.ofNullable(response.getChoices()).orElseGet(List::of).stream()
+                .filter(x -> x.getMessage() != null && !StringUtils.isBlank(x.getMessage().getContent()))
+                .findFirst();
+
+        modelResponse.setMessage(choice.map(x -> x.getMessage().getContent()).orElse(null));
+
+        // Generation which stops at the token limit still returns its partial content, which may be continued
+        modelResponse.setTruncated(choice.map(OpenAIModelResponse.Choice::getFinish_reason)
+                .filter(OpenAIConstants.FINISH_REASON_LENGTH::equals)
+                .isPresent());
+
         modelResponse.setPromptTokenUsage(response.getUsage().getPrompt_tokens());
+        modelResponse.setCachedPromptTokenUsage(response.getUsage().getCachedPromptTokens());
         modelResponse.setResponseTokenUsage(response.getUsage().getCompletion_tokens());
 
         // OpenAI responses include metadata on model choices, evaluation data, and the request itself.  Attach all of this
-        // metadata to the response for now
-        final var metadata = Util.convertOrThrow(response, Map.class, ex -> new RuntimeException(
-                String.format("Could not collect metadata from Open AI response (%s)", ex.getMessage()), ex));
-        modelResponse.setMetadata(metadata);
+        // metadata to the response, materialized only if it is actually read
+        modelResponse.setLazyMetadata(() -> collectMetadata(response));
 
         return modelResponse;
     }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> collectMetadata(OpenAIModelResponse response) {
+        return Util.convertOrThrow(response, Map.class, ex -> new RuntimeException(
+                String.format("Could not collect metadata from Open AI response (%s)", ex.getMessage()), ex));
+    }
 }
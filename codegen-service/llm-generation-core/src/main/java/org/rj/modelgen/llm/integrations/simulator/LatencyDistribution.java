@@ -0,0 +1,122 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Distribution of simulated LLM latencies
+ */
+public interface LatencyDistribution {
+    /**
+     * Sample a latency from this distribution
+     *
+     * @param random        Source of randomness
+     * @return              Sampled latency
+     */
+    Duration sample(Random random);
+
+    /**
+     * @param latency       Latency returned for every sample
+     * @return              Distribution which always returns the same latency
+     */
+    static LatencyDistribution fixed(Duration latency) {
+        if (latency == null || latency.isNegative()) throw new IllegalArgumentException("Invalid fixed latency");
+        return random -> latency;
+    }
+
+    /**
+     * Lognormal distribution, which approximates the long-tailed latency profile of hosted LLM APIs
+     *
+     * @param median        Median latency
+     * @param sigma         Standard deviation of the underlying normal distribution; larger values give a longer tail
+     * @return              Lognormal latency distribution
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        if (median == null || median.isNegative() || median.isZero()) throw new IllegalArgumentException("Invalid lognormal median latency");
+        if (sigma < 0.0) throw new IllegalArgumentException("Invalid lognormal sigma");
+
+        final var mu = Math.log(median.toNanos());
+        return random -> Duration.ofNanos((long)Math.exp(mu + sigma * random.nextGaussian()));
+    }
+
+    /**
+     * Distribution replayed from a recorded latency histogram.  A bucket is chosen in proportion to its count, and
+     * the latency is then drawn uniformly from within the bucket
+     *
+     * @param upperBoundsMs     Ascending upper bound of each bucket, in milliseconds; the first bucket starts at zero
+     * @param counts            Number of observations in each bucket
+     * @return                  Histogram latency distribution
+     */
+    static LatencyDistribution histogram(long[] upperBoundsMs, long[] counts) {
+        return new HistogramLatencyDistribution(upperBoundsMs, counts);
+    }
+
+    /**
+     * Parse a histogram from text data, with one "upperBoundMs,count" bucket per line.  Blank lines and lines
+     * beginning with '#' are ignored
+     *
+     * @param data      Histogram data
+     * @return          Histogram latency distribution
+     */
+    static LatencyDistribution parseHistogram(String data) {
+        if (data == null) throw new IllegalArgumentException("Cannot parse invalid null histogram data");
+
+        final List<long[]> buckets = new ArrayList<>();
+        for (final var line : data.split("\\R")) {
+            final var trimmed = line.trim();
+            if (StringUtils.isBlank(trimmed) || trimmed.startsWith("#")) continue;
+
+            final var fields = trimmed.split(",");
+            if (fields.length != 2) throw new IllegalArgumentException("Invalid histogram bucket: " + trimmed);
+            buckets.add(new long[] { Long.parseLong(fields[0].trim()), Long.parseLong(fields[1].trim()) });
+        }
+
+        return histogram(
+                buckets.stream().mapToLong(bucket -> bucket[0]).toArray(),
+                buckets.stream().mapToLong(bucket -> bucket[1]).toArray());
+    }
+
+    class HistogramLatencyDistribution implements LatencyDistribution {
+        private final long[] upperBoundsMs;
+        private final long[] cumulativeCounts;
+
+        HistogramLatencyDistribution(long[] upperBoundsMs, long[] counts) {
+            if (upperBoundsMs == null || counts == null || upperBoundsMs.length == 0 || upperBoundsMs.length != counts.length) {
+                throw new IllegalArgumentException("Latency histogram requires matching, non-empty bucket bounds and counts");
+            }
+
+            this.upperBoundsMs = Arrays.copyOf(upperBoundsMs, upperBoundsMs.length);
+            this.cumulativeCounts = new long[counts.length];
+
+            long total = 0L, previousBound = 0L;
+            for (int i = 0; i < counts.length; ++i) {
+                if (counts[i] < 0L) throw new IllegalArgumentException("Latency histogram counts cannot be negative");
+                if (upperBoundsMs[i] < previousBound) throw new IllegalArgumentException("Latency histogram bounds must be ascending");
+
+                total += counts[i];
+                cumulativeCounts[i] = total;
+                previousBound = upperBoundsMs[i];
+            }
+
+            if (total == 0L) throw new IllegalArgumentException("Latency histogram contains no observations");
+        }
+
+        @Override
+        public Duration sample(Random random) {
+            final var target = (long)(random.nextDouble() * cumulativeCounts[cumulativeCounts.length - 1]);
+
+            var index = Arrays.binarySearch(cumulativeCounts, target + 1);
+            if (index < 0) index = -index - 1;
+            while (index > 0 && cumulativeCounts[index - 1] == cumulativeCounts[index]) --index;     // Skip any empty buckets
+
+            final var lower = index == 0 ? 0L : upperBoundsMs[index - 1];
+            final var upper = upperBoundsMs[index];
+            return Duration.ofMillis(lower + (long)(random.nextDouble() * (upper - lower)));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.integrations.openai.OpenAIContextMessage;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Simulates the timing and failure behaviour of a hosted chat-completion LLM.  Responses are selected from a corpus
+ * of recorded completions and delayed by a sampled first-token latency plus the time required to generate their
+ * completion tokens at the configured token rate.  Errors, rate limiting and timeouts are injected at configurable
+ * rates.  Shared by the in-process simulator client and the simulator HTTP server
+ */
+public class LlmSimulator {
+    public static final String SERVER_ERROR_MESSAGE = "The server had an error while processing your request";
+    public static final String RATE_LIMIT_MESSAGE = "Rate limit reached for requests";
+    private static final int CHARACTERS_PER_TOKEN = 4;
+
+    private final LlmSimulatorOptions options;
+    private final LlmSimulatorCorpus corpus;
+    private final Random random;
+
+    public LlmSimulator(LlmSimulatorOptions options, LlmSimulatorCorpus corpus) {
+        if (options == null) throw new LlmGenerationConfigException("Cannot create LLM simulator without valid options");
+        if (corpus == null) throw new LlmGenerationConfigException("Cannot create LLM simulator without valid response corpus");
+
+        this.options = options;
+        this.corpus = corpus;
+        this.random = Optional.ofNullable(options.getSeed()).map(Random::new).orElseGet(Random::new);
+    }
+
+    /**
+     * Simulate a complete, non-streamed model evaluation
+     *
+     * @param model     Model requested by the caller, or null to use the model recorded in the corpus
+     * @return          Simulated response, or error, after the simulated latency
+     */
+    public Mono<OpenAIModelResponse> evaluate(String model) {
+        return switch (nextOutcome()) {
+            case Error -> Mono.delay(nextFirstTokenLatency())
+                    .then(Mono.error(() -> new LlmGenerationModelException("Received OpenAI API error response: " + SERVER_ERROR_MESSAGE)));
+
+            case RateLimited -> Mono.error(() -> new LlmGenerationModelException("Received OpenAI API error response: " + RATE_LIMIT_MESSAGE));
+
+            case Timeout -> Mono.<OpenAIModelResponse>never()
+                    .timeout(options.getTimeout());
+
+            case Success -> {
+                final var response = nextResponse(model);
+                yield Mono.delay(nextFirstTokenLatency().plus(generationTime(response)))
+                        .thenReturn(response);
+            }
+        };
+    }
+
+    /**
+     * @return      Outcome of the next simulated request, based on the configured failure injection rates
+     */
+    public LlmSimulatorOutcome nextOutcome() {
+        var sample = random.nextDouble();
+
+        if ((sample -= options.getRateLimitRate()) < 0.0) return LlmSimulatorOutcome.RateLimited;
+        if ((sample -= options.getErrorRate()) < 0.0) return LlmSimulatorOutcome.Error;
+        if ((sample -= options.getTimeoutRate()) < 0.0) return LlmSimulatorOutcome.Timeout;
+
+        return LlmSimulatorOutcome.Success;
+    }
+
+    public Duration nextFirstTokenLatency() {
+        return options.getFirstTokenLatency().sample(random);
+    }
+
+    /**
+     * Select the next response from the corpus, re-stamped as a new completion for the given model
+     *
+     * @param model     Model requested by the caller, or null to retain the recorded model
+     * @return          Simulated response
+     */
+    public OpenAIModelResponse nextResponse(String model) {
+        final var recorded = corpus.select(random);
+
+        final var response = new OpenAIModelResponse();
+        response.setId("chatcmpl-sim-" + UUID.randomUUID());
+        response.setObject(recorded.getObject());
+        response.setCreated(Instant.now().getEpochSecond());
+        response.setModel(Optional.ofNullable(model).orElseGet(recorded::getModel));
+        response.setUsage(recorded.getUsage());
+        response.setChoices(recorded.getChoices());
+
+        return response;
+    }
+
+    /**
+     * @param response      Response being generated
+     * @return              Time required to generate all completion tokens of the response at the simulated token rate
+     */
+    public Duration generationTime(OpenAIModelResponse response) {
+        if (options.getTokensPerSecond() <= 0.0) return Duration.ZERO;
+        return Duration.ofNanos((long)(completionTokens(response) * 1_000_000_000.0 / options.getTokensPerSecond()));
+    }
+
+    /**
+     * @return      Delay between successive streamed tokens at the simulated token rate
+     */
+    public Duration tokenInterval() {
+        if (options.getTokensPerSecond() <= 0.0) return Duration.ZERO;
+        return Duration.ofNanos((long)(1_000_000_000.0 / options.getTokensPerSecond()));
+    }
+
+    /**
+     * Split response content into the token-sized fragments which are emitted when streaming
+     *
+     * @param content       Response content
+     * @return              Content fragments, in order
+     */
+    public List<String> tokenize(String content) {
+        final var tokens = new ArrayList<String>((content.length() + CHARACTERS_PER_TOKEN - 1) / CHARACTERS_PER_TOKEN);
+        for (int i = 0; i < content.length(); i += CHARACTERS_PER_TOKEN) {
+            tokens.add(content.substring(i, Math.min(content.length(), i + CHARACTERS_PER_TOKEN)));
+        }
+        return tokens;
+    }
+
+    /**
+     * Emit response content token-by-token at the simulated token rate
+     *
+     * @param content       Response content
+     * @return              Stream of content fragments
+     */
+    public Flux<String> streamContent(String content) {
+        final var tokens = Flux.fromIterable(tokenize(Optional.ofNullable(content).orElse("")));
+        final var interval = tokenInterval();
+
+        return interval.isZero() ? tokens : tokens.delayElements(interval);
+    }
+
+    public static String content(OpenAIModelResponse response) {
+        return Optional.ofNullable(response.getChoices())
+                .filter(choices -> !choices.isEmpty())
+                .map(choices -> choices.get(0).getMessage())
+                .map(OpenAIContextMessage::getContent)
+                .orElse("");
+    }
+
+    private static int completionTokens(OpenAIModelResponse response) {
+        return Optional.ofNullable(response.getUsage())
+                .map(OpenAIModelResponse.Usage::getCompletion_tokens)
+                .orElseGet(() -> (content(response).length() + CHARACTERS_PER_TOKEN - 1) / CHARACTERS_PER_TOKEN);
+    }
+
+    public LlmSimulatorOptions getOptions() {
+        return options;
+    }
+
+    public LlmSimulatorCorpus getCorpus() {
+        return corpus;
+    }
+}
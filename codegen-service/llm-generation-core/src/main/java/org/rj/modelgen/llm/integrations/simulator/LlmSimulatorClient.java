@@ -0,0 +1,30 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.rj.modelgen.llm.beans.SubmissionMetadata;
+import org.rj.modelgen.llm.client.LlmClientImpl;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelRequest;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-process LLM client which returns simulated responses, with realistic latency and failure behaviour, without
+ * any network access
+ */
+public class LlmSimulatorClient extends LlmClientImpl<OpenAIModelRequest, OpenAIModelResponse> {
+    private static final Logger LOG = LoggerFactory.getLogger(LlmSimulatorClient.class);
+
+    private final LlmSimulator simulator;
+
+    public LlmSimulatorClient(LlmSimulatorClientConfig config) {
+        super(config);
+        this.simulator = config.getSimulator();
+    }
+
+    @Override
+    protected Mono<OpenAIModelResponse> evaluateModel(OpenAIModelRequest request, SubmissionMetadata submissionMetadata) {
+        return simulator.evaluate(request.getModel())
+                .doOnError(t -> LOG.error("LLM simulator returned submission error for request {}: {}", submissionMetadata.getRequestId(), t.getMessage()));
+    }
+}
@@ -0,0 +1,32 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.rj.modelgen.llm.client.LlmClientConfig;
+import org.rj.modelgen.llm.client.LlmClientType;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelRequest;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelRequestTransformer;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponseTransformer;
+
+public class LlmSimulatorClientConfig extends LlmClientConfig<OpenAIModelRequest, OpenAIModelResponse> {
+    private final LlmSimulator simulator;
+
+    public LlmSimulatorClientConfig(LlmSimulator simulator) {
+        super(OpenAIModelRequest.class, OpenAIModelResponse.class);
+
+        setType(LlmClientType.Simulator);
+
+        // Use the same transformations as the OpenAI client, so the simulated pipeline is otherwise identical
+        setRequestTransformer(new OpenAIModelRequestTransformer());
+        setResponseTransformer(new OpenAIModelResponseTransformer());
+
+        if (simulator == null) {
+            throw new LlmGenerationConfigException("Cannot initialize simulator LLM client without valid simulator");
+        }
+        this.simulator = simulator;
+    }
+
+    public LlmSimulator getSimulator() {
+        return simulator;
+    }
+}
@@ -0,0 +1,94 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import org.rj.modelgen.llm.util.Util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Set of recorded chat-completion responses from which simulated responses are selected
+ */
+public class LlmSimulatorCorpus {
+    private final List<OpenAIModelResponse> responses;
+
+    public LlmSimulatorCorpus(List<OpenAIModelResponse> responses) {
+        if (responses == null || responses.isEmpty()) throw new LlmGenerationConfigException("Cannot create simulator corpus without any responses");
+        this.responses = List.copyOf(responses);
+    }
+
+    /**
+     * Create a corpus from serialized chat-completion responses
+     *
+     * @param serializedResponses   Serialized responses
+     * @return                      Simulator corpus
+     */
+    public static LlmSimulatorCorpus fromSerialized(List<String> serializedResponses) {
+        return new LlmSimulatorCorpus(serializedResponses.stream()
+                .map(LlmSimulatorCorpus::deserialize)
+                .toList());
+    }
+
+    /**
+     * Load a corpus of serialized chat-completion responses from classpath resources
+     *
+     * @param resources     Resource paths
+     * @return              Simulator corpus
+     */
+    public static LlmSimulatorCorpus fromResources(List<String> resources) {
+        return new LlmSimulatorCorpus(resources.stream()
+                .map(Util::loadStringResource)
+                .map(LlmSimulatorCorpus::deserialize)
+                .toList());
+    }
+
+    /**
+     * Load a corpus from all *.json chat-completion responses in the given directory
+     *
+     * @param directory     Directory containing serialized responses
+     * @return              Simulator corpus
+     */
+    public static LlmSimulatorCorpus fromDirectory(Path directory) {
+        try (final var files = Files.list(directory)) {
+            return new LlmSimulatorCorpus(files
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .map(LlmSimulatorCorpus::readFile)
+                    .map(LlmSimulatorCorpus::deserialize)
+                    .toList());
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to load simulator corpus from '%s': %s", directory, ex.getMessage()), ex);
+        }
+    }
+
+    public OpenAIModelResponse select(Random random) {
+        return responses.get(random.nextInt(responses.size()));
+    }
+
+    public List<OpenAIModelResponse> getResponses() {
+        return responses;
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    private static String readFile(Path file) {
+        try {
+            return Files.readString(file);
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to read simulator response '%s': %s", file, ex.getMessage()), ex);
+        }
+    }
+
+    private static OpenAIModelResponse deserialize(String serialized) {
+        return Util.deserializeOrThrow(serialized, OpenAIModelResponse.class,
+                ex -> new LlmGenerationConfigException("Could not deserialize simulator response: " + ex.getMessage(), ex));
+    }
+}
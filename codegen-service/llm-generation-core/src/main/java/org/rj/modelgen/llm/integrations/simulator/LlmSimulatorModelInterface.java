@@ -0,0 +1,60 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import org.rj.modelgen.llm.audit.LlmAuditSink;
+import org.rj.modelgen.llm.client.LlmClient;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.model.ModelInterface;
+import org.rj.modelgen.llm.session.SessionStore;
+
+import java.util.Optional;
+
+public class LlmSimulatorModelInterface extends ModelInterface {
+    private LlmSimulatorModelInterface(LlmClient llmClient, SessionStore sessionStore) {
+        super(llmClient, sessionStore);
+    }
+
+    public static class Builder {
+        private LlmSimulatorOptions options;
+        private LlmSimulatorCorpus corpus;
+        private LlmAuditSink auditSink;
+        private SessionStore sessionStore;
+        public Builder() {
+            this.options = LlmSimulatorOptions.defaultOptions();
+            this.corpus = null;
+            this.auditSink = LlmAuditSink.disabled();
+            this.sessionStore = null;
+        }
+
+        public Builder withOptions(LlmSimulatorOptions options) {
+            this.options = options;
+            return this;
+        }
+
+        public Builder withCorpus(LlmSimulatorCorpus corpus) {
+            this.corpus = corpus;
+            return this;
+        }
+
+        public Builder withAuditSink(LlmAuditSink auditSink) {
+            this.auditSink = auditSink;
+            return this;
+        }
+
+        public Builder withSessionStore(SessionStore sessionStore) {
+            this.sessionStore = sessionStore;
+            return this;
+        }
+
+        public LlmSimulatorModelInterface build() {
+            final var simulator = new LlmSimulator(
+                    Optional.ofNullable(options).orElseGet(LlmSimulatorOptions::defaultOptions),
+                    Optional.ofNullable(corpus).orElseThrow(() -> new LlmGenerationConfigException("Cannot build simulator model interface without response corpus")));
+
+            final var llmClientConfig = new LlmSimulatorClientConfig(simulator);
+            llmClientConfig.setAuditSink(auditSink);
+            final var llmClient = new LlmSimulatorClient(llmClientConfig);
+
+            return new LlmSimulatorModelInterface(llmClient, Optional.ofNullable(sessionStore).orElseGet(SessionStore::defaultStore));
+        }
+    }
+}
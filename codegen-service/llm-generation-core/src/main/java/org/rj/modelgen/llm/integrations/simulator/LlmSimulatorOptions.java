@@ -0,0 +1,131 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import java.time.Duration;
+
+public class LlmSimulatorOptions {
+    private LatencyDistribution firstTokenLatency = LatencyDistribution.logNormal(Duration.ofMillis(800L), 0.5);
+    private double tokensPerSecond = 40.0;
+    private double errorRate = 0.0;
+    private double rateLimitRate = 0.0;
+    private double timeoutRate = 0.0;
+    private Duration timeout = Duration.ofSeconds(30L);
+    private Long seed = null;
+
+    public LlmSimulatorOptions() { }
+
+    public static LlmSimulatorOptions defaultOptions() {
+        return new LlmSimulatorOptions();
+    }
+
+    /**
+     * @return      Distribution of latency before the first token of a response is produced
+     */
+    public LatencyDistribution getFirstTokenLatency() {
+        return firstTokenLatency;
+    }
+
+    public void setFirstTokenLatency(LatencyDistribution firstTokenLatency) {
+        this.firstTokenLatency = firstTokenLatency;
+    }
+
+    public LlmSimulatorOptions withFirstTokenLatency(LatencyDistribution firstTokenLatency) {
+        setFirstTokenLatency(firstTokenLatency);
+        return this;
+    }
+
+    /**
+     * @return      Rate at which completion tokens are generated after the first token, or zero for no generation delay
+     */
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    public LlmSimulatorOptions withTokensPerSecond(double tokensPerSecond) {
+        setTokensPerSecond(tokensPerSecond);
+        return this;
+    }
+
+    /**
+     * @return      Proportion of requests which fail with a server error
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public LlmSimulatorOptions withErrorRate(double errorRate) {
+        setErrorRate(errorRate);
+        return this;
+    }
+
+    /**
+     * @return      Proportion of requests which are rejected as rate-limited (HTTP 429)
+     */
+    public double getRateLimitRate() {
+        return rateLimitRate;
+    }
+
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    public LlmSimulatorOptions withRateLimitRate(double rateLimitRate) {
+        setRateLimitRate(rateLimitRate);
+        return this;
+    }
+
+    /**
+     * @return      Proportion of requests which never receive a response
+     */
+    public double getTimeoutRate() {
+        return timeoutRate;
+    }
+
+    public void setTimeoutRate(double timeoutRate) {
+        this.timeoutRate = timeoutRate;
+    }
+
+    public LlmSimulatorOptions withTimeoutRate(double timeoutRate) {
+        setTimeoutRate(timeoutRate);
+        return this;
+    }
+
+    /**
+     * @return      Time after which an unanswered request fails in the in-process simulator client
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public LlmSimulatorOptions withTimeout(Duration timeout) {
+        setTimeout(timeout);
+        return this;
+    }
+
+    /**
+     * @return      Random seed for reproducible simulations, or null for a non-deterministic simulation
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public LlmSimulatorOptions withSeed(Long seed) {
+        setSeed(seed);
+        return this;
+    }
+}
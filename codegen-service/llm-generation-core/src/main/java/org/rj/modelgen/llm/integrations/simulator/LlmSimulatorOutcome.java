@@ -0,0 +1,8 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+public enum LlmSimulatorOutcome {
+    Success,
+    Error,
+    RateLimited,
+    Timeout
+}
@@ -0,0 +1,180 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.rj.modelgen.llm.integrations.openai.OpenAIConstants;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import org.rj.modelgen.llm.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Local HTTP server speaking the OpenAI chat-completions protocol, backed by an {@link LlmSimulator}.  Supports
+ * both complete and server-sent-event streamed responses, so that the real OpenAI client and its network path can
+ * be exercised end-to-end without access to the hosted API
+ */
+public class LlmSimulatorServer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LlmSimulatorServer.class);
+    public static final String COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream";
+
+    private final LlmSimulator simulator;
+    private final DisposableServer server;
+
+    private LlmSimulatorServer(LlmSimulator simulator, String host, int port, LoopResources loopResources) {
+        this.simulator = simulator;
+
+        var server = HttpServer.create()
+                .host(host)
+                .port(port)
+                .route(routes -> routes.post(COMPLETIONS_PATH, this::handleCompletionRequest));
+
+        if (loopResources != null) {
+            server = server.runOn(loopResources);
+        }
+        this.server = server.bindNow();
+
+        LOG.info("LLM simulator server listening on {}", getBaseUrl());
+    }
+
+    /**
+     * Start a simulator server on the loopback interface
+     *
+     * @param simulator     Simulator generating responses
+     * @param port          Port to listen on, or zero to use any available port
+     * @return              Running server
+     */
+    public static LlmSimulatorServer start(LlmSimulator simulator, int port) {
+        return start(simulator, port, null);
+    }
+
+    /**
+     * Start a simulator server on the loopback interface, running on dedicated event loops so that it does not
+     * share (or distort measurement of) the default event loops used by clients in the same process
+     *
+     * @param simulator         Simulator generating responses
+     * @param port              Port to listen on, or zero to use any available port
+     * @param loopResources     Event loop resources for the server, or null to use the shared defaults
+     * @return                  Running server
+     */
+    public static LlmSimulatorServer start(LlmSimulator simulator, int port, LoopResources loopResources) {
+        return new LlmSimulatorServer(simulator, "localhost", port, loopResources);
+    }
+
+    public int getPort() {
+        return server.port();
+    }
+
+    /**
+     * @return      Base URL of the server, in the form expected by the OpenAI client configuration
+     */
+    public String getBaseUrl() {
+        return String.format("http://localhost:%d/", getPort());
+    }
+
+    private Publisher<Void> handleCompletionRequest(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asByteArray()
+                .flatMap(body -> Mono.fromCallable(() -> Util.getObjectMapper().readTree(body)).onErrorResume(ex -> Mono.empty()))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(body -> body
+                        .map(json -> respond(json, response))
+                        .orElseGet(() -> sendError(response, HttpResponseStatus.BAD_REQUEST, "invalid_request_error", "Invalid request body")));
+    }
+
+    private Mono<Void> respond(JsonNode body, HttpServerResponse response) {
+        final var model = body.path("model").isTextual() ? body.get("model").asText() : null;
+        final var stream = body.path("stream").asBoolean(false);
+
+        return switch (simulator.nextOutcome()) {
+            case Error -> Mono.delay(simulator.nextFirstTokenLatency())
+                    .then(sendError(response, HttpResponseStatus.INTERNAL_SERVER_ERROR, "server_error", LlmSimulator.SERVER_ERROR_MESSAGE));
+
+            case RateLimited -> sendError(response.header(HttpHeaderNames.RETRY_AFTER, "1"),
+                    HttpResponseStatus.TOO_MANY_REQUESTS, "requests", LlmSimulator.RATE_LIMIT_MESSAGE);
+
+            // Hold the connection open until the simulated timeout; clients with shorter timeouts will fail first
+            case Timeout -> Mono.delay(simulator.getOptions().getTimeout())
+                    .then(sendError(response, HttpResponseStatus.GATEWAY_TIMEOUT, "timeout", "Request timed out"));
+
+            case Success -> stream
+                    ? sendStreamedResponse(response, simulator.nextResponse(model))
+                    : sendResponse(response, simulator.nextResponse(model));
+        };
+    }
+
+    private Mono<Void> sendResponse(HttpServerResponse response, OpenAIModelResponse modelResponse) {
+        final var latency = simulator.nextFirstTokenLatency().plus(simulator.generationTime(modelResponse));
+
+        return Mono.delay(latency)
+                .then(response.status(HttpResponseStatus.OK)
+                        .header(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE_JSON)
+                        .sendByteArray(Mono.fromSupplier(() -> Util.serializeBinaryOrThrow(modelResponse)))
+                        .then());
+    }
+
+    private Mono<Void> sendStreamedResponse(HttpServerResponse response, OpenAIModelResponse modelResponse) {
+        final var events = Flux.concat(
+                        Mono.just(chunk(modelResponse, OpenAIConstants.ROLE_ASSISTANT, null, null)),
+                        simulator.streamContent(LlmSimulator.content(modelResponse)).map(token -> chunk(modelResponse, null, token, null)),
+                        Mono.just(chunk(modelResponse, null, null, "stop")))
+                .map(chunk -> "data: " + Util.serializeOrThrow(chunk) + "\n\n")
+                .concatWith(Mono.just("data: [DONE]\n\n"))
+                .delaySubscription(simulator.nextFirstTokenLatency());
+
+        return response.status(HttpResponseStatus.OK)
+                .header(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE_EVENT_STREAM)
+                .header(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                .sendString(events)
+                .then();
+    }
+
+    private ObjectNode chunk(OpenAIModelResponse response, String role, String content, String finishReason) {
+        final var mapper = Util.getObjectMapper();
+        final var chunk = mapper.createObjectNode()
+                .put("id", response.getId())
+                .put("object", "chat.completion.chunk")
+                .put("created", response.getCreated())
+                .put("model", response.getModel());
+
+        final var choice = chunk.putArray("choices").addObject().put("index", 0);
+        final var delta = choice.putObject("delta");
+        if (role != null) delta.put("role", role);
+        if (content != null) delta.put("content", content);
+        choice.put("finish_reason", finishReason);
+
+        return chunk;
+    }
+
+    private Mono<Void> sendError(HttpServerResponse response, HttpResponseStatus status, String type, String message) {
+        final var error = Util.getObjectMapper().createObjectNode();
+        error.putObject(OpenAIConstants.ERROR_RESPONSE_KEY)
+                .put(OpenAIConstants.ERROR_RESPONSE_MESSAGE, message)
+                .put("type", type)
+                .put("code", String.valueOf(status.code()));
+
+        return response.status(status)
+                .header(HttpHeaderNames.CONTENT_TYPE, CONTENT_TYPE_JSON)
+                .sendString(Mono.just(Util.serializeOrThrow(error)))
+                .then();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow(Duration.ofSeconds(5L));
+    }
+}
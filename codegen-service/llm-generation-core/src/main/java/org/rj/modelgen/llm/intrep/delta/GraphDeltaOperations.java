@@ -0,0 +1,180 @@
+package org.rj.modelgen.llm.intrep.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.util.Set;
+
+/**
+ * Node-level edit operations on the serialized form of a graph intermediate model, which are more compact and
+ * less error-prone for an LLM to generate than the equivalent index-based JSON patch operations
+ */
+final class GraphDeltaOperations {
+    static final String OP_ADD_NODE = "addNode";
+    static final String OP_REMOVE_NODE = "removeNode";
+    static final String OP_UPDATE_NODE = "updateNode";
+    static final String OP_RENAME = "rename";
+    static final String OP_CONNECT = "connect";
+    static final String OP_DISCONNECT = "disconnect";
+
+    private static final Set<String> OPERATIONS = Set.of(OP_ADD_NODE, OP_REMOVE_NODE, OP_UPDATE_NODE, OP_RENAME, OP_CONNECT, OP_DISCONNECT);
+
+    // Field names of the serialized graph model, as defined by IntermediateGraphModel, GraphNode and GraphConnection
+    private static final String FIELD_NODES = "nodes";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_CONNECTED_TO = "connectedTo";
+    private static final String FIELD_TARGET_NODE = "targetNode";
+
+    private GraphDeltaOperations() { }
+
+    static boolean isGraphOperation(String op) {
+        return OPERATIONS.contains(op);
+    }
+
+    /**
+     * Apply a single graph operation in place
+     *
+     * @param document      Serialized graph model
+     * @param operation     Graph operation
+     */
+    static void applyOperation(JsonNode document, JsonNode operation) {
+        final var op = operation.path("op").asText("");
+        final var nodes = nodes(document);
+
+        switch (op) {
+            case OP_ADD_NODE -> {
+                final var node = operation.get("node");
+                if (node == null || !node.isObject()) throw new LlmGenerationModelException("Operation 'addNode' requires a node object");
+
+                final var id = node.path(FIELD_ID).asText("");
+                if (id.isEmpty()) throw new LlmGenerationModelException("Operation 'addNode' requires a node with a valid ID");
+                if (findNode(nodes, id) != null) throw new LlmGenerationModelException(String.format("Cannot add node '%s'; node already exists", id));
+
+                nodes.add(node.deepCopy());
+            }
+            case OP_REMOVE_NODE -> {
+                final var id = requiredText(operation, FIELD_ID, op);
+                final var node = requireNode(nodes, id);
+                nodes.remove(indexOf(nodes, node));
+
+                // Connections into the removed node would otherwise be left dangling
+                for (final var remaining : nodes) {
+                    removeConnections(remaining, id);
+                }
+            }
+            case OP_UPDATE_NODE -> {
+                final var node = requireNode(nodes, requiredText(operation, FIELD_ID, op));
+                final var fields = operation.get("set");
+                if (fields == null || !fields.isObject()) throw new LlmGenerationModelException("Operation 'updateNode' requires a 'set' object");
+
+                fields.fields().forEachRemaining(field -> {
+                    if (FIELD_ID.equals(field.getKey()) || FIELD_CONNECTED_TO.equals(field.getKey())) {
+                        throw new LlmGenerationModelException(String.format("Operation 'updateNode' cannot modify '%s'", field.getKey()));
+                    }
+
+                    if (field.getValue().isNull()) {
+                        node.remove(field.getKey());
+                    }
+                    else {
+                        node.set(field.getKey(), field.getValue().deepCopy());
+                    }
+                });
+            }
+            case OP_RENAME -> {
+                final var node = requireNode(nodes, requiredText(operation, FIELD_ID, op));
+                node.put(FIELD_NAME, requiredText(operation, FIELD_NAME, op));
+            }
+            case OP_CONNECT -> {
+                final var source = requireNode(nodes, requiredText(operation, "from", op));
+                final var target = requiredText(operation, "to", op);
+                requireNode(nodes, target);
+
+                // Any other fields of the operation are properties of the connection itself
+                final ObjectNode connection = operation.deepCopy();
+                connection.remove(Set.of("op", "from", "to"));
+                connection.put(FIELD_TARGET_NODE, target);
+
+                removeConnections(source, target);
+                connections(source).add(connection);
+            }
+            case OP_DISCONNECT -> {
+                final var source = requireNode(nodes, requiredText(operation, "from", op));
+                final var target = requiredText(operation, "to", op);
+                if (!removeConnections(source, target)) {
+                    throw new LlmGenerationModelException(String.format("Cannot disconnect '%s' from '%s'; no connection exists",
+                            source.path(FIELD_ID).asText(), target));
+                }
+            }
+            default -> throw new LlmGenerationModelException(String.format("Unsupported graph delta operation '%s'", op));
+        }
+    }
+
+    private static ArrayNode nodes(JsonNode document) {
+        if (!(document instanceof ObjectNode model)) throw new LlmGenerationModelException("Graph delta operations require a graph model object");
+
+        final var nodes = model.get(FIELD_NODES);
+        if (nodes == null || nodes.isNull()) return model.putArray(FIELD_NODES);
+        if (!(nodes instanceof ArrayNode array)) throw new LlmGenerationModelException("Graph model nodes must be an array");
+
+        return array;
+    }
+
+    private static ArrayNode connections(ObjectNode node) {
+        final var connections = node.get(FIELD_CONNECTED_TO);
+        if (connections instanceof ArrayNode array) return array;
+
+        return node.putArray(FIELD_CONNECTED_TO);
+    }
+
+    private static ObjectNode findNode(ArrayNode nodes, String id) {
+        for (final var node : nodes) {
+            if (node instanceof ObjectNode object && id.equals(object.path(FIELD_ID).asText(null))) {
+                return object;
+            }
+        }
+
+        return null;
+    }
+
+    private static ObjectNode requireNode(ArrayNode nodes, String id) {
+        final var node = findNode(nodes, id);
+        if (node == null) throw new LlmGenerationModelException(String.format("No node exists with ID '%s'", id));
+
+        return node;
+    }
+
+    private static int indexOf(ArrayNode nodes, JsonNode node) {
+        for (int i = 0; i < nodes.size(); ++i) {
+            if (nodes.get(i) == node) return i;
+        }
+
+        return -1;
+    }
+
+    private static boolean removeConnections(JsonNode node, String target) {
+        final var connections = node.get(FIELD_CONNECTED_TO);
+        if (!(connections instanceof ArrayNode array)) return false;
+
+        boolean removed = false;
+        for (int i = array.size() - 1; i >= 0; --i) {
+            if (target.equals(array.get(i).path(FIELD_TARGET_NODE).asText(null))) {
+                array.remove(i);
+                removed = true;
+            }
+        }
+
+        return removed;
+    }
+
+    private static String requiredText(JsonNode operation, String field, String op) {
+        final var value = operation.get(field);
+        if (value == null || !value.isTextual() || value.asText().isEmpty()) {
+            throw new LlmGenerationModelException(String.format("Operation '%s' requires a '%s' value", op, field));
+        }
+
+        return value.asText();
+    }
+}
@@ -0,0 +1,92 @@
+package org.rj.modelgen.llm.intrep.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.util.Result;
+import org.rj.modelgen.llm.util.Util;
+
+/**
+ * Incremental edit to an intermediate model, returned by the LLM in place of the complete model.  A delta is a JSON
+ * array of operations, applied in order, where each operation is either a JSON patch (RFC 6902) operation or one
+ * of the graph operations below:
+ *
+ * <pre>
+ *   { "op": "addNode", "node": { "id": "...", ... } }
+ *   { "op": "removeNode", "id": "..." }                    // Also removes all connections into the node
+ *   { "op": "updateNode", "id": "...", "set": { ... } }    // Null values remove the field
+ *   { "op": "rename", "id": "...", "name": "..." }
+ *   { "op": "connect", "from": "...", "to": "...", ... }   // Other fields are copied to the connection
+ *   { "op": "disconnect", "from": "...", "to": "..." }
+ * </pre>
+ *
+ * A delta is applied atomically; if any operation fails then the model is unchanged
+ */
+public final class IntermediateModelDelta {
+    private IntermediateModelDelta() { }
+
+    /**
+     * @param content   Sanitized model response
+     * @return          Whether the response is a delta, rather than a complete model
+     */
+    public static boolean isDelta(String content) {
+        if (content == null) return false;
+
+        for (int i = 0; i < content.length(); ++i) {
+            final char c = content.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '[';
+        }
+
+        return false;
+    }
+
+    /**
+     * Apply a delta to the serialized form of a model
+     *
+     * @param model     Current serialized model
+     * @param delta     Serialized delta
+     * @return          The complete updated model, or a description of the reason the delta could not be applied
+     */
+    public static Result<String, String> apply(String model, String delta) {
+        final JsonNode modelNode;
+        final JsonNode deltaNode;
+        try {
+            modelNode = Util.getObjectMapper().readTree(model);
+            deltaNode = Util.getObjectMapper().readTree(delta);
+        }
+        catch (Exception ex) {
+            return Result.Err(String.format("Cannot parse model delta (%s)", ex.getMessage()));
+        }
+
+        try {
+            return Result.Ok(Util.serializeOrThrow(apply(modelNode, deltaNode)));
+        }
+        catch (LlmGenerationModelException ex) {
+            return Result.Err(ex.getMessage());
+        }
+    }
+
+    /**
+     * Apply a delta to a model.  The input model is never modified
+     *
+     * @param model     Current model
+     * @param delta     Array of delta operations
+     * @return          New updated model
+     * @throws LlmGenerationModelException  If any operation is invalid or cannot be applied
+     */
+    public static JsonNode apply(JsonNode model, JsonNode delta) {
+        if (delta == null || !delta.isArray()) throw new LlmGenerationModelException("Model delta must be an array of operations");
+
+        JsonNode result = model.deepCopy();
+        for (final var operation : delta) {
+            final var op = operation.path("op").asText("");
+            if (GraphDeltaOperations.isGraphOperation(op)) {
+                GraphDeltaOperations.applyOperation(result, operation);
+            }
+            else {
+                result = JsonPatch.applyOperation(result, operation);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package org.rj.modelgen.llm.intrep.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Computes the structural difference between two JSON documents, as a JSON Patch (RFC 6902) which transforms the
+ * source document into the target.  Objects are compared field by field, and arrays element by element after
+ * removing any common prefix and suffix, matching elements by ID where they have one.  The patch for a small edit
+ * to a large model is therefore itself small.  The patch can be applied with
+ * {@link JsonPatch#apply(JsonNode, JsonNode)} or as an {@link IntermediateModelDelta}
+ */
+public final class JsonDiff {
+    private static final String FIELD_ID = "id";
+
+    private JsonDiff() { }
+
+    /**
+     * @param source    Source document
+     * @param target    Target document
+     * @return          Array of patch operations which transforms the source into the target
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        final var patch = JsonNodeFactory.instance.arrayNode();
+        diff(patch, "", source, target);
+        return patch;
+    }
+
+    private static void diff(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)) return;
+
+        if (source.isObject() && target.isObject()) {
+            source.fieldNames().forEachRemaining(field -> {
+                if (!target.has(field)) remove(patch, child(path, field));
+            });
+            target.fields().forEachRemaining(field -> {
+                final var existing = source.get(field.getKey());
+                if (existing == null) {
+                    add(patch, child(path, field.getKey()), field.getValue());
+                }
+                else {
+                    diff(patch, child(path, field.getKey()), existing, field.getValue());
+                }
+            });
+        }
+        else if (source.isArray() && target.isArray()) {
+            diffArray(patch, path, source, target);
+        }
+        else {
+            patch.addObject()
+                    .put("op", JsonPatch.OP_REPLACE)
+                    .put("path", path)
+                    .set("value", target.deepCopy());
+        }
+    }
+
+    private static void diffArray(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        int prefix = 0;
+        while (prefix < source.size() && prefix < target.size() && source.get(prefix).equals(target.get(prefix))) {
+            ++prefix;
+        }
+
+        int suffix = 0;
+        while (suffix < source.size() - prefix && suffix < target.size() - prefix &&
+               source.get(source.size() - 1 - suffix).equals(target.get(target.size() - 1 - suffix))) {
+            ++suffix;
+        }
+
+        final int sourceEnd = source.size() - suffix;
+        final int targetEnd = target.size() - suffix;
+        if (diffKeyedArray(patch, path, source, target, prefix, sourceEnd, targetEnd)) return;
+
+        // Otherwise elements at the same position are diffed in place, and any others removed or inserted
+        final int common = Math.min(sourceEnd, targetEnd) - prefix;
+        for (int i = 0; i < common; ++i) {
+            diff(patch, child(path, String.valueOf(prefix + i)), source.get(prefix + i), target.get(prefix + i));
+        }
+
+        for (int i = sourceEnd - 1; i >= prefix + common; --i) {
+            remove(patch, child(path, String.valueOf(i)));
+        }
+
+        for (int i = prefix + common; i < targetEnd; ++i) {
+            add(patch, child(path, String.valueOf(i)), target.get(i));
+        }
+    }
+
+    /**
+     * Diff arrays of objects with unique IDs, such as the nodes of a graph model, by matching elements on their ID
+     * rather than their position, so that inserting or removing an element does not change all those after it
+     *
+     * @return      Whether the arrays could be diffed by ID; false if any element has no unique ID, or if the
+     *              elements present in both arrays are not in the same order
+     */
+    private static boolean diffKeyedArray(ArrayNode patch, String path, JsonNode source, JsonNode target,
+                                          int start, int sourceEnd, int targetEnd) {
+        final var sourceElements = keyed(source, start, sourceEnd);
+        final var targetElements = keyed(target, start, targetEnd);
+        if (sourceElements == null || targetElements == null) return false;
+
+        final var retained = sourceElements.keySet().stream().filter(targetElements::containsKey).toList();
+        final var retainedInTarget = targetElements.keySet().stream().filter(sourceElements::containsKey).toList();
+        if (!retained.equals(retainedInTarget)) return false;
+
+        for (int i = sourceEnd - 1; i >= start; --i) {
+            if (!targetElements.containsKey(source.get(i).get(FIELD_ID).asText())) {
+                remove(patch, child(path, String.valueOf(i)));
+            }
+        }
+
+        // Retained elements are now in target order, so each target element is either diffed or inserted in turn
+        for (int i = start; i < targetEnd; ++i) {
+            final var existing = sourceElements.get(target.get(i).get(FIELD_ID).asText());
+            if (existing != null) {
+                diff(patch, child(path, String.valueOf(i)), existing, target.get(i));
+            }
+            else {
+                add(patch, child(path, String.valueOf(i)), target.get(i));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return      Elements in the given range by ID, in order, or null if any element has no unique ID
+     */
+    private static LinkedHashMap<String, JsonNode> keyed(JsonNode array, int start, int end) {
+        final var elements = new LinkedHashMap<String, JsonNode>();
+        for (int i = start; i < end; ++i) {
+            final var id = array.get(i).path(FIELD_ID);
+            if (!id.isTextual() || id.asText().isEmpty() || elements.put(id.asText(), array.get(i)) != null) return null;
+        }
+
+        return elements;
+    }
+
+    private static void add(ArrayNode patch, String path, JsonNode value) {
+        patch.addObject()
+                .put("op", JsonPatch.OP_ADD)
+                .put("path", path)
+                .set("value", value.deepCopy());
+    }
+
+    private static void remove(ArrayNode patch, String path) {
+        patch.addObject()
+                .put("op", JsonPatch.OP_REMOVE)
+                .put("path", path);
+    }
+
+    private static String child(String path, String token) {
+        return path + "/" + token.replace("~", "~0").replace("/", "~1");
+    }
+}
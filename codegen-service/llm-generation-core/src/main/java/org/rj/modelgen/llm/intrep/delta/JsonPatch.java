@@ -0,0 +1,203 @@
+package org.rj.modelgen.llm.intrep.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies JSON Patch (RFC 6902) operations, addressed by JSON Pointer (RFC 6901), to a JSON document
+ */
+public final class JsonPatch {
+    public static final String OP_ADD = "add";
+    public static final String OP_REMOVE = "remove";
+    public static final String OP_REPLACE = "replace";
+    public static final String OP_MOVE = "move";
+    public static final String OP_COPY = "copy";
+    public static final String OP_TEST = "test";
+
+    private JsonPatch() { }
+
+    /**
+     * Apply a patch to the given document.  The patch is applied atomically; the input document is never modified
+     *
+     * @param document      Document to be patched
+     * @param patch         Array of patch operations
+     * @return              New patched document
+     * @throws LlmGenerationModelException  If any operation is invalid or cannot be applied
+     */
+    public static JsonNode apply(JsonNode document, JsonNode patch) {
+        if (patch == null || !patch.isArray()) throw new LlmGenerationModelException("JSON patch must be an array of operations");
+
+        JsonNode result = document.deepCopy();
+        for (final var operation : patch) {
+            result = applyOperation(result, operation);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param op        Operation name
+     * @return          Whether this is one of the operations defined by RFC 6902
+     */
+    public static boolean isPatchOperation(String op) {
+        return OP_ADD.equals(op) || OP_REMOVE.equals(op) || OP_REPLACE.equals(op) ||
+               OP_MOVE.equals(op) || OP_COPY.equals(op) || OP_TEST.equals(op);
+    }
+
+    /**
+     * Apply a single patch operation in place, where possible.  Operations which target the document root
+     * return a new root
+     *
+     * @param document      Document to be patched
+     * @param operation     Patch operation
+     * @return              Patched document
+     */
+    static JsonNode applyOperation(JsonNode document, JsonNode operation) {
+        final var op = operation.path("op").asText("");
+        if (!isPatchOperation(op)) throw new LlmGenerationModelException(String.format("Unsupported JSON patch operation '%s'", op));
+
+        final var path = requiredText(operation, "path", op);
+        return switch (op) {
+            case OP_ADD -> add(document, path, requiredValue(operation, op).deepCopy());
+            case OP_REMOVE -> { remove(document, path); yield document; }
+            case OP_REPLACE -> {
+                final var value = requiredValue(operation, op).deepCopy();
+                if (path.isEmpty()) yield value;
+
+                remove(document, path);
+                yield add(document, path, value);
+            }
+            case OP_MOVE -> {
+                final var from = requiredText(operation, "from", op);
+                if (path.startsWith(from + "/")) throw new LlmGenerationModelException(String.format("Cannot move '%s' into one of its children", from));
+
+                final var value = remove(document, from);
+                yield add(document, path, value);
+            }
+            case OP_COPY -> add(document, path, resolve(document, requiredText(operation, "from", op)).deepCopy());
+            case OP_TEST -> {
+                if (!resolve(document, path).equals(requiredValue(operation, op))) {
+                    throw new LlmGenerationModelException(String.format("JSON patch test failed at '%s'", path));
+                }
+                yield document;
+            }
+            default -> throw new LlmGenerationModelException(String.format("Unsupported JSON patch operation '%s'", op));
+        };
+    }
+
+    private static JsonNode add(JsonNode document, String path, JsonNode value) {
+        final var tokens = parsePointer(path);
+        if (tokens.isEmpty()) return value;
+
+        final var parent = resolve(document, tokens.subList(0, tokens.size() - 1), path);
+        final var key = tokens.get(tokens.size() - 1);
+
+        if (parent instanceof ObjectNode object) {
+            object.set(key, value);
+        }
+        else if (parent instanceof ArrayNode array) {
+            if ("-".equals(key)) {
+                array.add(value);
+            }
+            else {
+                array.insert(arrayIndex(key, array.size(), path), value);
+            }
+        }
+        else {
+            throw new LlmGenerationModelException(String.format("Cannot add value at '%s'; parent is not a container", path));
+        }
+
+        return document;
+    }
+
+    private static JsonNode remove(JsonNode document, String path) {
+        final var tokens = parsePointer(path);
+        if (tokens.isEmpty()) throw new LlmGenerationModelException("Cannot remove the document root");
+
+        final var parent = resolve(document, tokens.subList(0, tokens.size() - 1), path);
+        final var key = tokens.get(tokens.size() - 1);
+
+        if (parent instanceof ObjectNode object) {
+            if (!object.has(key)) throw new LlmGenerationModelException(String.format("No value exists at '%s'", path));
+            return object.remove(key);
+        }
+        else if (parent instanceof ArrayNode array) {
+            return array.remove(arrayIndex(key, array.size() - 1, path));
+        }
+
+        throw new LlmGenerationModelException(String.format("No value exists at '%s'", path));
+    }
+
+    private static JsonNode resolve(JsonNode document, String path) {
+        return resolve(document, parsePointer(path), path);
+    }
+
+    private static JsonNode resolve(JsonNode document, List<String> tokens, String path) {
+        var node = document;
+        for (final var token : tokens) {
+            if (node.isObject() && node.has(token)) {
+                node = node.get(token);
+            }
+            else if (node.isArray()) {
+                node = node.get(arrayIndex(token, node.size() - 1, path));
+            }
+            else {
+                throw new LlmGenerationModelException(String.format("No value exists at '%s'", path));
+            }
+        }
+
+        return node;
+    }
+
+    private static int arrayIndex(String token, int maxIndex, String path) {
+        final boolean valid = !token.isEmpty() && token.chars().allMatch(Character::isDigit) &&
+                              (token.length() == 1 || token.charAt(0) != '0') && token.length() < 10;
+        final int index = valid ? Integer.parseInt(token) : -1;
+        if (index < 0 || index > maxIndex) {
+            throw new LlmGenerationModelException(String.format("Invalid array index '%s' at '%s'", token, path));
+        }
+
+        return index;
+    }
+
+    /**
+     * Parse a JSON Pointer into its unescaped reference tokens
+     */
+    static List<String> parsePointer(String path) {
+        final List<String> tokens = new ArrayList<>();
+        if (path.isEmpty()) return tokens;
+        if (path.charAt(0) != '/') throw new LlmGenerationModelException(String.format("Invalid JSON pointer '%s'", path));
+
+        int start = 1;
+        while (true) {
+            final int end = path.indexOf('/', start);
+            final var token = path.substring(start, end < 0 ? path.length() : end);
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+
+            if (end < 0) return tokens;
+            start = end + 1;
+        }
+    }
+
+    private static String requiredText(JsonNode operation, String field, String op) {
+        final var value = operation.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new LlmGenerationModelException(String.format("JSON patch operation '%s' requires a '%s' pointer", op, field));
+        }
+
+        return value.asText();
+    }
+
+    private static JsonNode requiredValue(JsonNode operation, String op) {
+        if (!operation.has("value")) {
+            throw new LlmGenerationModelException(String.format("JSON patch operation '%s' requires a value", op));
+        }
+
+        return operation.get("value");
+    }
+}
@@ -0,0 +1,236 @@
+package org.rj.modelgen.llm.intrep.encoding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Compact encoding of graph intermediate models.  Most of the tokens in a serialized model are spent on JSON
+ * formatting and repeated field names rather than model content, so the compact form:
+ *
+ * <ul>
+ *     <li>Is minified, with no whitespace between tokens</li>
+ *     <li>Omits null fields, and empty arrays and objects</li>
+ *     <li>Abbreviates the field names of the model, nodes and connections</li>
+ * </ul>
+ *
+ * Values, including any free-form maps within nodes, are never modified.  Decoding restores the standard field names;
+ * omitted fields are equivalent to their null or empty values in the standard form
+ */
+public class CompactGraphModelEncoding implements IntermediateModelEncoding {
+    // Field names of the serialized graph model, as defined by IntermediateGraphModel, GraphNode and GraphConnection
+    private static final String FIELD_NODES = "nodes";
+    private static final String FIELD_CONNECTED_TO = "connectedTo";
+    private static final String FIELD_TARGET_NODE = "targetNode";
+
+    // Fields of graph delta operations which contain node data
+    private static final String DELTA_NODE = "node";
+    private static final String DELTA_SET = "set";
+
+    private final Level modelLevel;
+    private final Level nodeLevel;
+
+    /**
+     * Compact encoding which abbreviates only the standard graph model fields
+     */
+    public CompactGraphModelEncoding() {
+        this(Map.of(), Map.of());
+    }
+
+    /**
+     * @param nodeAliases           Abbreviations for additional node fields, keyed by field name
+     * @param connectionAliases     Abbreviations for additional connection fields, keyed by field name
+     */
+    public CompactGraphModelEncoding(Map<String, String> nodeAliases, Map<String, String> connectionAliases) {
+        final var connectionLevel = new Level(merge(Map.of(FIELD_TARGET_NODE, "to"), connectionAliases), Map.of());
+        this.nodeLevel = new Level(merge(Map.of(FIELD_CONNECTED_TO, "c"), nodeAliases), Map.of(FIELD_CONNECTED_TO, connectionLevel));
+        this.modelLevel = new Level(Map.of(FIELD_NODES, "n"), Map.of(FIELD_NODES, nodeLevel));
+    }
+
+    @Override
+    public String encode(String model) {
+        final var tree = parse(model);
+        if (!(tree instanceof ObjectNode object)) return model;
+
+        final var expanded = expand(object, modelLevel);
+        return Util.serializeOrThrow(compact(expanded == null ? object : expanded, modelLevel));
+    }
+
+    @Override
+    public String decode(String content) {
+        final var tree = parse(content);
+        if (tree instanceof ObjectNode object) {
+            final var expanded = expand(object, modelLevel);
+            return (expanded == null) ? content : Util.serializeOrThrow(expanded);
+        }
+
+        if (tree instanceof ArrayNode delta) {
+            return expandDelta(delta) ? Util.serializeOrThrow(delta) : content;
+        }
+
+        return content;
+    }
+
+    @Override
+    public String getDescription() {
+        final var aliases = new LinkedHashMap<String, String>();
+        for (final var level : new Level[] { modelLevel, nodeLevel, nodeLevel.children.get(FIELD_CONNECTED_TO) }) {
+            level.aliases.forEach(aliases::putIfAbsent);
+        }
+
+        return "Models in the request may be given in a compact form of the same JSON, in which null " +
+               "and empty fields are omitted and field names are abbreviated as follows: " +
+               aliases.entrySet().stream()
+                       .map(alias -> String.format("\"%s\" for \"%s\"", alias.getValue(), alias.getKey()))
+                       .collect(Collectors.joining(", ")) +
+               ".  You may use either form in your response.";
+    }
+
+    /**
+     * Returns a compact copy of the given object, which must have standard field names
+     */
+    private ObjectNode compact(ObjectNode object, Level level) {
+        final var result = JsonNodeFactory.instance.objectNode();
+        object.fields().forEachRemaining(field -> {
+            final var value = field.getValue();
+            if (isOmitted(value)) return;
+
+            final var child = level.children.get(field.getKey());
+            result.set(level.aliases.getOrDefault(field.getKey(), field.getKey()),
+                    (child != null && value instanceof ArrayNode array) ? compactElements(array, child) : value);
+        });
+
+        return result;
+    }
+
+    private ArrayNode compactElements(ArrayNode array, Level level) {
+        final var result = JsonNodeFactory.instance.arrayNode(array.size());
+        array.forEach(element -> result.add(element instanceof ObjectNode object ? compact(object, level) : element));
+
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given object with standard field names, or null if the object is already in standard form.
+     * Standard field names take precedence if both forms of a field are present
+     */
+    private ObjectNode expand(ObjectNode object, Level level) {
+        boolean changed = false;
+        final var result = JsonNodeFactory.instance.objectNode();
+
+        final var fields = object.fields();
+        while (fields.hasNext()) {
+            final var field = fields.next();
+            final var name = level.fieldNames.getOrDefault(field.getKey(), field.getKey());
+            if (!name.equals(field.getKey())) {
+                changed = true;
+                if (object.has(name)) continue;
+            }
+
+            var value = field.getValue();
+            final var child = level.children.get(name);
+            if (child != null && value instanceof ArrayNode array) {
+                final var expanded = expandElements(array, child);
+                if (expanded != null) {
+                    value = expanded;
+                    changed = true;
+                }
+            }
+
+            result.set(name, value);
+        }
+
+        return changed ? result : null;
+    }
+
+    private ArrayNode expandElements(ArrayNode array, Level level) {
+        boolean changed = false;
+        final var result = JsonNodeFactory.instance.arrayNode(array.size());
+        for (final var element : array) {
+            final var expanded = (element instanceof ObjectNode object) ? expand(object, level) : null;
+            changed |= (expanded != null);
+            result.add(expanded != null ? expanded : element);
+        }
+
+        return changed ? result : null;
+    }
+
+    /**
+     * Expand the node data within graph delta operations in place.  Returns true if any data was modified
+     */
+    private boolean expandDelta(ArrayNode delta) {
+        boolean changed = false;
+        for (final var operation : delta) {
+            if (!(operation instanceof ObjectNode op)) continue;
+
+            for (final var field : new String[] { DELTA_NODE, DELTA_SET }) {
+                if (op.get(field) instanceof ObjectNode data) {
+                    final var expanded = expand(data, nodeLevel);
+                    if (expanded != null) {
+                        op.set(field, expanded);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    private static boolean isOmitted(JsonNode value) {
+        return value == null || value.isNull() || (value.isContainerNode() && value.isEmpty());
+    }
+
+    private static JsonNode parse(String content) {
+        if (content == null || content.isBlank()) return null;
+
+        try {
+            return Util.getObjectMapper().readTree(content);
+        }
+        catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> merge(Map<String, String> standard, Map<String, String> additional) {
+        final var merged = new HashMap<>(standard);
+        merged.putAll(additional);
+
+        return merged;
+    }
+
+
+    /**
+     * Field abbreviations at one level of the model, with the levels of any nested arrays of objects
+     */
+    private static class Level {
+        private final Map<String, String> aliases;
+        private final Map<String, String> fieldNames;
+        private final Map<String, Level> children;
+
+        Level(Map<String, String> aliases, Map<String, Level> children) {
+            this.aliases = Collections.unmodifiableMap(new TreeMap<>(aliases));     // Ordered, so that descriptions are stable
+            this.children = children;
+            this.fieldNames = new HashMap<>();
+
+            aliases.forEach((field, alias) -> {
+                if (alias == null || alias.isEmpty()) {
+                    throw new LlmGenerationConfigException(String.format("Invalid abbreviation for model field '%s'", field));
+                }
+                if (aliases.containsKey(alias) || fieldNames.put(alias, field) != null) {
+                    throw new LlmGenerationConfigException(String.format("Abbreviation '%s' is not unique among model fields", alias));
+                }
+            });
+        }
+    }
+}
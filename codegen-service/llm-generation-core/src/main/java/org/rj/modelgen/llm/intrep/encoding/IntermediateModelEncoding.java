@@ -0,0 +1,54 @@
+package org.rj.modelgen.llm.intrep.encoding;
+
+import org.rj.modelgen.llm.context.ContentCodec;
+
+/**
+ * Encoding of serialized intermediate models for submission within prompt context.  Encodings must be reversible,
+ * and decoding must accept both the encoded and standard serialized forms, since LLM responses may use either
+ */
+public interface IntermediateModelEncoding extends ContentCodec {
+    /**
+     * Encode a serialized model for submission to the LLM
+     *
+     * @param model         Serialized model, in either form
+     * @return              Encoded model, or the original content if it is not a valid model
+     */
+    @Override
+    String encode(String model);
+
+    /**
+     * Decode a model, or model delta, to the standard serialized form
+     *
+     * @param content       Serialized model or delta, in either form
+     * @return              Model in standard form.  Content which is already in standard form is returned unchanged
+     */
+    @Override
+    String decode(String content);
+
+    /**
+     * @return      Description of the encoding for inclusion in prompts, or an empty string if none is required
+     */
+    String getDescription();
+
+    /**
+     * @return      Encoding which submits models in their standard serialized form
+     */
+    static IntermediateModelEncoding none() {
+        return new IntermediateModelEncoding() {
+            @Override
+            public String encode(String model) {
+                return model;
+            }
+
+            @Override
+            public String decode(String content) {
+                return content;
+            }
+
+            @Override
+            public String getDescription() {
+                return "";
+            }
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package org.rj.modelgen.llm.intrep.slice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.util.Result;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Excerpt of a graph intermediate model, containing only the nodes relevant to a request.  The excerpt is submitted
+ * in place of the complete model, and the updated excerpt in the response is then merged back into the complete model
+ */
+public class GraphModelSlice {
+    // Field names of the serialized graph model, as defined by IntermediateGraphModel, GraphNode and GraphConnection
+    private static final String FIELD_NODES = "nodes";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_CONNECTED_TO = "connectedTo";
+    private static final String FIELD_TARGET_NODE = "targetNode";
+
+    private final String content;
+    private final Set<String> nodeIds;
+    private final Set<String> matchedNodeIds;
+    private final int modelNodeCount;
+
+    public GraphModelSlice(String content, Set<String> nodeIds, Set<String> matchedNodeIds, int modelNodeCount) {
+        this.content = content;
+        this.nodeIds = Set.copyOf(nodeIds);
+        this.matchedNodeIds = Set.copyOf(matchedNodeIds);
+        this.modelNodeCount = modelNodeCount;
+    }
+
+    /**
+     * @return      Serialized excerpt, in the same form as the complete model
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return      IDs of all nodes in the excerpt
+     */
+    public Set<String> getNodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * @return      IDs of the nodes which were matched by the request, before expansion to their neighbourhood
+     */
+    public Set<String> getMatchedNodeIds() {
+        return matchedNodeIds;
+    }
+
+    /**
+     * @return      Number of nodes in the complete model from which the excerpt was taken
+     */
+    public int getModelNodeCount() {
+        return modelNodeCount;
+    }
+
+    /**
+     * Merge an updated excerpt into the complete model.  Nodes of the excerpt are replaced in place by their updated
+     * form, nodes missing from the updated excerpt are removed, and new nodes are inserted after the last node of
+     * the excerpt.  Edges which cross the boundary of the excerpt are checked, and the merge fails if:
+     *
+     * <ul>
+     *     <li>The updated excerpt contains a node from outside the excerpt, which the model could not have seen</li>
+     *     <li>A node outside the excerpt is connected to a node which was removed</li>
+     *     <li>Any node of the updated excerpt is connected to a node which does not exist in the merged model</li>
+     * </ul>
+     *
+     * @param model             Serialized complete model from which the excerpt was taken
+     * @param updatedSlice      Serialized updated excerpt
+     * @return                  Serialized complete model with the updates applied, or a description of the failure
+     */
+    public Result<String, String> merge(String model, String updatedSlice) {
+        final JsonNode modelNode;
+        final JsonNode updatedNode;
+        try {
+            modelNode = Util.getObjectMapper().readTree(model);
+            updatedNode = Util.getObjectMapper().readTree(updatedSlice);
+        }
+        catch (Exception ex) {
+            return Result.Err(String.format("Cannot parse model (%s)", ex.getMessage()));
+        }
+
+        if (!(modelNode instanceof ObjectNode modelObject) || !(modelObject.get(FIELD_NODES) instanceof ArrayNode modelNodes)) {
+            return Result.Err("Complete model does not contain a node array");
+        }
+        if (!(updatedNode instanceof ObjectNode updatedObject) || !(updatedObject.get(FIELD_NODES) instanceof ArrayNode updatedNodes)) {
+            return Result.Err("Response does not contain a node array");
+        }
+
+        final Map<String, JsonNode> updated = new LinkedHashMap<>();
+        for (final var node : updatedNodes) {
+            final var id = node.path(FIELD_ID).asText("");
+            if (id.isEmpty()) return Result.Err("Response contains a node without a valid ID");
+            if (updated.put(id, node) != null) return Result.Err(String.format("Response contains multiple nodes with ID '%s'", id));
+        }
+
+        final Set<String> modelIds = new LinkedHashSet<>();
+        modelNodes.forEach(node -> modelIds.add(node.path(FIELD_ID).asText("")));
+
+        for (final var id : updated.keySet()) {
+            if (modelIds.contains(id) && !nodeIds.contains(id)) {
+                return Result.Err(String.format("Response contains node '%s' from outside the excerpt", id));
+            }
+        }
+
+        final Set<String> removed = new LinkedHashSet<>(nodeIds);
+        removed.removeAll(updated.keySet());
+
+        // Existing nodes retain their position in the model, and new nodes follow the last node of the excerpt
+        final var merged = JsonNodeFactory.instance.arrayNode();
+        int insertAt = -1;
+        for (final var node : modelNodes) {
+            final var id = node.path(FIELD_ID).asText("");
+            if (nodeIds.contains(id)) {
+                if (updated.containsKey(id)) merged.add(updated.get(id));
+                insertAt = merged.size();
+                continue;
+            }
+
+            for (final var target : targets(node)) {
+                if (removed.contains(target)) {
+                    return Result.Err(String.format("Node '%s' outside the excerpt is connected to removed node '%s'", id, target));
+                }
+            }
+            merged.add(node);
+        }
+
+        final var added = updated.entrySet().stream()
+                .filter(x -> !modelIds.contains(x.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+        if (insertAt < 0) insertAt = merged.size();
+        for (int i = 0; i < added.size(); ++i) {
+            merged.insert(insertAt + i, added.get(i));
+        }
+
+        final Set<String> mergedIds = new LinkedHashSet<>();
+        merged.forEach(node -> mergedIds.add(node.path(FIELD_ID).asText("")));
+        for (final var node : updated.values()) {
+            for (final var target : targets(node)) {
+                if (!mergedIds.contains(target)) {
+                    return Result.Err(String.format("Node '%s' is connected to unknown node '%s'", node.path(FIELD_ID).asText(), target));
+                }
+            }
+        }
+
+        final var result = modelObject.deepCopy();
+        result.set(FIELD_NODES, merged.deepCopy());
+
+        return Result.Ok(Util.serializeOrThrow(result));
+    }
+
+    static List<String> targets(JsonNode node) {
+        final List<String> targets = new ArrayList<>();
+        node.path(FIELD_CONNECTED_TO).forEach(connection -> {
+            final var target = connection.path(FIELD_TARGET_NODE).asText("");
+            if (!target.isEmpty()) targets.add(target);
+        });
+
+        return targets;
+    }
+}
@@ -0,0 +1,180 @@
+package org.rj.modelgen.llm.intrep.slice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Selects the part of a graph intermediate model which is relevant to an edit request, so that only that part of
+ * a large model needs to be submitted.  Nodes are matched by name or ID within the request, and the excerpt is then
+ * extended to all nodes within a fixed number of connections of a matched node, in either direction.  Models are
+ * submitted in full if they are small, if no node is matched, or if the excerpt would cover most of the model
+ */
+public class GraphModelSlicer {
+    public static final int DEFAULT_NEIGHBOURHOOD_HOPS = 1;
+    public static final int DEFAULT_MINIMUM_MODEL_NODES = 30;
+    public static final double DEFAULT_MAXIMUM_SLICE_RATIO = 0.5;
+
+    // Field names of the serialized graph model, as defined by IntermediateGraphModel and GraphNode
+    private static final String FIELD_NODES = "nodes";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NAME = "name";
+
+    // Minimum length of a name or ID term which can be matched on its own, to avoid matching common short words
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private final int neighbourhoodHops;
+    private final int minimumModelNodes;
+    private final double maximumSliceRatio;
+
+    public GraphModelSlicer() {
+        this(DEFAULT_NEIGHBOURHOOD_HOPS, DEFAULT_MINIMUM_MODEL_NODES, DEFAULT_MAXIMUM_SLICE_RATIO);
+    }
+
+    /**
+     * @param neighbourhoodHops     Number of connections from each matched node which are included in the excerpt
+     * @param minimumModelNodes     Minimum number of nodes in a model before it is submitted as an excerpt
+     * @param maximumSliceRatio     Maximum proportion of the model nodes in an excerpt, above which the complete model
+     *                              is submitted instead
+     */
+    public GraphModelSlicer(int neighbourhoodHops, int minimumModelNodes, double maximumSliceRatio) {
+        if (neighbourhoodHops < 0) throw new LlmGenerationConfigException("Model slice neighbourhood cannot be negative");
+        if (maximumSliceRatio <= 0.0 || maximumSliceRatio > 1.0) throw new LlmGenerationConfigException("Model slice ratio must be in the range (0, 1]");
+
+        this.neighbourhoodHops = neighbourhoodHops;
+        this.minimumModelNodes = minimumModelNodes;
+        this.maximumSliceRatio = maximumSliceRatio;
+    }
+
+    /**
+     * Select the excerpt of a model which is relevant to the given request
+     *
+     * @param model         Serialized graph model
+     * @param request       Edit request
+     * @return              Excerpt of the model, or empty if the complete model should be submitted
+     */
+    public Optional<GraphModelSlice> slice(String model, String request) {
+        if (model == null || request == null) return Optional.empty();
+
+        final JsonNode tree;
+        try {
+            tree = Util.getObjectMapper().readTree(model);
+        }
+        catch (Exception ex) {
+            return Optional.empty();
+        }
+
+        if (!(tree instanceof ObjectNode root) || !(root.get(FIELD_NODES) instanceof ArrayNode nodes)) return Optional.empty();
+        if (nodes.size() < minimumModelNodes) return Optional.empty();
+
+        final var terms = " " + normalize(request) + " ";
+        final var requestWords = new HashSet<>(Arrays.asList(terms.trim().split(" ")));
+        final Set<String> matched = new LinkedHashSet<>();
+        final Map<String, Set<String>> adjacent = new HashMap<>();
+        for (final var node : nodes) {
+            final var id = node.path(FIELD_ID).asText("");
+            if (id.isEmpty()) return Optional.empty();       // Nodes cannot be merged back into the model without an ID
+
+            if (matches(id, node.path(FIELD_NAME).asText(""), request, terms, requestWords)) matched.add(id);
+
+            adjacent.computeIfAbsent(id, __ -> new HashSet<>());
+            for (final var target : GraphModelSlice.targets(node)) {
+                adjacent.get(id).add(target);
+                adjacent.computeIfAbsent(target, __ -> new HashSet<>()).add(id);
+            }
+        }
+
+        if (matched.isEmpty()) return Optional.empty();
+
+        final Set<String> included = new HashSet<>(matched);
+        Set<String> frontier = matched;
+        for (int hop = 0; hop < neighbourhoodHops && !frontier.isEmpty(); ++hop) {
+            final Set<String> next = new HashSet<>();
+            for (final var id : frontier) {
+                for (final var neighbour : adjacent.getOrDefault(id, Set.of())) {
+                    if (included.add(neighbour)) next.add(neighbour);
+                }
+            }
+            frontier = next;
+        }
+
+        // Nodes are retained in model order, and only connections to nodes which exist are followed
+        final var sliceNodes = JsonNodeFactory.instance.arrayNode();
+        final Set<String> sliceIds = new LinkedHashSet<>();
+        for (final var node : nodes) {
+            final var id = node.path(FIELD_ID).asText();
+            if (included.contains(id)) {
+                sliceNodes.add(node);
+                sliceIds.add(id);
+            }
+        }
+
+        if (sliceIds.size() > nodes.size() * maximumSliceRatio) return Optional.empty();
+
+        final var sliceRoot = root.deepCopy();
+        sliceRoot.set(FIELD_NODES, sliceNodes.deepCopy());
+
+        return Optional.of(new GraphModelSlice(Util.serializeOrThrow(sliceRoot), sliceIds, matched, nodes.size()));
+    }
+
+    /**
+     * @return      Instructions for the model on the handling of excerpts, for inclusion in the system prompt
+     */
+    public String getDescription() {
+        return "For large models, the current model in the request may be an excerpt which contains only the nodes " +
+               "relevant to the request and their neighbours, so some connections may refer to nodes which are not " +
+               "shown.  In this case, respond with the updated excerpt rather than the complete model: retain the " +
+               "connections to nodes which are not shown, and do not add any of those nodes to your response.";
+    }
+
+    public int getNeighbourhoodHops() {
+        return neighbourhoodHops;
+    }
+
+    public int getMinimumModelNodes() {
+        return minimumModelNodes;
+    }
+
+    public double getMaximumSliceRatio() {
+        return maximumSliceRatio;
+    }
+
+    /**
+     * A node is matched if the request contains its ID, or its name either as a phrase or as a complete set of words
+     */
+    private static boolean matches(String id, String name, String request, String terms, Set<String> requestWords) {
+        if (id.length() >= MIN_TERM_LENGTH && request.contains(id)) return true;
+
+        for (final var term : List.of(normalize(id), normalize(name))) {
+            if (term.length() < MIN_TERM_LENGTH) continue;
+            if (terms.contains(" " + term + " ")) return true;
+
+            final var words = Arrays.stream(term.split(" ")).filter(x -> x.length() >= MIN_TERM_LENGTH).toList();
+            if (words.size() > 1 && requestWords.containsAll(words)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Lower-case words of the given text, with identifiers such as "reviewRequest" or "review_request" split into words
+     */
+    private static String normalize(String text) {
+        return text.replaceAll("([a-z0-9])([A-Z])", "$1 $2")
+                .toLowerCase()
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+    }
+}
@@ -6,27 +6,35 @@ import org.rj.modelgen.llm.exception.LlmGenerationModelException;
 import org.rj.modelgen.llm.request.ModelRequest;
 import org.rj.modelgen.llm.request.ModelRequestHttpOptions;
 import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.session.SessionMailbox;
 import org.rj.modelgen.llm.session.SessionState;
+import org.rj.modelgen.llm.session.SessionStore;
 import reactor.core.publisher.Mono;
 
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import static org.rj.modelgen.llm.util.FuncUtil.*;
 
 public abstract class ModelInterface {
     private final LlmClient client;
     private final Function<String, SessionState> sessionGenerator;
-    private final ConcurrentMap<String, SessionState> sessions;
+    private final SessionStore sessions;
+    private final SessionMailbox mailbox;
 
     public ModelInterface(LlmClient client) {
-        this(client, SessionState::new);
+        this(client, SessionStore.defaultStore());
+    }
+    public ModelInterface(LlmClient client, SessionStore sessionStore) {
+        this(client, SessionState::new, sessionStore);
     }
     public ModelInterface(LlmClient client, Function<String, SessionState> sessionGenerator) {
+        this(client, sessionGenerator, SessionStore.defaultStore());
+    }
+    public ModelInterface(LlmClient client, Function<String, SessionState> sessionGenerator, SessionStore sessionStore) {
         this.client = client;
         this.sessionGenerator = sessionGenerator;
-        this.sessions = new ConcurrentHashMap<>();
+        this.sessions = sessionStore;
+        this.mailbox = new SessionMailbox();
     }
 
     protected Mono<Optional<SessionState>> onNewSessionCreated(SessionState sessionState) {
@@ -44,9 +52,10 @@ public abstract class ModelInterface {
     }
 
     public final Mono<SessionState> createSessionIfRequired(String id) {
-        return getSession(id)
-                .map(Mono::just)
-                .orElseGet(() -> createSession(id));
+        return loadSession(id)
+                .flatMap(session -> session
+                        .map(Mono::just)
+                        .orElseGet(() -> createSession(id)));
     }
 
     protected Mono<None> onSubmissionStart(SessionState session, ModelRequest request, ModelRequestHttpOptions httpOptions) {
@@ -74,25 +83,59 @@ public abstract class ModelInterface {
         getOrCreateSession(id).recordModelResponse(response);
     }
 
+    /**
+     * @return      Whether responses can be constrained to the schema attached to a request
+     */
+    public boolean supportsStructuredOutput() {
+        return client.supportsStructuredOutput();
+    }
+
     public final Optional<SessionState> getSession(String id) {
-        return Optional.ofNullable(id).map(x -> sessions.getOrDefault(x, null));
+        return Optional.ofNullable(id).flatMap(sessions::get);
+    }
+
+    /**
+     * Load a session into memory without blocking the calling thread, if it is held by the session store, so that
+     * subsequent synchronous access to the session is served from memory
+     *
+     * @param id    Session ID
+     * @return      State of the session, if it exists
+     */
+    public final Mono<Optional<SessionState>> loadSession(String id) {
+        return (id == null) ? Mono.just(Optional.empty()) : sessions.lookup(id);
     }
 
     public final boolean sessionExists(String id) {
-        return sessions.containsKey(id);
+        return id != null && sessions.contains(id);
     }
 
     // TODO: Replace with getSession() if session creation is now explicit
     public final SessionState getOrCreateSession(String id) {
         if (id == null) throw new LlmGenerationModelException("Invalid null session ID");
-        return sessions.computeIfAbsent(id, sessionGenerator);
+        return sessions.getOrCreate(id, sessionGenerator);
     }
 
     public final SessionState updateSession(SessionState sessionState) {
         if (sessionState == null) throw new LlmGenerationModelException("Invalid null session state");
-        sessions.put(sessionState.getId(), sessionState);
+        sessions.put(sessionState);
 
         return sessionState;
     }
 
+    /**
+     * @return      Store holding the state of all sessions of this model interface, which applications may share
+     *              for their own session data via session attachments
+     */
+    public final SessionStore getSessionStore() {
+        return sessions;
+    }
+
+    /**
+     * @return      Mailbox through which all work for each session is serialized.  Applications should submit any
+     *              work which modifies session state through the same mailbox
+     */
+    public final SessionMailbox getSessionMailbox() {
+        return mailbox;
+    }
+
 }
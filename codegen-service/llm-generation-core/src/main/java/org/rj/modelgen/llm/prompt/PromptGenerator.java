@@ -7,6 +7,7 @@ import java.util.Optional;
 
 public class PromptGenerator<TImpl extends PromptGenerator<?, TSelector>, TSelector> {
     private final Map<TSelector, String> prompts;
+    private final Map<TSelector, PromptTemplate> templates;
 
     public PromptGenerator() {
         this(Map.of());
@@ -14,6 +15,8 @@ public class PromptGenerator<TImpl extends PromptGenerator<?, TSelector>, TSelec
 
     public PromptGenerator(Map<TSelector, String> prompts) {
         this.prompts = new HashMap<>(prompts);
+        this.templates = new HashMap<>();
+        this.prompts.forEach((selector, prompt) -> templates.put(selector, PromptTemplate.parse(prompt)));
     }
 
     protected Map<TSelector, String> getPrompts() {
@@ -23,6 +26,7 @@ public class PromptGenerator<TImpl extends PromptGenerator<?, TSelector>, TSelec
     @SuppressWarnings("unchecked")
     public TImpl withAvailablePrompt(TSelector selector, String prompt) {
         this.prompts.put(selector, prompt);
+        this.templates.put(selector, PromptTemplate.parse(prompt));
         return (TImpl)this;
     }
 
@@ -30,11 +34,62 @@ public class PromptGenerator<TImpl extends PromptGenerator<?, TSelector>, TSelec
         return getPrompt(selector, List.of());
     }
 
+    /**
+     * Generate a prompt by substituting values for the placeholders of a template in a single pass.  Substituted
+     * values are not themselves subject to substitution
+     *
+     * @param selector          Selector for the prompt template
+     * @param substitutions     Substitutions for the placeholders of the template
+     * @return                  Generated prompt, or empty if no template exists for the selector
+     */
     public Optional<String> getPrompt(TSelector selector, List<PromptSubstitution> substitutions) {
         return Optional.ofNullable(selector)
-                .map(prompts::get)
-                .map(raw -> substitutions.stream().reduce(raw,
-                        (prompt, subst) -> subst.apply(prompt),     // Apply each substitution in turn
-                        (a, b) -> b));
+                .map(templates::get)
+                .map(template -> template.render(substitutions));
+    }
+
+    /**
+     * Recover the value which was substituted for a placeholder when generating a prompt.  The value is located
+     * using the constant template text either side of the placeholder, and so requires that the value does not
+     * itself contain that text
+     *
+     * @param selector      Selector for the template used to generate the prompt
+     * @param placeholder   Placeholder whose substituted value should be recovered
+     * @param prompt        Generated prompt
+     * @return              Substituted value, or empty if it cannot be located in the prompt
+     */
+    public Optional<String> extractSubstitution(TSelector selector, PromptPlaceholder placeholder, String prompt) {
+        final var template = Optional.ofNullable(selector).map(getPrompts()::get).orElse(null);
+        if (template == null || placeholder == null || prompt == null) return Optional.empty();
+
+        final var marker = placeholder.get();
+        final int position = template.indexOf(marker);
+        if (position < 0) return Optional.empty();
+
+        // Constant text between the placeholder and any adjacent placeholders
+        final int previousPlaceholder = template.lastIndexOf("${", position - 1);
+        final int leadingStart = (previousPlaceholder < 0) ? 0 : template.indexOf('}', previousPlaceholder) + 1;
+        final var leading = template.substring(leadingStart, position);
+
+        final int trailingStart = position + marker.length();
+        final int nextPlaceholder = template.indexOf("${", trailingStart);
+        final var trailing = template.substring(trailingStart, (nextPlaceholder < 0) ? template.length() : nextPlaceholder);
+
+        final int start, end;
+        if (nextPlaceholder < 0) {
+            if (!prompt.endsWith(trailing)) return Optional.empty();
+            end = prompt.length() - trailing.length();
+
+            final int leadingPosition = (previousPlaceholder < 0) ? (prompt.startsWith(leading) ? 0 : -1) : prompt.lastIndexOf(leading, end - leading.length());
+            start = (leadingPosition < 0) ? -1 : leadingPosition + leading.length();
+        }
+        else {
+            final int leadingPosition = (previousPlaceholder < 0) ? (prompt.startsWith(leading) ? 0 : -1) : prompt.indexOf(leading);
+            start = (leadingPosition < 0) ? -1 : leadingPosition + leading.length();
+            end = (start < 0) ? -1 : prompt.indexOf(trailing, start);
+        }
+
+        if (start < 0 || end < start) return Optional.empty();
+        return Optional.of(prompt.substring(start, end));
     }
 }
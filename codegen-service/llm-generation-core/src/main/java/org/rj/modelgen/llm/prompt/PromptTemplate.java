@@ -0,0 +1,145 @@
+package org.rj.modelgen.llm.prompt;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prompt template which is tokenized once into literal segments and <code>${NAME}</code> placeholders, so that a
+ * prompt is rendered in a single pass which appends each segment and substituted value in turn.  Rendering is linear
+ * in the length of the output, and substituted values are never themselves scanned for placeholders.
+ *
+ * A substitution applies to a placeholder if its existing string is either the placeholder name or the complete
+ * placeholder text.  Where several substitutions apply to the same placeholder the first is used, and placeholders
+ * without a substitution are rendered unchanged
+ */
+public class PromptTemplate {
+    private static final String PLACEHOLDER_START = "${";
+    private static final String PLACEHOLDER_END = "}";
+
+    private final String source;
+    private final String[] literals;
+    private final String[] placeholders;
+    private final Map<String, int[]> placeholderIndices;
+    private final int literalLength;
+
+    private PromptTemplate(String source, List<String> literals, List<String> placeholders) {
+        this.source = source;
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+
+        // Placeholders are located by either form of substitution key, so that keys need not be normalized per render
+        final var indices = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < this.placeholders.length; ++i) {
+            final var name = this.placeholders[i];
+            indices.computeIfAbsent(name, __ -> new ArrayList<>()).add(i);
+            indices.computeIfAbsent(PLACEHOLDER_START + name + PLACEHOLDER_END, __ -> new ArrayList<>()).add(i);
+        }
+
+        this.placeholderIndices = new HashMap<>();
+        indices.forEach((key, value) -> placeholderIndices.put(key, value.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * @param source    Template source
+     * @return          Tokenized template
+     */
+    public static PromptTemplate parse(String source) {
+        if (source == null) throw new LlmGenerationConfigException("Cannot parse null prompt template");
+
+        final var literals = new ArrayList<String>();
+        final var placeholders = new ArrayList<String>();
+
+        int position = 0;
+        while (true) {
+            final int start = source.indexOf(PLACEHOLDER_START, position);
+            final int end = (start < 0) ? -1 : source.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+            if (end < 0) break;
+
+            literals.add(source.substring(position, start));
+            placeholders.add(source.substring(start + PLACEHOLDER_START.length(), end));
+            position = end + PLACEHOLDER_END.length();
+        }
+
+        literals.add(source.substring(position));
+        return new PromptTemplate(source, literals, placeholders);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return      Name of each placeholder, in order of appearance
+     */
+    public List<String> getPlaceholders() {
+        return List.of(placeholders);
+    }
+
+    /**
+     * @param substitutions     Substitutions to be applied
+     * @return                  Rendered prompt
+     */
+    public String render(List<PromptSubstitution> substitutions) {
+        final var values = resolve(substitutions);
+
+        int length = literalLength;
+        for (final var value : values) {
+            length += value.length();
+        }
+
+        try {
+            return renderTo(values, new StringBuilder(length)).toString();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);     // Not thrown by StringBuilder
+        }
+    }
+
+    /**
+     * Render the prompt directly to the given output, e.g. a writer over a request body
+     *
+     * @param substitutions     Substitutions to be applied
+     * @param output            Output to which the prompt is appended
+     * @return                  The given output
+     */
+    public <T extends Appendable> T renderTo(List<PromptSubstitution> substitutions, T output) throws IOException {
+        return renderTo(resolve(substitutions), output);
+    }
+
+    private <T extends Appendable> T renderTo(String[] values, T output) throws IOException {
+        for (int i = 0; i < values.length; ++i) {
+            output.append(literals[i]).append(values[i]);
+        }
+
+        output.append(literals[literals.length - 1]);
+        return output;
+    }
+
+    // Value rendered for each placeholder, which is the placeholder text itself if no substitution applies
+    private String[] resolve(List<PromptSubstitution> substitutions) {
+        final var values = new String[placeholders.length];
+        for (final var substitution : substitutions) {
+            if (substitution.getExistingString() == null || substitution.getNewString() == null) continue;
+
+            final var indices = placeholderIndices.get(substitution.getExistingString());
+            if (indices == null) continue;
+
+            for (final int index : indices) {
+                if (values[index] == null) values[index] = substitution.getNewString();
+            }
+        }
+
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == null) values[i] = PLACEHOLDER_START + placeholders[i] + PLACEHOLDER_END;
+        }
+
+        return values;
+    }
+}
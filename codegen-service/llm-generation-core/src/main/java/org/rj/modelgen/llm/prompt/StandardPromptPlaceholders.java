@@ -4,4 +4,6 @@ public interface StandardPromptPlaceholders {
     PromptPlaceholder SCHEMA_CONTENT = new PromptPlaceholder("SCHEMA_CONTENT");
     PromptPlaceholder CURRENT_STATE = new PromptPlaceholder("CURRENT_STATE");
     PromptPlaceholder PROMPT = new PromptPlaceholder("PROMPT");
+    PromptPlaceholder MODEL_ENCODING = new PromptPlaceholder("MODEL_ENCODING");
+    PromptPlaceholder MODEL_SLICING = new PromptPlaceholder("MODEL_SLICING");
 }
@@ -0,0 +1,209 @@
+package org.rj.modelgen.llm.prompt;
+
+import freemarker.template.Configuration;
+import freemarker.template.SimpleScalar;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled Freemarker templates for each selector of a prompt generator.  Each template is parsed once, when it is
+ * registered, against a single configuration shared by all registries; templates and the configuration are immutable
+ * once built and so may be rendered concurrently.  The set of templates is replaced atomically, so that templates
+ * can be reloaded while prompts are being generated and each prompt sees either the old or the new set in full
+ *
+ * @param <TSelector>   Selector type
+ */
+public class TemplateRegistry<TSelector> {
+    private static final Configuration CONFIGURATION = createConfiguration();
+    private static final int MAX_RETAINED_BUFFER_LENGTH = 1 << 16;
+    private static final ThreadLocal<PromptBuffer> BUFFER = ThreadLocal.withInitial(PromptBuffer::new);
+
+    private final AtomicReference<Map<TSelector, CompiledTemplate>> templates;
+
+    public TemplateRegistry() {
+        this.templates = new AtomicReference<>(Map.of());
+    }
+
+    /**
+     * Compile and register a template, replacing any existing template for the selector
+     *
+     * @param selector      Selector
+     * @param source        Template source
+     */
+    public void register(TSelector selector, String source) {
+        final var compiled = compile(selector, source);
+        templates.updateAndGet(current -> {
+            final var updated = new HashMap<>(current);
+            updated.put(selector, compiled);
+            return Map.copyOf(updated);
+        });
+    }
+
+    /**
+     * Replace all templates with the given set.  Every template is compiled before any is replaced, so that the
+     * existing templates remain in use if any of the new templates is invalid
+     *
+     * @param sources       Template source for each selector
+     */
+    public void reload(Map<TSelector, String> sources) {
+        final var compiled = sources.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, x -> compile(x.getKey(), x.getValue())));
+
+        templates.set(compiled);
+    }
+
+    /**
+     * @return      Source of each registered template
+     */
+    public Map<TSelector, String> getSources() {
+        return templates.get().entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, x -> x.getValue().source));
+    }
+
+    /**
+     * @param selector      Selector
+     * @return              Source of the template registered for the selector, if any
+     */
+    public Optional<String> getSource(TSelector selector) {
+        return Optional.ofNullable(selector).map(templates.get()::get).map(x -> x.source);
+    }
+
+    /**
+     * Render the template for a selector.  Output is written to a buffer which is reused by later calls on the
+     * same thread
+     *
+     * @param selector      Selector
+     * @param substitutions Value of each template variable
+     * @return              Rendered template, or empty if no template is registered for the selector
+     */
+    public Optional<String> render(TSelector selector, List<PromptSubstitution> substitutions) {
+        final var compiled = Optional.ofNullable(selector).map(templates.get()::get).orElse(null);
+        if (compiled == null) return Optional.empty();
+
+        final var buffer = BUFFER.get();
+        try {
+            compiled.template.process(new SubstitutionModel(substitutions), buffer);
+            return Optional.of(buffer.toString());
+        }
+        catch (IOException | TemplateException ex) {
+            throw new LlmGenerationModelException("Failed to generate template: " + ex.getMessage(), ex);
+        }
+        finally {
+            buffer.reset();
+        }
+    }
+
+    private static CompiledTemplate compile(Object selector, String source) {
+        if (source == null) throw new LlmGenerationConfigException(String.format("Cannot register null template for '%s'", selector));
+
+        try {
+            return new CompiledTemplate(source, new Template(String.valueOf(selector), new StringReader(source), CONFIGURATION));
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to compile template '%s': %s", selector, ex.getMessage()), ex);
+        }
+    }
+
+    // Shared by all templates, and must not be modified once built
+    private static Configuration createConfiguration() {
+        final var configuration = new Configuration(Configuration.VERSION_2_3_23);
+        configuration.setClassForTemplateLoading(TemplateRegistry.class, "/");
+        return configuration;
+    }
+
+    private static class CompiledTemplate {
+        private final String source;
+        private final Template template;
+
+        private CompiledTemplate(String source, Template template) {
+            this.source = source;
+            this.template = template;
+        }
+    }
+
+    /**
+     * Exposes substitutions directly as template variables, without building a map for each render.  Templates hold
+     * few variables, so each is located by a scan of the substitutions; the last substitution for a variable applies
+     */
+    private static class SubstitutionModel implements TemplateHashModel {
+        private final List<PromptSubstitution> substitutions;
+
+        private SubstitutionModel(List<PromptSubstitution> substitutions) {
+            this.substitutions = substitutions;
+        }
+
+        @Override
+        public TemplateModel get(String key) {
+            for (int i = substitutions.size() - 1; i >= 0; --i) {
+                final var substitution = substitutions.get(i);
+                if (key.equals(substitution.getExistingString())) {
+                    return (substitution.getNewString() == null) ? null : new SimpleScalar(substitution.getNewString());
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return substitutions.isEmpty();
+        }
+    }
+
+    /**
+     * Unsynchronized writer over a reusable character buffer.  Buffers grown beyond a limit are released after use
+     * rather than retained by the thread
+     */
+    private static class PromptBuffer extends Writer {
+        private StringBuilder buffer = new StringBuilder(4096);
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            buffer.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            buffer.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            buffer.append((char)c);
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+
+        private void reset() {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_LENGTH) {
+                buffer = new StringBuilder(4096);
+            }
+            else {
+                buffer.setLength(0);
+            }
+        }
+    }
+}
@@ -1,58 +1,50 @@
 package org.rj.modelgen.llm.prompt;
 
-import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import freemarker.template.Configuration;
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
-import org.rj.modelgen.llm.exception.LlmGenerationModelException;
-
+/**
+ * Prompt generator which renders each prompt as a Freemarker template.  Templates are compiled once when made
+ * available, and may be replaced at runtime via {@link #reloadPrompts(Map)}
+ */
 public class TemplatedPromptGenerator<TImpl extends TemplatedPromptGenerator<?, TSelector>, TSelector> extends PromptGenerator<TImpl, TSelector> {
+    private final TemplateRegistry<TSelector> templates;
 
     public TemplatedPromptGenerator() {
         this(new HashMap<>());
     }
 
     public TemplatedPromptGenerator(Map<TSelector, String> prompts) {
-        new HashMap<>(prompts);
+        this.templates = new TemplateRegistry<>();
+        this.templates.reload(prompts);
     }
 
     @Override
-    public TImpl withAvailablePrompt(TSelector selector, String prompt) {
-        return super.withAvailablePrompt(selector, prompt);
+    protected Map<TSelector, String> getPrompts() {
+        return templates.getSources();
     }
 
     @Override
-    public Optional<String> getPrompt(TSelector selector, List<PromptSubstitution> parameters) {
-        return Optional.ofNullable(selector)
-                .map(this.getPrompts()::get)
-                .map(raw -> {
-                    Configuration configuration = new Configuration(Configuration.VERSION_2_3_23);
-                    configuration.setClassForTemplateLoading(configuration.getClass(), "/");
-                    try {
-                        Template template = new Template("template", new StringReader(raw), configuration);
-                        StringWriter output = new StringWriter();
-                        template.process(createDataModel(parameters), output);
-                        return output.toString();
-                    } catch (IOException | TemplateException ex) {
-                        throw new LlmGenerationModelException("Failed to generate template: " + ex.getMessage(), ex);
-                    } catch (Exception ex) {
-                        throw new LlmGenerationModelException(ex.getMessage(), ex);
-                    }
-            });
+    @SuppressWarnings("unchecked")
+    public TImpl withAvailablePrompt(TSelector selector, String prompt) {
+        templates.register(selector, prompt);
+        return (TImpl)this;
     }
 
-  private Map<String, Object> createDataModel(List<PromptSubstitution> parameters) {
-    Map<String, Object> dataModel = new HashMap<>();
-    for (PromptSubstitution parameter: parameters) {
-        dataModel.put(parameter.getExistingString(), parameter.getNewString());
+    /**
+     * Atomically replace all available prompts.  The existing prompts remain in use if any new prompt is not a
+     * valid template
+     *
+     * @param prompts       Prompt template for each selector
+     */
+    public void reloadPrompts(Map<TSelector, String> prompts) {
+        templates.reload(prompts);
+    }
+
+    @Override
+    public Optional<String> getPrompt(TSelector selector, List<PromptSubstitution> parameters) {
+        return templates.render(selector, parameters);
     }
-    return dataModel;
-  }
-}
\ No newline at end of file
+}
@@ -4,16 +4,20 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.rj.modelgen.llm.context.Context;
 import org.rj.modelgen.llm.context.ContextEntry;
 import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.schema.StructuredOutputSchema;
 import org.rj.modelgen.llm.util.Util;
 
 import java.util.List;
 import java.util.Optional;
 
 public class ModelRequest {
+    private static final int TOKENS_PER_MESSAGE = 3;    // Chat message framing: message start, role and separator
+
     private String model;
     private double temperature;
     private Context context;
-
+    private StructuredOutputSchema responseSchema;
+    private Integer maxTokens;
 
     public ModelRequest() { }
 
@@ -47,12 +51,37 @@ public class ModelRequest {
         this.context = context;
     }
 
+    /**
+     * @return      Schema to which the response should be constrained, if supported by the model, or null if the
+     *              response is unconstrained
+     */
+    @JsonIgnore
+    public StructuredOutputSchema getResponseSchema() {
+        return responseSchema;
+    }
+
+    @JsonIgnore
+    public void setResponseSchema(StructuredOutputSchema responseSchema) {
+        this.responseSchema = responseSchema;
+    }
+
+    /**
+     * @return      Limit on the number of tokens generated in the response, or null to apply the provider default
+     */
+    public Integer getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(Integer maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
     @JsonIgnore
     public int estimateTokenSize(boolean includeAssistantEvents) {
-        return Optional.ofNullable(context).map(Context::getData).orElseGet(List::of).stream()
-                .filter(entry -> (includeAssistantEvents || entry.getRole() == ContextRole.USER))
+        return Optional.ofNullable(context).map(Context::getSubmittedData).orElseGet(List::of).stream()
+                .filter(entry -> (includeAssistantEvents || entry.getRole() != ContextRole.MODEL))
                 .map(ContextEntry::getContent)
-                .map(x -> Util.estimateTokenSize(x) + 1)    // + 1 for `role`
+                .map(x -> Util.estimateTokenSize(x) + TOKENS_PER_MESSAGE)
                 .reduce(Integer::sum)
                 .orElse(0);
     }
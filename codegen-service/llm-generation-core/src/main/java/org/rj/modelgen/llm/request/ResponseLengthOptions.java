@@ -0,0 +1,111 @@
+package org.rj.modelgen.llm.request;
+
+public class ResponseLengthOptions {
+    private boolean sizeFromHistory = true;
+    private int minResponseTokens = 2048;
+    private int maxResponseTokens = 16384;
+    private double sizeHeadroom = 1.5;
+    private int maxContinuations = 3;
+
+    public ResponseLengthOptions() { }
+
+    public static ResponseLengthOptions defaultOptions() {
+        return new ResponseLengthOptions();
+    }
+
+    /**
+     * Estimate the response token limit for a request, based on the largest model generated so far in the session
+     *
+     * @param largestModelTokens    Token size of the largest model generated so far in the session
+     * @return                      Response token limit, or null if the provider default should apply, i.e. if
+     *                              sizing is disabled or there is no model on which to base it
+     */
+    public Integer estimateMaxTokens(int largestModelTokens) {
+        if (!sizeFromHistory || largestModelTokens <= 0) return null;
+
+        final var estimate = (int)Math.ceil(largestModelTokens * sizeHeadroom);
+        return Math.max(minResponseTokens, Math.min(maxResponseTokens, estimate));
+    }
+
+    /**
+     * @return      Whether the response token limit of each request is sized from the models generated so far in
+     *              the session.  Responses which exceed the limit are continued rather than discarded
+     */
+    public boolean shouldSizeFromHistory() {
+        return sizeFromHistory;
+    }
+
+    public void setSizeFromHistory(boolean sizeFromHistory) {
+        this.sizeFromHistory = sizeFromHistory;
+    }
+
+    public ResponseLengthOptions withSizeFromHistory(boolean sizeFromHistory) {
+        setSizeFromHistory(sizeFromHistory);
+        return this;
+    }
+
+    /**
+     * @return      Lower bound on the response token limit, so that small models can still grow with each edit
+     */
+    public int getMinResponseTokens() {
+        return minResponseTokens;
+    }
+
+    public void setMinResponseTokens(int minResponseTokens) {
+        this.minResponseTokens = minResponseTokens;
+    }
+
+    public ResponseLengthOptions withMinResponseTokens(int minResponseTokens) {
+        setMinResponseTokens(minResponseTokens);
+        return this;
+    }
+
+    /**
+     * @return      Upper bound on the response token limit
+     */
+    public int getMaxResponseTokens() {
+        return maxResponseTokens;
+    }
+
+    public void setMaxResponseTokens(int maxResponseTokens) {
+        this.maxResponseTokens = maxResponseTokens;
+    }
+
+    public ResponseLengthOptions withMaxResponseTokens(int maxResponseTokens) {
+        setMaxResponseTokens(maxResponseTokens);
+        return this;
+    }
+
+    /**
+     * @return      Response token limit relative to the largest model generated so far in the session
+     */
+    public double getSizeHeadroom() {
+        return sizeHeadroom;
+    }
+
+    public void setSizeHeadroom(double sizeHeadroom) {
+        this.sizeHeadroom = sizeHeadroom;
+    }
+
+    public ResponseLengthOptions withSizeHeadroom(double sizeHeadroom) {
+        setSizeHeadroom(sizeHeadroom);
+        return this;
+    }
+
+    /**
+     * @return      Maximum number of continuation requests submitted for a truncated response before the
+     *              incomplete response is returned as-is
+     */
+    public int getMaxContinuations() {
+        return maxContinuations;
+    }
+
+    public void setMaxContinuations(int maxContinuations) {
+        this.maxContinuations = maxContinuations;
+    }
+
+    public ResponseLengthOptions withMaxContinuations(int maxContinuations) {
+        setMaxContinuations(maxContinuations);
+        return this;
+    }
+}
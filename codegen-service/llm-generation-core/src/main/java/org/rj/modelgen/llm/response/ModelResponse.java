@@ -3,8 +3,17 @@ package org.rj.modelgen.llm.response;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 public class ModelResponse {
+    // Length of text repeated at the start of a continuation which is removed when the responses are joined.  Shorter
+    // overlaps are retained, since they are as likely to be coincidental, e.g. a repeated quote or bracket
+    private static final int MIN_CONTINUATION_OVERLAP = 8;
+    private static final int MAX_CONTINUATION_OVERLAP = 512;
+    private static final Pattern CONTINUATION_FENCE = Pattern.compile("^\\s*```[a-zA-Z]*[ \\t]*\\R");
+
     public enum Status {
         SUCCESS,
         FAILED
@@ -14,8 +23,12 @@ public class ModelResponse {
     private String message;
     private String error;
     private int promptTokenUsage;
+    private int cachedPromptTokenUsage;
     private int responseTokenUsage;
+    private boolean truncated;
+    private boolean continued;
     private Map<String, Object> metadata;
+    private Supplier<Map<String, Object>> metadataSupplier;
 
     public ModelResponse() { }
 
@@ -56,6 +69,18 @@ public class ModelResponse {
         this.promptTokenUsage = promptTokenUsage;
     }
 
+    /**
+     * @return      Number of prompt tokens which were served from the provider prompt cache, and so incurred reduced
+     *              latency and cost.  Included within the prompt token usage
+     */
+    public int getCachedPromptTokenUsage() {
+        return cachedPromptTokenUsage;
+    }
+
+    public void setCachedPromptTokenUsage(int cachedPromptTokenUsage) {
+        this.cachedPromptTokenUsage = cachedPromptTokenUsage;
+    }
+
     public int getResponseTokenUsage() {
         return responseTokenUsage;
     }
@@ -64,16 +89,94 @@ public class ModelResponse {
         this.responseTokenUsage = responseTokenUsage;
     }
 
+    /**
+     * @return      Whether generation stopped at the response token limit, in which case the message is incomplete
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return      Whether the message was joined from a truncated response and its continuations.  Continuations are
+     *              not constrained to any response schema, so a continued message may not conform to it
+     */
+    public boolean isContinued() {
+        return continued;
+    }
+
+    public void setContinued(boolean continued) {
+        this.continued = continued;
+    }
+
+    /**
+     * Join a truncated response with the continuation which was generated from it.  Any text which the continuation
+     * clearly repeats from the end of this response, or any code fence which opens the continuation, is removed.  Token
+     * usage of both responses is combined, the status and truncation of the joined response are those of the
+     * continuation, and the joined response is recorded as continued
+     *
+     * @param continuation      Response to a request for continuation of this response
+     * @return                  Joined response
+     */
+    public ModelResponse withContinuation(ModelResponse continuation) {
+        final var joined = new ModelResponse();
+        joined.setStatus(continuation.getStatus());
+        joined.setError(continuation.getError());
+        joined.setTruncated(continuation.isTruncated());
+        joined.setContinued(true);
+        joined.setPromptTokenUsage(promptTokenUsage + continuation.getPromptTokenUsage());
+        joined.setCachedPromptTokenUsage(cachedPromptTokenUsage + continuation.getCachedPromptTokenUsage());
+        joined.setResponseTokenUsage(responseTokenUsage + continuation.getResponseTokenUsage());
+        joined.setMetadata(continuation.getMetadata());
+
+        final var partial = Optional.ofNullable(message).orElse("");
+        var next = CONTINUATION_FENCE.matcher(Optional.ofNullable(continuation.getMessage()).orElse("")).replaceFirst("");
+        for (int length = Math.min(MAX_CONTINUATION_OVERLAP, Math.min(partial.length(), next.length())); length >= MIN_CONTINUATION_OVERLAP; --length) {
+            if (partial.endsWith(next.substring(0, length))) {
+                next = next.substring(length);
+                break;
+            }
+        }
+
+        joined.setMessage(partial + next);
+        return joined;
+    }
+
     @JsonIgnore
     public int getTotalTokenUsage() {
         return promptTokenUsage + responseTokenUsage;
     }
 
     public Map<String, Object> getMetadata() {
+        if (metadataSupplier != null) {
+            materializeMetadata();
+        }
         return metadata;
     }
 
     public void setMetadata(Map<String, Object> metadata) {
         this.metadata = metadata;
+        this.metadataSupplier = null;
+    }
+
+    /**
+     * Attach response metadata which is only materialized if and when it is first read
+     *
+     * @param metadataSupplier  Supplier of the response metadata.  Invoked at most once
+     */
+    @JsonIgnore
+    public void setLazyMetadata(Supplier<Map<String, Object>> metadataSupplier) {
+        this.metadata = null;
+        this.metadataSupplier = metadataSupplier;
+    }
+
+    private synchronized void materializeMetadata() {
+        if (metadataSupplier == null) return;
+
+        this.metadata = metadataSupplier.get();
+        this.metadataSupplier = null;
     }
 }
@@ -0,0 +1,335 @@
+package org.rj.modelgen.llm.retrieval;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable lexical retrieval index, ranking documents against a query by BM25.  The index is held in a single
+ * compact binary form which is queried in place, either on the heap once built or memory-mapped from a file, so that
+ * opening an index does not require it to be read or decoded.  Queries read only the dictionary entries and postings
+ * of the query terms, and decode content only for the documents returned.  Queries may be made concurrently.
+ *
+ * The header records a hash of the indexed documents, so that an index file can be checked against the corpus from
+ * which it is expected to have been built.
+ *
+ * Layout, in big-endian order:
+ * <pre>
+ *   header     magic, version, document count, term count, average document length (float), corpus hash (long)
+ *   documents  per document: length in terms, content token estimate, ID offset and length, content offset and length
+ *   terms      per term, in unsigned byte order of its UTF-8 form: term offset and length, postings offset, document frequency
+ *   postings   per term, per document containing it: document index, term frequency
+ *   strings    UTF-8 terms, document IDs and content
+ * </pre>
+ */
+public class Bm25Index {
+    private static final int MAGIC = 0x424D3235;     // "BM25"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 28;
+    private static final int DOCUMENT_ENTRY_SIZE = 24;
+    private static final int TERM_ENTRY_SIZE = 16;
+    private static final int POSTING_SIZE = 8;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "if", "in", "into", "is", "it", "of", "on",
+            "or", "so", "that", "the", "then", "this", "to", "with");
+
+    private final ByteBuffer buffer;
+    private final int documentCount;
+    private final int termCount;
+    private final float averageDocumentLength;
+    private final long corpusHash;
+    private final int documentsOffset;
+    private final int termsOffset;
+
+    private Bm25Index(ByteBuffer buffer) {
+        this.buffer = buffer.asReadOnlyBuffer();
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new LlmGenerationConfigException("Data is not a valid retrieval index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new LlmGenerationConfigException(String.format("Unsupported retrieval index version %d", buffer.getInt(4)));
+        }
+
+        this.documentCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.averageDocumentLength = buffer.getFloat(16);
+        this.corpusHash = buffer.getLong(20);
+        this.documentsOffset = HEADER_SIZE;
+        this.termsOffset = documentsOffset + documentCount * DOCUMENT_ENTRY_SIZE;
+    }
+
+    /**
+     * Build an index over the given documents, held on the heap
+     *
+     * @param documents     Documents to be indexed
+     * @return              Index
+     */
+    public static Bm25Index build(List<IndexedDocument> documents) {
+        // Term frequencies of each document, and the documents containing each term in unsigned UTF-8 order
+        final var frequencies = documents.stream()
+                .map(document -> {
+                    final var tf = new HashMap<String, Integer>();
+                    tokenize(document.getText()).forEach(term -> tf.merge(term, 1, Integer::sum));
+                    return tf;
+                })
+                .toList();
+
+        final var terms = new TreeMap<byte[], List<Integer>>(Arrays::compareUnsigned);
+        for (int i = 0; i < frequencies.size(); ++i) {
+            for (final var term : frequencies.get(i).keySet()) {
+                terms.computeIfAbsent(term.getBytes(StandardCharsets.UTF_8), __ -> new ArrayList<>()).add(i);
+            }
+        }
+
+        final var ids = documents.stream().map(x -> x.getId().getBytes(StandardCharsets.UTF_8)).toList();
+        final var contents = documents.stream().map(x -> x.getContent().getBytes(StandardCharsets.UTF_8)).toList();
+        final var lengths = frequencies.stream().mapToInt(x -> x.values().stream().mapToInt(Integer::intValue).sum()).toArray();
+
+        final long postingCount = terms.values().stream().mapToLong(List::size).sum();
+        final long stringsOffset = HEADER_SIZE + (long)documents.size() * DOCUMENT_ENTRY_SIZE + (long)terms.size() * TERM_ENTRY_SIZE
+                + postingCount * POSTING_SIZE;
+        final long size = stringsOffset + terms.keySet().stream().mapToLong(x -> x.length).sum()
+                + ids.stream().mapToLong(x -> x.length).sum() + contents.stream().mapToLong(x -> x.length).sum();
+        if (size > Integer.MAX_VALUE) throw new LlmGenerationConfigException("Retrieval index exceeds the maximum supported size");
+
+        final var buffer = ByteBuffer.allocate((int)size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(documents.size()).putInt(terms.size())
+              .putFloat(documents.isEmpty() ? 0.0f : (float)Arrays.stream(lengths).average().orElse(0.0))
+              .putLong(corpusHash(documents));
+
+        int strings = (int)stringsOffset;
+        for (int i = 0; i < documents.size(); ++i) {
+            buffer.putInt(lengths[i]).putInt(Util.estimateTokenSize(documents.get(i).getContent()))
+                  .putInt(strings).putInt(ids.get(i).length)
+                  .putInt(strings + ids.get(i).length).putInt(contents.get(i).length);
+            buffer.put(strings, ids.get(i)).put(strings + ids.get(i).length, contents.get(i));
+            strings += ids.get(i).length + contents.get(i).length;
+        }
+
+        int postings = buffer.position() + terms.size() * TERM_ENTRY_SIZE;
+        for (final var term : terms.entrySet()) {
+            buffer.putInt(strings).putInt(term.getKey().length).putInt(postings).putInt(term.getValue().size());
+            buffer.put(strings, term.getKey());
+            strings += term.getKey().length;
+
+            final var termString = new String(term.getKey(), StandardCharsets.UTF_8);
+            for (final int document : term.getValue()) {
+                buffer.putInt(postings, document).putInt(postings + 4, frequencies.get(document).get(termString));
+                postings += POSTING_SIZE;
+            }
+        }
+
+        return new Bm25Index(buffer.clear());
+    }
+
+    /**
+     * Open an index file, which is memory-mapped and queried in place
+     *
+     * @param file      Index file
+     * @return          Index
+     */
+    public static Bm25Index open(Path file) {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Bm25Index(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to open retrieval index '%s': %s", file, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Write the index to a file, from which it can be opened with {@link #open(Path)}
+     *
+     * @param file      Index file
+     */
+    public void write(Path file) {
+        try {
+            final var directory = file.toAbsolutePath().getParent();
+            if (directory != null) Files.createDirectories(directory);
+
+            // Written in full before replacing any existing index, which may be mapped by other processes
+            final var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (final var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final var data = buffer.duplicate().clear();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to write retrieval index '%s': %s", file, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * @param query     Query text
+     * @param limit     Maximum number of documents to return
+     * @return          Documents matching any term of the query, in descending order of relevance
+     */
+    public List<ScoredDocument> search(String query, int limit) {
+        if (query == null || limit < 1 || documentCount == 0) return List.of();
+
+        final var scores = new float[documentCount];
+        for (final var term : new LinkedHashSet<>(tokenize(query))) {
+            final int entry = findTerm(term.getBytes(StandardCharsets.UTF_8));
+            if (entry < 0) continue;
+
+            final int postings = buffer.getInt(entry + 8);
+            final int documentFrequency = buffer.getInt(entry + 12);
+            final double idf = Math.log(1.0 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+            for (int i = 0; i < documentFrequency; ++i) {
+                final int document = buffer.getInt(postings + i * POSTING_SIZE);
+                final int tf = buffer.getInt(postings + i * POSTING_SIZE + 4);
+                final float length = buffer.getInt(documentsOffset + document * DOCUMENT_ENTRY_SIZE);
+
+                scores[document] += (float)(idf * (tf * (K1 + 1.0f)) / (tf + K1 * (1.0f - B + B * length / averageDocumentLength)));
+            }
+        }
+
+        return IntStream.range(0, documentCount)
+                .filter(i -> scores[i] > 0.0f)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> scores[i]).reversed())
+                .limit(limit)
+                .map(i -> getDocument(i, scores[i]))
+                .toList();
+    }
+
+    /**
+     * @return      Number of documents in the index
+     */
+    public int size() {
+        return documentCount;
+    }
+
+    /**
+     * @return      Size of the index data in bytes
+     */
+    public int getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return      Hash of the documents from which the index was built, as given by {@link #corpusHash(List)}
+     */
+    public long getCorpusHash() {
+        return corpusHash;
+    }
+
+    /**
+     * @param documents     Documents to be indexed
+     * @return              Hash of the ID, text and content of each document, in order
+     */
+    public static long corpusHash(List<IndexedDocument> documents) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            for (final var document : documents) {
+                for (final var field : List.of(document.getId(), document.getText(), document.getContent())) {
+                    final var data = field.getBytes(StandardCharsets.UTF_8);
+                    digest.update(ByteBuffer.allocate(4).putInt(0, data.length));
+                    digest.update(data);
+                }
+            }
+
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new LlmGenerationConfigException("Failed to hash retrieval corpus: " + ex.getMessage(), ex);
+        }
+    }
+
+    private ScoredDocument getDocument(int index, double score) {
+        final int entry = documentsOffset + index * DOCUMENT_ENTRY_SIZE;
+        return new ScoredDocument(index,
+                readString(buffer.getInt(entry + 8), buffer.getInt(entry + 12)),
+                readString(buffer.getInt(entry + 16), buffer.getInt(entry + 20)),
+                buffer.getInt(entry + 4),
+                score);
+    }
+
+    /**
+     * @return      Offset of the dictionary entry for the term, or -1 if the term does not occur in the index
+     */
+    private int findTerm(byte[] term) {
+        int low = 0, high = termCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int entry = termsOffset + mid * TERM_ENTRY_SIZE;
+            final int comparison = compareTerm(buffer.getInt(entry), buffer.getInt(entry + 4), term);
+
+            if (comparison < 0) low = mid + 1;
+            else if (comparison > 0) high = mid - 1;
+            else return entry;
+        }
+
+        return -1;
+    }
+
+    // Compares the indexed term with the given term, in unsigned byte order, without copying it from the index
+    private int compareTerm(int offset, int length, byte[] term) {
+        final int common = Math.min(length, term.length);
+        for (int i = 0; i < common; ++i) {
+            final int comparison = Integer.compare(buffer.get(offset + i) & 0xff, term[i] & 0xff);
+            if (comparison != 0) return comparison;
+        }
+
+        return Integer.compare(length, term.length);
+    }
+
+    private String readString(int offset, int length) {
+        final var data = new byte[length];
+        buffer.get(offset, data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Split text into index terms: lower-case words, with identifiers split at case changes (e.g. "submitExpense"),
+     * stop words removed and plural forms reduced to the singular
+     *
+     * @param text      Text
+     * @return          Terms, in order of occurrence
+     */
+    static List<String> tokenize(String text) {
+        final var terms = new ArrayList<String>();
+        if (text == null) return terms;
+
+        final var words = text.split("[^\\p{L}\\p{N}]+|(?<=\\p{Ll})(?=\\p{Lu})");
+        for (final var word : words) {
+            final var term = stem(word.toLowerCase());
+            if (term.length() > 1 && !STOP_WORDS.contains(term)) terms.add(term);
+        }
+
+        return terms;
+    }
+
+    private static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) return word.substring(0, word.length() - 3) + "y";
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) return word.substring(0, word.length() - 1);
+        return word;
+    }
+}
@@ -0,0 +1,71 @@
+package org.rj.modelgen.llm.retrieval;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the examples most relevant to a request from an index of examples, for inclusion in its prompt.  Examples
+ * are taken in order of relevance while they fit within the token budget; an example which does not fit is skipped
+ * in favour of any smaller, less relevant example which does
+ */
+public class FewShotExampleSelector {
+    public static final int DEFAULT_MAX_EXAMPLES = 2;
+    public static final int DEFAULT_TOKEN_BUDGET = 2000;
+
+    // Candidates considered per example requested, allowing for examples skipped as too large for the budget
+    private static final int CANDIDATES_PER_EXAMPLE = 4;
+
+    private final Bm25Index index;
+    private final int maxExamples;
+    private final int tokenBudget;
+
+    public FewShotExampleSelector(Bm25Index index) {
+        this(index, DEFAULT_MAX_EXAMPLES, DEFAULT_TOKEN_BUDGET);
+    }
+
+    /**
+     * @param index         Index of examples
+     * @param maxExamples   Maximum number of examples selected for a request
+     * @param tokenBudget   Maximum total estimated token size of the examples selected for a request
+     */
+    public FewShotExampleSelector(Bm25Index index, int maxExamples, int tokenBudget) {
+        if (index == null) throw new LlmGenerationConfigException("Example selection requires a valid index");
+
+        this.index = index;
+        this.maxExamples = maxExamples;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * @param request       Request for which examples are required
+     * @return              Selected examples, in descending order of relevance.  Empty if no example is relevant
+     */
+    public List<ScoredDocument> select(String request) {
+        final var selected = new ArrayList<ScoredDocument>();
+        int remaining = tokenBudget;
+
+        for (final var candidate : index.search(request, maxExamples * CANDIDATES_PER_EXAMPLE)) {
+            if (selected.size() >= maxExamples) break;
+            if (candidate.getTokens() > remaining) continue;
+
+            selected.add(candidate);
+            remaining -= candidate.getTokens();
+        }
+
+        return selected;
+    }
+
+    public Bm25Index getIndex() {
+        return index;
+    }
+
+    public int getMaxExamples() {
+        return maxExamples;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+}
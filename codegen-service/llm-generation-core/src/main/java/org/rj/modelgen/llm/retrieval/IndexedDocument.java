@@ -0,0 +1,33 @@
+package org.rj.modelgen.llm.retrieval;
+
+/**
+ * Document held in a {@link Bm25Index}
+ */
+public class IndexedDocument {
+    private final String id;
+    private final String text;
+    private final String content;
+
+    /**
+     * @param id        Document ID
+     * @param text      Text by which the document is retrieved
+     * @param content   Content returned for the document when retrieved
+     */
+    public IndexedDocument(String id, String text, String content) {
+        this.id = id;
+        this.text = text;
+        this.content = content;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,49 @@
+package org.rj.modelgen.llm.retrieval;
+
+/**
+ * Document retrieved from a {@link Bm25Index}, with its relevance to the query
+ */
+public class ScoredDocument {
+    private final int index;
+    private final String id;
+    private final String content;
+    private final int tokens;
+    private final double score;
+
+    ScoredDocument(int index, String id, String content, int tokens, double score) {
+        this.index = index;
+        this.id = id;
+        this.content = content;
+        this.tokens = tokens;
+        this.score = score;
+    }
+
+    /**
+     * @return      Position of the document within the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return      Estimated token size of the document content
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return      BM25 relevance score of the document for the query
+     */
+    public double getScore() {
+        return score;
+    }
+}
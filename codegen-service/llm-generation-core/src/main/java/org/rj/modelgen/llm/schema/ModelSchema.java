@@ -10,6 +10,8 @@ import java.util.List;
 public class ModelSchema {
     private final String schemaContent;
     private final Schema schema;
+    private volatile StructuredOutputSchema structuredOutputSchema;
+    private volatile String typeSignature;
 
     public ModelSchema(String schemaContent) {
         this.schemaContent = schemaContent;
@@ -33,6 +35,37 @@ public class ModelSchema {
         return schemaContent;
     }
 
+    /**
+     * @param format    Form in which the schema should be rendered
+     * @return          Schema content for inclusion in prompts.  Validation always uses the full schema
+     */
+    public String getPromptContent(SchemaPromptFormat format) {
+        return (format == SchemaPromptFormat.TypeSignature) ? getTypeSignature() : getSchemaContent();
+    }
+
+    /**
+     * @return      Form of this schema which can be submitted to constrain LLM decoding.  Converted on first use
+     */
+    public StructuredOutputSchema getStructuredOutputSchema() {
+        if (structuredOutputSchema == null) {
+            structuredOutputSchema = StructuredOutputSchema.fromSchemaContent(schemaContent);
+        }
+
+        return structuredOutputSchema;
+    }
+
+    /**
+     * @return      Compact type signature of this schema for use in prompts, in place of the full schema content.
+     *              Rendered on first use
+     */
+    public String getTypeSignature() {
+        if (typeSignature == null) {
+            typeSignature = TypeSignatureRenderer.render(schemaContent);
+        }
+
+        return typeSignature;
+    }
+
 
     public static class ValidationResult {
         private final boolean valid;
@@ -0,0 +1,16 @@
+package org.rj.modelgen.llm.schema;
+
+/**
+ * Form in which a model schema is rendered within prompts
+ */
+public enum SchemaPromptFormat {
+    /**
+     * Full JSON schema content
+     */
+    JsonSchema,
+
+    /**
+     * Compact TypeScript-like type signature, rendered by {@link TypeSignatureRenderer}
+     */
+    TypeSignature
+}
@@ -0,0 +1,364 @@
+package org.rj.modelgen.llm.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Form of a model schema which can be submitted to constrain LLM decoding.  Providers which support strict
+ * schema-constrained decoding accept only a subset of JSON schema, so the model schema is converted as follows:
+ *
+ * <ul>
+ *     <li>Every object property is required and no additional properties are allowed; properties which were optional
+ *     become nullable instead</li>
+ *     <li>{@code oneOf} a set of constants becomes an {@code enum}, and any other {@code oneOf} becomes {@code anyOf}</li>
+ *     <li>Conditional ({@code if / then / else}) subschemas are replaced by the combination of their branches</li>
+ *     <li>Validation keywords such as length and item limits are removed</li>
+ *     <li>Optional free-form objects, which cannot be expressed in strict form, are removed</li>
+ * </ul>
+ *
+ * The converted schema accepts a superset of the model schema, so responses must still be validated against the
+ * model schema.  Responses should first be normalized to remove the null values of optional properties.  If a required part of the schema cannot be expressed in strict form then the schema is not strict,
+ * and may only guide decoding rather than guarantee conformance
+ */
+public class StructuredOutputSchema {
+    private static final Set<String> UNSUPPORTED_KEYWORDS = Set.of(
+            "$id", "$schema", "$comment", "default", "examples", "not",
+            "minItems", "maxItems", "uniqueItems", "minLength", "maxLength", "pattern", "format",
+            "minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum", "multipleOf",
+            "minProperties", "maxProperties", "patternProperties", "if", "then", "else");
+
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final String DEFAULT_NAME = "model";
+
+    private final String name;
+    private final JsonNode schema;
+    private final boolean strict;
+
+    public StructuredOutputSchema(String name, JsonNode schema, boolean strict) {
+        this.name = name;
+        this.schema = schema;
+        this.strict = strict;
+    }
+
+    /**
+     * Convert the given model schema to its structured output form
+     *
+     * @param schemaContent     Serialized model schema
+     * @return                  Structured output schema
+     */
+    public static StructuredOutputSchema fromSchemaContent(String schemaContent) {
+        final JsonNode source;
+        try {
+            source = Util.getObjectMapper().readTree(schemaContent);
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationConfigException(String.format("Cannot parse model schema (%s)", ex.getMessage()), ex);
+        }
+
+        if (!(source instanceof ObjectNode root) || !"object".equals(root.path("type").asText())) {
+            throw new LlmGenerationConfigException("Structured output requires a model schema with a root object type");
+        }
+
+        final var converter = new Converter();
+        final var converted = converter.convert(root);
+        if (converted == null) {
+            throw new LlmGenerationConfigException("Model schema root object cannot be expressed as a structured output schema");
+        }
+
+        converted.remove("title");
+        return new StructuredOutputSchema(buildName(root.path("title").asText(DEFAULT_NAME)), converted, converter.strict);
+    }
+
+    /**
+     * @return      Name of the schema, restricted to the characters accepted by providers
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return      Converted schema
+     */
+    public JsonNode getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return      Whether the schema could be converted in full to strict form, in which case conforming responses
+     *              are guaranteed by the provider
+     */
+    public boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * Normalize a response which conforms to this schema, so that it can be validated against the original model
+     * schema.  Null properties are removed, since optional properties are generated with null values
+     *
+     * @param content   Response content
+     * @return          Normalized response content, or the original content if it is not valid JSON
+     */
+    public String normalizeResponse(String content) {
+        if (content == null) return null;
+
+        try {
+            final var response = Util.getObjectMapper().readTree(content);
+            removeNullProperties(response);
+
+            return Util.getObjectMapper().writeValueAsString(response);
+        }
+        catch (Exception ex) {
+            return content;
+        }
+    }
+
+    private static void removeNullProperties(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            final var names = new ArrayList<String>();
+            object.fields().forEachRemaining(field -> {
+                if (field.getValue().isNull()) names.add(field.getKey());
+                else removeNullProperties(field.getValue());
+            });
+            object.remove(names);
+        }
+        else if (node instanceof ArrayNode array) {
+            array.forEach(StructuredOutputSchema::removeNullProperties);
+        }
+    }
+
+    private static String buildName(String title) {
+        final var name = title.trim().replaceAll("[^a-zA-Z0-9_-]+", "_");
+        if (name.isEmpty()) return DEFAULT_NAME;
+
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+    }
+
+
+    private static class Converter {
+        private boolean strict = true;
+
+        /**
+         * Convert a schema node.  Returns null if the node is a free-form object which cannot be expressed in strict form
+         */
+        ObjectNode convert(JsonNode node) {
+            if (!(node instanceof ObjectNode source)) return JsonNodeFactory.instance.objectNode();
+
+            final var result = source.deepCopy();
+            UNSUPPORTED_KEYWORDS.forEach(result::remove);
+
+            mergeConditionals(source, result);
+            convertOneOf(result);
+            if (result.has("const")) {
+                result.putArray("enum").add(result.remove("const"));
+            }
+
+            if (result.get("$defs") instanceof ObjectNode defs) {
+                final var names = new ArrayList<String>();
+                defs.fieldNames().forEachRemaining(names::add);
+                for (final var name : names) {
+                    final var converted = convert(defs.get(name));
+                    if (converted == null) {
+                        strict = false;
+                    }
+                    else {
+                        defs.set(name, converted);
+                    }
+                }
+            }
+
+            if (result.get("anyOf") instanceof ArrayNode anyOf) {
+                for (int i = 0; i < anyOf.size(); ++i) {
+                    final var converted = convert(anyOf.get(i));
+                    if (converted == null) strict = false;
+                    else anyOf.set(i, converted);
+                }
+            }
+
+            if (result.has("items")) {
+                final var items = convert(result.get("items"));
+                if (items == null) strict = false;
+                else result.set("items", items);
+            }
+            else if (hasType(result, "array")) {
+                strict = false;     // Arrays with unconstrained items cannot be expressed in strict form
+            }
+
+            if (result.get("properties") instanceof ObjectNode properties) {
+                convertProperties(result, properties);
+            }
+            else if (hasType(result, "object")) {
+                return null;
+            }
+
+            return result;
+        }
+
+        private void convertProperties(ObjectNode result, ObjectNode properties) {
+            final Set<String> required = new LinkedHashSet<>();
+            if (result.get("required") instanceof ArrayNode requiredNode) {
+                requiredNode.forEach(x -> required.add(x.asText()));
+            }
+
+            final Map<String, JsonNode> converted = new LinkedHashMap<>();
+            properties.fields().forEachRemaining(property -> {
+                final var isRequired = required.contains(property.getKey());
+                final var schema = convert(property.getValue());
+
+                if (schema == null) {
+                    // Required free-form objects are retained as-is, since removing them would invalidate every response
+                    if (isRequired) {
+                        strict = false;
+                        converted.put(property.getKey(), property.getValue());
+                    }
+                    return;
+                }
+
+                converted.put(property.getKey(), isRequired ? schema : nullable(schema));
+            });
+
+            properties.removeAll();
+            properties.setAll(converted);
+
+            final var allRequired = result.putArray("required");
+            converted.keySet().forEach(allRequired::add);
+            result.put("additionalProperties", false);
+        }
+
+        /**
+         * Replace each conditional subschema by the combination of its branches.  Property schemas from either branch
+         * override the corresponding base property, since they are generally more specific
+         */
+        private void mergeConditionals(ObjectNode source, ObjectNode result) {
+            if (!(source.get("allOf") instanceof ArrayNode allOf)) return;
+
+            final Map<String, List<JsonNode>> branchProperties = new LinkedHashMap<>();
+            final var remaining = JsonNodeFactory.instance.arrayNode();
+            for (final var subschema : allOf) {
+                if (!subschema.has("if")) {
+                    remaining.add(subschema);
+                    continue;
+                }
+
+                // Branches are compared after conversion, since they often differ only by unsupported keywords
+                for (final var branch : List.of(subschema.path("then"), subschema.path("else"))) {
+                    branch.path("properties").fields().forEachRemaining(property -> {
+                        final var converted = convert(property.getValue());
+                        if (converted == null) {
+                            strict = false;
+                            return;
+                        }
+
+                        final var schemas = branchProperties.computeIfAbsent(property.getKey(), __ -> new ArrayList<>());
+                        if (!schemas.contains(converted)) schemas.add(converted);
+                    });
+                }
+            }
+
+            if (remaining.isEmpty()) {
+                result.remove("allOf");
+            }
+            else {
+                result.set("allOf", remaining);
+                strict = false;     // Schema composition other than conditionals is not supported in strict form
+            }
+
+            if (branchProperties.isEmpty()) return;
+
+            final var properties = result.get("properties") instanceof ObjectNode existing ? existing : result.putObject("properties");
+            branchProperties.forEach((name, schemas) -> {
+                final ObjectNode merged;
+                if (schemas.size() == 1) {
+                    merged = schemas.get(0).deepCopy();
+                }
+                else {
+                    merged = JsonNodeFactory.instance.objectNode();
+                    final var anyOf = merged.putArray("anyOf");
+                    schemas.forEach(anyOf::add);
+                }
+
+                if (!merged.has("description") && properties.path(name).has("description")) {
+                    merged.set("description", properties.path(name).get("description"));
+                }
+                properties.set(name, merged);
+            });
+        }
+
+        private void convertOneOf(ObjectNode result) {
+            if (!(result.remove("oneOf") instanceof ArrayNode oneOf)) return;
+
+            var allConstants = true;
+            for (final var option : oneOf) {
+                allConstants &= option.has("const");
+            }
+
+            if (!allConstants) {
+                result.set("anyOf", oneOf);
+                return;
+            }
+
+            // Retain the description of each constant, which is otherwise lost in conversion to an enum
+            final var values = result.putArray("enum");
+            final var descriptions = new StringBuilder(result.path("description").asText(""));
+            for (final var option : oneOf) {
+                values.add(option.get("const"));
+
+                final var description = option.path("description").asText("");
+                if (!description.isBlank()) {
+                    descriptions.append(descriptions.isEmpty() ? "" : "\n").append(option.get("const").asText()).append(": ").append(description);
+                }
+            }
+
+            if (!descriptions.isEmpty()) result.put("description", descriptions.toString());
+            if (!result.has("type") && values.get(0).isTextual()) result.put("type", "string");
+        }
+
+        private ObjectNode nullable(ObjectNode schema) {
+            if (hasType(schema, "null")) return schema;
+
+            final var type = schema.get("type");
+            if (type != null && type.isTextual()) {
+                schema.putArray("type").add(type.asText()).add("null");
+                if (schema.get("enum") instanceof ArrayNode values) values.addNull();
+                return schema;
+            }
+            if (type instanceof ArrayNode types) {
+                types.add("null");
+                if (schema.get("enum") instanceof ArrayNode values) values.addNull();
+                return schema;
+            }
+            if (schema.get("anyOf") instanceof ArrayNode anyOf) {
+                anyOf.addObject().put("type", "null");
+                return schema;
+            }
+
+            // References are wrapped, retaining any description alongside
+            final var wrapper = JsonNodeFactory.instance.objectNode();
+            if (schema.has("description")) wrapper.set("description", schema.remove("description"));
+            wrapper.putArray("anyOf").add(schema).addObject().put("type", "null");
+
+            return wrapper;
+        }
+
+        private static boolean hasType(JsonNode schema, String type) {
+            final var typeNode = schema.get("type");
+            if (typeNode == null) return false;
+            if (typeNode.isTextual()) return type.equals(typeNode.asText());
+
+            for (final var t : typeNode) {
+                if (type.equals(t.asText())) return true;
+            }
+            return false;
+        }
+    }
+}
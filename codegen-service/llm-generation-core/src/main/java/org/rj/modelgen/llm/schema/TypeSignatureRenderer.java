@@ -0,0 +1,340 @@
+package org.rj.modelgen.llm.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Renders a model schema as a set of TypeScript-like type declarations, for use in prompts.  The rendered form
+ * retains the structure, descriptions and constraints of the schema at a fraction of the size of the JSON schema:
+ *
+ * <ul>
+ *     <li>The root object and each definition in {@code $defs} become named types, and references use the type name</li>
+ *     <li>Optional properties are marked with {@code ?}, and descriptions are rendered as comments</li>
+ *     <li>Constants, enums and {@code oneOf} sets of constants become unions of literals</li>
+ *     <li>Conditional ({@code if / then / else}) property schemas are combined, with the condition and any
+ *         branch-specific descriptions and constraints rendered as comments</li>
+ * </ul>
+ *
+ * The rendered form is for guidance only; responses should always be validated against the full model schema
+ */
+public final class TypeSignatureRenderer {
+    private static final List<String> CONSTRAINT_KEYWORDS = List.of(
+            "minItems", "maxItems", "uniqueItems", "minLength", "maxLength", "pattern", "format",
+            "minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum", "multipleOf");
+
+    private static final String DEFS_PREFIX = "#/$defs/";
+    private static final String INDENT = "  ";
+    private static final String DEFAULT_ROOT_NAME = "Model";
+
+    private TypeSignatureRenderer() { }
+
+    /**
+     * Render the given model schema
+     *
+     * @param schemaContent     Serialized model schema
+     * @return                  Type declarations for the schema
+     */
+    public static String render(String schemaContent) {
+        final JsonNode root;
+        try {
+            root = Util.getObjectMapper().readTree(schemaContent);
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationConfigException(String.format("Cannot parse model schema (%s)", ex.getMessage()), ex);
+        }
+
+        if (!(root instanceof ObjectNode)) throw new LlmGenerationConfigException("Cannot render model schema without a root object");
+
+        final var output = new StringBuilder();
+        final var rootName = typeName(root.path("title").asText(DEFAULT_ROOT_NAME));
+        renderDeclaration(output, rootName, root.path("title").asText(""), root);
+
+        root.path("$defs").fields().forEachRemaining(def -> {
+            output.append('\n');
+            renderDeclaration(output, typeName(def.getKey()), def.getValue().path("description").asText(""), def.getValue());
+        });
+
+        return output.toString();
+    }
+
+    private static void renderDeclaration(StringBuilder output, String name, String description, JsonNode schema) {
+        appendComment(output, "", description);
+
+        final var literals = literalOptions(schema);
+        if (literals != null && literals.values().stream().anyMatch(x -> !x.isEmpty())) {
+            output.append("type ").append(name).append(" =\n");
+            appendLiteralOptions(output, INDENT, literals);
+            return;
+        }
+
+        output.append("type ").append(name).append(" = ").append(renderType(schema, "")).append(";\n");
+    }
+
+    /**
+     * Render a type expression.  Object types are rendered over multiple lines at the given indent
+     */
+    private static String renderType(JsonNode schema, String indent) {
+        return String.join(" | ", typeMembers(schema, indent));
+    }
+
+    private static Set<String> typeMembers(JsonNode schema, String indent) {
+        final Set<String> members = new LinkedHashSet<>();
+        if (schema == null || schema.isMissingNode() || schema.isBoolean()) {
+            members.add("unknown");
+            return members;
+        }
+
+        final var ref = schema.path("$ref").asText("");
+        if (!ref.isEmpty()) {
+            members.add(ref.startsWith(DEFS_PREFIX) ? typeName(ref.substring(DEFS_PREFIX.length())) : "unknown");
+            if (hasType(schema, "null")) members.add("null");
+            return members;
+        }
+
+        final var literals = literalOptions(schema);
+        if (literals != null) {
+            members.addAll(literals.keySet());
+            return members;
+        }
+
+        for (final var keyword : List.of("oneOf", "anyOf")) {
+            if (schema.get(keyword) != null && schema.get(keyword).isArray()) {
+                schema.get(keyword).forEach(option -> members.addAll(typeMembers(option, indent)));
+                return members;
+            }
+        }
+
+        final var types = new ArrayList<String>();
+        final var typeNode = schema.get("type");
+        if (typeNode == null) types.add(schema.has("properties") ? "object" : schema.has("items") ? "array" : "unknown");
+        else if (typeNode.isArray()) typeNode.forEach(x -> types.add(x.asText()));
+        else types.add(typeNode.asText());
+
+        for (final var type : types) {
+            members.add(switch (type) {
+                case "string", "boolean", "null" -> type;
+                case "integer", "number" -> "number";
+                case "array" -> arrayType(schema.get("items"), indent);
+                case "object" -> objectType(schema, indent);
+                default -> "unknown";
+            });
+        }
+
+        return members;
+    }
+
+    private static String arrayType(JsonNode items, String indent) {
+        if (items == null) return "unknown[]";
+
+        final var members = typeMembers(items, indent);
+        return (members.size() == 1) ? members.iterator().next() + "[]" : "(" + String.join(" | ", members) + ")[]";
+    }
+
+    private static String objectType(JsonNode schema, String indent) {
+        final var properties = schema.get("properties");
+        if (properties == null || properties.isEmpty()) {
+            final var additional = schema.get("additionalProperties");
+            return (additional != null && additional.isObject())
+                    ? "{ [key: string]: " + renderType(additional, indent) + " }"
+                    : "{ [key: string]: unknown }";
+        }
+
+        final Set<String> required = new LinkedHashSet<>();
+        schema.path("required").forEach(x -> required.add(x.asText()));
+
+        final var conditionals = conditionalProperties(schema);
+        final var inner = indent + INDENT;
+        final var output = new StringBuilder("{\n");
+
+        properties.fields().forEachRemaining(property -> {
+            final var name = property.getKey();
+            final var propertySchema = property.getValue();
+            final var branches = conditionals.getOrDefault(name, List.of());
+
+            appendComment(output, inner, withConstraints(propertySchema.path("description").asText(""), propertySchema));
+            branches.forEach(branch -> appendComment(output, inner, branch.describe()));
+
+            final var literals = branches.isEmpty() ? literalOptions(propertySchema) : null;
+            output.append(inner).append(name).append(required.contains(name) ? ":" : "?:");
+
+            if (literals != null && literals.values().stream().anyMatch(x -> !x.isEmpty())) {
+                output.append('\n');
+                appendLiteralOptions(output, inner + INDENT, literals);
+                return;
+            }
+
+            final Set<String> members = new LinkedHashSet<>();
+            if (branches.isEmpty()) {
+                members.addAll(typeMembers(propertySchema, inner));
+            }
+            else {
+                branches.forEach(branch -> members.addAll(typeMembers(branch.schema, inner)));
+            }
+
+            output.append(' ').append(String.join(" | ", members)).append(";\n");
+        });
+
+        return output.append(indent).append('}').toString();
+    }
+
+    /**
+     * Collect the property schemas defined within conditional subschemas, keyed by property name
+     */
+    private static Map<String, List<Branch>> conditionalProperties(JsonNode schema) {
+        final Map<String, List<Branch>> branches = new LinkedHashMap<>();
+        for (final var subschema : schema.path("allOf")) {
+            if (!subschema.has("if")) continue;
+
+            final var condition = describeCondition(subschema.get("if"));
+            subschema.path("then").path("properties").fields().forEachRemaining(property -> branches
+                    .computeIfAbsent(property.getKey(), __ -> new ArrayList<>())
+                    .add(new Branch("If " + condition, property.getValue())));
+
+            subschema.path("else").path("properties").fields().forEachRemaining(property -> branches
+                    .computeIfAbsent(property.getKey(), __ -> new ArrayList<>())
+                    .add(new Branch("Otherwise", property.getValue())));
+        }
+
+        return branches;
+    }
+
+    private static String describeCondition(JsonNode condition) {
+        final var clauses = new ArrayList<String>();
+        condition.path("properties").fields().forEachRemaining(property -> {
+            final var literals = literalOptions(property.getValue());
+            clauses.add(property.getKey() + (literals == null ? " matches the condition"
+                    : (literals.size() == 1 ? " is " : " is one of ") + String.join(", ", literals.keySet())));
+        });
+
+        return clauses.isEmpty() ? "the condition applies" : String.join(" and ", clauses);
+    }
+
+    /**
+     * Literal values of a schema which is a constant, an enum, or a {@code oneOf / anyOf} set of constants, with the
+     * description of each value (empty if none).  Returns null if the schema is not restricted to literal values
+     */
+    private static Map<String, String> literalOptions(JsonNode schema) {
+        final Map<String, String> literals = new LinkedHashMap<>();
+        if (schema.has("const")) {
+            literals.put(schema.get("const").toString(), "");
+            return literals;
+        }
+
+        if (schema.get("enum") != null && schema.get("enum").isArray()) {
+            schema.get("enum").forEach(x -> literals.put(x.toString(), ""));
+            return literals;
+        }
+
+        for (final var keyword : List.of("oneOf", "anyOf")) {
+            final var options = schema.get(keyword);
+            if (options == null || !options.isArray() || options.isEmpty()) continue;
+
+            for (final var option : options) {
+                if (!option.has("const")) return null;
+                literals.put(option.get("const").toString(), option.path("description").asText("").trim());
+            }
+            return literals;
+        }
+
+        return null;
+    }
+
+    /**
+     * Append a union of literals with one line per value, so that the description of each value can follow it
+     */
+    private static void appendLiteralOptions(StringBuilder output, String indent, Map<String, String> literals) {
+        final int width = literals.keySet().stream().mapToInt(String::length).max().orElse(0) + 1;
+        int remaining = literals.size();
+        for (final var literal : literals.entrySet()) {
+            final var value = literal.getKey() + (--remaining == 0 ? ";" : "");
+            output.append(indent).append("| ").append(value);
+            if (!literal.getValue().isEmpty()) {
+                output.append(" ".repeat(width - value.length())).append("  // ").append(singleLine(literal.getValue()));
+            }
+            output.append('\n');
+        }
+    }
+
+    private static String withConstraints(String description, JsonNode schema) {
+        final var constraints = CONSTRAINT_KEYWORDS.stream()
+                .filter(schema::has)
+                .map(keyword -> keyword + " " + schema.get(keyword).toString())
+                .collect(Collectors.joining(", "));
+
+        if (constraints.isEmpty()) return description;
+        return description.isEmpty() ? "(" + constraints + ")" : description + " (" + constraints + ")";
+    }
+
+    private static void appendComment(StringBuilder output, String indent, String comment) {
+        if (comment == null || comment.isBlank()) return;
+        output.append(indent).append("// ").append(singleLine(comment)).append('\n');
+    }
+
+    private static String singleLine(String text) {
+        return text.trim().replaceAll("\\s*\\R\\s*", " ");
+    }
+
+    private static boolean hasType(JsonNode schema, String type) {
+        final var typeNode = schema.get("type");
+        if (typeNode == null) return false;
+        if (typeNode.isTextual()) return type.equals(typeNode.asText());
+
+        for (final var t : typeNode) {
+            if (type.equals(t.asText())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Convert a title or definition name to a type name, e.g. "process model" to "ProcessModel"
+     */
+    private static String typeName(String name) {
+        final var result = new StringBuilder();
+        for (final var part : name.trim().split("[^a-zA-Z0-9]+")) {
+            if (part.isEmpty()) continue;
+            result.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+        }
+
+        if (result.isEmpty()) return DEFAULT_ROOT_NAME;
+        return Character.isDigit(result.charAt(0)) ? "T" + result : result.toString();
+    }
+
+
+    /**
+     * Property schema which applies within one branch of a conditional subschema
+     */
+    private static class Branch {
+        private final String condition;
+        private final JsonNode schema;
+
+        Branch(String condition, JsonNode schema) {
+            this.condition = condition;
+            this.schema = schema;
+        }
+
+        /**
+         * Description of the branch, including the description of any array items, since these often carry the
+         * branch-specific meaning
+         */
+        String describe() {
+            final var descriptions = new ArrayList<String>();
+            final var description = withConstraints(schema.path("description").asText(""), schema);
+            if (!description.isBlank()) descriptions.add(description);
+
+            final var items = schema.path("items").path("description").asText("");
+            if (!items.isBlank()) descriptions.add(items);
+
+            return condition + ": " + (descriptions.isEmpty() ? renderType(schema, "") : String.join(" ", descriptions));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.rj.modelgen.llm.session;
+
+import org.jooq.lambda.tuple.Tuple2;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Session store bounded by idle timeout, session count and approximate session size.  Sessions are held in
+ * access order, so that both expired sessions and the least recently used are always found at the head of the
+ * store.  Expired sessions are removed on each access, without a background thread.
+ *
+ * Sessions are mutated in place as they are used, so the size of a session is re-read each time it is accessed.
+ * Sessions maintain their size as their context and attachments change, so each access remains O(1) however large
+ * the sessions held.  The session being accessed is never itself evicted for size, even if it alone exceeds the limit
+ */
+public class BoundedSessionStore implements SessionStore {
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedSessionStore.class);
+
+    private final SessionStoreOptions options;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> sessions;
+    private final ReentrantLock lock;
+    private final List<SessionEvictionListener> listeners;
+    private long totalSizeBytes;
+
+    public BoundedSessionStore(SessionStoreOptions options) {
+        this(options, Clock.systemUTC());
+    }
+
+    BoundedSessionStore(SessionStoreOptions options, Clock clock) {
+        if (options.getMaxSessions() < 1) throw new LlmGenerationModelException("Session store must allow at least one session");
+
+        this.options = options;
+        this.clock = clock;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+        this.lock = new ReentrantLock();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public Optional<SessionState> get(String id) {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            expire(evicted);
+
+            final var entry = sessions.get(id);
+            if (entry == null) return Optional.empty();
+
+            touch(id, entry, evicted);
+            return Optional.of(entry.session);
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public SessionState getOrCreate(String id, Function<String, SessionState> sessionGenerator) {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            expire(evicted);
+
+            var entry = sessions.get(id);
+            if (entry == null) {
+                entry = newEntry(sessionGenerator.apply(id));
+                sessions.put(id, entry);
+            }
+
+            touch(id, entry, evicted);
+            return entry.session;
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public void put(SessionState session) {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            expire(evicted);
+
+            final var entry = newEntry(session);
+            final var previous = sessions.put(session.getId(), entry);
+            if (previous != null) totalSizeBytes -= previous.sizeBytes;
+
+            touch(session.getId(), entry, evicted);
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public Optional<SessionState> remove(String id) {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            final var entry = sessions.remove(id);
+            if (entry == null) return Optional.empty();
+
+            totalSizeBytes -= entry.sizeBytes;
+            evicted.add(tuple(entry.session, SessionEvictionListener.Cause.REMOVED));
+            return Optional.of(entry.session);
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public boolean contains(String id) {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            expire(evicted);
+            return sessions.containsKey(id);
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return sessions.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return      Approximate memory size of all sessions held, as estimated when each was last accessed
+     */
+    public long getTotalSizeBytes() {
+        lock.lock();
+        try {
+            return totalSizeBytes;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all expired sessions.  Expired sessions are otherwise removed only when the store is next accessed
+     */
+    public void cleanUp() {
+        final var evicted = new ArrayList<Tuple2<SessionState, SessionEvictionListener.Cause>>();
+        lock.lock();
+        try {
+            expire(evicted);
+        }
+        finally {
+            lock.unlock();
+            notifyListeners(evicted);
+        }
+    }
+
+    @Override
+    public void addEvictionListener(SessionEvictionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Record access to a session, re-reading its maintained size and evicting the least recently used sessions if
+     * the store now exceeds its limits.  Must be called with the lock held
+     */
+    private void touch(String id, Entry entry, List<Tuple2<SessionState, SessionEvictionListener.Cause>> evicted) {
+        entry.lastAccess = clock.instant();
+
+        final var sizeBytes = entry.session.estimateSizeBytes();
+        totalSizeBytes += (sizeBytes - entry.sizeBytes);
+        entry.sizeBytes = sizeBytes;
+
+        final var iterator = sessions.entrySet().iterator();
+        while ((sessions.size() > options.getMaxSessions() || totalSizeBytes > options.getMaxSizeBytes()) && iterator.hasNext()) {
+            final var lru = iterator.next();
+            if (lru.getKey().equals(id)) continue;
+
+            iterator.remove();
+            totalSizeBytes -= lru.getValue().sizeBytes;
+            evicted.add(tuple(lru.getValue().session, SessionEvictionListener.Cause.SIZE));
+        }
+    }
+
+    /**
+     * Remove expired sessions from the head of the store.  Must be called with the lock held
+     */
+    private void expire(List<Tuple2<SessionState, SessionEvictionListener.Cause>> evicted) {
+        if (options.getIdleTimeout() == null) return;
+
+        final var cutoff = clock.instant().minus(options.getIdleTimeout());
+        final var iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            if (!entry.lastAccess.isBefore(cutoff)) break;
+
+            iterator.remove();
+            totalSizeBytes -= entry.sizeBytes;
+            evicted.add(tuple(entry.session, SessionEvictionListener.Cause.EXPIRED));
+        }
+    }
+
+    private void notifyListeners(List<Tuple2<SessionState, SessionEvictionListener.Cause>> evicted) {
+        for (final var eviction : evicted) {
+            for (final var listener : listeners) {
+                try {
+                    listener.onEviction(eviction.v1, eviction.v2);
+                }
+                catch (Exception ex) {
+                    LOG.warn("Session eviction listener failed for session {} ({})", eviction.v1.getId(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private Entry newEntry(SessionState session) {
+        if (options.getContentStore() != null) {
+            session.useContentStore(options.getContentStore());
+        }
+
+        return new Entry(session);
+    }
+
+    private static class Entry {
+        private final SessionState session;
+        private Instant lastAccess = Instant.MIN;
+        private long sizeBytes;
+
+        private Entry(SessionState session) {
+            this.session = session;
+        }
+    }
+}
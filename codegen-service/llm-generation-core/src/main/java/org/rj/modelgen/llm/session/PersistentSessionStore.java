@@ -0,0 +1,330 @@
+package org.rj.modelgen.llm.session;
+
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.session.persistence.SessionConflictException;
+import org.rj.modelgen.llm.session.persistence.SessionPersistence;
+import org.rj.modelgen.llm.session.persistence.SessionSnapshotCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Session store backed by durable persistence, with an in-memory store as a cache of active sessions.  Sessions
+ * which are not held in memory, e.g. after a restart, after eviction, or when first accessed on this node, are
+ * loaded on demand.  Reactive callers should use {@link #lookup(String)}, which loads on a bounded elastic scheduler
+ * and so never blocks the calling thread; {@link #get(String)} and {@link #getOrCreate(String, Function)} load
+ * synchronously.
+ *
+ * Sessions are saved each time they are put to the store, and when they are evicted from memory.  The snapshot is
+ * encoded on the calling thread, so that it is consistent, and written by a background writer so that slow
+ * persistence does not block the request pipeline.  Sessions are assigned to one of a fixed set of writers by ID, so
+ * that each session is written in order while a slow session delays only the others sharing its writer.  Only the
+ * latest snapshot of a session is written, and any snapshot superseded while waiting is skipped, so the work queued
+ * for a session never exceeds one write however often it is saved.  Snapshots pending write are served to loads
+ * directly.  Sessions which expire from memory are retained in persistence until they are removed explicitly.
+ *
+ * Where persistence is shared between nodes, a session may be saved by another node while this node holds it in
+ * memory.  Each save is therefore conditional on the version last loaded or saved by this node, and a save which
+ * conflicts is discarded in favour of the newer state.  {@link #lookup(String)} revalidates a cached session against
+ * the persisted version, and reloads it if it has been saved elsewhere.  {@link #create(SessionState)} succeeds only if
+ * the session exists neither in memory nor in persistence
+ */
+public class PersistentSessionStore implements SessionStore, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentSessionStore.class);
+    private static final long CLOSE_TIMEOUT_SECONDS = 30L;
+    private static final int DEFAULT_WRITERS = 4;
+
+    private final SessionStore cache;
+    private final SessionPersistence persistence;
+    private final ConcurrentMap<String, byte[]> pending;
+    private final ConcurrentMap<String, String> versions;
+    private final Object completion;
+    private final ExecutorService[] writers;
+
+    /**
+     * @param cache             Store of the sessions held in memory
+     * @param persistence       Durable persistence of all sessions
+     */
+    public PersistentSessionStore(SessionStore cache, SessionPersistence persistence) {
+        this(cache, persistence, DEFAULT_WRITERS);
+    }
+
+    /**
+     * @param cache             Store of the sessions held in memory
+     * @param persistence       Durable persistence of all sessions
+     * @param writerCount       Number of background writers between which sessions are divided
+     */
+    public PersistentSessionStore(SessionStore cache, SessionPersistence persistence, int writerCount) {
+        if (writerCount < 1) throw new LlmGenerationModelException("Session store requires at least one writer");
+
+        this.cache = cache;
+        this.persistence = persistence;
+        this.pending = new ConcurrentHashMap<>();
+        this.versions = new ConcurrentHashMap<>();
+        this.completion = new Object();
+        this.writers = new ExecutorService[writerCount];
+        for (int i = 0; i < writerCount; ++i) {
+            final var name = "session-persistence-writer-" + i;
+            this.writers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                final var thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        cache.addEvictionListener((session, cause) -> {
+            if (cause != SessionEvictionListener.Cause.REMOVED) persist(session);
+        });
+    }
+
+    @Override
+    public Optional<SessionState> get(String id) {
+        final var cached = cache.get(id);
+        if (cached.isPresent()) return cached;
+
+        if (Schedulers.isInNonBlockingThread()) {
+            LOG.warn("Loading session {} synchronously on non-blocking thread {}", id, Thread.currentThread().getName());
+        }
+        return load(id);
+    }
+
+    /**
+     * Load the session if it is not held in memory, or revalidate the cached session against persistence.  Loads
+     * are performed on a bounded elastic scheduler
+     *
+     * @param id        Session ID
+     * @return          State of the session, if it exists
+     */
+    @Override
+    public Mono<Optional<SessionState>> lookup(String id) {
+        // Sessions with a save pending are already at the latest version known to this node
+        final var cached = cache.get(id);
+        if (cached.isPresent() && pending.containsKey(id)) return Mono.just(cached);
+
+        return Mono.fromCallable(() -> revalidate(id))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public SessionState getOrCreate(String id, Function<String, SessionState> sessionGenerator) {
+        return get(id).orElseGet(() -> cache.getOrCreate(id, sessionGenerator));
+    }
+
+    /**
+     * Add the state of a new session, unless a session with the same ID is held in memory or in persistence.  The
+     * session is claimed in memory and then saved on condition that it is absent from persistence, blocking until
+     * the save completes, so that sessions created concurrently by other nodes are not overwritten
+     *
+     * @param session       Session state
+     * @return              Whether the session was added
+     */
+    @Override
+    public boolean create(SessionState session) {
+        final var id = session.getId();
+        final var snapshot = SessionSnapshotCodec.encode(session);
+        if (pending.putIfAbsent(id, snapshot) != null) return false;
+
+        if (cache.getOrCreate(id, __ -> session) != session) {
+            pending.remove(id, snapshot);
+            return false;
+        }
+
+        // Saved by the writer of the session, so that the version is recorded before any later snapshot is written.
+        // Only writes of other sessions sharing the writer may be queued ahead of it, and each is at most one write
+        final var saved = writerFor(id).submit(() -> {
+            String version = null;
+            try {
+                version = persistence.save(id, snapshot, null);
+            }
+            catch (SessionConflictException ex) {
+                return false;
+            }
+            catch (Exception ex) {
+                LOG.warn("Failed to persist new session {} ({})", id, ex.getMessage());
+            }
+            finally {
+                synchronized (completion) {
+                    if (version != null) versions.put(id, version);
+                    pending.remove(id, snapshot);
+                }
+            }
+
+            return true;
+        });
+
+        try {
+            if (saved.get()) return true;
+        }
+        catch (ExecutionException ex) {
+            throw new LlmGenerationModelException(String.format("Failed to create session %s: %s", id, ex.getMessage()), ex);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LlmGenerationModelException(String.format("Interrupted creating session %s", id), ex);
+        }
+
+        // Session exists in persistence, having been created by another node, and is loaded by the next lookup
+        LOG.info("Session {} was already created by another node", id);
+        cache.remove(id);
+        return false;
+    }
+
+    @Override
+    public void put(SessionState session) {
+        cache.put(session);
+        persist(session);
+    }
+
+    @Override
+    public Optional<SessionState> remove(String id) {
+        final var removed = cache.remove(id);
+        pending.remove(id);
+        versions.remove(id);
+        writerFor(id).execute(() -> {
+            try {
+                persistence.delete(id);
+            }
+            catch (Exception ex) {
+                LOG.warn("Failed to delete persisted session {} ({})", id, ex.getMessage());
+            }
+        });
+
+        return removed;
+    }
+
+    /**
+     * @param id        Session ID
+     * @return          Whether the session is held in memory or pending write.  Persistence is not consulted, so
+     *                  sessions held only in persistence are reported only once loaded by {@link #lookup(String)}
+     */
+    @Override
+    public boolean contains(String id) {
+        return cache.contains(id) || pending.containsKey(id);
+    }
+
+    /**
+     * @param id        Session ID
+     * @return          Whether a snapshot of the session is waiting to be written to persistence
+     */
+    public boolean isPending(String id) {
+        return pending.containsKey(id);
+    }
+
+    /**
+     * @return      Number of sessions currently held in memory
+     */
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void addEvictionListener(SessionEvictionListener listener) {
+        cache.addEvictionListener(listener);
+    }
+
+    /**
+     * Write all pending snapshots and release the underlying persistence
+     */
+    @Override
+    public void close() {
+        for (final var writer : writers) writer.shutdown();
+        try {
+            final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CLOSE_TIMEOUT_SECONDS);
+            for (final var writer : writers) {
+                if (!writer.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    LOG.warn("Timed out writing {} pending session snapshots", pending.size());
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        persistence.close();
+    }
+
+    private Optional<SessionState> revalidate(String id) {
+        final var cached = cache.get(id);
+        if (cached.isEmpty()) return load(id);
+        if (pending.containsKey(id)) return cached;
+
+        // Sessions not yet persisted, or since deleted elsewhere, are retained as held in memory
+        final var current = persistence.getVersion(id);
+        if (current.isEmpty() || current.get().equals(versions.get(id))) return cached;
+
+        final var loaded = persistence.load(id);
+        if (loaded.isEmpty()) return cached;
+
+        LOG.info("Reloading session {} which was saved by another node (version {})", id, loaded.get().getVersion());
+        final var session = SessionSnapshotCodec.decode(loaded.get().getData());
+        cache.put(session);
+        versions.put(id, loaded.get().getVersion());
+        return Optional.of(session);
+    }
+
+    // Another thread may load the same session concurrently, in which case the first to be cached is retained
+    private Optional<SessionState> load(String id) {
+        // Loaded from a pending snapshot under the lock held by the writer on completion, so that the version
+        // recorded by the writer is retained for the cached session
+        synchronized (completion) {
+            final var snapshot = pending.get(id);
+            if (snapshot != null) return Optional.of(cache.getOrCreate(id, __ -> SessionSnapshotCodec.decode(snapshot)));
+        }
+
+        return persistence.load(id).map(loaded -> {
+            final var session = SessionSnapshotCodec.decode(loaded.getData());
+            final var cached = cache.getOrCreate(id, __ -> session);
+            if (cached == session) versions.put(id, loaded.getVersion());
+            return cached;
+        });
+    }
+
+    private void persist(SessionState session) {
+        final var id = session.getId();
+        final var snapshot = SessionSnapshotCodec.encode(session);
+        pending.put(id, snapshot);
+
+        writerFor(id).execute(() -> {
+            // Superseded by a later snapshot, which is written by its own task, or discarded by removal of the session
+            if (pending.get(id) != snapshot) return;
+
+            String version = null;
+            try {
+                version = persistence.save(id, snapshot, versions.get(id));
+            }
+            catch (SessionConflictException ex) {
+                // Newer state saved by another node is retained, and is reloaded by the next lookup on this node
+                versions.remove(id);
+                LOG.warn("Discarded stale snapshot of session {} ({})", id, ex.getMessage());
+            }
+            catch (Exception ex) {
+                LOG.warn("Failed to persist session {} ({})", id, ex.getMessage());
+            }
+            finally {
+                synchronized (completion) {
+                    if (version != null) versions.put(id, version);
+                    pending.remove(id, snapshot);
+
+                    // Versions are only retained for sessions held in memory
+                    if (version != null && !pending.containsKey(id) && !cache.contains(id)) versions.remove(id, version);
+                }
+            }
+        });
+    }
+
+    private ExecutorService writerFor(String id) {
+        return writers[Math.floorMod(id.hashCode(), writers.length)];
+    }
+}
@@ -0,0 +1,179 @@
+package org.rj.modelgen.llm.session;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Merges prompts submitted for a session while it is busy, so that they are executed as one request.  A prompt
+ * submitted to an idle session is executed immediately and alone.  Prompts submitted while an execution for the
+ * session is in progress are collected into a batch, and once the execution completes the batch is executed as a
+ * single request holding each of its prompts as an ordered list of instructions.  The batch therefore runs once,
+ * against the latest state of the session, rather than once per prompt.
+ *
+ * Every prompt in a batch receives the result of the combined execution.  Once a prompt has joined a batch the batch
+ * is executed regardless of whether its submitter remains subscribed, since other prompts may depend on it
+ *
+ * @param <T>       Result of an execution
+ */
+public class PromptCoalescer<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(PromptCoalescer.class);
+    public static final int DEFAULT_MAX_BATCH_SIZE = 8;
+
+    private final BiFunction<String, String, Mono<T>> execution;
+    private final int maxBatchSize;
+    private final Function<List<String>, String> merge;
+    private final Scheduler scheduler;
+    private final ConcurrentHashMap<String, Pipeline<T>> pipelines;
+
+    /**
+     * @param execution     Executes a prompt for the given session ID
+     */
+    public PromptCoalescer(BiFunction<String, String, Mono<T>> execution) {
+        this(execution, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param execution     Executes a prompt for the given session ID
+     * @param maxBatchSize  Maximum number of prompts merged into one request
+     */
+    public PromptCoalescer(BiFunction<String, String, Mono<T>> execution, int maxBatchSize) {
+        this(execution, maxBatchSize, PromptCoalescer::orderedInstructions, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param execution     Executes a prompt for the given session ID
+     * @param maxBatchSize  Maximum number of prompts merged into one request
+     * @param merge         Merges the prompts of a batch, in submission order, into a single prompt
+     * @param scheduler     Scheduler on which each batch is started
+     */
+    public PromptCoalescer(BiFunction<String, String, Mono<T>> execution, int maxBatchSize,
+                           Function<List<String>, String> merge, Scheduler scheduler) {
+        if (execution == null) throw new LlmGenerationConfigException("Prompt coalescer requires an execution");
+        if (maxBatchSize < 1) throw new LlmGenerationConfigException("Prompt coalescer batch size must be at least one");
+
+        this.execution = execution;
+        this.maxBatchSize = maxBatchSize;
+        this.merge = merge;
+        this.scheduler = scheduler;
+        this.pipelines = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Submit a prompt for a session.  The prompt is executed immediately if the session is idle, and otherwise
+     * merged with any other prompts submitted before the session next becomes idle
+     *
+     * @param sessionId     Session ID
+     * @param prompt        Prompt to be executed
+     * @return              Result of the execution which included this prompt
+     */
+    public Mono<T> submit(String sessionId, String prompt) {
+        if (sessionId == null) throw new LlmGenerationModelException("Cannot submit a prompt for a null session ID");
+
+        return Mono.defer(() -> {
+            final var joined = new AtomicReference<Batch<T>>();
+            final var start = new AtomicReference<Batch<T>>();
+            pipelines.compute(sessionId, (id, pipeline) -> {
+                final var target = (pipeline == null) ? new Pipeline<T>() : pipeline;
+                if (!target.running) {
+                    target.running = true;
+                    start.set(new Batch<>());
+                    joined.set(start.get());
+                }
+                else {
+                    if (target.pending.isEmpty() || target.pending.peekLast().prompts.size() >= maxBatchSize) {
+                        target.pending.addLast(new Batch<>());
+                    }
+                    joined.set(target.pending.peekLast());
+                }
+
+                joined.get().prompts.add(prompt);
+                return target;
+            });
+
+            if (start.get() != null) startBatch(sessionId, start.get());
+            return joined.get().result.asMono();
+        });
+    }
+
+    /**
+     * @param sessionId     Session ID
+     * @return              Number of prompts for the session waiting to be merged into a future execution
+     */
+    public int getPendingPrompts(String sessionId) {
+        final var pending = new AtomicInteger();
+        pipelines.computeIfPresent(sessionId, (id, pipeline) -> {
+            pending.set(pipeline.pending.stream().mapToInt(x -> x.prompts.size()).sum());
+            return pipeline;
+        });
+
+        return pending.get();
+    }
+
+    /**
+     * Default merge of a batch: a single prompt is executed unchanged, while several prompts are executed as a
+     * numbered list of instructions to be applied in order
+     *
+     * @param prompts       Prompts of a batch, in submission order
+     * @return              Merged prompt
+     */
+    public static String orderedInstructions(List<String> prompts) {
+        if (prompts.size() == 1) return prompts.get(0);
+
+        return "Apply each of the following changes, in order:\n" + IntStream.range(0, prompts.size())
+                .mapToObj(i -> String.format("%d. %s", i + 1, prompts.get(i).strip()))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private void startBatch(String sessionId, Batch<T> batch) {
+        // Prompts are only added to a batch while it is pending, so the batch is complete once started
+        final var prompts = List.copyOf(batch.prompts);
+        if (prompts.size() > 1) {
+            LOG.info("Session {} executing {} coalesced prompts as one request", sessionId, prompts.size());
+        }
+
+        Mono.defer(() -> execution.apply(sessionId, merge.apply(prompts)))
+                .subscribeOn(scheduler)
+                .doFinally(__ -> completed(sessionId))
+                .subscribe(batch.result::tryEmitValue, batch.result::tryEmitError, batch.result::tryEmitEmpty);
+    }
+
+    private void completed(String sessionId) {
+        final var next = new AtomicReference<Batch<T>>();
+        pipelines.computeIfPresent(sessionId, (id, pipeline) -> {
+            next.set(pipeline.pending.pollFirst());
+            pipeline.running = (next.get() != null);
+            return pipeline.running ? pipeline : null;
+        });
+
+        if (next.get() != null) startBatch(sessionId, next.get());
+    }
+
+    // Modified only within the compute functions of the pipeline map, which also publish changes to other threads
+    private static class Pipeline<T> {
+        private final Deque<Batch<T>> pending = new ArrayDeque<>();
+        private boolean running;
+    }
+
+    private static class Batch<T> {
+        private final List<String> prompts = new ArrayList<>();
+        private final Sinks.One<T> result = Sinks.one();
+    }
+}
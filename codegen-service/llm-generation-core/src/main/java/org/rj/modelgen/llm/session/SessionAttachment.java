@@ -0,0 +1,13 @@
+package org.rj.modelgen.llm.session;
+
+/**
+ * Application data held with a session, so that it shares the lifecycle of the session state and is evicted with it.
+ * Attachments are persisted with session snapshots, and so must be deserializable from their fields
+ */
+public interface SessionAttachment {
+    /**
+     * @return      Approximate heap size of the attachment data, counted towards the size of the session.  Read
+     *              each time the session is accessed, so should not scan the attachment data
+     */
+    long estimateSizeBytes();
+}
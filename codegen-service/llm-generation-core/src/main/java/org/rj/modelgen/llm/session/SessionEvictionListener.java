@@ -0,0 +1,19 @@
+package org.rj.modelgen.llm.session;
+
+/**
+ * Notified of each session removed from a session store.  Listeners are invoked after the session has been
+ * removed, on the thread which triggered the removal, and so must not block
+ */
+@FunctionalInterface
+public interface SessionEvictionListener {
+    enum Cause {
+        /** Session was idle for longer than the idle timeout */
+        EXPIRED,
+        /** Session was least recently used when the store exceeded its session count or size limit */
+        SIZE,
+        /** Session was removed explicitly */
+        REMOVED
+    }
+
+    void onEviction(SessionState session, Cause cause);
+}
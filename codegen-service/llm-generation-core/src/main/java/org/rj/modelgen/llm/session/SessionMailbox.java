@@ -0,0 +1,163 @@
+package org.rj.modelgen.llm.session;
+
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes the work submitted for each session, so that work for one session runs one task at a time in the
+ * order it was submitted while work for different sessions runs in parallel.  Each session with work outstanding
+ * has a mailbox: a queue with a single consumer, which starts the next task only once the previous task completes.
+ * Mailboxes are created on demand and discarded once empty, so idle sessions hold no resources.
+ *
+ * Tasks are asynchronous, and a session does not occupy a thread while its current task awaits e.g. a response
+ * from the LLM.  Each task is started on the given scheduler, so that a long queue of tasks which complete
+ * synchronously does not grow the stack of the thread which completes them
+ */
+public class SessionMailbox {
+    private final Scheduler scheduler;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes;
+
+    public SessionMailbox() {
+        this(Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param scheduler     Scheduler on which each task is started
+     */
+    public SessionMailbox(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        this.mailboxes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Submit a task for a session.  The task is started once all earlier tasks for the session have completed, and
+     * is not started at all if the returned publisher is cancelled before then
+     *
+     * @param sessionId     Session ID
+     * @param task          Supplies the work to be performed
+     * @return              Result of the task
+     */
+    public <T> Mono<T> submit(String sessionId, Supplier<Mono<T>> task) {
+        if (sessionId == null) throw new LlmGenerationModelException("Cannot submit work for a null session ID");
+
+        return Mono.create(sink -> {
+            final var job = new Job<>(sessionId, task, sink);
+            sink.onCancel(job::cancel);
+
+            final var start = new AtomicBoolean();
+            mailboxes.compute(sessionId, (id, mailbox) -> {
+                final var target = (mailbox == null) ? new Mailbox() : mailbox;
+                target.queue.add(job);
+                start.set(target.depth++ == 0);
+                return target;
+            });
+
+            if (start.get()) startNext(sessionId);
+        });
+    }
+
+    /**
+     * @param sessionId     Session ID
+     * @return              Number of tasks for the session which are running or waiting to run
+     */
+    public int getQueueDepth(String sessionId) {
+        return Optional.ofNullable(mailboxes.get(sessionId)).map(x -> x.depth).orElse(0);
+    }
+
+    /**
+     * @return      Number of tasks running or waiting to run, for each session with outstanding work
+     */
+    public Map<String, Integer> getQueueDepths() {
+        return mailboxes.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, x -> x.getValue().depth));
+    }
+
+    private void startNext(String sessionId) {
+        final var job = Optional.ofNullable(mailboxes.get(sessionId))
+                .map(mailbox -> mailbox.queue.poll())
+                .orElseThrow(() -> new LlmGenerationModelException(String.format("No mailbox exists for session %s", sessionId)));
+
+        scheduler.schedule(job::run);
+    }
+
+    private void completed(String sessionId) {
+        final var next = new AtomicBoolean();
+        mailboxes.computeIfPresent(sessionId, (id, mailbox) -> {
+            next.set(--mailbox.depth > 0);
+            return next.get() ? mailbox : null;
+        });
+
+        if (next.get()) startNext(sessionId);
+    }
+
+    private static class Mailbox {
+        private final Queue<Job<?>> queue = new ConcurrentLinkedQueue<>();
+        private volatile int depth;
+    }
+
+    private class Job<T> {
+        private final String sessionId;
+        private final Supplier<Mono<T>> task;
+        private final MonoSink<T> sink;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile Disposable subscription;
+        private volatile T result;
+
+        private Job(String sessionId, Supplier<Mono<T>> task, MonoSink<T> sink) {
+            this.sessionId = sessionId;
+            this.task = task;
+            this.sink = sink;
+        }
+
+        private void run() {
+            if (cancelled) {
+                complete();
+                return;
+            }
+
+            try {
+                // The mailbox moves on before the result is delivered, so that the task is no longer counted once its
+                // submitter sees the result
+                subscription = task.get().subscribe(
+                        value -> result = value,
+                        error -> { complete(); sink.error(error); },
+                        () -> { complete(); sink.success(result); });
+            }
+            catch (Exception ex) {
+                complete();
+                sink.error(ex);
+            }
+
+            if (cancelled) cancel();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Optional.ofNullable(subscription).ifPresent(x -> {
+                x.dispose();
+                complete();
+            });
+        }
+
+        // Each job completes exactly once, however it ends, so that the mailbox moves on to the next job
+        private void complete() {
+            if (done.compareAndSet(false, true)) {
+                completed(sessionId);
+            }
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package org.rj.modelgen.llm.session;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.rj.modelgen.llm.context.Context;
 import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.OffHeapContentStore;
 import org.rj.modelgen.llm.request.ModelRequest;
 import org.rj.modelgen.llm.response.ModelResponse;
 import org.rj.modelgen.llm.util.Constants;
@@ -10,14 +13,29 @@ import org.rj.modelgen.llm.util.Constants;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
+/**
+ * State of a generation session.  Requests for a session are serialized by the {@link SessionMailbox} of its model
+ * interface, but the state may also be read concurrently, e.g. when it is weighed or persisted by the session store,
+ * so counters are updated atomically and the context is replaced rather than modified in place.  The context and
+ * attachments maintain their size as they change, so that weighing the session on each access is O(1)
+ */
 public class SessionState {
     public static final SessionState NONE = new SessionState("<no-session>");
 
+    // Approximate fixed heap overhead of the session, and of each context entry, in size estimates
+    private static final long BASE_SIZE_BYTES = 512L;
+    private static final long ENTRY_SIZE_BYTES = 64L;
+
     private final String id;
-    private Context context;
+    private volatile Context context;
     private Integer totalTokensUsed = 0;
+    private Integer promptTokensUsed = 0;
+    private Integer cachedPromptTokensUsed = 0;
+    private Integer largestModelTokens = 0;
     private Integer estimatedCompressedTokenSize = 0;
     private Integer estimatedUncompressedTokenSize = 0;
     private Integer iterationsRequired;
@@ -25,11 +43,15 @@ public class SessionState {
     private Integer userPromptCount = 0;
     private Integer modelResponseCount = 0;
     private Map<String, Object> metadata;
+    private final ConcurrentMap<String, SessionAttachment> attachments;
+    private transient OffHeapContentStore contentStore;
 
-    public SessionState(String id) {
+    @JsonCreator
+    public SessionState(@JsonProperty("id") String id) {
         this.id = id;
         this.context = null;
         this.metadata = new HashMap<>();
+        this.attachments = new ConcurrentHashMap<>();
     }
 
     public String getId() {
@@ -42,22 +64,63 @@ public class SessionState {
 
     public Context getOrCreateContext(Supplier<Context> contextGenerator) {
         if (context == null) {
-            context = contextGenerator.get();
+            context = Optional.ofNullable(contextGenerator.get())
+                    .map(x -> x.withContentStore(contentStore))
+                    .orElse(null);
         }
 
         return context;
     }
     public void replaceContext(Context context) {
-        this.context = context;
+        this.context = (context != null) ? context.withContentStore(contentStore) : null;
+    }
+
+    /**
+     * Replace the current model state of the session, e.g. on checkout of an earlier version, without any request
+     * to the model.  Earlier model entries are superseded, and prompts are retained
+     *
+     * @param model     Serialized model
+     */
+    public void replaceModelState(String model) {
+        final var current = Optional.ofNullable(context).orElseGet(Context::new);
+        replaceContext(current.hasLatestModelEntry()
+                ? current.withModelState(model)
+                : current.withEntry(ContextEntry.forModel(model)));
+    }
+
+    /**
+     * Hold the content of this session's context off-heap in the given store, including any context assigned later
+     *
+     * @param store     Off-heap content store, or null to hold content on the heap
+     */
+    @JsonIgnore
+    public void useContentStore(OffHeapContentStore store) {
+        this.contentStore = store;
+        if (context != null) {
+            this.context = context.withContentStore(store);
+        }
     }
 
-    public void recordUserPrompt(ModelRequest modelRequest) {
+    public synchronized void recordUserPrompt(ModelRequest modelRequest) {
         // TODO
         userPromptCount++;
     }
-    public void recordModelResponse(ModelResponse response) {
-        // TODO
+    public synchronized void recordModelResponse(ModelResponse response) {
         modelResponseCount++;
+        if (response == null) return;
+
+        totalTokensUsed += response.getTotalTokenUsage();
+        promptTokensUsed += response.getPromptTokenUsage();
+        cachedPromptTokensUsed += response.getCachedPromptTokenUsage();
+    }
+
+    /**
+     * Record the size of a complete model generated in this session
+     *
+     * @param tokens    Token size of the model
+     */
+    public synchronized void recordModelSize(int tokens) {
+        largestModelTokens = Math.max(largestModelTokens, tokens);
     }
 
     @JsonIgnore
@@ -69,16 +132,35 @@ public class SessionState {
         return totalTokensUsed;
     }
     @JsonIgnore
-    public void addTotalTokensUsed(int tokens) {
+    public synchronized void addTotalTokensUsed(int tokens) {
         this.totalTokensUsed += tokens;
     }
 
+    public Integer getPromptTokensUsed() {
+        return promptTokensUsed;
+    }
+
+    /**
+     * @return      Prompt tokens which were served from the provider prompt cache, across all responses in the session
+     */
+    public Integer getCachedPromptTokensUsed() {
+        return cachedPromptTokensUsed;
+    }
+
+    /**
+     * @return      Token size of the largest complete model generated in this session, from which the size of
+     *              later responses can be estimated
+     */
+    public Integer getLargestModelTokens() {
+        return largestModelTokens;
+    }
+
     public Integer getEstimatedUncompressedTokenSize() {
         return estimatedUncompressedTokenSize;
     }
 
     @JsonIgnore
-    public void estimateNewUncompressedTokenSize(int newUncompressedDelta) {
+    public synchronized void estimateNewUncompressedTokenSize(int newUncompressedDelta) {
         // Would be submitting entire context again, along with the delta
         this.estimatedUncompressedTokenSize +=
                 (estimatedUncompressedTokenSize + newUncompressedDelta);
@@ -89,12 +171,12 @@ public class SessionState {
     }
 
     @JsonIgnore
-    public void estimateNewCompressedTokenSize(int estimatedCompressedTokenSize) {
+    public synchronized void estimateNewCompressedTokenSize(int estimatedCompressedTokenSize) {
         this.estimatedCompressedTokenSize += estimatedCompressedTokenSize;
     }
 
     @JsonIgnore
-    public void addEstimatedTokensForPrompt(ModelRequest prompt) {
+    public synchronized void addEstimatedTokensForPrompt(ModelRequest prompt) {
         // Uncompressed submission would need to re-submit all events so far, plus the new user prompt
         // If this is the first prompt (!hasLastResponse) then DO include the assistant tokens since we have to supply them on first request
         this.estimatedUncompressedTokenSize +=
@@ -105,7 +187,7 @@ public class SessionState {
     }
 
     @JsonIgnore
-    public void addEstimatedTokensForResponse(ModelResponse response) {
+    public synchronized void addEstimatedTokensForResponse(ModelResponse response) {
         // Both compressed and uncompressed scenarios will incur the same token cost for the response
         this.estimatedCompressedTokenSize += response.getResponseTokenUsage();
         this.estimatedUncompressedTokenSize += response.getResponseTokenUsage();
@@ -147,7 +229,7 @@ public class SessionState {
         return metadata;
     }
 
-    public void addMetadata(String key, String value) {
+    public synchronized void addMetadata(String key, String value) {
         metadata.put(key, value);
     }
 
@@ -155,10 +237,51 @@ public class SessionState {
         this.metadata = metadata;
     }
 
+    /**
+     * @param type      Attachment type
+     * @return          Application data of the given type held with this session, if any
+     */
+    @JsonIgnore
+    public <T extends SessionAttachment> Optional<T> getAttachment(Class<T> type) {
+        return Optional.ofNullable(attachments.get(type.getName())).map(type::cast);
+    }
+
+    /**
+     * @param type          Attachment type
+     * @param generator     Generates the attachment if the session does not yet hold one of this type
+     * @return              Application data of the given type held with this session
+     */
+    @JsonIgnore
+    public <T extends SessionAttachment> T getOrCreateAttachment(Class<T> type, Supplier<T> generator) {
+        return type.cast(attachments.computeIfAbsent(type.getName(), __ -> generator.get()));
+    }
+
+    /**
+     * @return      Approximate memory size of the session, dominated by the content of its context and attachments.
+     *              Content held off-heap is counted at its compressed size, so that session size limits also bound
+     *              off-heap memory; content shared between sessions is counted against each
+     */
+    @JsonIgnore
+    public long estimateSizeBytes() {
+        final var current = context;
+        final long contextSize = (current == null) ? 0L : (ENTRY_SIZE_BYTES * current.length()) + current.getContentSizeBytes();
+
+        long attachmentSize = 0L;
+        for (final var attachment : attachments.values()) {
+            attachmentSize += attachment.estimateSizeBytes();
+        }
+
+        return BASE_SIZE_BYTES + contextSize + attachmentSize;
+    }
+
     @JsonIgnore
     public void controlTokensResolved() {
-        context.getData().stream()
-                .filter(x -> x.getContent() != null)
-                .forEach(x -> x.setContent(x.getContent().replaceAll(Constants.PATTERN_LOAD.toString(), "")));
+        replaceContext(context.withMappedEntries(x -> {
+            final var content = x.getContent();
+            if (content == null) return x;
+
+            final var resolved = content.replaceAll(Constants.PATTERN_LOAD.toString(), "");
+            return resolved.equals(content) ? x : new ContextEntry(x.getRole(), resolved);
+        }));
     }
 }
@@ -0,0 +1,87 @@
+package org.rj.modelgen.llm.session;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Registry of the state of all active sessions.  Implementations may evict sessions at any time, e.g. when idle or
+ * to bound memory use, in which case registered eviction listeners are notified
+ */
+public interface SessionStore {
+    /**
+     * @param id        Session ID
+     * @return          State of the session, if it exists and has not been evicted
+     */
+    Optional<SessionState> get(String id);
+
+    /**
+     * Non-blocking equivalent of {@link #get(String)}, for use within reactive pipelines.  Stores which may need to
+     * load a session from elsewhere perform the load off the calling thread
+     *
+     * @param id        Session ID
+     * @return          State of the session, if it exists and has not been evicted
+     */
+    default Mono<Optional<SessionState>> lookup(String id) {
+        return Mono.fromSupplier(() -> get(id));
+    }
+
+    /**
+     * @param id                Session ID
+     * @param sessionGenerator  Generates state for the session if it does not exist
+     * @return                  State of the session
+     */
+    SessionState getOrCreate(String id, Function<String, SessionState> sessionGenerator);
+
+    /**
+     * Add the state of a new session, unless a session already exists with the same ID.  The check and the addition
+     * are a single atomic operation
+     *
+     * @param session       Session state
+     * @return              Whether the session was added
+     */
+    default boolean create(SessionState session) {
+        return getOrCreate(session.getId(), __ -> session) == session;
+    }
+
+    /**
+     * Add or replace the state of a session
+     *
+     * @param session       Session state
+     */
+    void put(SessionState session);
+
+    /**
+     * Remove a session.  Eviction listeners are notified of the removal
+     *
+     * @param id        Session ID
+     * @return          State of the removed session, if it existed
+     */
+    Optional<SessionState> remove(String id);
+
+    /**
+     * @param id        Session ID
+     * @return          Whether the session exists and has not been evicted
+     */
+    boolean contains(String id);
+
+    /**
+     * @return          Number of sessions currently held
+     */
+    int size();
+
+    /**
+     * Register a listener which is notified of each session removed from the store
+     *
+     * @param listener      Eviction listener
+     */
+    void addEvictionListener(SessionEvictionListener listener);
+
+    /**
+     * @return      Session store bounded by the default idle timeout, session count and size
+     */
+    static SessionStore defaultStore() {
+        return new BoundedSessionStore(SessionStoreOptions.defaultOptions());
+    }
+}
@@ -0,0 +1,95 @@
+package org.rj.modelgen.llm.session;
+
+import org.rj.modelgen.llm.context.OffHeapContentStore;
+
+import java.time.Duration;
+
+public class SessionStoreOptions {
+    private Duration idleTimeout = Duration.ofHours(1);
+    private int maxSessions = 10000;
+    private long maxSizeBytes = 512L * 1024 * 1024;
+    private OffHeapContentStore contentStore = null;
+
+    public SessionStoreOptions() { }
+
+    public static SessionStoreOptions defaultOptions() {
+        return new SessionStoreOptions();
+    }
+
+    /**
+     * @return      Options with no limits, under which sessions are never evicted
+     */
+    public static SessionStoreOptions unbounded() {
+        return new SessionStoreOptions()
+                .withIdleTimeout(null)
+                .withMaxSessions(Integer.MAX_VALUE)
+                .withMaxSizeBytes(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return      Time since its last access after which a session expires, or null if sessions do not expire
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public SessionStoreOptions withIdleTimeout(Duration idleTimeout) {
+        setIdleTimeout(idleTimeout);
+        return this;
+    }
+
+    /**
+     * @return      Maximum number of sessions held, beyond which the least recently used are evicted
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public SessionStoreOptions withMaxSessions(int maxSessions) {
+        setMaxSessions(maxSessions);
+        return this;
+    }
+
+    /**
+     * @return      Maximum approximate memory size of all sessions held, beyond which the least recently used are
+     *              evicted.  Sessions are weighed by their context and attachment data, including any content held
+     *              off-heap
+     */
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public SessionStoreOptions withMaxSizeBytes(long maxSizeBytes) {
+        setMaxSizeBytes(maxSizeBytes);
+        return this;
+    }
+
+    /**
+     * @return      Store in which the context content of all sessions is held off-heap, or null to hold content on
+     *              the heap.  Off-heap content counts towards the size limit at its compressed size
+     */
+    public OffHeapContentStore getContentStore() {
+        return contentStore;
+    }
+
+    public void setContentStore(OffHeapContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    public SessionStoreOptions withContentStore(OffHeapContentStore contentStore) {
+        setContentStore(contentStore);
+        return this;
+    }
+}
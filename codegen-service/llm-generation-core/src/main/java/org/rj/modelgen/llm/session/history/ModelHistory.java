@@ -0,0 +1,275 @@
+package org.rj.modelgen.llm.session.history;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jooq.lambda.tuple.Tuple2;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.intrep.delta.JsonDiff;
+import org.rj.modelgen.llm.intrep.delta.JsonPatch;
+import org.rj.modelgen.llm.session.SessionAttachment;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Version history of the model generated in a session, held as a session attachment.  Each revision is stored as a
+ * structural delta (JSON patch) from its parent, with a complete snapshot at intervals so that any version can be
+ * reconstructed from a bounded number of deltas.  History memory therefore grows with the size of each edit rather
+ * than with the size of the model.
+ *
+ * Versions are immutable and form a tree: committing after an undo or checkout starts a new branch from that
+ * version, and earlier branches remain available for checkout.  A history can be forked in O(1) for a new session;
+ * versions are shared between forks until either commits a new version.
+ *
+ * Each version records the prompt from which it was generated, so that the session context can be rewound along
+ * with the model when another version is made current
+ */
+public class ModelHistory implements SessionAttachment {
+    private static final int SNAPSHOT_INTERVAL = 32;
+    private static final long VERSION_SIZE_BYTES = 64L;
+
+    private List<ModelVersion> versions;
+    private int head;
+    private List<Integer> redo;
+    private transient boolean shared;
+    private transient Tuple2<Integer, JsonNode> cached;
+    private transient volatile long sizeBytes;
+
+    public ModelHistory() {
+        this(new ArrayList<>(), ModelVersion.NONE, 0L);
+    }
+
+    // Restored from a session snapshot, measuring the restored versions once so that the size is then maintained
+    @JsonCreator
+    private ModelHistory(@JsonProperty("versions") List<ModelVersion> versions, @JsonProperty("head") int head,
+                         @JsonProperty("redo") List<Integer> redo) {
+        this(new ArrayList<>(Optional.ofNullable(versions).orElseGet(List::of)), head, 0L);
+        this.redo.addAll(Optional.ofNullable(redo).orElseGet(List::of));
+        this.sizeBytes = this.versions.stream().mapToLong(ModelHistory::sizeOf).sum();
+    }
+
+    private ModelHistory(List<ModelVersion> versions, int head, long sizeBytes) {
+        this.versions = versions;
+        this.head = head;
+        this.redo = new ArrayList<>();
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * Record a new version of the model as a child of the current version, and make it the current version.  Redo
+     * is no longer possible once a new version is committed
+     *
+     * @param model     Serialized model
+     * @return          ID of the new version, or of the current version if the model is unchanged
+     */
+    public int commit(String model) {
+        return commit(model, null);
+    }
+
+    /**
+     * Record a new version of the model as a child of the current version, and make it the current version.  Redo
+     * is no longer possible once a new version is committed.  Only models which are JSON documents are accepted, so
+     * that a response which could not be parsed is never recorded as a version
+     *
+     * @param model     Serialized model
+     * @param prompt    Prompt from which the model was generated, as held in the session context, or null if none
+     * @return          ID of the new version, or of the current version if the model is unchanged
+     */
+    public synchronized int commit(String model, String prompt) {
+        if (model == null) throw new LlmGenerationModelException("Cannot commit a null model to session history");
+
+        final var node = parse(model);
+        if (node == null || !node.isObject()) {
+            throw new LlmGenerationModelException("Cannot commit a model which is not a JSON document to session history");
+        }
+
+        final var parent = (head == ModelVersion.NONE) ? null : versions.get(head);
+        final var parentNode = (parent == null) ? null : materializeNode(parent);
+        if (parent != null && node.equals(parentNode)) {
+            return head;
+        }
+
+        String content = model;
+        boolean snapshot = true;
+        int depth = 0;
+        if (parentNode != null && parent.getDepth() + 1 < SNAPSHOT_INTERVAL) {
+            final var patch = Util.serializeOrThrow(JsonDiff.diff(parentNode, node));
+            if (patch.length() < model.length()) {
+                content = patch;
+                snapshot = false;
+                depth = parent.getDepth() + 1;
+            }
+        }
+
+        if (shared) {
+            versions = new ArrayList<>(versions);
+            shared = false;
+        }
+
+        final var version = new ModelVersion(versions.size(), head, snapshot, depth, content, prompt, model.length(), System.currentTimeMillis());
+        versions.add(version);
+        sizeBytes += sizeOf(version);
+        head = version.getId();
+        redo.clear();
+        cached = tuple(head, node);
+
+        return head;
+    }
+
+    /**
+     * Move to the parent of the current version
+     *
+     * @return      Model at the new current version, if the current version has a parent
+     */
+    public synchronized Optional<String> undo() {
+        if (head == ModelVersion.NONE || versions.get(head).getParent() == ModelVersion.NONE) return Optional.empty();
+
+        redo.add(head);
+        head = versions.get(head).getParent();
+        return Optional.of(getModel(head));
+    }
+
+    /**
+     * Move to the version most recently undone
+     *
+     * @return      Model at the new current version, if any undo can be reversed
+     */
+    public synchronized Optional<String> redo() {
+        if (redo.isEmpty()) return Optional.empty();
+
+        head = redo.remove(redo.size() - 1);
+        return Optional.of(getModel(head));
+    }
+
+    /**
+     * Make the given version current, so that later commits branch from it
+     *
+     * @param id        Version ID
+     * @return          Model at the given version
+     */
+    public synchronized String checkout(int id) {
+        final var model = getModel(id);
+        head = id;
+        redo.clear();
+
+        return model;
+    }
+
+    /**
+     * @return      Independent copy of this history, sharing all existing versions with it
+     */
+    public synchronized ModelHistory fork() {
+        shared = true;
+
+        final var fork = new ModelHistory(versions, head, sizeBytes);
+        fork.shared = true;
+        fork.redo.addAll(redo);
+        fork.cached = cached;
+        return fork;
+    }
+
+    /**
+     * @param id    Version ID
+     * @return      Model at the given version
+     */
+    public synchronized String getModel(int id) {
+        final var version = getVersion(id);
+        if (version.isSnapshot()) return version.getContent();
+
+        return Util.serializeOrThrow(materializeNode(version));
+    }
+
+    /**
+     * Rebuild the session context at the given version: the prompt from which each version was generated, from the
+     * initial version to the given version, followed by the model at that version.  Earlier models are superseded by
+     * the latest, so are not included
+     *
+     * @param id    Version ID
+     * @return      Session context at the given version
+     */
+    public synchronized Context getContext(int id) {
+        final var entries = new ArrayList<ContextEntry>();
+        for (var version = getVersion(id); ; version = versions.get(version.getParent())) {
+            if (version.getPrompt() != null) entries.add(ContextEntry.forUser(version.getPrompt()));
+            if (version.getParent() == ModelVersion.NONE) break;
+        }
+        Collections.reverse(entries);
+
+        entries.add(ContextEntry.forModel(getModel(id)));
+        return new Context(entries);
+    }
+
+    /**
+     * @return      ID of the current version, or {@link ModelVersion#NONE} if no version has been committed
+     */
+    public synchronized int getCurrentVersion() {
+        return head;
+    }
+
+    /**
+     * @return      All versions, in order of creation
+     */
+    public synchronized List<ModelVersion> getVersions() {
+        return List.copyOf(versions);
+    }
+
+    public synchronized boolean isUndoAvailable() {
+        return head != ModelVersion.NONE && versions.get(head).getParent() != ModelVersion.NONE;
+    }
+
+    public synchronized boolean isRedoAvailable() {
+        return !redo.isEmpty();
+    }
+
+    @Override
+    @JsonIgnore
+    public long estimateSizeBytes() {
+        return sizeBytes;
+    }
+
+    private static long sizeOf(ModelVersion version) {
+        return VERSION_SIZE_BYTES + version.getStoredLength() + (version.getPrompt() != null ? version.getPrompt().length() : 0);
+    }
+
+    private ModelVersion getVersion(int id) {
+        if (id < 0 || id >= versions.size()) {
+            throw new LlmGenerationModelException(String.format("Session history has no version %d", id));
+        }
+
+        return versions.get(id);
+    }
+
+    /**
+     * @return      Model at the given version, reconstructed from the nearest snapshot, or null if the model is not
+     *              a JSON document, as may be held by histories restored from before models were validated
+     */
+    private JsonNode materializeNode(ModelVersion version) {
+        if (cached != null && cached.v1 == version.getId()) return cached.v2;
+        if (version.isSnapshot()) return parse(version.getContent());
+
+        final var parentNode = materializeNode(versions.get(version.getParent()));
+        final var patch = parse(version.getContent());
+        final var node = JsonPatch.apply(parentNode, patch);
+
+        cached = tuple(version.getId(), node);
+        return node;
+    }
+
+    private static JsonNode parse(String content) {
+        try {
+            return Util.getObjectMapper().readTree(content);
+        }
+        catch (Exception ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.rj.modelgen.llm.session.history;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Immutable revision of the model in a {@link ModelHistory}.  Each version holds either a complete snapshot of the
+ * model, or a structural delta from its parent version
+ */
+public class ModelVersion {
+    public static final int NONE = -1;
+
+    private int id;
+    private int parent;
+    private boolean snapshot;
+    private int depth;
+    private String content;
+    private String prompt;
+    private int modelLength;
+    private long createdAt;
+
+    private ModelVersion() { }
+
+    ModelVersion(int id, int parent, boolean snapshot, int depth, String content, String prompt, int modelLength, long createdAt) {
+        this.id = id;
+        this.parent = parent;
+        this.snapshot = snapshot;
+        this.depth = depth;
+        this.content = content;
+        this.prompt = prompt;
+        this.modelLength = modelLength;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return      ID of the version from which this version was derived, or {@link #NONE} for an initial version
+     */
+    public int getParent() {
+        return parent;
+    }
+
+    /**
+     * @return      Whether this version holds a complete snapshot of the model, rather than a delta
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return      Number of deltas between this version and the nearest snapshot from which it is reconstructed
+     */
+    @JsonIgnore
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return      Length of the model at this version
+     */
+    public int getModelLength() {
+        return modelLength;
+    }
+
+    /**
+     * @return      Length of the snapshot or delta held for this version
+     */
+    public int getStoredLength() {
+        return content.length();
+    }
+
+    /**
+     * @return      Time at which the version was created, in epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return      Serialized model snapshot, or serialized JSON patch from the parent version
+     */
+    String getContent() {
+        return content;
+    }
+
+    /**
+     * @return      Prompt from which this version was generated, as held in the session context, or null if the
+     *              version was not generated from a prompt
+     */
+    String getPrompt() {
+        return prompt;
+    }
+}
@@ -0,0 +1,282 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded session persistence in a single append-only log file.  Each save or delete appends a record, and an
+ * in-memory index locates the latest snapshot of each session.  The log is compacted by rewriting only the latest
+ * snapshots once superseded records exceed a proportion of the file.
+ *
+ * Records are {@code length | crc32 | op | idLength | id | snapshot}, where the length covers all fields after
+ * itself and the checksum covers all fields after itself.  The index is rebuilt from the log on opening, and any
+ * incomplete or corrupt record at the end of the log, e.g. from a failed write, is truncated.
+ *
+ * Snapshot versions are assigned from a sequence held in memory, since the log is owned by a single process; versions
+ * are retained through compaction but are reassigned when the log is reopened
+ */
+public class FileSessionPersistence implements SessionPersistence {
+    private static final Logger LOG = LoggerFactory.getLogger(FileSessionPersistence.class);
+
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int LENGTH_SIZE = Integer.BYTES;
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Short.BYTES;    // crc, op, id length
+
+    private final FileSessionPersistenceOptions options;
+    private final Path file;
+    private final Map<String, Location> index;
+    private FileChannel channel;
+    private long size;
+    private long garbageBytes;
+    private long sequence;
+
+    public FileSessionPersistence(FileSessionPersistenceOptions options) {
+        this.options = options;
+        this.file = options.getDirectory().resolve(options.getFileName());
+        this.index = new HashMap<>();
+
+        try {
+            Files.createDirectories(options.getDirectory());
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to open session log %s: %s", file, ex.getMessage()), ex);
+        }
+
+        LOG.info("Opened session log {} with {} sessions ({} bytes)", file, index.size(), size);
+    }
+
+    @Override
+    public synchronized Optional<SessionSnapshot> load(String id) {
+        final var location = index.get(id);
+        if (location == null) return Optional.empty();
+
+        try {
+            final var snapshot = ByteBuffer.allocate(location.snapshotLength);
+            readFully(channel, snapshot, location.snapshotOffset);
+            return Optional.of(new SessionSnapshot(snapshot.array(), String.valueOf(location.version)));
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationModelException(String.format("Failed to read session %s from session log: %s", id, ex.getMessage()), ex);
+        }
+    }
+
+    @Override
+    public synchronized Optional<String> getVersion(String id) {
+        return Optional.ofNullable(index.get(id)).map(x -> String.valueOf(x.version));
+    }
+
+    @Override
+    public synchronized String save(String id, byte[] snapshot, String expectedVersion) {
+        final var current = getVersion(id).orElse(null);
+        if (!Objects.equals(current, expectedVersion)) {
+            throw new SessionConflictException(String.format("Session %s is at version %s, not the expected version %s", id, current, expectedVersion));
+        }
+
+        return String.valueOf(append(OP_SAVE, id, snapshot).version);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        if (index.containsKey(id)) {
+            append(OP_DELETE, id, new byte[0]);
+        }
+    }
+
+    /**
+     * Rewrite the log with only the latest snapshot of each session
+     */
+    public synchronized void compact() {
+        final var compacted = file.resolveSibling(file.getFileName() + ".compacting");
+        final var compactedIndex = new HashMap<String, Location>();
+        long compactedSize = 0L;
+
+        try (final var target = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (final var entry : index.entrySet()) {
+                final var snapshot = ByteBuffer.allocate(entry.getValue().snapshotLength);
+                readFully(channel, snapshot, entry.getValue().snapshotOffset);
+
+                final var record = encodeRecord(OP_SAVE, entry.getKey(), snapshot.array());
+                final var recordLength = record.remaining();
+                writeFully(target, record, compactedSize);
+                compactedIndex.put(entry.getKey(), new Location(compactedSize + recordLength - snapshot.capacity(), snapshot.capacity(), recordLength, entry.getValue().version));
+                compactedSize += recordLength;
+            }
+            target.force(true);
+        }
+        catch (IOException ex) {
+            LOG.warn("Failed to compact session log {}: {}", file, ex.getMessage());
+            return;
+        }
+
+        try {
+            channel.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationModelException(String.format("Failed to replace session log %s after compaction: %s", file, ex.getMessage()), ex);
+        }
+
+        LOG.info("Compacted session log {} from {} to {} bytes", file, size, compactedSize);
+        index.clear();
+        index.putAll(compactedIndex);
+        size = compactedSize;
+        garbageBytes = 0L;
+    }
+
+    /**
+     * @return      Current size of the log file
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.force(true);
+            channel.close();
+        }
+        catch (IOException ex) {
+            LOG.warn("Failed to close session log {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private Location append(byte op, String id, byte[] snapshot) {
+        final var record = encodeRecord(op, id, snapshot);
+        final var recordLength = record.remaining();
+
+        try {
+            writeFully(channel, record, size);
+            if (options.shouldSyncOnWrite()) channel.force(false);
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationModelException(String.format("Failed to write session %s to session log: %s", id, ex.getMessage()), ex);
+        }
+
+        final var location = new Location(size + recordLength - snapshot.length, snapshot.length, recordLength, ++sequence);
+        apply(op, id, location);
+        size += recordLength;
+
+        if (size >= options.getCompactionThresholdBytes() && garbageBytes > size * options.getCompactionGarbageRatio()) {
+            compact();
+        }
+        return location;
+    }
+
+    private void apply(byte op, String id, Location location) {
+        final var previous = (op == OP_SAVE) ? index.put(id, location) : index.remove(id);
+        if (previous != null) garbageBytes += previous.recordLength;
+        if (op == OP_DELETE) garbageBytes += location.recordLength;
+    }
+
+    /**
+     * Rebuild the index from the log, truncating any incomplete or corrupt record at the end
+     */
+    private void recover() throws IOException {
+        final var fileSize = channel.size();
+        final var lengthBuffer = ByteBuffer.allocate(LENGTH_SIZE);
+        long position = 0L;
+
+        while (position + LENGTH_SIZE <= fileSize) {
+            lengthBuffer.clear();
+            readFully(channel, lengthBuffer, position);
+            final var length = lengthBuffer.getInt(0);
+            if (length < HEADER_SIZE || position + LENGTH_SIZE + length > fileSize) break;
+
+            final var body = ByteBuffer.allocate(length);
+            readFully(channel, body, position + LENGTH_SIZE);
+            body.flip();
+
+            final var crc = body.getInt();
+            if (crc != checksum(body.array(), Integer.BYTES, length - Integer.BYTES)) break;
+
+            final var op = body.get();
+            if (op != OP_SAVE && op != OP_DELETE) break;
+
+            final var idBytes = new byte[body.getShort() & 0xFFFF];
+            body.get(idBytes);
+
+            final var recordLength = LENGTH_SIZE + length;
+            final var snapshotLength = body.remaining();
+            apply(op, new String(idBytes, StandardCharsets.UTF_8), new Location(position + recordLength - snapshotLength, snapshotLength, recordLength, ++sequence));
+            position += recordLength;
+        }
+
+        if (position < fileSize) {
+            LOG.warn("Truncating incomplete or corrupt record at offset {} of session log {} ({} bytes discarded)", position, file, fileSize - position);
+            channel.truncate(position);
+        }
+        size = position;
+    }
+
+    private static ByteBuffer encodeRecord(byte op, String id, byte[] snapshot) {
+        final var idBytes = id.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > 0xFFFF) throw new LlmGenerationModelException("Session ID is too long to be persisted");
+
+        final var length = HEADER_SIZE + idBytes.length + snapshot.length;
+        final var record = ByteBuffer.allocate(LENGTH_SIZE + length);
+        record.putInt(length)
+                .putInt(0)
+                .put(op)
+                .putShort((short)idBytes.length)
+                .put(idBytes)
+                .put(snapshot);
+
+        record.putInt(LENGTH_SIZE, checksum(record.array(), LENGTH_SIZE + Integer.BYTES, length - Integer.BYTES));
+        return record.flip();
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        final var crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int)crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            final var read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of session log");
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        final var start = buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - start);
+        }
+    }
+
+    private static class Location {
+        private final long snapshotOffset;
+        private final int snapshotLength;
+        private final int recordLength;
+        private final long version;
+
+        private Location(long snapshotOffset, int snapshotLength, int recordLength, long version) {
+            this.snapshotOffset = snapshotOffset;
+            this.snapshotLength = snapshotLength;
+            this.recordLength = recordLength;
+            this.version = version;
+        }
+    }
+}
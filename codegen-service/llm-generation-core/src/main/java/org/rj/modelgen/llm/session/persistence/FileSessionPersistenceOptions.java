@@ -0,0 +1,93 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import java.nio.file.Path;
+
+public class FileSessionPersistenceOptions {
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "llm-sessions");
+    private String fileName = "sessions.log";
+    private long compactionThresholdBytes = 64L * 1024 * 1024;
+    private double compactionGarbageRatio = 0.5;
+    private boolean syncOnWrite = false;
+
+    public FileSessionPersistenceOptions() { }
+
+    public static FileSessionPersistenceOptions defaultOptions() {
+        return new FileSessionPersistenceOptions();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public FileSessionPersistenceOptions withDirectory(Path directory) {
+        setDirectory(directory);
+        return this;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public FileSessionPersistenceOptions withFileName(String fileName) {
+        setFileName(fileName);
+        return this;
+    }
+
+    /**
+     * @return      Size of the log below which it is never compacted
+     */
+    public long getCompactionThresholdBytes() {
+        return compactionThresholdBytes;
+    }
+
+    public void setCompactionThresholdBytes(long compactionThresholdBytes) {
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    public FileSessionPersistenceOptions withCompactionThresholdBytes(long compactionThresholdBytes) {
+        setCompactionThresholdBytes(compactionThresholdBytes);
+        return this;
+    }
+
+    /**
+     * @return      Proportion of the log, in the range [0.0 1.0], which may be held by superseded or deleted
+     *              snapshots before it is compacted
+     */
+    public double getCompactionGarbageRatio() {
+        return compactionGarbageRatio;
+    }
+
+    public void setCompactionGarbageRatio(double compactionGarbageRatio) {
+        this.compactionGarbageRatio = compactionGarbageRatio;
+    }
+
+    public FileSessionPersistenceOptions withCompactionGarbageRatio(double compactionGarbageRatio) {
+        setCompactionGarbageRatio(compactionGarbageRatio);
+        return this;
+    }
+
+    /**
+     * @return      Whether each write is synced to the storage device before it completes.  If disabled, the most
+     *              recent writes may be lost if the host fails, though not if only the process fails
+     */
+    public boolean shouldSyncOnWrite() {
+        return syncOnWrite;
+    }
+
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    public FileSessionPersistenceOptions withSyncOnWrite(boolean syncOnWrite) {
+        setSyncOnWrite(syncOnWrite);
+        return this;
+    }
+}
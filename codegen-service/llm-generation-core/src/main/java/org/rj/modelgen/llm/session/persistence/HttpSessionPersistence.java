@@ -0,0 +1,150 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Session persistence in a networked key-value service shared between nodes, so that any node can serve any
+ * session.  Snapshots are stored as binary objects at {@code <baseUri>/<session-id>} using plain HTTP GET, HEAD, PUT
+ * and DELETE, which is supported directly by most object stores, WebDAV servers and key-value gateways.
+ *
+ * The entity tag of each object is its version.  Saves are conditional, using {@code If-Match} with the expected
+ * version or {@code If-None-Match: *} if the session is not expected to exist, and the service must reject a save
+ * whose precondition fails with status 412.
+ *
+ * Requests are blocking, and are made either on a bounded elastic scheduler or from the background writer of a
+ * {@link org.rj.modelgen.llm.session.PersistentSessionStore}.  A request which fails at the connection level, e.g.
+ * on a pooled connection closed by the server, is retried once within the same overall timeout.  Requests are
+ * idempotent: a save whose precondition fails is compared with the stored snapshot, so that a save applied by a
+ * first attempt is not reported as a conflict on retry.  Timed out requests are never retried, since the first
+ * attempt may still be in progress
+ */
+public class HttpSessionPersistence implements SessionPersistence {
+    private static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final URI baseUri;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * @param baseUri       URI under which session snapshots are stored
+     * @param timeout       Overall timeout of each operation, including any retry
+     */
+    public HttpSessionPersistence(URI baseUri, Duration timeout) {
+        this.baseUri = baseUri.toString().endsWith("/") ? baseUri : URI.create(baseUri + "/");
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public Optional<SessionSnapshot> load(String id) {
+        final var response = send(id, request(id).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 404) return Optional.empty();
+
+        checkStatus(id, response);
+        return Optional.of(new SessionSnapshot(response.body(), getEntityTag(id, response)));
+    }
+
+    @Override
+    public Optional<String> getVersion(String id) {
+        final var response = send(id, request(id).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) return Optional.empty();
+
+        checkStatus(id, response);
+        return Optional.of(getEntityTag(id, response));
+    }
+
+    @Override
+    public String save(String id, byte[] snapshot, String expectedVersion) {
+        final var request = request(id)
+                .header("Content-Type", CONTENT_TYPE)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(snapshot));
+
+        if (expectedVersion != null) request.header("If-Match", expectedVersion);
+        else request.header("If-None-Match", "*");
+
+        final var response = send(id, request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 412) {
+            final var stored = load(id).orElse(null);
+            if (stored != null && Arrays.equals(stored.getData(), snapshot)) return stored.getVersion();
+
+            throw new SessionConflictException(String.format("Session %s at %s is not at the expected version %s", id, baseUri, expectedVersion));
+        }
+
+        checkStatus(id, response);
+
+        // Services which do not return the new entity tag from a PUT report it on a subsequent HEAD
+        return response.headers().firstValue("ETag")
+                .or(() -> getVersion(id))
+                .orElseThrow(() -> new LlmGenerationModelException(String.format("Session %s was not found at %s after being saved", id, baseUri)));
+    }
+
+    @Override
+    public void delete(String id) {
+        final var response = send(id, request(id).DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 404) checkStatus(id, response);
+    }
+
+    @Override
+    public void close() { }
+
+    private HttpRequest.Builder request(String id) {
+        return HttpRequest.newBuilder(baseUri.resolve(URLEncoder.encode(id, StandardCharsets.UTF_8)))
+                .timeout(timeout);
+    }
+
+    private <T> HttpResponse<T> send(String id, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            try {
+                return client.send(request, bodyHandler);
+            }
+            catch (HttpTimeoutException ex) {
+                throw ex;
+            }
+            catch (IOException ex) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) throw ex;
+
+                return client.send(HttpRequest.newBuilder(request, (name, value) -> true)
+                        .timeout(Duration.ofNanos(remaining))
+                        .build(), bodyHandler);
+            }
+        }
+        catch (IOException ex) {
+            throw new LlmGenerationModelException(String.format("Failed to %s session %s at %s: %s", request.method(), id, baseUri, ex.getMessage()), ex);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LlmGenerationModelException(String.format("Interrupted during %s of session %s", request.method(), id), ex);
+        }
+    }
+
+    private String getEntityTag(String id, HttpResponse<?> response) {
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new LlmGenerationConfigException(String.format("Session store at %s does not report an entity tag for session %s, " +
+                        "which is required for conditional saves", baseUri, id)));
+    }
+
+    private void checkStatus(String id, HttpResponse<?> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new LlmGenerationModelException(String.format("Failed to %s session %s at %s (status %d)",
+                    response.request().method(), id, baseUri, response.statusCode()));
+        }
+    }
+}
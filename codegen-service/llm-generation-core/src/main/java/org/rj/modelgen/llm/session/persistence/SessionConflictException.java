@@ -0,0 +1,18 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.io.Serial;
+
+/**
+ * Thrown when a session snapshot is not saved because the stored session is not at the expected version, e.g. because
+ * it was saved by another node since it was loaded
+ */
+public class SessionConflictException extends LlmGenerationModelException {
+    @Serial
+    private static final long serialVersionUID = -1;
+
+    public SessionConflictException(String message) {
+        super(message);
+    }
+}
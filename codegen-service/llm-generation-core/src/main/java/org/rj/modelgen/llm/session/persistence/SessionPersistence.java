@@ -0,0 +1,50 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import java.util.Optional;
+
+/**
+ * Durable storage of encoded session snapshots, keyed by session ID.  Implementations may be local to a node or
+ * shared between nodes, in which case any node can load a session saved by another.  Snapshots are encoded by
+ * {@link SessionSnapshotCodec}, so implementations need only store opaque bytes.
+ *
+ * Each stored snapshot has a version, which changes whenever the session is saved.  Saves are conditional on the
+ * version the caller last saw, so that a node holding a stale copy of a session cannot overwrite newer state saved
+ * by another node
+ */
+public interface SessionPersistence extends AutoCloseable {
+    /**
+     * @param id        Session ID
+     * @return          Latest snapshot saved for the session, with its version, if any
+     */
+    Optional<SessionSnapshot> load(String id);
+
+    /**
+     * @param id        Session ID
+     * @return          Version of the latest snapshot saved for the session, if any, without loading the snapshot
+     */
+    Optional<String> getVersion(String id);
+
+    /**
+     * Save a snapshot of a session, replacing the snapshot at the expected version
+     *
+     * @param id                Session ID
+     * @param snapshot          Encoded session snapshot
+     * @param expectedVersion   Version of the snapshot being replaced, or null if no snapshot is expected to exist
+     * @return                  Version of the saved snapshot
+     * @throws SessionConflictException     If the stored snapshot is not at the expected version
+     */
+    String save(String id, byte[] snapshot, String expectedVersion);
+
+    /**
+     * Delete any snapshot of a session
+     *
+     * @param id        Session ID
+     */
+    void delete(String id);
+
+    /**
+     * Release any resources held by the persistence implementation
+     */
+    @Override
+    void close();
+}
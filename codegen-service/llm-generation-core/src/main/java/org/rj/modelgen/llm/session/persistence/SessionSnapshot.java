@@ -0,0 +1,25 @@
+package org.rj.modelgen.llm.session.persistence;
+
+/**
+ * Encoded session snapshot as stored by a {@link SessionPersistence}, with the version assigned to it by the store
+ */
+public class SessionSnapshot {
+    private final byte[] data;
+    private final String version;
+
+    public SessionSnapshot(byte[] data, String version) {
+        this.data = data;
+        this.version = version;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return      Opaque version of the snapshot, which changes each time the session is saved
+     */
+    public String getVersion() {
+        return version;
+    }
+}
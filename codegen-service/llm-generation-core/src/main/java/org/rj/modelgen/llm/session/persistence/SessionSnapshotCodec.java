@@ -0,0 +1,51 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.session.SessionAttachment;
+import org.rj.modelgen.llm.session.SessionState;
+
+/**
+ * Encodes session state as compact binary snapshots.  Snapshots use the Smile encoding of the session fields, rather
+ * than of its API, so that all state is captured regardless of which properties are exposed by getters.  Fields which
+ * are not recognised on decoding are ignored, so that snapshots remain readable as session state evolves
+ */
+public final class SessionSnapshotCodec {
+    private static final ObjectMapper MAPPER = SmileMapper.builder()
+            .visibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .visibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .addMixIn(SessionAttachment.class, TypedAttachment.class)
+            .build();
+
+    private SessionSnapshotCodec() { }
+
+    public static byte[] encode(SessionState session) {
+        try {
+            return MAPPER.writeValueAsBytes(session);
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationModelException(String.format("Failed to encode snapshot of session %s (%s)", session.getId(), ex.getMessage()), ex);
+        }
+    }
+
+    public static SessionState decode(byte[] snapshot) {
+        try {
+            return MAPPER.readValue(snapshot, SessionState.class);
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationModelException(String.format("Failed to decode session snapshot (%s)", ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Attachments are application types, which are recorded in the snapshot so that they can be restored
+     */
+    @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+    private interface TypedAttachment { }
+}
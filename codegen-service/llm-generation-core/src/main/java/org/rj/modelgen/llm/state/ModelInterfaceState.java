@@ -17,7 +17,6 @@ public abstract class ModelInterfaceState {
     private ModelInterfaceStateMachine model;
     private int invokeCount;
     private Integer invokeLimit;
-    private ModelInterfacePayload payload = new ModelInterfacePayload();
     private String lastError;
 
     public ModelInterfaceState(Class<? extends ModelInterfaceState> cls) {
@@ -92,10 +91,6 @@ public abstract class ModelInterfaceState {
                 type == ModelInterfaceStateType.TERMINAL_FAILURE;
     }
 
-    protected ModelInterfacePayload getPayload() {
-        return payload;
-    }
-
     public boolean hasError() {
         return getLastError() != null;
     }
@@ -111,7 +106,8 @@ public abstract class ModelInterfaceState {
 
     /**
      * Called by the model interface state machine when entering the new state.  Performs some basic operations
-     * before delegating to subclasses for all action logic
+     * before delegating to subclasses for all action logic.  State instances are shared by all executions of the
+     * model, so the payload of an invocation is read from its input signal and never held by the state itself
      *
      * @param inputSignal       Signal received from the previous state
      * @return                  Output signal containing the result of this action
@@ -121,14 +117,18 @@ public abstract class ModelInterfaceState {
         this.invokeCount += 1;
         if (hasInvokeLimit() && invokeCount > invokeLimit) {
             return outboundSignal(new ModelInterfaceStandardSignals.FAIL_MAX_INVOCATIONS(id, invokeCount))
-                    .withPayload(payload)
+                    .withPayload(inputSignal.getPayload())
                     .mono();
         }
 
-        this.payload = inputSignal.getPayload();
         this.lastError = null;  // Reset for each execution
 
-        return invokeAction(inputSignal);
+        // Transfer all payload data from the input signal to the outbound signal
+        return invokeAction(inputSignal)
+                .map(outputSignal -> {
+                    outputSignal.getPayload().putAllIfAbsent(inputSignal.getPayload());
+                    return outputSignal;
+                });
     }
 
     /**
@@ -173,10 +173,6 @@ public abstract class ModelInterfaceState {
      */
     protected ModelInterfaceSignal outboundSignal(ModelInterfaceSignal signal) {
         if (signal == null) throw new LlmGenerationModelException("Invalid null outbound signal at state: " + id);
-
-        // Transfer all payload data from this state to the outbound signal
-        signal.getPayload().putAllIfAbsent(this.getPayload());
-
         return signal;
     }
 
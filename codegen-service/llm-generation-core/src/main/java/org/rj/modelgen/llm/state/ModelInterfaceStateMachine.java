@@ -50,13 +50,31 @@ public class ModelInterfaceStateMachine {
 
         final var startSignal = new ModelInterfaceStartSignal<>(inputSignal, payload);
 
-        final Mono<List<ModelInterfaceStateWithInputSignal>> execution = Mono.just(new ModelInterfaceStateWithInputSignal(init, startSignal))
+        final Mono<ModelInterfaceExecutionResult> execution = Mono.just(new ModelInterfaceStateWithInputSignal(init, startSignal))
                 .expand(this::executeStep)
-                .collectList();
-
-        return execution.map(this::buildResult);
+                .collectList()
+                .map(this::buildResult);
+
+        // Executions for the same session are serialized, since each reads and updates the session state, and start
+        // once the session is loaded so that states may access it without blocking.  Completion is handled within the
+        // same turn of the session mailbox, so that any resulting update to the session is not interleaved with others
+        final var sessionId = Optional.ofNullable(payload).map(ModelInterfaceInputPayload::getSessionId).orElse(null);
+        if (modelInterface == null || sessionId == null) return execution;
+
+        LOG.info("Session {} execution queued behind {} others", sessionId, modelInterface.getSessionMailbox().getQueueDepth(sessionId));
+        return modelInterface.getSessionMailbox().submit(sessionId, () -> modelInterface.loadSession(sessionId)
+                .then(execution.doOnNext(result -> onExecutionComplete(sessionId, result))));
     }
 
+    /**
+     * Called on completion of each execution for a session, before any other work for the session may start.  May be
+     * overridden by subclasses, e.g. to record the result of the execution in the session state
+     *
+     * @param sessionId     Session ID
+     * @param result        Result of the execution
+     */
+    protected void onExecutionComplete(String sessionId, ModelInterfaceExecutionResult result) { }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     private Mono<ModelInterfaceStateWithInputSignal>
     executeStep(ModelInterfaceStateWithInputSignal input) {
@@ -8,6 +8,7 @@ public enum StandardModelData {
     SessionId,
     Request,
     Context,
+    ModelSlice,
     Llm,
     Temperature,
     IntermediateModel,
@@ -1,8 +1,12 @@
 package org.rj.modelgen.llm.statemodel.states.common;
 
 import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextRole;
 import org.rj.modelgen.llm.context.provider.ContextProvider;
 import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlice;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlicer;
 import org.rj.modelgen.llm.prompt.PromptGenerator;
 import org.rj.modelgen.llm.schema.ModelSchema;
 import org.rj.modelgen.llm.state.ModelInterfaceSignal;
@@ -11,15 +15,49 @@ import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
 import org.rj.modelgen.llm.statemodel.signals.common.CommonStateInterface;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
+
 
 public abstract class PrepareModelGenerationRequest extends ModelInterfaceState implements CommonStateInterface {
     private final ModelSchema modelSchema;
     private final ContextProvider contextProvider;
+    private final String systemPrompt;
+    private final IntermediateModelEncoding modelEncoding;
+    private final GraphModelSlicer modelSlicer;
 
     public PrepareModelGenerationRequest(Class<? extends PrepareModelGenerationRequest> cls, ModelSchema modelSchema, ContextProvider contextProvider) {
+        this(cls, modelSchema, contextProvider, null);
+    }
+
+    public PrepareModelGenerationRequest(Class<? extends PrepareModelGenerationRequest> cls, ModelSchema modelSchema,
+                                         ContextProvider contextProvider, String systemPrompt) {
+        this(cls, modelSchema, contextProvider, systemPrompt, IntermediateModelEncoding.none());
+    }
+
+    public PrepareModelGenerationRequest(Class<? extends PrepareModelGenerationRequest> cls, ModelSchema modelSchema,
+                                         ContextProvider contextProvider, String systemPrompt, IntermediateModelEncoding modelEncoding) {
+        this(cls, modelSchema, contextProvider, systemPrompt, modelEncoding, null);
+    }
+
+    /**
+     * @param systemPrompt      Static instructions, schema and examples which are submitted as a leading system message
+     *                          with every request.  Generated once so that it is byte-identical across requests, and can
+     *                          therefore be served from the provider prompt cache.  Null if no system prompt is required
+     * @param modelEncoding     Encoding applied to models in the submitted context.  Session history always retains
+     *                          models in their standard form
+     * @param modelSlicer       Slicer which selects the excerpt of the current model relevant to each request, to be
+     *                          submitted in place of the complete model, or null to always submit the complete model.
+     *                          Session history always retains the complete model
+     */
+    public PrepareModelGenerationRequest(Class<? extends PrepareModelGenerationRequest> cls, ModelSchema modelSchema,
+                                         ContextProvider contextProvider, String systemPrompt, IntermediateModelEncoding modelEncoding,
+                                         GraphModelSlicer modelSlicer) {
         super(cls);
         this.modelSchema = modelSchema;
         this.contextProvider = contextProvider;
+        this.systemPrompt = systemPrompt;
+        this.modelEncoding = Optional.ofNullable(modelEncoding).orElseGet(IntermediateModelEncoding::none);
+        this.modelSlicer = modelSlicer;
     }
 
     @Override
@@ -29,27 +67,75 @@ public abstract class PrepareModelGenerationRequest extends ModelInterfaceState
 
     @Override
     protected Mono<ModelInterfaceSignal> invokeAction(ModelInterfaceSignal input) {
-        final Context context = getPayload().getOrElse(StandardModelData.Context, contextProvider::newContext);
-        final String request = getPayload().getOrThrow(StandardModelData.Request, () -> new LlmGenerationModelException("No valid request provided"));
-        final String sessionId = getPayload().getOrThrow(StandardModelData.SessionId, () -> new LlmGenerationModelException("No valid session ID for request"));
+        final Context context = input.getPayload().getOrElse(StandardModelData.Context, contextProvider::newContext);
+        final String request = input.getPayload().getOrThrow(StandardModelData.Request, () -> new LlmGenerationModelException("No valid request provided"));
+        final String sessionId = input.getPayload().getOrThrow(StandardModelData.SessionId, () -> new LlmGenerationModelException("No valid session ID for request"));
 
-        final var prompt = buildGenerationPrompt(modelSchema, context, request);
+        // Large models may be submitted as an excerpt, which is merged back into the complete model on response
+        final var currentModel = context.getLatestModelEntry();
+        final Optional<GraphModelSlice> slice = Optional.ofNullable(modelSlicer)
+                .flatMap(slicer -> currentModel.flatMap(model -> slicer.slice(model.getContent(), request)));
+        final var sourceContext = slice.map(x -> context.withModelState(x.getContent())).orElse(context);
 
-        final var newContext = contextProvider.withPrompt(context, prompt);
-        getModelInterface().getOrCreateSession(sessionId).replaceContext(newContext);
+        // Models are submitted in encoded form, which also determines their cost within any context budget.  Entries
+        // cache their encoded form and token count, so only entries added since the last request are processed
+        final var encodedContext = sourceContext.withEncodedEntries(ContextRole.MODEL, modelEncoding);
+        final var prompt = buildGenerationPrompt(modelSchema, encodedContext, request);
+        final var supplement = buildPromptSupplement(encodedContext, request);
+
+        // The system prompt, encoding and any supplement are views applied only as the request is submitted, and are
+        // applied again in case the provider derived a new context without them.  The session history is therefore
+        // the current history extended by the new prompt, and no existing entry is copied, encoded or offloaded again
+        final var newContext = contextProvider.withPrompt(encodedContext.withPromptSupplement(supplement), systemPrompt, prompt)
+                .withSystemPrompt(systemPrompt)
+                .withEncodedEntries(ContextRole.MODEL, modelEncoding)
+                .withPromptSupplement(supplement);
+        final var sessionContext = newContext.withoutRequestViews();
+        getModelInterface().getOrCreateSession(sessionId).replaceContext(slice.isPresent()
+                ? sessionContext.withModelEntry(currentModel.get())
+                : sessionContext);
 
         return outboundSignal(getSuccessSignalId())
                 .withPayloadData(StandardModelData.Context, newContext)
+                .withPayloadData(StandardModelData.ModelSlice, slice.orElse(null))
                 .mono();
     }
 
+    public String getSystemPrompt() {
+        return systemPrompt;
+    }
+
+    public IntermediateModelEncoding getModelEncoding() {
+        return modelEncoding;
+    }
+
+    public GraphModelSlicer getModelSlicer() {
+        return modelSlicer;
+    }
+
     /**
-     * Implemented by subclasses.  Generates the new prompt based on the given context and other supporting data
+     * Implemented by subclasses.  Generates the new prompt based on the given context and other supporting data.  Any
+     * content which does not vary between requests should be placed in the system prompt instead
      * @param modelSchema       Intermediate model schema
-     * @param context           Current context for this session
+     * @param context           Current context for this session, which submits models in their encoded form; see
+     *                          {@link Context#getLatestSubmittedEntryForRole(ContextRole)}.  The current model may be
+     *                          an excerpt, if model slicing is enabled
      * @param request           Request received from the caller
      *
      * @return                  Prompt for LLM submission
      */
     protected abstract String buildGenerationPrompt(ModelSchema modelSchema, Context context, String request);
+
+    /**
+     * May be overridden by subclasses.  Generates content which precedes the prompt in this request only, e.g.
+     * examples relevant to the request.  The content counts towards any context budget but is not retained in the
+     * session history, so it is neither resubmitted with later prompts nor recorded in the model history
+     * @param context           Current context for this session, which submits models in their encoded form
+     * @param request           Request received from the caller
+     *
+     * @return                  Content to precede the prompt, or an empty string if none
+     */
+    protected String buildPromptSupplement(Context context, String request) {
+        return "";
+    }
 }
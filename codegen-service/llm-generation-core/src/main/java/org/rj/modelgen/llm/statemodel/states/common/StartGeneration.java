@@ -19,9 +19,9 @@ public abstract class StartGeneration extends ModelInterfaceState implements Com
 
     @Override
     protected Mono<ModelInterfaceSignal> invokeAction(ModelInterfaceSignal input) {
-        if (!getPayload().hasData(StandardModelData.Request)) return error("Generation request is missing input request data");
+        if (!input.getPayload().hasData(StandardModelData.Request)) return error("Generation request is missing input request data");
 
-        final String sessionId = getPayload().getOrThrow(StandardModelData.SessionId, () -> new LlmGenerationModelException("No valid session ID"));
+        final String sessionId = input.getPayload().getOrThrow(StandardModelData.SessionId, () -> new LlmGenerationModelException("No valid session ID"));
         final var session = getModelInterface().getOrCreateSession(sessionId);
 
         return outboundSignal(getSuccessSignalId())
@@ -1,27 +1,92 @@
 package org.rj.modelgen.llm.statemodel.states.common;
 
+import org.jooq.lambda.tuple.Tuple2;
 import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
 import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.intrep.delta.IntermediateModelDelta;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlice;
 import org.rj.modelgen.llm.request.ModelRequest;
 import org.rj.modelgen.llm.request.ModelRequestHttpOptions;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
 import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.schema.ModelSchema;
 import org.rj.modelgen.llm.state.ModelInterfaceSignal;
 import org.rj.modelgen.llm.state.ModelInterfaceState;
 import org.rj.modelgen.llm.statemodel.data.common.StandardModelData;
 import org.rj.modelgen.llm.statemodel.signals.common.CommonStateInterface;
+import org.rj.modelgen.llm.util.Result;
+import org.rj.modelgen.llm.util.Util;
 import org.rj.modelgen.llm.validation.IntermediateModelSanitizer;
 import org.rj.modelgen.llm.validation.generic.GenericIntermediateModelSanitizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
+
 import static org.jooq.lambda.tuple.Tuple.tuple;
 import static org.rj.modelgen.llm.util.FuncUtil.doVoid;
 
 public abstract class SubmitGenerationRequestToLlm extends ModelInterfaceState implements CommonStateInterface {
+    private static final Logger LOG = LoggerFactory.getLogger(SubmitGenerationRequestToLlm.class);
+    private static final String FULL_MODEL_FALLBACK_PROMPT =
+            "The changes in your last response could not be applied to the current model (%s).  Return the complete " +
+            "updated model instead, as JSON complying to the schema, with no other explanation or commentary.";
+    private static final String SLICE_FALLBACK_PROMPT =
+            "The excerpt in your last response could not be merged into the complete model (%s).  The complete " +
+            "current model is:\n```\n%s\n```\nReturn the complete updated model instead, as JSON complying to the " +
+            "schema, with no other explanation or commentary.";
+    private static final String CONTINUATION_PROMPT =
+            "Your last response was cut off by the response length limit.  Continue it exactly from the point at " +
+            "which it stopped, without repeating any of it and with no other explanation or commentary.";
+
     private final IntermediateModelSanitizer sanitizer;
+    private final boolean acceptDeltaResponses;
+    private final ModelSchema responseSchema;
+    private final ResponseLengthOptions responseLengthOptions;
 
     public SubmitGenerationRequestToLlm(Class<? extends SubmitGenerationRequestToLlm> cls, IntermediateModelSanitizer modelSanitizer) {
+        this(cls, modelSanitizer, false);
+    }
+
+    public SubmitGenerationRequestToLlm(Class<? extends SubmitGenerationRequestToLlm> cls, IntermediateModelSanitizer modelSanitizer,
+                                        boolean acceptDeltaResponses) {
+        this(cls, modelSanitizer, acceptDeltaResponses, null);
+    }
+
+    /**
+     * @param cls                       State class
+     * @param modelSanitizer            Sanitizer applied to each model response
+     * @param acceptDeltaResponses      Whether the model may respond with a delta against the latest model state
+     *                                  in the context, rather than the complete model.  Deltas are applied locally so
+     *                                  that the complete model is always recorded and validated.  If a delta cannot be
+     *                                  applied then the complete model is requested instead
+     * @param responseSchema            Schema to which requests for the complete model are constrained, if the model
+     *                                  interface supports structured output, or null if responses are unconstrained.
+     *                                  Sanitization is skipped for responses which are guaranteed to conform
+     */
+    public SubmitGenerationRequestToLlm(Class<? extends SubmitGenerationRequestToLlm> cls, IntermediateModelSanitizer modelSanitizer,
+                                        boolean acceptDeltaResponses, ModelSchema responseSchema) {
+        this(cls, modelSanitizer, acceptDeltaResponses, responseSchema, ResponseLengthOptions.defaultOptions());
+    }
+
+    /**
+     * @param cls                       State class
+     * @param modelSanitizer            Sanitizer applied to each model response
+     * @param acceptDeltaResponses      Whether the model may respond with a delta against the latest model state
+     * @param responseSchema            Schema to which requests for the complete model are constrained, or null
+     * @param responseLengthOptions     Sizing of the response token limit, and continuation of responses which
+     *                                  are truncated by it
+     */
+    public SubmitGenerationRequestToLlm(Class<? extends SubmitGenerationRequestToLlm> cls, IntermediateModelSanitizer modelSanitizer,
+                                        boolean acceptDeltaResponses, ModelSchema responseSchema,
+                                        ResponseLengthOptions responseLengthOptions) {
         super(cls);
         this.sanitizer = modelSanitizer;
+        this.acceptDeltaResponses = acceptDeltaResponses;
+        this.responseSchema = responseSchema;
+        this.responseLengthOptions = responseLengthOptions;
     }
 
     @Override
@@ -37,13 +102,7 @@ public abstract class SubmitGenerationRequestToLlm extends ModelInterfaceState i
         final String sessionId = input.getPayload().get(StandardModelData.SessionId);
         if (sessionId == null) throw new LlmGenerationModelException("No valid session ID for LLM submission");
 
-        final var request = new ModelRequest(
-                getPayload().getOrElse(StandardModelData.Llm, "gpt-4"),
-                getPayload().getOrElse(StandardModelData.Temperature, 0.7),
-                context);
-
-        return getModelInterface().submit(sessionId, request, getHttpOptions(input))
-                .map(response -> tuple(response, sanitizer.sanitize(response.getMessage())))
+        return generate(sessionId, context, input)
                 .map(res -> doVoid(res, responseAndSanitizedContent ->
                         recordModelResponse(sessionId, responseAndSanitizedContent.v1, responseAndSanitizedContent.v2)))
 
@@ -53,14 +112,190 @@ public abstract class SubmitGenerationRequestToLlm extends ModelInterfaceState i
                         .mono());
     }
 
+    /**
+     * Submit the generation request and resolve the response to the complete updated model.  May be overridden by
+     * subclasses which generate the model by other means, e.g. over several requests
+     *
+     * @param sessionId     Session ID
+     * @param context       Context to be submitted
+     * @param input         Input signal to this state
+     * @return              Model response, and the sanitized content of the complete updated model
+     */
+    protected Mono<Tuple2<ModelResponse, String>> generate(String sessionId, Context context, ModelInterfaceSignal input) {
+        // Delta responses cannot be constrained to the schema of the complete model
+        final var request = buildRequest(sessionId, context, !acceptDeltaResponses, input);
+
+        return submitWithContinuation(sessionId, request, input)
+                .flatMap(response -> resolveResponse(sessionId, context, request, response, input));
+    }
+
+    /**
+     * Build a request for the given context
+     *
+     * @param sessionId         Session ID
+     * @param context           Context to be submitted
+     * @param completeModel     Whether the response is a complete model, and so may be constrained to the schema
+     * @param input             Input signal to this state, which holds the model settings of the invocation
+     * @return                  Model request
+     */
+    protected ModelRequest buildRequest(String sessionId, Context context, boolean completeModel, ModelInterfaceSignal input) {
+        final var request = new ModelRequest(
+                input.getPayload().getOrElse(StandardModelData.Llm, "gpt-4"),
+                input.getPayload().getOrElse(StandardModelData.Temperature, 0.7),
+                context);
+
+        if (completeModel && responseSchema != null && getModelInterface().supportsStructuredOutput()) {
+            request.setResponseSchema(responseSchema.getStructuredOutputSchema());
+        }
+
+        // Responses are sized from the largest complete model seen in the session, including the one being edited
+        final var largestModelTokens = Math.max(
+                (sessionId == null) ? 0 : getModelInterface().getOrCreateSession(sessionId).getLargestModelTokens(),
+                context.getLatestModelEntry().map(x -> Util.estimateTokenSize(x.getContent())).orElse(0));
+        request.setMaxTokens(responseLengthOptions.estimateMaxTokens(largestModelTokens));
+
+        return request;
+    }
+
+    /**
+     * Submit a request and, if the response is truncated by the response token limit, request continuations of it
+     * until it is complete or the continuation limit is reached.  Continuations are unconstrained, since they are
+     * not themselves complete models, and are joined with the truncated response before it is returned
+     *
+     * @param sessionId     Session ID
+     * @param request       Model request
+     * @param input         Input signal to this state
+     * @return              Model response, joined with any continuations
+     */
+    protected Mono<ModelResponse> submitWithContinuation(String sessionId, ModelRequest request, ModelInterfaceSignal input) {
+        return getModelInterface().submit(sessionId, request, getHttpOptions(input))
+                .flatMap(response -> continueResponse(sessionId, request, response, input, 1));
+    }
+
+    private Mono<ModelResponse> continueResponse(String sessionId, ModelRequest request, ModelResponse response,
+                                                 ModelInterfaceSignal input, int continuation) {
+        if (!response.isSuccessful() || !response.isTruncated()) return Mono.just(response);
+        if (continuation > responseLengthOptions.getMaxContinuations()) {
+            LOG.warn("Session {} response is still truncated after {} continuations", sessionId, continuation - 1);
+            return Mono.just(response);
+        }
+
+        LOG.info("Session {} response was truncated after {} response tokens; requesting continuation {}",
+                sessionId, response.getResponseTokenUsage(), continuation);
+
+        final var continuationContext = request.getContext()
+                .withEntry(ContextEntry.forModel(response.getMessage()))
+                .withEntry(ContextEntry.forUser(CONTINUATION_PROMPT));
+
+        final var continuationRequest = new ModelRequest(request.getModel(), request.getTemperature(), continuationContext);
+        continuationRequest.setMaxTokens(request.getMaxTokens());
+
+        return getModelInterface().submit(sessionId, continuationRequest, getHttpOptions(input))
+                .flatMap(next -> continueResponse(sessionId, request, response.withContinuation(next), input, continuation + 1));
+    }
+
+    protected String sanitize(ModelRequest request, ModelResponse response) {
+        // Only a complete response to the constrained request itself is guaranteed to conform, so requires no
+        // sanitization; continuations are unconstrained, and a response which is still truncated is incomplete
+        final var schema = request.getResponseSchema();
+        if (schema != null && schema.isStrict() && response.isSuccessful() && !response.isContinued() && !response.isTruncated()) {
+            return schema.normalizeResponse(response.getMessage());
+        }
+
+        return sanitizer.sanitize(response.getMessage());
+    }
+
+    /**
+     * Sanitize the model response and, if it is a delta or an excerpt of the model, resolve it to the complete
+     * updated model
+     */
+    private Mono<Tuple2<ModelResponse, String>> resolveResponse(String sessionId, Context context, ModelRequest request,
+                                                              ModelResponse response, ModelInterfaceSignal input) {
+        final var sanitizedContent = sanitize(request, response);
+        final GraphModelSlice slice = input.getPayload().get(StandardModelData.ModelSlice);
+        final var isDelta = acceptDeltaResponses && IntermediateModelDelta.isDelta(sanitizedContent);
+        if (!response.isSuccessful() || (slice == null && !isDelta)) {
+            return Mono.just(tuple(response, sanitizedContent));
+        }
+
+        // The submitted context may hold an encoded form or an excerpt of the model, so the session model is used
+        final var currentModel = Optional.ofNullable(getModelInterface().getOrCreateSession(sessionId).getContext())
+                .flatMap(Context::getLatestModelEntry)
+                .or(context::getLatestModelEntry)
+                .map(ContextEntry::getContent)
+                .orElse("{}");
+
+        final var resolved = (slice == null)
+                ? IntermediateModelDelta.apply(currentModel, sanitizedContent)
+                : mergeSlice(slice, currentModel, sanitizedContent, isDelta);
+        if (resolved.isOk()) {
+            if (isDelta) LOG.info("Session {} applied model delta ({} chars) to current model", sessionId, sanitizedContent.length());
+            if (slice != null) LOG.info("Session {} merged excerpt of {}/{} nodes into current model", sessionId,
+                    slice.getNodeIds().size(), slice.getModelNodeCount());
+
+            return Mono.just(tuple(response, resolved.getValue()));
+        }
+
+        LOG.warn("Session {} model {} could not be applied ({}); requesting complete model", sessionId,
+                (slice == null) ? "delta" : "excerpt", resolved.getError());
+
+        final var fallbackContext = context
+                .withEntry(ContextEntry.forModel(sanitizedContent))
+                .withEntry(ContextEntry.forUser((slice == null)
+                        ? String.format(FULL_MODEL_FALLBACK_PROMPT, resolved.getError())
+                        : String.format(SLICE_FALLBACK_PROMPT, resolved.getError(), currentModel)));
+
+        final var fallbackRequest = buildRequest(sessionId, fallbackContext, true, input);
+        return submitWithContinuation(sessionId, fallbackRequest, input)
+                .flatMap(fallbackResponse -> resolveFallbackResponse(sessionId, currentModel, fallbackRequest, fallbackResponse));
+    }
+
+    /**
+     * Resolve the response to a request for the complete model.  The model may still respond with a delta, e.g. if the
+     * request could not be constrained to the schema, in which case it is applied to the complete current model which
+     * was the subject of the fallback request.  A delta which still cannot be applied fails the generation, rather than
+     * being recorded as the model
+     */
+    private Mono<Tuple2<ModelResponse, String>> resolveFallbackResponse(String sessionId, String currentModel, ModelRequest request,
+                                                                      ModelResponse response) {
+        final var sanitizedContent = sanitize(request, response);
+        if (!response.isSuccessful() || !IntermediateModelDelta.isDelta(sanitizedContent)) {
+            return Mono.just(tuple(response, sanitizedContent));
+        }
+
+        final var resolved = IntermediateModelDelta.apply(currentModel, sanitizedContent);
+        if (resolved.isErr()) {
+            return Mono.error(new LlmGenerationModelException(String.format(
+                    "Session %s LLM returned model changes which could not be applied in place of the requested complete model (%s)",
+                    sessionId, resolved.getError())));
+        }
+
+        LOG.info("Session {} applied model delta ({} chars) returned in place of complete model", sessionId, sanitizedContent.length());
+        return Mono.just(tuple(response, resolved.getValue()));
+    }
+
+    /**
+     * Merge a response to an excerpt of the model into the complete model.  Deltas are applied to the excerpt itself,
+     * since that is the model state which was submitted
+     */
+    private static Result<String, String> mergeSlice(GraphModelSlice slice, String currentModel, String content, boolean isDelta) {
+        if (!isDelta) return slice.merge(currentModel, content);
+
+        final var updatedSlice = IntermediateModelDelta.apply(slice.getContent(), content);
+        return updatedSlice.isOk() ? slice.merge(currentModel, updatedSlice.getValue()) : updatedSlice;
+    }
+
     protected ModelRequestHttpOptions getHttpOptions(ModelInterfaceSignal inputSignal) {
         return new ModelRequestHttpOptions();
     }
 
     private void recordModelResponse(String sessionId, ModelResponse modelResponse, String sanitizedContent) {
-        getModelInterface().getOrCreateSession(sessionId)
-                .getContext().addModelResponse(sanitizedContent);
+        final var session = getModelInterface().getOrCreateSession(sessionId);
+        session.replaceContext(session.getContext().withEntry(ContextEntry.forModel(sanitizedContent)));
+        session.recordModelSize(Util.estimateTokenSize(sanitizedContent));
+        getModelInterface().updateSession(session);     // Session is complete for this request, and may be persisted
 
-        // TODO: Record token usage etc.
+        LOG.info("Session {} response used {} prompt tokens ({} cached) and {} response tokens", sessionId,
+                modelResponse.getPromptTokenUsage(), modelResponse.getCachedPromptTokenUsage(), modelResponse.getResponseTokenUsage());
     }
 }
@@ -38,20 +38,20 @@ public abstract class ValidateLlmIntermediateModelResponse extends ModelInterfac
     protected Mono<ModelInterfaceSignal> invokeAction(ModelInterfaceSignal input) {
 
         // Fail immediately in case of LLM-reported errors
-        final ModelResponse response = getPayload().get(StandardModelData.ModelResponse);
+        final ModelResponse response = input.getPayload().get(StandardModelData.ModelResponse);
         if (!response.isSuccessful()) {
             return error(String.format("LLM model execution ended in failure (%s)", response.getError()));
         }
 
         // Perform validation
-        final String sanitizedContent = getPayload().get(StandardModelData.SanitizedContent);
+        final String sanitizedContent = input.getPayload().get(StandardModelData.SanitizedContent);
         final var errors = validationProvider.validate(sanitizedContent);
         if (errors.hasErrors()) {
             return error(String.format("LLM intermediate model response failed validation (%s)",
                     errors.getErrors().stream().map(IntermediateModelValidationError::toString).collect(Collectors.joining("; "))));
         }
 
-        final String sessionId = getPayload().get(StandardModelData.SessionId);
+        final String sessionId = input.getPayload().get(StandardModelData.SessionId);
         LOG.info("Session {} intermediate model response passed validations", sessionId);
 
         return outboundSignal(getSuccessSignalId())
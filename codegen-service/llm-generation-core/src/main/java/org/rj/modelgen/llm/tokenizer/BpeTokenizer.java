@@ -0,0 +1,262 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Byte-pair encoding tokenizer compatible with the OpenAI '.tiktoken' encodings.  Text is split into pieces by the
+ * encoding segmenter, each piece is written as UTF-8 into a per-thread scratch buffer, and pieces which are not
+ * themselves tokens are merged pairwise by rank.  All working state is per-thread and reused, so the encode loop
+ * performs no allocation.  Counting uses the same loop without emitting tokens
+ */
+public class BpeTokenizer implements Tokenizer {
+    private static final int MIN_CACHED_LENGTH = 128;
+    private static final int MAX_CACHED_ENTRIES = 4096;
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private final TokenizerEncoding encoding;
+    private final BpeVocabulary vocabulary;
+    private final TokenCountCache countCache;
+    private final ThreadLocal<Scratch> scratch;
+
+    BpeTokenizer(TokenizerEncoding encoding, BpeVocabulary vocabulary) {
+        this.encoding = encoding;
+        this.vocabulary = vocabulary;
+        this.countCache = new TokenCountCache(MAX_CACHED_ENTRIES);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(encoding.newSegmenter()));
+    }
+
+    @Override
+    public TokenizerEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        if (text.length() < MIN_CACHED_LENGTH) return process(text, null);
+
+        return countCache.getOrCompute(text, value -> process(value, null));
+    }
+
+    @Override
+    public int countTokens(CharSequence text) {
+        if (text instanceof String) return countTokens((String)text);
+        if (text == null || text.length() == 0) return 0;
+
+        return process(text, null);
+    }
+
+    @Override
+    public int encode(CharSequence text, IntConsumer consumer) {
+        if (text == null || text.length() == 0) return 0;
+        if (consumer == null) throw new IllegalArgumentException("Cannot encode text without a token consumer");
+
+        return process(text, consumer);
+    }
+
+    @Override
+    public int[] encode(CharSequence text) {
+        if (text == null || text.length() == 0) return new int[0];
+
+        final var tokens = new TokenBuffer(Math.max(16, text.length() / 3));
+        process(text, tokens);
+        return tokens.toArray();
+    }
+
+    @Override
+    public String decode(int[] tokens) {
+        if (tokens == null || tokens.length == 0) return "";
+
+        final var output = new ByteArrayOutputStream(tokens.length * 4);
+        for (final int token : tokens) {
+            vocabulary.appendToken(token, output);
+        }
+
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return      Number of token counts currently held in the cache
+     */
+    public int getCachedCountSize() {
+        return countCache.size();
+    }
+
+    public void clearCachedCounts() {
+        countCache.clear();
+    }
+
+    private int process(CharSequence text, IntConsumer consumer) {
+        final var state = scratch.get();
+        final var segmenter = state.segmenter;
+        final int length = text.length();
+
+        segmenter.reset(text);
+        try {
+            int count = 0;
+            int start = 0;
+            while (start < length) {
+                final int end = segmenter.nextBoundary(start);
+                final int byteCount = state.writeUtf8(text, start, end);
+                count += encodePiece(state, byteCount, consumer);
+                start = end;
+            }
+
+            return count;
+        }
+        finally {
+            segmenter.reset("");        // Do not retain a reference to the text
+        }
+    }
+
+    private int encodePiece(Scratch state, int length, IntConsumer consumer) {
+        final byte[] bytes = state.bytes;
+
+        if (length == 1) {
+            if (consumer != null) consumer.accept(vocabulary.byteRank(bytes[0]));
+            return 1;
+        }
+
+        // Most pieces are a single token
+        final int whole = vocabulary.rank(bytes, 0, length);
+        if (whole >= 0) {
+            if (consumer != null) consumer.accept(whole);
+            return 1;
+        }
+
+        // Merge adjacent parts in rank order.  Part i spans bytes [bounds[i], bounds[i + 1]), and ranks[i] holds the
+        // rank of the merged pair beginning at part i
+        state.ensurePartCapacity(length + 1);
+        final int[] bounds = state.bounds;
+        final int[] ranks = state.ranks;
+
+        int boundCount = length + 1;
+        for (int i = 0; i < boundCount; ++i) bounds[i] = i;
+        for (int i = 0; i < boundCount - 2; ++i) ranks[i] = pairRank(bytes, bounds, i, boundCount);
+
+        while (boundCount > 2) {
+            int minRank = NO_RANK;
+            int minIndex = -1;
+            for (int i = 0; i < boundCount - 2; ++i) {
+                if (ranks[i] < minRank) {
+                    minRank = ranks[i];
+                    minIndex = i;
+                }
+            }
+            if (minIndex < 0) break;
+
+            // Remove the boundary between the merged parts, then re-rank the pairs either side of the new part
+            final int tail = boundCount - minIndex - 2;
+            System.arraycopy(bounds, minIndex + 2, bounds, minIndex + 1, tail);
+            System.arraycopy(ranks, minIndex + 2, ranks, minIndex + 1, Math.max(0, tail - 2));
+            --boundCount;
+
+            ranks[minIndex] = pairRank(bytes, bounds, minIndex, boundCount);
+            if (minIndex > 0) ranks[minIndex - 1] = pairRank(bytes, bounds, minIndex - 1, boundCount);
+        }
+
+        final int partCount = boundCount - 1;
+        if (consumer != null) {
+            for (int i = 0; i < partCount; ++i) {
+                consumer.accept(vocabulary.rank(bytes, bounds[i], bounds[i + 1] - bounds[i]));
+            }
+        }
+
+        return partCount;
+    }
+
+    private int pairRank(byte[] bytes, int[] bounds, int index, int boundCount) {
+        if (index + 2 >= boundCount) return NO_RANK;
+
+        final int rank = vocabulary.rank(bytes, bounds[index], bounds[index + 2] - bounds[index]);
+        return rank >= 0 ? rank : NO_RANK;
+    }
+
+    /**
+     * Per-thread working state for the encode loop
+     */
+    private static final class Scratch {
+        private final TextSegmenter segmenter;
+        private byte[] bytes = new byte[256];
+        private int[] bounds = new int[64];
+        private int[] ranks = new int[64];
+
+        private Scratch(TextSegmenter segmenter) {
+            this.segmenter = segmenter;
+        }
+
+        /**
+         * Write the given character range as UTF-8 into the byte buffer.  Unpaired surrogates are written as '?',
+         * consistent with {@link String#getBytes}
+         *
+         * @return      Number of bytes written
+         */
+        private int writeUtf8(CharSequence text, int start, int end) {
+            final int maxBytes = (end - start) * 3;
+            if (bytes.length < maxBytes) bytes = new byte[Math.max(maxBytes, bytes.length * 2)];
+
+            final byte[] out = bytes;
+            int position = 0;
+            for (int i = start; i < end; ++i) {
+                final char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[position++] = (byte)c;
+                }
+                else if (c < 0x800) {
+                    out[position++] = (byte)(0xC0 | (c >> 6));
+                    out[position++] = (byte)(0x80 | (c & 0x3F));
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    final int cp = Character.toCodePoint(c, text.charAt(++i));
+                    out[position++] = (byte)(0xF0 | (cp >> 18));
+                    out[position++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+                    out[position++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+                    out[position++] = (byte)(0x80 | (cp & 0x3F));
+                }
+                else if (Character.isSurrogate(c)) {
+                    out[position++] = (byte)'?';
+                }
+                else {
+                    out[position++] = (byte)(0xE0 | (c >> 12));
+                    out[position++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                    out[position++] = (byte)(0x80 | (c & 0x3F));
+                }
+            }
+
+            return position;
+        }
+
+        private void ensurePartCapacity(int capacity) {
+            if (bounds.length < capacity) {
+                final int size = Math.max(capacity, bounds.length * 2);
+                bounds = new int[size];
+                ranks = new int[size];
+            }
+        }
+    }
+
+    /**
+     * Growable buffer of tokens for materializing a full encoding
+     */
+    private static final class TokenBuffer implements IntConsumer {
+        private int[] tokens;
+        private int size;
+
+        private TokenBuffer(int capacity) {
+            this.tokens = new int[capacity];
+        }
+
+        @Override
+        public void accept(int token) {
+            if (size == tokens.length) tokens = Arrays.copyOf(tokens, size * 2);
+            tokens[size++] = token;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(tokens, size);
+        }
+    }
+}
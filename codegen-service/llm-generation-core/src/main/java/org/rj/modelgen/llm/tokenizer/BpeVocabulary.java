@@ -0,0 +1,147 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Byte-pair encoding vocabulary, mapping byte sequences to token ranks.  All token bytes are packed into a single
+ * array and indexed by an open-addressing hash table over byte ranges, so lookups never allocate a key
+ */
+final class BpeVocabulary {
+    private static final int EMPTY = 0;
+
+    private final byte[] pool;
+    private final int[] offsets;        // Token i occupies pool[offsets[i], offsets[i + 1])
+    private final int[] table;          // Rank + 1 of the token in each slot, or EMPTY
+    private final int mask;
+    private final int[] byteRanks;
+
+    private BpeVocabulary(byte[] pool, int[] offsets) {
+        this.pool = pool;
+        this.offsets = offsets;
+
+        final int size = offsets.length - 1;
+        final int capacity = Integer.highestOneBit(Math.max(size, 1) * 4 - 1);
+        this.table = new int[Math.max(capacity, 16)];
+        this.mask = table.length - 1;
+
+        for (int rank = 0; rank < size; ++rank) {
+            final int length = offsets[rank + 1] - offsets[rank];
+            if (length == 0) continue;
+
+            int slot = hash(pool, offsets[rank], length) & mask;
+            while (table[slot] != EMPTY) slot = (slot + 1) & mask;
+            table[slot] = rank + 1;
+        }
+
+        this.byteRanks = new int[256];
+        for (int b = 0; b < 256; ++b) {
+            byteRanks[b] = rank(new byte[] { (byte)b }, 0, 1);
+            if (byteRanks[b] < 0) throw new IllegalArgumentException("Vocabulary does not contain a token for every single byte");
+        }
+    }
+
+    /**
+     * Load a vocabulary in the '.tiktoken' format, where each line holds a base64-encoded token and its rank
+     *
+     * @param input     Vocabulary data
+     * @return          Loaded vocabulary
+     */
+    static BpeVocabulary load(InputStream input) throws IOException {
+        final List<byte[]> tokens = new ArrayList<>(128 * 1024);
+        final var decoder = Base64.getDecoder();
+
+        int totalBytes = 0;
+        try (final var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                final int separator = line.indexOf(' ');
+                if (separator <= 0) throw new IOException("Invalid vocabulary entry: " + line);
+
+                final var token = decoder.decode(line.substring(0, separator));
+                final int rank = Integer.parseInt(line.substring(separator + 1).trim());
+                if (rank < 0) throw new IOException("Invalid vocabulary rank: " + line);
+
+                while (tokens.size() <= rank) tokens.add(null);
+                if (tokens.get(rank) != null) throw new IOException("Duplicate vocabulary rank: " + rank);
+
+                tokens.set(rank, token);
+                totalBytes += token.length;
+            }
+        }
+
+        final var pool = new byte[totalBytes];
+        final var offsets = new int[tokens.size() + 1];
+        int position = 0;
+        for (int rank = 0; rank < tokens.size(); ++rank) {
+            offsets[rank] = position;
+            final var token = tokens.get(rank);
+            if (token != null) {
+                System.arraycopy(token, 0, pool, position, token.length);
+                position += token.length;
+            }
+        }
+        offsets[tokens.size()] = position;
+
+        return new BpeVocabulary(pool, offsets);
+    }
+
+    /**
+     * @return      Number of ranks in the vocabulary
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Return the rank of the token with the given bytes
+     *
+     * @return      Token rank, or -1 if the byte sequence is not a token
+     */
+    int rank(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length) & mask;
+        int entry;
+        while ((entry = table[slot]) != EMPTY) {
+            final int rank = entry - 1;
+            final int start = offsets[rank];
+            if (offsets[rank + 1] - start == length && equalRange(bytes, offset, start, length)) return rank;
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    int byteRank(byte b) {
+        return byteRanks[b & 0xFF];
+    }
+
+    void appendToken(int rank, ByteArrayOutputStream output) {
+        if (rank < 0 || rank >= size()) throw new IllegalArgumentException("Invalid token: " + rank);
+        output.write(pool, offsets[rank], offsets[rank + 1] - offsets[rank]);
+    }
+
+    private boolean equalRange(byte[] bytes, int offset, int poolOffset, int length) {
+        for (int i = 0; i < length; ++i) {
+            if (bytes[offset + i] != pool[poolOffset + i]) return false;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
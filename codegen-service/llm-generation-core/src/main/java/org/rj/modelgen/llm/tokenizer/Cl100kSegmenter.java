@@ -0,0 +1,140 @@
+package org.rj.modelgen.llm.tokenizer;
+
+/**
+ * Hand-written equivalent of the cl100k pre-tokenization pattern
+ *
+ * <pre>(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\r\n\p{L}\p{N}]?\p{L}+|\p{N}{1,3}| ?[^\s\p{L}\p{N}]+[\r\n]*|\s*[\r\n]+|\s+(?!\S)|\s+</pre>
+ *
+ * Each alternative is evaluated in order at the current position with the same greedy semantics as the regular
+ * expression, but without any backtracking state or allocation
+ */
+final class Cl100kSegmenter implements TextSegmenter {
+    private CharSequence text = "";
+    private int length;
+
+    @Override
+    public void reset(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    @Override
+    public int nextBoundary(int start) {
+        final int c = Character.codePointAt(text, start);
+        final int next = start + Character.charCount(c);
+
+        // (?i:'s|'t|'re|'ve|'m|'ll|'d)
+        if (c == '\'' && next < length) {
+            final int end = contractionEnd(next);
+            if (end > 0) return end;
+        }
+
+        // [^\r\n\p{L}\p{N}]?\p{L}+
+        if (isLetter(c)) return lettersEnd(next);
+        if (c != '\r' && c != '\n' && !isNumeric(c) && next < length && isLetter(Character.codePointAt(text, next))) {
+            return lettersEnd(next);
+        }
+
+        // \p{N}{1,3}
+        if (isNumeric(c)) {
+            int end = next;
+            for (int i = 1; i < 3 && end < length; ++i) {
+                final int d = Character.codePointAt(text, end);
+                if (!isNumeric(d)) break;
+                end += Character.charCount(d);
+            }
+            return end;
+        }
+
+        //  ?[^\s\p{L}\p{N}]+[\r\n]*
+        final int symbolStart = (c == ' ') ? next : start;
+        if (symbolStart < length && isSymbol(Character.codePointAt(text, symbolStart))) {
+            int end = symbolStart;
+            while (end < length) {
+                final int s = Character.codePointAt(text, end);
+                if (!isSymbol(s)) break;
+                end += Character.charCount(s);
+            }
+            while (end < length && isNewline(text.charAt(end))) ++end;
+            return end;
+        }
+
+        // Remaining alternatives all begin with whitespace, which is always within the basic multilingual plane
+        int whitespaceEnd = start;
+        int lastNewline = -1;
+        while (whitespaceEnd < length && isWhitespace(text.charAt(whitespaceEnd))) {
+            if (isNewline(text.charAt(whitespaceEnd))) lastNewline = whitespaceEnd;
+            ++whitespaceEnd;
+        }
+
+        // \s*[\r\n]+
+        if (lastNewline >= 0) return lastNewline + 1;
+
+        // \s+(?!\S), falling back to \s+
+        if (whitespaceEnd < length && whitespaceEnd - start > 1) return whitespaceEnd - 1;
+        return Math.max(whitespaceEnd, next);
+    }
+
+    private int contractionEnd(int position) {
+        final char first = text.charAt(position);
+        if (isCaseInsensitive(first, 's') || isCaseInsensitive(first, 't') ||
+            isCaseInsensitive(first, 'm') || isCaseInsensitive(first, 'd')) {
+            return position + 1;
+        }
+
+        if (position + 1 < length) {
+            final char second = text.charAt(position + 1);
+            if ((isCaseInsensitive(first, 'r') && isCaseInsensitive(second, 'e')) ||
+                (isCaseInsensitive(first, 'v') && isCaseInsensitive(second, 'e')) ||
+                (isCaseInsensitive(first, 'l') && isCaseInsensitive(second, 'l'))) {
+                return position + 2;
+            }
+        }
+
+        return -1;
+    }
+
+    private int lettersEnd(int position) {
+        while (position < length) {
+            final int c = Character.codePointAt(text, position);
+            if (!isLetter(c)) break;
+            position += Character.charCount(c);
+        }
+        return position;
+    }
+
+    private static boolean isCaseInsensitive(char c, char lowerCase) {
+        // Unicode case folding also maps the long s (U+017F) onto 's'
+        return c == lowerCase || c == Character.toUpperCase(lowerCase) || (lowerCase == 's' && c == '\u017F');
+    }
+
+    static boolean isLetter(int c) {
+        return Character.isLetter(c);
+    }
+
+    static boolean isNumeric(int c) {
+        if (c < 0x80) return c >= '0' && c <= '9';
+
+        final int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    static boolean isNewline(int c) {
+        return c == '\r' || c == '\n';
+    }
+
+    /**
+     * Unicode White_Space property, as matched by \s.  Differs from {@link Character#isWhitespace(int)}, which
+     * excludes non-breaking spaces and includes the ASCII separator control characters
+     */
+    static boolean isWhitespace(int c) {
+        if (c < 0x80) return c == ' ' || (c >= '\t' && c <= '\r');
+
+        return c == 0x85 || c == 0xA0 || c == 0x1680 || (c >= 0x2000 && c <= 0x200A) ||
+               c == 0x2028 || c == 0x2029 || c == 0x202F || c == 0x205F || c == 0x3000;
+    }
+
+    private static boolean isSymbol(int c) {
+        return !isWhitespace(c) && !isLetter(c) && !isNumeric(c);
+    }
+}
@@ -0,0 +1,36 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Segments text using a pre-tokenization regular expression.  The matcher is retained and reset for each text, so
+ * segmentation does not allocate per piece
+ */
+final class RegexSegmenter implements TextSegmenter {
+    private final Matcher matcher;
+    private CharSequence text = "";
+    private int length;
+
+    RegexSegmenter(Pattern pattern) {
+        this.matcher = pattern.matcher("");
+        this.matcher.useTransparentBounds(true);
+        this.matcher.useAnchoringBounds(false);
+    }
+
+    @Override
+    public void reset(CharSequence text) {
+        matcher.reset(text);
+        this.text = text;
+        length = text.length();
+    }
+
+    @Override
+    public int nextBoundary(int start) {
+        matcher.region(start, length);
+        if (matcher.lookingAt() && matcher.end() > start) return matcher.end();
+
+        // Patterns are expected to match at every position; advance by a single character if not
+        return start + Character.charCount(Character.codePointAt(text, start));
+    }
+}
@@ -0,0 +1,18 @@
+package org.rj.modelgen.llm.tokenizer;
+
+/**
+ * Splits text into the pieces which are byte-pair encoded independently.  Segmenters are stateful and not
+ * thread-safe; each encoding thread holds its own instance
+ */
+interface TextSegmenter {
+    /**
+     * Begin segmenting the given text.  Passing an empty sequence releases any reference to previous text
+     */
+    void reset(CharSequence text);
+
+    /**
+     * @param start     Start of the next piece; must be less than the text length
+     * @return          End (exclusive) of the piece beginning at {@code start}
+     */
+    int nextBoundary(int start);
+}
@@ -0,0 +1,112 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache of token counts for repeated strings, such as system prompts and session history entries which are
+ * counted on every request.  Entries are keyed by a hash of the content rather than the string itself, so the cache
+ * never retains the counted text and each entry has the same small footprint regardless of the length of the string.
+ *
+ * A count is only cached once the same content has been seen twice, so content counted once (e.g. each new response)
+ * occupies no more than its key and cannot displace the entries which do repeat.  Entries are held in two generations:
+ * new entries are added to the current generation, and when it reaches capacity it replaces the previous generation.
+ * Entries found in the previous generation are promoted, so frequently-used strings are retained while the footprint
+ * remains bounded without per-entry bookkeeping
+ */
+final class TokenCountCache {
+    private final int maxEntries;
+    private volatile Generation current = new Generation();
+    private volatile Generation previous = new Generation();
+
+    TokenCountCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    int getOrCompute(String text, ToIntFunction<String> counter) {
+        final var key = ContentKey.of(text);
+        final var active = current;
+        final var cached = active.counts.get(key);
+        if (cached != null) return cached;
+
+        final var last = previous;
+        final var promoted = last.counts.get(key);
+        final int count = (promoted != null) ? promoted : counter.applyAsInt(text);
+
+        // Content seen for the first time is only recorded as seen, and its count is cached if it occurs again
+        final boolean repeated = (promoted != null) || last.seen.contains(key) || !active.seen.add(key);
+        if (repeated) active.counts.putIfAbsent(key, count);
+
+        if (active.counts.size() + active.seen.size() >= maxEntries) rotate(active);
+        return count;
+    }
+
+    /**
+     * @return      Number of token counts currently held in the cache
+     */
+    int size() {
+        return current.counts.size() + previous.counts.size();
+    }
+
+    void clear() {
+        synchronized (this) {
+            previous = new Generation();
+            current = new Generation();
+        }
+    }
+
+    private void rotate(Generation full) {
+        synchronized (this) {
+            if (current != full) return;        // Already rotated by another thread
+
+            previous = full;
+            current = new Generation();
+        }
+    }
+
+    private static final class Generation {
+        private final Map<ContentKey, Integer> counts = new ConcurrentHashMap<>();
+        private final Set<ContentKey> seen = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Identity of a string by its length and two independent hashes, the cached {@link String#hashCode()} and a 64-bit
+     * FNV-1a hash.  A collision would require equal lengths and both hashes to collide, which is negligible for the
+     * number of entries held
+     */
+    private static final class ContentKey {
+        private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private final int length;
+        private final int hash;
+        private final long contentHash;
+
+        private ContentKey(int length, int hash, long contentHash) {
+            this.length = length;
+            this.hash = hash;
+            this.contentHash = contentHash;
+        }
+
+        static ContentKey of(String text) {
+            long contentHash = FNV_OFFSET_BASIS;
+            for (int i = 0; i < text.length(); ++i) {
+                contentHash = (contentHash ^ text.charAt(i)) * FNV_PRIME;
+            }
+
+            return new ContentKey(text.length(), text.hashCode(), contentHash);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ContentKey key && key.length == length && key.hash == hash && key.contentHash == contentHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Converts text to and from the token sequences consumed by a model.  Implementations are thread-safe.  Text is
+ * always encoded as ordinary text, i.e. any special token markers in the input are tokenized literally
+ */
+public interface Tokenizer {
+    /**
+     * @return      Encoding implemented by this tokenizer
+     */
+    TokenizerEncoding getEncoding();
+
+    /**
+     * Count the tokens in the given text without materializing the token sequence.  Counts for longer strings, such
+     * as schema content and prompt templates which are submitted repeatedly, are cached
+     *
+     * @param text      Text to be counted
+     * @return          Number of tokens required to represent the text
+     */
+    int countTokens(String text);
+
+    /**
+     * Count the tokens in the given character sequence without materializing the token sequence.  Counts are not
+     * cached, since the sequence may be mutable
+     *
+     * @param text      Text to be counted
+     * @return          Number of tokens required to represent the text
+     */
+    int countTokens(CharSequence text);
+
+    /**
+     * Encode the given text, passing each token to the provided consumer in sequence
+     *
+     * @param text      Text to be encoded
+     * @param consumer  Consumer for each token of the encoded text
+     * @return          Number of tokens generated
+     */
+    int encode(CharSequence text, IntConsumer consumer);
+
+    /**
+     * Encode the given text
+     *
+     * @param text      Text to be encoded
+     * @return          Token sequence for the text
+     */
+    int[] encode(CharSequence text);
+
+    /**
+     * Decode a token sequence back to text
+     *
+     * @param tokens    Token sequence
+     * @return          Decoded text
+     */
+    String decode(int[] tokens);
+}
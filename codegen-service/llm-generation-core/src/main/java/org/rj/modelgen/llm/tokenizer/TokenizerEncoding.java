@@ -0,0 +1,55 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Byte-pair encodings supported by the embedded tokenizer.  Each encoding pairs a vocabulary in the standard
+ * '.tiktoken' format with the pre-tokenization rules used to split text before byte-pair merging
+ */
+public enum TokenizerEncoding {
+    /**
+     * Encoding used by the GPT-3.5 and GPT-4 model families.  The vocabulary is bundled with this library
+     */
+    Cl100kBase("tokenizer/cl100k_base.tiktoken", Cl100kSegmenter::new),
+
+    /**
+     * Encoding used by the GPT-4o model family.  The vocabulary is not bundled due to its size, and must either be
+     * made available on the classpath or supplied explicitly when loading the tokenizer
+     */
+    O200kBase("tokenizer/o200k_base.tiktoken", () -> new RegexSegmenter(Patterns.O200K));
+
+    private final String vocabularyResource;
+    private final Supplier<TextSegmenter> segmenterFactory;
+
+    TokenizerEncoding(String vocabularyResource, Supplier<TextSegmenter> segmenterFactory) {
+        this.vocabularyResource = vocabularyResource;
+        this.segmenterFactory = segmenterFactory;
+    }
+
+    public String getVocabularyResource() {
+        return vocabularyResource;
+    }
+
+    TextSegmenter newSegmenter() {
+        return segmenterFactory.get();
+    }
+
+    static final class Patterns {
+        static final Pattern CL100K = Pattern.compile(
+                "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+                Pattern.UNICODE_CHARACTER_CLASS);
+
+        static final Pattern O200K = Pattern.compile(String.join("|",
+                "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]*[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]+(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+                "[^\\r\\n\\p{L}\\p{N}]?[\\p{Lu}\\p{Lt}\\p{Lm}\\p{Lo}\\p{M}]+[\\p{Ll}\\p{Lm}\\p{Lo}\\p{M}]*(?i:'s|'t|'re|'ve|'m|'ll|'d)?",
+                "\\p{N}{1,3}",
+                " ?[^\\s\\p{L}\\p{N}]+[\\r\\n/]*",
+                "\\s*[\\r\\n]+",
+                "\\s+(?!\\S)",
+                "\\s+"),
+                Pattern.UNICODE_CHARACTER_CLASS);
+
+        private Patterns() { }
+    }
+}
@@ -0,0 +1,73 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared tokenizer instances.  Vocabularies are loaded once on first use and the resulting tokenizers are shared
+ * by all callers
+ */
+public final class Tokenizers {
+    private static final Logger LOG = LoggerFactory.getLogger(Tokenizers.class);
+
+    public static final TokenizerEncoding DEFAULT_ENCODING = TokenizerEncoding.Cl100kBase;
+
+    private static final Map<TokenizerEncoding, Tokenizer> TOKENIZERS = new ConcurrentHashMap<>();
+
+    private Tokenizers() { }
+
+    /**
+     * @return      Tokenizer for the default encoding
+     */
+    public static Tokenizer defaultTokenizer() {
+        return get(DEFAULT_ENCODING);
+    }
+
+    /**
+     * Return the tokenizer for the given encoding, loading its vocabulary from the classpath on first use
+     *
+     * @param encoding      Required encoding
+     * @return              Shared tokenizer for the encoding
+     */
+    public static Tokenizer get(TokenizerEncoding encoding) {
+        if (encoding == null) throw new LlmGenerationConfigException("Cannot load tokenizer for null encoding");
+        return TOKENIZERS.computeIfAbsent(encoding, Tokenizers::loadFromClasspath);
+    }
+
+    /**
+     * Load a tokenizer for the given encoding from the supplied vocabulary data.  The new tokenizer is not shared
+     *
+     * @param encoding      Encoding of the vocabulary
+     * @param vocabulary    Vocabulary data in the '.tiktoken' format
+     * @return              New tokenizer
+     */
+    public static Tokenizer load(TokenizerEncoding encoding, InputStream vocabulary) {
+        if (encoding == null || vocabulary == null) throw new LlmGenerationConfigException("Cannot load tokenizer without valid encoding and vocabulary");
+
+        try {
+            return new BpeTokenizer(encoding, BpeVocabulary.load(vocabulary));
+        }
+        catch (Exception ex) {
+            throw new LlmGenerationConfigException(String.format("Failed to load tokenizer vocabulary for %s (%s)", encoding, ex.getMessage()), ex);
+        }
+    }
+
+    private static Tokenizer loadFromClasspath(TokenizerEncoding encoding) {
+        final var resource = encoding.getVocabularyResource();
+        final var input = Tokenizers.class.getClassLoader().getResourceAsStream(resource);
+        if (input == null) {
+            throw new LlmGenerationConfigException(String.format("Tokenizer vocabulary for %s is not available (expected resource '%s')", encoding, resource));
+        }
+
+        final long start = System.nanoTime();
+        final var tokenizer = load(encoding, input);
+        LOG.info("Loaded {} tokenizer vocabulary in {}ms", encoding, (System.nanoTime() - start) / 1_000_000L);
+
+        return tokenizer;
+    }
+}
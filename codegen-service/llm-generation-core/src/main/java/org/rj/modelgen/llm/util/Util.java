@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONObject;
+import org.rj.modelgen.llm.tokenizer.Tokenizers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -130,8 +131,8 @@ public class Util {
     }
 
     public static int estimateTokenSize(String string) {
-        if (StringUtils.isBlank(string)) return 0;
+        if (StringUtils.isEmpty(string)) return 0;
 
-        return StringUtils.countMatches(string, ' ') + 1;
+        return Tokenizers.defaultTokenizer().countTokens(string);
     }
 }
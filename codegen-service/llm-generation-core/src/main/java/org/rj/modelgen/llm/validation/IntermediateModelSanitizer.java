@@ -5,6 +5,7 @@ import java.util.regex.Pattern;
 
 public abstract class IntermediateModelSanitizer {
     private static final Pattern JSON_EXTRACT = Pattern.compile("^.*?(\\{.*}).*?$", Pattern.DOTALL | Pattern.MULTILINE);
+    private static final Pattern JSON_ARRAY_EXTRACT = Pattern.compile("^[^\\[{]*?(\\[\\s*(?:\\{.*})?\\s*]).*?$", Pattern.DOTALL);
     private static final String FIX_INVALID_ESCAPES = "([^\\\\])\\\\([^\"\\\\/bfnrt])";
 
     public IntermediateModelSanitizer() { }
@@ -34,9 +35,15 @@ public abstract class IntermediateModelSanitizer {
 
     /***
      * Extract JSON: attempt to locate the largest JSON block within the output, in case of additional text
-     * in violation of prompt constraints
+     * in violation of prompt constraints.  A top-level array of objects, such as a model delta, is retained as
+     * an array
      */
     private String extractJsonIfRequired(String content) {
+        final var arrayMatcher = JSON_ARRAY_EXTRACT.matcher(content);
+        if (arrayMatcher.find()) {
+            return arrayMatcher.group(1);
+        }
+
         final var matcher = JSON_EXTRACT.matcher(content);
         if (matcher.find()) {
             return matcher.group(1);
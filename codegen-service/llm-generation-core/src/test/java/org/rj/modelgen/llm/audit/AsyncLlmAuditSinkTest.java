@@ -0,0 +1,197 @@
+package org.rj.modelgen.llm.audit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rj.modelgen.llm.util.Util;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+public class AsyncLlmAuditSinkTest {
+
+    @Test
+    public void testRecordsAreWrittenAndTruncated(@TempDir Path directory) throws Exception {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory)
+                .withMaxFieldLength(16));
+
+        sink.record(LlmAuditRecordType.Request, 1, Map.of("content", "x".repeat(100)));
+        sink.record(LlmAuditRecordType.Response, 1, Map.of("content", "short"));
+        sink.close();
+
+        final var lines = readAllRecords(directory);
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertEquals(2, sink.getWrittenCount());
+
+        final var request = Util.deserializeOrThrow(lines.get(0), Map.class);
+        Assertions.assertEquals("Request", request.get("type"));
+        Assertions.assertEquals("x".repeat(16) + "...[truncated 84 chars]", ((Map<?, ?>)request.get("payload")).get("content"));
+
+        final var response = Util.deserializeOrThrow(lines.get(1), Map.class);
+        Assertions.assertEquals("short", ((Map<?, ?>)response.get("payload")).get("content"));
+    }
+
+    @Test
+    public void testUnsampledRecordsAreNeverSerialized(@TempDir Path directory) {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory)
+                .withSampleRate(0.0));
+
+        // Any attempt to serialize this payload would fail, and be counted as a dropped record
+        sink.record(LlmAuditRecordType.Request, 1, new Object() {
+            public String getValue() { throw new IllegalStateException("Should not be serialized"); }
+        });
+        sink.close();
+
+        Assertions.assertEquals(1, sink.getSampledOutCount());
+        Assertions.assertEquals(0, sink.getDroppedCount());
+        Assertions.assertEquals(0, sink.getWrittenCount());
+    }
+
+    @Test
+    public void testSamplingKeepsRequestAndResponseTogether(@TempDir Path directory) {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory)
+                .withSampleRate(0.25));
+        sink.close();
+
+        int sampled = 0;
+        for (int i = 0; i < 10000; ++i) {
+            Assertions.assertEquals(sink.isSampled(i), sink.isSampled(i));
+            if (sink.isSampled(i)) ++sampled;
+        }
+
+        Assertions.assertTrue(sampled > 2000 && sampled < 3000, "Sampled " + sampled);
+    }
+
+    @Test
+    public void testSegmentsAreRotatedAndExpired(@TempDir Path directory) throws Exception {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory)
+                .withSegmentSize(256)
+                .withMaxSegments(2));
+
+        for (int i = 0; i < 20; ++i) {
+            sink.record(LlmAuditRecordType.Response, i, Map.of("content", "y".repeat(100)));
+        }
+        sink.close();
+
+        try (final var files = Files.list(directory)) {
+            final var segments = files.toList();
+            Assertions.assertEquals(2, segments.size());
+            for (final var segment : segments) {
+                Assertions.assertTrue(Files.size(segment) <= 256);
+            }
+        }
+        Assertions.assertEquals(20, sink.getWrittenCount());
+    }
+
+    @Test
+    public void testSegmentsFromEarlierRunsAreExpired(@TempDir Path directory) throws Exception {
+        for (int run = 0; run < 2; ++run) {
+            final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                    .withDirectory(directory)
+                    .withSegmentSize(256)
+                    .withMaxSegments(3));
+
+            for (int i = 0; i < 10; ++i) {
+                sink.record(LlmAuditRecordType.Response, i, Map.of("content", "y".repeat(100)));
+            }
+            sink.close();
+        }
+
+        // Unrelated files in the audit directory are never expired
+        Files.writeString(directory.resolve("other.log"), "other");
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory)
+                .withSegmentSize(256)
+                .withMaxSegments(3));
+        sink.record(LlmAuditRecordType.Response, 1, Map.of("content", "latest"));
+        sink.close();
+
+        try (final var files = Files.list(directory)) {
+            final var names = files.map(x -> x.getFileName().toString()).sorted().toList();
+            Assertions.assertEquals(4, names.size(), names.toString());
+            Assertions.assertTrue(names.contains("other.log"));
+        }
+        Assertions.assertTrue(readAllRecords(directory).stream().anyMatch(x -> x.contains("latest")));
+    }
+
+    @Test
+    public void testRecordsAreRejectedAfterClose(@TempDir Path directory) {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory));
+
+        Assertions.assertTrue(sink.record(LlmAuditRecordType.Request, 1, Map.of("content", "before")));
+        sink.close();
+
+        Assertions.assertFalse(sink.record(LlmAuditRecordType.Response, 1, Map.of("content", "after")));
+        Assertions.assertEquals(1, sink.getWrittenCount());
+        Assertions.assertEquals(1, sink.getRejectedCount());
+        Assertions.assertEquals(0, sink.getDroppedCount());
+    }
+
+    @Test
+    public void testIdleWriterIsWokenByRecord(@TempDir Path directory) throws Exception {
+        final var sink = new AsyncLlmAuditSink(LlmAuditOptions.defaultOptions()
+                .withDirectory(directory));
+
+        // Allow the writer to park, then confirm that a single record is written without waiting on any timeout
+        Thread.sleep(50L);
+        sink.record(LlmAuditRecordType.Request, 1, Map.of("content", "wake"));
+
+        final var deadline = System.nanoTime() + 2_000_000_000L;
+        while (sink.getWrittenCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1L);
+        }
+
+        Assertions.assertEquals(1, sink.getWrittenCount());
+        sink.close();
+    }
+
+    @Test
+    public void testRingBufferWithConcurrentProducers() throws Exception {
+        final var buffer = new MpscRingBuffer<Integer>(64);
+        final var received = ConcurrentHashMap.<Integer>newKeySet();
+        final int producerCount = 4, perProducer = 2000;
+
+        final var producers = new ArrayList<Thread>();
+        for (int p = 0; p < producerCount; ++p) {
+            final var base = p * perProducer;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; ++i) {
+                    while (!buffer.offer(base + i)) Thread.yield();
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+
+        while (received.size() < producerCount * perProducer) {
+            final var value = buffer.poll();
+            if (value == null) Thread.yield();
+            else Assertions.assertTrue(received.add(value), "Duplicate value " + value);
+        }
+        for (final var producer : producers) producer.join();
+
+        Assertions.assertNull(buffer.poll());
+        Assertions.assertTrue(buffer.isEmpty());
+    }
+
+    private static List<String> readAllRecords(Path directory) throws Exception {
+        try (final var files = Files.list(directory)) {
+            final var records = new ArrayList<String>();
+            for (final var segment : files.sorted().toList()) {
+                try (final Stream<String> lines = Files.lines(segment)) {
+                    lines.filter(line -> !line.isBlank()).forEach(records::add);
+                }
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.rj.modelgen.llm.context;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.List;
+
+public class ContextTest {
+    @Test
+    public void testDerivedVersionsDoNotAffectEachOther() {
+        final var base = new Context(List.of(ContextEntry.forUser("Create a process"), ContextEntry.forModel("model-1")));
+
+        final var first = base.withEntry(ContextEntry.forUser("Add a task"));
+        final var second = base.withEntry(ContextEntry.forUser("Add a gateway"));
+        final var third = base.withEntry(ContextEntry.forUser("Remove the start event"));
+
+        Assertions.assertEquals(List.of("Create a process", "model-1", "Add a task"), contents(first));
+        Assertions.assertEquals(List.of("Create a process", "model-1", "Add a gateway"), contents(second));
+        Assertions.assertEquals(List.of("Create a process", "model-1", "Remove the start event"), contents(third));
+        Assertions.assertEquals(List.of("Create a process", "model-1"), contents(base));
+
+        // Versions share the entries they were derived from
+        Assertions.assertSame(base.getData().get(1), first.getData().get(1));
+        Assertions.assertSame(first.getData().get(1), second.getData().get(1));
+    }
+
+    @Test
+    public void testEncodedEntriesAreCachedAndDecodeToOriginal() {
+        final var encodings = new int[1];
+        final var codec = new ContentCodec() {
+            @Override
+            public String encode(String content) {
+                ++encodings[0];
+                return "encoded:" + content;
+            }
+
+            @Override
+            public String decode(String content) {
+                throw new IllegalStateException("Encoded entries should decode to their original entries");
+            }
+        };
+
+        final var context = new Context(List.of(ContextEntry.forUser("Create a process"), ContextEntry.forModel("model-1")));
+
+        final var encoded = context.withEncodedEntries(ContextRole.MODEL, codec);
+        Assertions.assertEquals(List.of("Create a process", "encoded:model-1"), submitted(encoded));
+        Assertions.assertSame(encoded.getSubmittedData().get(1), context.withEncodedEntries(ContextRole.MODEL, codec).getSubmittedData().get(1));
+        Assertions.assertEquals(1, encodings[0]);
+
+        // Encoding is applied only on submission, so the history is unchanged
+        Assertions.assertSame(context.getData().get(1), encoded.getData().get(1));
+
+        final var decoded = encoded.withDecodedEntries(ContextRole.MODEL, codec);
+        Assertions.assertSame(context.getData().get(1), decoded.getSubmittedData().get(1));
+    }
+
+    @Test
+    public void testLatestEntriesAreIndexedPerVersion() {
+        final var empty = new Context();
+        Assertions.assertFalse(empty.hasLatestUserEntry());
+        Assertions.assertFalse(empty.hasLatestModelEntry());
+
+        final var earlier = empty.withEntry(ContextEntry.forUser("prompt-1")).withEntry(ContextEntry.forModel("model-1"));
+        final var later = earlier.withEntry(ContextEntry.forUser("prompt-2")).withEntry(ContextEntry.forModel("model-2"));
+
+        Assertions.assertEquals("model-2", later.getLatestModelEntry().orElseThrow().getContent());
+        Assertions.assertEquals("prompt-2", later.getLatestUserEntry().orElseThrow().getContent());
+        Assertions.assertEquals("model-1", earlier.getLatestModelEntry().orElseThrow().getContent());
+        Assertions.assertEquals("prompt-1", earlier.getLatestUserEntry().orElseThrow().getContent());
+        Assertions.assertEquals(2, earlier.length());
+    }
+
+    @Test
+    public void testRequestViewsAreAppliedOnlyOnSubmission() {
+        final var history = new Context(List.of(ContextEntry.forUser("prompt-1"), ContextEntry.forModel("model-1")));
+        final var request = history
+                .withEncodedEntries(ContextRole.MODEL, new ContentCodec() {
+                    @Override
+                    public String encode(String content) {
+                        return "encoded:" + content;
+                    }
+
+                    @Override
+                    public String decode(String content) {
+                        return content;
+                    }
+                })
+                .withEntry(ContextEntry.forUser("prompt-2"))
+                .withSystemPrompt("System")
+                .withPromptSupplement("Examples: ");
+
+        Assertions.assertEquals(List.of("System", "prompt-1", "encoded:model-1", "Examples: prompt-2"), submitted(request));
+        Assertions.assertEquals(List.of("prompt-1", "model-1", "prompt-2"), contents(request));
+        Assertions.assertEquals("encoded:model-1", request.getLatestSubmittedEntryForRole(ContextRole.MODEL).orElseThrow().getContent());
+
+        // The supplement remains with its prompt when the request is continued
+        final var continuation = request.withEntry(ContextEntry.forModel("partial")).withEntry(ContextEntry.forUser("Continue"));
+        Assertions.assertEquals(List.of("System", "prompt-1", "encoded:model-1", "Examples: prompt-2", "encoded:partial", "Continue"),
+                submitted(continuation));
+
+        // The history of the request shares its entries, and is unchanged by the views
+        final var retained = request.withoutRequestViews();
+        Assertions.assertEquals(contents(retained), submitted(retained));
+        Assertions.assertSame(request.getData().get(2), retained.getData().get(2));
+        Assertions.assertEquals(2, history.length());
+    }
+
+    @Test
+    public void testContentStoreIsAppliedToNewVersion() {
+        final var store = new OffHeapContentStore(8);
+        final var context = new Context(List.of(ContextEntry.forModel("model-content")));
+
+        final var stored = context.withContentStore(store);
+        Assertions.assertTrue(stored.getData().get(0).isOffHeap());
+        Assertions.assertFalse(context.getData().get(0).isOffHeap());
+        Assertions.assertSame(stored, stored.withContentStore(store));
+
+        // Derived versions share the store, so need not be scanned again
+        final var derived = stored.withSystemPrompt("System").withEntry(ContextEntry.forModel("later-model-content"));
+        Assertions.assertSame(derived, derived.withContentStore(store));
+        Assertions.assertTrue(derived.getData().get(1).isOffHeap());
+    }
+
+    @Test
+    public void testContentSizeIsMaintainedForEachVersion() {
+        final var base = new Context(List.of(ContextEntry.forUser("Create a process"), ContextEntry.forModel("model-1")));
+        final var first = base.withEntry(ContextEntry.forUser("Add a task"));
+        final var second = base.withEntry(ContextEntry.forUser("Add a gateway")).withSystemPrompt("System");
+        final var stored = second.withContentStore(new OffHeapContentStore(8));
+
+        for (final var context : List.of(base, first, second, stored)) {
+            Assertions.assertEquals(context.stream().mapToLong(x -> x.isOffHeap() ? x.getOffHeapBytes() : x.getContentLength()).sum(),
+                    context.getContentSizeBytes());
+        }
+        Assertions.assertEquals(base.getContentSizeBytes() + "Add a task".length(), first.getContentSizeBytes());
+    }
+
+    @Test
+    public void testLongConversationIsExtendedInPlace() {
+        var context = new Context();
+        for (int i = 0; i < 10000; ++i) {
+            context = context.withEntry(ContextEntry.forUser("prompt-" + i)).withEntry(ContextEntry.forModel("model-" + i));
+        }
+
+        Assertions.assertEquals(20000, context.length());
+        Assertions.assertEquals("model-9999", context.getLatestModelEntry().orElseThrow().getContent());
+        Assertions.assertEquals("prompt-5000", context.getData().get(10000).getContent());
+    }
+
+    @Test
+    public void testDataIsReadOnly() {
+        final var context = new Context(List.of(ContextEntry.forUser("prompt")));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> context.getData().add(ContextEntry.forModel("model")));
+    }
+
+    @Test
+    public void testContextIsSerializedAsEntries() throws Exception {
+        final var context = new Context(List.of(ContextEntry.forUser("prompt"), ContextEntry.forModel("model")))
+                .withSystemPrompt("System");
+
+        final var mapper = Util.getObjectMapper();
+        final var restored = mapper.readValue(mapper.writeValueAsString(context), Context.class);
+        Assertions.assertEquals(List.of("prompt", "model"), contents(restored));
+        Assertions.assertEquals("model", restored.getLatestModelEntry().orElseThrow().getContent());
+        Assertions.assertNull(restored.getSystemPrompt());
+    }
+
+    private static List<String> contents(Context context) {
+        return context.stream().map(ContextEntry::getContent).toList();
+    }
+
+    private static List<String> submitted(Context context) {
+        return context.getSubmittedData().stream().map(ContextEntry::getContent).toList();
+    }
+}
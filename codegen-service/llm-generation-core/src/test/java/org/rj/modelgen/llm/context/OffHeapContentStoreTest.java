@@ -0,0 +1,148 @@
+package org.rj.modelgen.llm.context;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.session.BoundedSessionStore;
+import org.rj.modelgen.llm.session.SessionState;
+import org.rj.modelgen.llm.session.SessionStoreOptions;
+import org.rj.modelgen.llm.session.persistence.SessionSnapshotCodec;
+
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OffHeapContentStoreTest {
+    private static final String MODEL = "{ \"nodes\": [" + "{ \"id\": \"task\", \"name\": \"Review — €\" },".repeat(200) + "] }";
+
+    @Test
+    public void testContentIsRestoredExactly() {
+        final var store = new OffHeapContentStore();
+        final var content = store.store(MODEL);
+
+        Assertions.assertEquals(MODEL, content.materialize());
+        Assertions.assertEquals(MODEL.length(), content.length());
+        Assertions.assertTrue(content.getStoredBytes() < MODEL.length() / 4);
+    }
+
+    @Test
+    public void testIdenticalContentIsStoredOnce() {
+        final var store = new OffHeapContentStore();
+        final var first = store.store(MODEL);
+        final var second = store.store(new String(MODEL.toCharArray()));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertEquals(first.getStoredBytes(), store.getStoredBytes());
+    }
+
+    @Test
+    public void testShortContentRemainsOnHeap() {
+        final var store = new OffHeapContentStore();
+        final var context = new Context().withContentStore(store)
+                .withEntry(ContextEntry.forUser("Add a review task"))
+                .withEntry(ContextEntry.forModel(MODEL));
+
+        Assertions.assertFalse(context.getData().get(0).isOffHeap());
+        Assertions.assertTrue(context.getData().get(1).isOffHeap());
+        Assertions.assertEquals(MODEL, context.getLatestModelEntry().orElseThrow().getContent());
+    }
+
+    @Test
+    public void testSessionContentIsHeldOffHeap() {
+        final var store = new OffHeapContentStore();
+        final var sessions = new BoundedSessionStore(SessionStoreOptions.defaultOptions().withContentStore(store));
+
+        final var session = sessions.getOrCreate("session-1", SessionState::new);
+        session.replaceContext(new Context(List.of(ContextEntry.forModel(MODEL))));
+
+        Assertions.assertTrue(session.getContext().getData().get(0).isOffHeap());
+        Assertions.assertTrue(session.estimateSizeBytes() < MODEL.length());
+
+        // Derived contexts share the off-heap entries of the session
+        final var derived = session.getContext().withSystemPrompt("System");
+        Assertions.assertSame(session.getContext().getData().get(0), derived.getSubmittedData().get(1));
+    }
+
+    @Test
+    public void testOffHeapContentIsCountedTowardsSessionSize() {
+        final var store = new OffHeapContentStore();
+        final var session = new SessionState("session-1");
+        session.useContentStore(store);
+        session.replaceContext(new Context(List.of(ContextEntry.forModel(MODEL))));
+
+        final var entry = session.getContext().getData().get(0);
+        Assertions.assertTrue(entry.getOffHeapBytes() > 0);
+        Assertions.assertTrue(session.estimateSizeBytes() >= entry.getOffHeapBytes());
+    }
+
+    @Test
+    public void testOffloadedEntriesAreRetainedWhenContextIsReplaced() {
+        final var session = new SessionState("session-1");
+        session.useContentStore(new OffHeapContentStore());
+        session.replaceContext(new Context(List.of(ContextEntry.forModel(MODEL))));
+        final var offloaded = session.getContext().getData().get(0);
+
+        // Derived contexts, as replaced on each turn, reuse the existing off-heap entries rather than offloading again
+        session.replaceContext(session.getContext().withSystemPrompt("System").withoutSystemPrompt());
+        Assertions.assertSame(offloaded, session.getContext().getData().get(0));
+    }
+
+    @Test
+    public void testOffHeapContentReducesRetainedHeap() {
+        final int sessions = 64, turns = 16;
+        final long onHeap = retainedHeap(() -> contexts(null, sessions, turns));
+        final long offHeap = retainedHeap(() -> contexts(new OffHeapContentStore(), sessions, turns));
+
+        Assertions.assertTrue(offHeap < onHeap / 4, String.format("Retained %d bytes off-heap vs %d on-heap", offHeap, onHeap));
+    }
+
+    @Test
+    public void testOffHeapContentIsIncludedInSnapshot() {
+        final var session = new SessionState("session-1");
+        session.useContentStore(new OffHeapContentStore());
+        session.replaceContext(new Context(List.of(ContextEntry.forModel(MODEL))));
+
+        final var restored = SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(session));
+        Assertions.assertFalse(restored.getContext().getData().get(0).isOffHeap());
+        Assertions.assertEquals(MODEL, restored.getLastResponse().orElseThrow());
+    }
+
+    private static List<Context> contexts(OffHeapContentStore store, int count, int turns) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    var context = new Context().withContentStore(store);
+                    for (int turn = 0; turn < turns; ++turn) {
+                        context = context.withEntry(ContextEntry.forModel(model(i * turns + turn)));
+                    }
+                    return context;
+                })
+                .toList();
+    }
+
+    // Distinct for each index, so that no content is deduplicated
+    private static String model(int index) {
+        return IntStream.range(0, 200)
+                .mapToObj(n -> "{ \"id\": \"task-" + index + "-" + n + "\", \"name\": \"Review step " + n + "\" },")
+                .collect(Collectors.joining("", "{ \"nodes\": [", "] }"));
+    }
+
+    private static long retainedHeap(Supplier<Object> allocation) {
+        final long before = usedHeap();
+        final var retained = allocation.get();
+        final long after = usedHeap();
+
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+
+        final var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,230 @@
+package org.rj.modelgen.llm.context.provider;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.ContentCodec;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.context.ContextRole;
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProvider;
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProviderOptions;
+import org.rj.modelgen.llm.tokenizer.Tokenizer;
+import org.rj.modelgen.llm.tokenizer.TokenizerEncoding;
+import org.rj.modelgen.llm.tokenizer.Tokenizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+public class TokenBudgetedContextProviderTest {
+
+    @Test
+    public void testFullHistoryRetainedWithinBudget() {
+        final var provider = new TokenBudgetedContextProvider(TokenBudgetedContextProviderOptions.defaultOptions()
+                .withMaxHistoryCostRatio(100.0), ContextSummarizer.userRequests());
+
+        final var decision = provider.fit(history(3), "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.FullHistory, decision.getMode());
+        Assertions.assertEquals(8, decision.getContext().length());
+        Assertions.assertEquals(0, decision.getRemovedEntries());
+        Assertions.assertTrue(decision.isWithinBudget());
+    }
+
+    @Test
+    public void testLowValueEntriesRemovedBeforeSummarizing() {
+        final var context = history(3);
+        final var options = TokenBudgetedContextProviderOptions.defaultOptions()
+                .withMaxHistoryCostRatio(100.0);
+
+        // Budget allows everything except the superseded model states
+        final var full = new TokenBudgetedContextProvider(options, ContextSummarizer.none()).fit(context, "Add a review step");
+        options.setContextWindowTokens(options.getReservedResponseTokens() + full.getEstimatedTokens() - 1);
+
+        final var decision = new TokenBudgetedContextProvider(options, ContextSummarizer.userRequests()).fit(context, "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.SummarizedHistory, decision.getMode());
+        Assertions.assertEquals(List.of(ContextRole.USER, ContextRole.USER, ContextRole.USER, ContextRole.MODEL, ContextRole.USER),
+                decision.getContext().stream().map(ContextEntry::getRole).toList());
+        Assertions.assertEquals(state(3), decision.getContext().getLatestModelEntry().orElseThrow().getContent());
+        Assertions.assertEquals(3, decision.getRemovedEntries());
+    }
+
+    @Test
+    public void testOldestHistorySummarizedToFitBudget() {
+        final var context = history(6);
+        final var options = TokenBudgetedContextProviderOptions.defaultOptions()
+                .withMaxHistoryCostRatio(100.0)
+                .withSummaryTokenLimit(32);
+
+        final var latestOnly = new TokenBudgetedContextProvider(options, ContextSummarizer.none())
+                .fit(new Context(List.of(ContextEntry.forModel(state(6)))), "Add a review step");
+        options.setContextWindowTokens(options.getReservedResponseTokens() + latestOnly.getEstimatedTokens() + 90);
+
+        final var decision = new TokenBudgetedContextProvider(options, ContextSummarizer.userRequests()).fit(context, "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.SummarizedHistory, decision.getMode());
+        Assertions.assertTrue(decision.isWithinBudget());
+        Assertions.assertTrue(decision.getEstimatedTokens() <= options.getPromptTokenBudget());
+
+        final var entries = decision.getContext().getData();
+        Assertions.assertTrue(entries.get(0).getContent().startsWith("Summary of earlier requests"));
+        Assertions.assertTrue(entries.get(0).getContent().contains("- Request number "));
+        Assertions.assertTrue(entries.get(entries.size() - 3).getContent().startsWith("Request number 6"));
+        Assertions.assertEquals(state(6), entries.get(entries.size() - 2).getContent());
+        Assertions.assertEquals("Add a review step", entries.get(entries.size() - 1).getContent());
+    }
+
+    @Test
+    public void testLatestModelOnlyWhenNoHistoryFits() {
+        final var options = TokenBudgetedContextProviderOptions.defaultOptions()
+                .withContextWindowTokens(2048 + 40);
+
+        final var decision = new TokenBudgetedContextProvider(options, ContextSummarizer.userRequests()).fit(history(4), "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.LatestModelOnly, decision.getMode());
+        Assertions.assertEquals(2, decision.getContext().length());
+        Assertions.assertEquals(state(4), decision.getContext().getData().get(0).getContent());
+        Assertions.assertFalse(decision.isWithinBudget());
+    }
+
+    @Test
+    public void testHistoryCompactedWhenDisproportionatelyExpensive() {
+        final var options = TokenBudgetedContextProviderOptions.defaultOptions()
+                .withMaxHistoryCostRatio(1.0);
+
+        final var decision = new TokenBudgetedContextProvider(options, ContextSummarizer.none()).fit(history(3), "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.LatestModelOnly, decision.getMode());
+        Assertions.assertTrue(decision.isWithinBudget());
+    }
+
+    @Test
+    public void testSystemPromptLeadsContextAndIsBudgeted() {
+        final var provider = new TokenBudgetedContextProvider(TokenBudgetedContextProviderOptions.defaultOptions()
+                .withMaxHistoryCostRatio(100.0), ContextSummarizer.userRequests());
+        final var systemPrompt = "Static instructions and schema";
+
+        final var context = history(3).withSystemPrompt("Previous system prompt");
+        final var decision = provider.fit(context, systemPrompt, "Add a review step");
+        final var withoutSystemPrompt = provider.fit(context.withoutSystemPrompt(), "Add a review step");
+
+        Assertions.assertEquals(ContextHistoryMode.FullHistory, decision.getMode());
+        final var submitted = decision.getContext().getSubmittedData();
+        Assertions.assertEquals(9, submitted.size());
+        Assertions.assertEquals(ContextRole.SYSTEM, submitted.get(0).getRole());
+        Assertions.assertEquals(systemPrompt, submitted.get(0).getContent());
+        Assertions.assertEquals(1, submitted.stream().filter(x -> x.getRole() == ContextRole.SYSTEM).count());
+        Assertions.assertTrue(decision.getEstimatedTokens() > withoutSystemPrompt.getEstimatedTokens());
+
+        // The system prompt is applied on submission, and is not part of the history
+        Assertions.assertEquals(8, decision.getContext().length());
+        Assertions.assertEquals(8, decision.getContext().withoutSystemPrompt().getSubmittedData().size());
+    }
+
+    @Test
+    public void testPerTurnWorkIsIndependentOfHistoryLength() {
+        final var tokenizer = new CountingTokenizer(Tokenizers.defaultTokenizer());
+        final var codec = new CountingCodec();
+        final var provider = new TokenBudgetedContextProvider(TokenBudgetedContextProviderOptions.defaultOptions()
+                .withContextWindowTokens(1_000_000)
+                .withMaxHistoryCostRatio(1000.0), ContextSummarizer.userRequests(), tokenizer);
+
+        // Each turn is prepared as for a generation request: models are encoded and fitted to the budget, and the
+        // session history is restored to standard form before the response is appended
+        var session = new Context();
+        final var work = new ArrayList<Integer>();
+        for (int turn = 1; turn <= 40; ++turn) {
+            final int before = tokenizer.count + codec.count;
+
+            final var encoded = session.withEncodedEntries(ContextRole.MODEL, codec);
+            final var decision = provider.fit(encoded, "System prompt", "Request number " + turn);
+            Assertions.assertEquals(ContextHistoryMode.FullHistory, decision.getMode());
+
+            session = decision.getContext().withoutSystemPrompt().withDecodedEntries(ContextRole.MODEL, codec)
+                    .withEntry(ContextEntry.forModel(state(turn)));
+            work.add(tokenizer.count + codec.count - before);
+        }
+
+        // Only the new prompt, system prompt and latest response are processed on each turn, however long the history
+        Assertions.assertEquals(1, work.subList(2, work.size()).stream().distinct().count(), "Work per turn: " + work);
+        Assertions.assertEquals(0, codec.decodings);
+    }
+
+    private static Context history(int turns) {
+        var context = new Context().withEntry(ContextEntry.forModel(state(0)));
+        for (int i = 1; i <= turns; ++i) {
+            context = context.withEntry(ContextEntry.forUser("Request number " + i + ": add a task which performs step " + i + " of the process"))
+                    .withEntry(ContextEntry.forModel(state(i)));
+        }
+        return context;
+    }
+
+    private static String state(int steps) {
+        final var nodes = new StringBuilder("{\"nodes\":[");
+        for (int i = 0; i <= steps; ++i) {
+            if (i != 0) nodes.append(',');
+            nodes.append(String.format("{\"id\":\"task%d\",\"elementType\":\"userTask\",\"connectedTo\":[{\"targetNode\":\"task%d\"}]}", i, i + 1));
+        }
+        return nodes.append("]}").toString();
+    }
+
+    private static class CountingCodec implements ContentCodec {
+        private int count;
+        private int decodings;
+
+        @Override
+        public String encode(String content) {
+            ++count;
+            return content.replace("\"", "'");
+        }
+
+        @Override
+        public String decode(String content) {
+            ++count;
+            ++decodings;
+            return content.replace("'", "\"");
+        }
+    }
+
+    private static class CountingTokenizer implements Tokenizer {
+        private final Tokenizer delegate;
+        private int count;
+
+        private CountingTokenizer(Tokenizer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public TokenizerEncoding getEncoding() {
+            return delegate.getEncoding();
+        }
+
+        @Override
+        public int countTokens(String text) {
+            ++count;
+            return delegate.countTokens(text);
+        }
+
+        @Override
+        public int countTokens(CharSequence text) {
+            ++count;
+            return delegate.countTokens(text);
+        }
+
+        @Override
+        public int encode(CharSequence text, IntConsumer consumer) {
+            return delegate.encode(text, consumer);
+        }
+
+        @Override
+        public int[] encode(CharSequence text) {
+            return delegate.encode(text);
+        }
+
+        @Override
+        public String decode(int[] tokens) {
+            return delegate.decode(tokens);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.rj.modelgen.llm.integrations.openai;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class OpenAIModelRequestWriterTest {
+    private final OpenAIModelRequestWriter writer = new OpenAIModelRequestWriter();
+
+    @Test
+    public void testRequestIsWrittenDirectlyToBuffer() {
+        final var content = "Generate a process with \"quoted\" names, unicode é中 and\nline breaks";
+        final var request = new OpenAIModelRequest("gpt-4", 0.7, List.of(
+                new OpenAIContextMessage(OpenAIConstants.ROLE_USER, content),
+                new OpenAIContextMessage(OpenAIConstants.ROLE_ASSISTANT, "{}")));
+
+        final var buffer = writer.write(PooledByteBufAllocator.DEFAULT, request);
+        try {
+            final var expected = Util.serializeBinaryOrThrow(request);
+            Assertions.assertEquals(new String(expected, StandardCharsets.UTF_8), buffer.toString(StandardCharsets.UTF_8));
+
+            final var roundTrip = Util.deserializeOrThrow(buffer.toString(StandardCharsets.UTF_8), OpenAIModelRequest.class);
+            Assertions.assertEquals(content, roundTrip.getMessages().get(0).getContent());
+        }
+        finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testSizeEstimateCoversTypicalRequest() {
+        final var request = new OpenAIModelRequest("gpt-4", 0.7, List.of(
+                new OpenAIContextMessage(OpenAIConstants.ROLE_USER, "x".repeat(5000))));
+
+        final var buffer = writer.write(PooledByteBufAllocator.DEFAULT, request);
+        try {
+            Assertions.assertTrue(writer.estimateSerializedSize(request) >= buffer.readableBytes());
+        }
+        finally {
+            buffer.release();
+        }
+    }
+}
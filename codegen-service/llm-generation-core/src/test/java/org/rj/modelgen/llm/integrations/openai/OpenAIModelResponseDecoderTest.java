@@ -0,0 +1,83 @@
+package org.rj.modelgen.llm.integrations.openai;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.nio.charset.StandardCharsets;
+
+class OpenAIModelResponseDecoderTest {
+    private static final String RESPONSE = """
+            {
+              "id": "chatcmpl-123",
+              "object": "chat.completion",
+              "created": 1688923042,
+              "model": "gpt-4-0613",
+              "usage": { "prompt_tokens": 10, "completion_tokens": 5, "total_tokens": 15 },
+              "choices": [ { "message": { "role": "assistant", "content": "{}" }, "finish_reason": "stop", "index": 0 } ],
+              "unknown_field": { "ignored": true }
+            }
+            """;
+
+    private static final String ERROR_RESPONSE = """
+            { "error": { "message": "Rate limit reached", "type": "requests", "code": 429 } }
+            """;
+
+    private final OpenAIModelResponseDecoder<OpenAIModelResponse> decoder = new OpenAIModelResponseDecoder<>(OpenAIModelResponse.class);
+
+    @Test
+    public void testDecodingFromArrayAndBuffer() {
+        final var bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        final var direct = Unpooled.directBuffer().writeBytes(bytes);
+
+        try {
+            for (final var response : new OpenAIModelResponse[] { decoder.decode(bytes), decoder.decode(direct) }) {
+                Assertions.assertEquals("chatcmpl-123", response.getId());
+                Assertions.assertEquals(5, response.getUsage().getCompletion_tokens());
+                Assertions.assertEquals("{}", response.getChoices().get(0).getMessage().getContent());
+            }
+            Assertions.assertEquals(bytes.length, direct.readableBytes());    // Decoding does not consume the buffer
+        }
+        finally {
+            direct.release();
+        }
+    }
+
+    @Test
+    public void testErrorEnvelopeIsReported() {
+        final var ex = Assertions.assertThrows(LlmGenerationModelException.class,
+                () -> decoder.decode(ERROR_RESPONSE.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertTrue(ex.getMessage().contains("Rate limit reached"));
+    }
+
+    @Test
+    public void testMetadataIsMaterializedOnRead() {
+        final var response = new OpenAIModelResponseTransformer().transform(decoder.decode(RESPONSE.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals("gpt-4-0613", response.getMetadata().get("model"));
+        Assertions.assertSame(response.getMetadata(), response.getMetadata());
+    }
+
+    @Test
+    public void testCachedPromptTokensAreReported() {
+        final var cached = RESPONSE.replace("\"total_tokens\": 15 }",
+                "\"total_tokens\": 15, \"prompt_tokens_details\": { \"cached_tokens\": 8, \"audio_tokens\": 0 } }");
+
+        Assertions.assertEquals(8, new OpenAIModelResponseTransformer().transform(decoder.decode(cached.getBytes(StandardCharsets.UTF_8)))
+                .getCachedPromptTokenUsage());
+        Assertions.assertEquals(0, new OpenAIModelResponseTransformer().transform(decoder.decode(RESPONSE.getBytes(StandardCharsets.UTF_8)))
+                .getCachedPromptTokenUsage());
+    }
+
+    @Test
+    public void testTruncationIsReported() {
+        final var truncated = RESPONSE.replace("\"finish_reason\": \"stop\"", "\"finish_reason\": \"length\"");
+
+        Assertions.assertTrue(new OpenAIModelResponseTransformer().transform(decoder.decode(truncated.getBytes(StandardCharsets.UTF_8)))
+                .isTruncated());
+        Assertions.assertFalse(new OpenAIModelResponseTransformer().transform(decoder.decode(RESPONSE.getBytes(StandardCharsets.UTF_8)))
+                .isTruncated());
+    }
+}
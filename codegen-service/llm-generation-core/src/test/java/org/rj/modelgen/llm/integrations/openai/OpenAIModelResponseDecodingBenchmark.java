@@ -0,0 +1,110 @@
+package org.rj.modelgen.llm.integrations.openai;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the legacy multi-pass OpenAI response decoding (String -> org.json -> Jackson -> metadata Map) with the
+ * single-pass streaming decoder.  Run from the test classpath via {@link #main(String[])}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAIModelResponseDecodingBenchmark {
+
+    @Param({ "20", "200" })
+    public int nodeCount;
+
+    private byte[] serialized;
+    private ByteBuf buffer;
+    private OpenAIModelResponseDecoder<OpenAIModelResponse> decoder;
+    private OpenAIModelResponseTransformer transformer;
+
+    @Setup
+    public void setup() {
+        serialized = Util.serializeBinaryOrThrow(buildResponse(nodeCount));
+        buffer = PooledByteBufAllocator.DEFAULT.directBuffer(serialized.length).writeBytes(serialized);
+        decoder = new OpenAIModelResponseDecoder<>(OpenAIModelResponse.class);
+        transformer = new OpenAIModelResponseTransformer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public void legacyMultiPassDecoding(Blackhole bh) {
+        final var content = new String(serialized);
+        final var json = new JSONObject(content);
+        bh.consume(json.has(OpenAIConstants.ERROR_RESPONSE_KEY));
+
+        final var response = Util.deserializeOrThrow(content, OpenAIModelResponse.class);
+        final var modelResponse = transformer.transform(response);
+        bh.consume(Util.convertOrThrow(response, Map.class));     // Legacy path always materialized metadata
+        bh.consume(modelResponse);
+    }
+
+    @Benchmark
+    public void streamingDecodingFromArray(Blackhole bh) {
+        final ModelResponse modelResponse = transformer.transform(decoder.decode(serialized));
+        bh.consume(modelResponse);
+    }
+
+    @Benchmark
+    public void streamingDecodingFromDirectBuffer(Blackhole bh) {
+        final ModelResponse modelResponse = transformer.transform(decoder.decode(buffer));
+        bh.consume(modelResponse);
+    }
+
+    private static OpenAIModelResponse buildResponse(int nodeCount) {
+        final var content = new StringBuilder("{\"nodes\":[");
+        for (int i = 0; i < nodeCount; ++i) {
+            if (i != 0) content.append(',');
+            content.append(String.format("{\"id\":\"node%d\",\"name\":\"Node %d\",\"elementType\":\"userTask\"," +
+                    "\"description\":\"Performs step %d of the process\",\"connectedTo\":[{\"targetNode\":\"node%d\"," +
+                    "\"description\":\"Continue to step %d\"}],\"properties\":null}", i, i, i, i + 1, i + 1));
+        }
+        content.append("]}");
+
+        final var choice = new OpenAIModelResponse.Choice();
+        choice.setMessage(new OpenAIContextMessage(OpenAIConstants.ROLE_ASSISTANT, content.toString()));
+        choice.setFinish_reason("stop");
+        choice.setIndex(0);
+
+        final var usage = new OpenAIModelResponse.Usage();
+        usage.setPrompt_tokens(1500);
+        usage.setCompletion_tokens(500);
+        usage.setTotal_tokens(2000);
+
+        final var response = new OpenAIModelResponse();
+        response.setId("chatcmpl-benchmark");
+        response.setObject("chat.completion");
+        response.setCreated(1688923042L);
+        response.setModel("gpt-4-0613");
+        response.setUsage(usage);
+        response.setChoices(List.of(choice));
+
+        return response;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OpenAIModelResponseDecodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
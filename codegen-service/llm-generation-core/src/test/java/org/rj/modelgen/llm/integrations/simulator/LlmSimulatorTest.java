@@ -0,0 +1,157 @@
+package org.rj.modelgen.llm.integrations.simulator;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.integrations.openai.OpenAIClient;
+import org.rj.modelgen.llm.integrations.openai.OpenAIClientConfig;
+import org.rj.modelgen.llm.integrations.openai.OpenAIConstants;
+import org.rj.modelgen.llm.integrations.openai.OpenAIContextMessage;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelResponse;
+import org.rj.modelgen.llm.request.ModelRequest;
+import org.rj.modelgen.llm.util.Util;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LlmSimulatorTest {
+    private static final String CONTENT = "{\"nodes\":[{\"id\":\"start\",\"elementType\":\"startEvent\"}]}";
+
+    @Test
+    public void testLatencyDistributions() {
+        final var random = new Random(1L);
+
+        final var histogram = LatencyDistribution.parseHistogram("""
+                # upperBoundMs,count
+                100,0
+                200,10
+                500,0
+                """);
+        for (int i = 0; i < 1000; ++i) {
+            final var latency = histogram.sample(random).toMillis();
+            Assertions.assertTrue(latency >= 100 && latency < 200, "Latency " + latency);
+        }
+
+        final var logNormal = LatencyDistribution.logNormal(Duration.ofMillis(500L), 0.5);
+        final var samples = java.util.stream.IntStream.range(0, 1001).mapToLong(i -> logNormal.sample(random).toMillis()).sorted().toArray();
+        Assertions.assertTrue(samples[500] > 400 && samples[500] < 600, "Median " + samples[500]);
+    }
+
+    @Test
+    public void testInProcessClientAppliesLatencyAndTokenRate() {
+        final var client = new LlmSimulatorClient(new LlmSimulatorClientConfig(new LlmSimulator(
+                LlmSimulatorOptions.defaultOptions()
+                        .withFirstTokenLatency(LatencyDistribution.fixed(Duration.ofMillis(50L)))
+                        .withTokensPerSecond(100.0)
+                        .withSeed(1L),
+                corpus())));
+
+        final var start = System.nanoTime();
+        final var response = client.submitModelRequest(request(), Map.of(), null).block(Duration.ofSeconds(5L));
+        final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Assertions.assertNotNull(response);
+        Assertions.assertEquals(CONTENT, response.getMessage());
+        Assertions.assertTrue(elapsed.toMillis() >= 150L, "Elapsed " + elapsed);     // 50ms first token + 10 tokens at 100/s
+    }
+
+    @Test
+    public void testInProcessClientInjectsFailures() {
+        final var client = new LlmSimulatorClient(new LlmSimulatorClientConfig(new LlmSimulator(
+                LlmSimulatorOptions.defaultOptions().withRateLimitRate(1.0), corpus())));
+
+        final var ex = Assertions.assertThrows(LlmGenerationModelException.class,
+                () -> client.submitModelRequest(request(), Map.of(), null).block(Duration.ofSeconds(5L)));
+        Assertions.assertTrue(ex.getMessage().contains(LlmSimulator.RATE_LIMIT_MESSAGE));
+    }
+
+    @Test
+    public void testOpenAIClientAgainstSimulatorServer() {
+        try (final var server = LlmSimulatorServer.start(new LlmSimulator(fastOptions(), corpus()), 0)) {
+            final var config = new OpenAIClientConfig(() -> "test-key");
+            config.setBaseUrl(server.getBaseUrl());
+            final var client = new OpenAIClient(config);
+
+            final var response = client.submitModelRequest(request(), Map.of(), null).block(Duration.ofSeconds(10L));
+            Assertions.assertNotNull(response);
+            Assertions.assertEquals(CONTENT, response.getMessage());
+            Assertions.assertEquals(10, response.getResponseTokenUsage());
+        }
+    }
+
+    @Test
+    public void testServerReturnsRateLimitErrorEnvelope() {
+        try (final var server = LlmSimulatorServer.start(new LlmSimulator(fastOptions().withRateLimitRate(1.0), corpus()), 0)) {
+            final var config = new OpenAIClientConfig(() -> "test-key");
+            config.setBaseUrl(server.getBaseUrl());
+            final var client = new OpenAIClient(config);
+
+            final var ex = Assertions.assertThrows(LlmGenerationModelException.class,
+                    () -> client.submitModelRequest(request(), Map.of(), null).block(Duration.ofSeconds(10L)));
+            Assertions.assertTrue(ex.getMessage().contains(LlmSimulator.RATE_LIMIT_MESSAGE));
+        }
+    }
+
+    @Test
+    public void testServerStreamsServerSentEvents() {
+        try (final var server = LlmSimulatorServer.start(new LlmSimulator(fastOptions(), corpus()), 0)) {
+            final var body = HttpClient.create()
+                    .request(HttpMethod.POST)
+                    .uri(server.getBaseUrl() + "v1/chat/completions")
+                    .send((req, outbound) -> outbound.sendString(Mono.just("{\"model\":\"gpt-4\",\"stream\":true}")))
+                    .responseContent().aggregate().asString()
+                    .block(Duration.ofSeconds(10L));
+
+            Assertions.assertNotNull(body);
+            Assertions.assertTrue(body.trim().endsWith("data: [DONE]"));
+
+            final var content = new StringBuilder();
+            body.lines()
+                    .filter(line -> line.startsWith("data: {"))
+                    .map(line -> Util.deserializeOrThrow(line.substring("data: ".length()), Map.class))
+                    .map(chunk -> (Map<?, ?>)((Map<?, ?>)((List<?>)chunk.get("choices")).get(0)).get("delta"))
+                    .filter(delta -> delta.containsKey("content"))
+                    .forEach(delta -> content.append(delta.get("content")));
+
+            Assertions.assertEquals(CONTENT, content.toString());
+        }
+    }
+
+    private static LlmSimulatorOptions fastOptions() {
+        return LlmSimulatorOptions.defaultOptions()
+                .withFirstTokenLatency(LatencyDistribution.fixed(Duration.ofMillis(5L)))
+                .withTokensPerSecond(1000.0)
+                .withSeed(1L);
+    }
+
+    private static ModelRequest request() {
+        return new ModelRequest("gpt-4", 0.7, new Context(List.of(ContextEntry.forUser("Generate a process"))));
+    }
+
+    private static LlmSimulatorCorpus corpus() {
+        final var choice = new OpenAIModelResponse.Choice();
+        choice.setMessage(new OpenAIContextMessage(OpenAIConstants.ROLE_ASSISTANT, CONTENT));
+        choice.setFinish_reason("stop");
+        choice.setIndex(0);
+
+        final var usage = new OpenAIModelResponse.Usage();
+        usage.setPrompt_tokens(20);
+        usage.setCompletion_tokens(10);
+        usage.setTotal_tokens(30);
+
+        final var response = new OpenAIModelResponse();
+        response.setObject("chat.completion");
+        response.setModel("gpt-4-0613");
+        response.setUsage(usage);
+        response.setChoices(List.of(choice));
+
+        return new LlmSimulatorCorpus(List.of(response));
+    }
+}
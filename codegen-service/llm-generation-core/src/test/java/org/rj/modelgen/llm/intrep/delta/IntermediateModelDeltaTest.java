@@ -0,0 +1,113 @@
+package org.rj.modelgen.llm.intrep.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+import org.rj.modelgen.llm.validation.generic.GenericIntermediateModelSanitizer;
+
+public class IntermediateModelDeltaTest {
+    private static final String MODEL = """
+            { "nodes": [
+                { "id": "start", "name": "Start", "elementType": "startEvent", "connectedTo": [ { "targetNode": "review" } ] },
+                { "id": "review", "name": "Review", "elementType": "userTask", "connectedTo": [ { "targetNode": "end" } ] },
+                { "id": "end", "name": "End", "elementType": "endEvent" }
+            ] }""";
+
+    @Test
+    public void testJsonPatchOperations() throws Exception {
+        final var patch = """
+                [
+                    { "op": "test", "path": "/nodes/1/id", "value": "review" },
+                    { "op": "replace", "path": "/nodes/1/name", "value": "Manager review" },
+                    { "op": "add", "path": "/nodes/1/properties", "value": { "assignee": "manager" } },
+                    { "op": "copy", "from": "/nodes/1/properties/assignee", "path": "/nodes/1/properties/owner" },
+                    { "op": "move", "from": "/nodes/2", "path": "/nodes/0" },
+                    { "op": "remove", "path": "/nodes/1/connectedTo/0" }
+                ]""";
+
+        final var result = apply(MODEL, patch);
+        Assertions.assertEquals("end", result.at("/nodes/0/id").asText());
+        Assertions.assertEquals("Manager review", result.at("/nodes/2/name").asText());
+        Assertions.assertEquals("manager", result.at("/nodes/2/properties/owner").asText());
+        Assertions.assertEquals(0, result.at("/nodes/1/connectedTo").size());
+    }
+
+    @Test
+    public void testGraphOperations() throws Exception {
+        final var delta = """
+                [
+                    { "op": "addNode", "node": { "id": "approve", "name": "Approve", "elementType": "userTask" } },
+                    { "op": "disconnect", "from": "review", "to": "end" },
+                    { "op": "connect", "from": "review", "to": "approve", "description": "Reviewed" },
+                    { "op": "connect", "from": "approve", "to": "end" },
+                    { "op": "rename", "id": "review", "name": "Manager review" },
+                    { "op": "updateNode", "id": "approve", "set": { "elementType": "manualTask", "name": null } }
+                ]""";
+
+        final var result = apply(MODEL, delta);
+        Assertions.assertEquals("Manager review", result.at("/nodes/1/name").asText());
+        Assertions.assertEquals("approve", result.at("/nodes/1/connectedTo/0/targetNode").asText());
+        Assertions.assertEquals("Reviewed", result.at("/nodes/1/connectedTo/0/description").asText());
+        Assertions.assertEquals(1, result.at("/nodes/1/connectedTo").size());
+        Assertions.assertEquals("manualTask", result.at("/nodes/3/elementType").asText());
+        Assertions.assertFalse(result.at("/nodes/3").has("name"));
+        Assertions.assertEquals("end", result.at("/nodes/3/connectedTo/0/targetNode").asText());
+
+        // Removing a node also removes the connections into it
+        final var removed = apply(Util.serializeOrThrow(result), "[ { \"op\": \"removeNode\", \"id\": \"approve\" } ]");
+        Assertions.assertEquals(3, removed.at("/nodes").size());
+        Assertions.assertEquals(0, removed.at("/nodes/1/connectedTo").size());
+    }
+
+    @Test
+    public void testFailedDeltaIsReported() {
+        final var result = IntermediateModelDelta.apply(MODEL, """
+                [
+                    { "op": "rename", "id": "review", "name": "Renamed" },
+                    { "op": "connect", "from": "review", "to": "missing" }
+                ]""");
+
+        Assertions.assertTrue(result.isErr());
+        Assertions.assertTrue(result.getError().contains("missing"), result.getError());
+
+        Assertions.assertTrue(IntermediateModelDelta.apply(MODEL, "[ { \"op\": \"remove\", \"path\": \"/nodes/5\" } ]").isErr());
+        Assertions.assertTrue(IntermediateModelDelta.apply(MODEL, "[ { \"op\": \"merge\" } ]").isErr());
+    }
+
+    @Test
+    public void testDeltaIsRetainedBySanitizer() {
+        final var response = "Here are the changes:\n```json\n[ { \"op\": \"rename\", \"id\": \"review\", \"name\": \"Check\" } ]\n```";
+        final var sanitized = new GenericIntermediateModelSanitizer().sanitize(response);
+
+        Assertions.assertTrue(IntermediateModelDelta.isDelta(sanitized));
+        Assertions.assertFalse(IntermediateModelDelta.isDelta(new GenericIntermediateModelSanitizer().sanitize(MODEL)));
+        Assertions.assertTrue(IntermediateModelDelta.apply(MODEL, sanitized).getValue().contains("\"Check\""));
+    }
+
+    @Test
+    public void testDiffReproducesTargetModel() throws Exception {
+        final var source = Util.getObjectMapper().readTree(MODEL);
+        final var target = apply(MODEL, """
+                [
+                    { "op": "removeNode", "id": "review" },
+                    { "op": "addNode", "node": { "id": "approve", "name": "Approve", "elementType": "userTask" } },
+                    { "op": "connect", "from": "start", "to": "approve" },
+                    { "op": "rename", "id": "end", "name": "Done" }
+                ]""");
+
+        final var patch = JsonDiff.diff(source, target);
+        Assertions.assertEquals(target, JsonPatch.apply(source, patch));
+        Assertions.assertEquals(0, JsonDiff.diff(target, target).size());
+
+        // Only the changed parts of the model are included
+        Assertions.assertFalse(patch.toString().contains("endEvent"));
+    }
+
+    private JsonNode apply(String model, String delta) throws Exception {
+        final var result = IntermediateModelDelta.apply(model, delta);
+        Assertions.assertTrue(result.isOk(), () -> result.getError());
+
+        return Util.getObjectMapper().readTree(result.getValue());
+    }
+}
@@ -0,0 +1,117 @@
+package org.rj.modelgen.llm.intrep.slice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+public class GraphModelSlicerTest {
+    private static final int NODE_COUNT = 40;
+    private static final String MODEL = buildModel();
+
+    private final GraphModelSlicer slicer = new GraphModelSlicer();
+
+    @Test
+    public void testRelevantNeighbourhoodIsSelected() throws Exception {
+        final var slice = slicer.slice(MODEL, "Add an approval step after Review expense").orElseThrow();
+
+        Assertions.assertEquals(Set.of("step20"), slice.getMatchedNodeIds());
+        Assertions.assertEquals(Set.of("step19", "step20", "step21"), slice.getNodeIds());
+        Assertions.assertEquals(NODE_COUNT, slice.getModelNodeCount());
+
+        final var content = Util.getObjectMapper().readTree(slice.getContent());
+        Assertions.assertEquals(3, content.path("nodes").size());
+        Assertions.assertEquals("step19", content.at("/nodes/0/id").asText());
+
+        // Nodes may also be matched by ID, or by the words of their name in any order
+        Assertions.assertEquals(Set.of("step5"), slicer.slice(MODEL, "Remove step5").orElseThrow().getMatchedNodeIds());
+        Assertions.assertEquals(Set.of("step20"), slicer.slice(MODEL, "the expense review is slow").orElseThrow().getMatchedNodeIds());
+    }
+
+    @Test
+    public void testCompleteModelIsSubmittedWhereSlicingDoesNotApply() {
+        Assertions.assertTrue(slicer.slice(MODEL, "Make the process faster").isEmpty());
+        Assertions.assertTrue(new GraphModelSlicer(1, 100, 0.5).slice(MODEL, "Remove step5").isEmpty());
+        Assertions.assertTrue(new GraphModelSlicer(30, 10, 0.5).slice(MODEL, "Remove step5").isEmpty());
+    }
+
+    @Test
+    public void testUpdatedSliceIsMergedIntoModel() throws Exception {
+        final var slice = slicer.slice(MODEL, "Add an approval step after Review expense").orElseThrow();
+        final var updated = """
+                { "nodes": [
+                    { "id": "step19", "name": "Step 19", "connectedTo": [ { "targetNode": "step20" } ] },
+                    { "id": "step20", "name": "Review expense", "connectedTo": [ { "targetNode": "approve" } ] },
+                    { "id": "approve", "name": "Approve expense", "connectedTo": [ { "targetNode": "step21" } ] },
+                    { "id": "step21", "name": "Step 21", "connectedTo": [ { "targetNode": "step22" } ] }
+                ] }""";
+
+        final var merged = slice.merge(MODEL, updated);
+        Assertions.assertTrue(merged.isOk(), merged::getError);
+
+        final var result = Util.getObjectMapper().readTree(merged.getValue());
+        Assertions.assertEquals(NODE_COUNT + 1, result.path("nodes").size());
+        Assertions.assertEquals("approve", result.at("/nodes/22/id").asText());
+        Assertions.assertEquals("step22", result.at("/nodes/23/id").asText());
+        Assertions.assertEquals("approve", result.at("/nodes/20/connectedTo/0/targetNode").asText());
+    }
+
+    @Test
+    public void testBoundaryEdgesAreChecked() {
+        final var slice = slicer.slice(MODEL, "Add an approval step after Review expense").orElseThrow();
+
+        // Removing a node which is still connected from outside the excerpt
+        assertMergeFails(slice, """
+                { "nodes": [
+                    { "id": "step20", "name": "Review expense", "connectedTo": [ { "targetNode": "step21" } ] },
+                    { "id": "step21", "name": "Step 21", "connectedTo": [ { "targetNode": "step22" } ] }
+                ] }""", "outside the excerpt is connected to removed node 'step19'");
+
+        // Connecting to a node which does not exist
+        assertMergeFails(slice, """
+                { "nodes": [
+                    { "id": "step19", "name": "Step 19", "connectedTo": [ { "targetNode": "step20" } ] },
+                    { "id": "step20", "name": "Review expense", "connectedTo": [ { "targetNode": "missing" } ] },
+                    { "id": "step21", "name": "Step 21", "connectedTo": [ { "targetNode": "step22" } ] }
+                ] }""", "connected to unknown node 'missing'");
+
+        // Returning a node from outside the excerpt
+        assertMergeFails(slice, """
+                { "nodes": [
+                    { "id": "step19", "name": "Step 19", "connectedTo": [ { "targetNode": "step20" } ] },
+                    { "id": "step20", "name": "Review expense", "connectedTo": [ { "targetNode": "step21" } ] },
+                    { "id": "step21", "name": "Step 21", "connectedTo": [ { "targetNode": "step22" } ] },
+                    { "id": "step22", "name": "Step 22" }
+                ] }""", "from outside the excerpt");
+    }
+
+    private static void assertMergeFails(GraphModelSlice slice, String updated, String expectedError) {
+        final var merged = slice.merge(MODEL, updated);
+        Assertions.assertTrue(merged.isErr());
+        Assertions.assertTrue(merged.getError().contains(expectedError), merged.getError());
+    }
+
+    /**
+     * Linear model of named steps, in which one step has a distinctive name
+     */
+    private static String buildModel() {
+        final List<JsonNode> nodes = new ArrayList<>();
+        IntStream.range(0, NODE_COUNT).forEach(i -> {
+            final var node = JsonNodeFactory.instance.objectNode()
+                    .put("id", "step" + i)
+                    .put("name", (i == 20) ? "Review expense" : "Step " + i);
+            if (i < NODE_COUNT - 1) node.putArray("connectedTo").addObject().put("targetNode", "step" + (i + 1));
+            nodes.add(node);
+        });
+
+        final var model = JsonNodeFactory.instance.objectNode();
+        model.putArray("nodes").addAll(nodes);
+        return Util.serializeOrThrow(model);
+    }
+}
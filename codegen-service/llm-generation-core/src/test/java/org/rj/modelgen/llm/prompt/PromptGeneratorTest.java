@@ -0,0 +1,28 @@
+package org.rj.modelgen.llm.prompt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class PromptGeneratorTest {
+    private static final String TEMPLATE = "Schema:\n```\n${SCHEMA_CONTENT}\n```\nApply these updates:\n```\n${PROMPT}\n```\nReturn ONLY the JSON data.";
+
+    @Test
+    public void testExtractSubstitutedValue() {
+        final var generator = new PromptGenerator<PromptGenerator<?, String>, String>()
+                .withAvailablePrompt("generate", TEMPLATE);
+
+        final var prompt = generator.getPrompt("generate", List.of(
+                new PromptSubstitution("${" + StandardPromptPlaceholders.SCHEMA_CONTENT.getValue() + "}", "{\"type\":\"object\"}"),
+                new PromptSubstitution("${" + StandardPromptPlaceholders.PROMPT.getValue() + "}", "Add a review step\nthen approve"))).orElseThrow();
+
+        Assertions.assertEquals(Optional.of("Add a review step\nthen approve"),
+                generator.extractSubstitution("generate", StandardPromptPlaceholders.PROMPT, prompt));
+        Assertions.assertEquals(Optional.of("{\"type\":\"object\"}"),
+                generator.extractSubstitution("generate", StandardPromptPlaceholders.SCHEMA_CONTENT, prompt));
+        Assertions.assertEquals(Optional.empty(),
+                generator.extractSubstitution("generate", StandardPromptPlaceholders.PROMPT, "Unrelated prompt"));
+    }
+}
@@ -0,0 +1,56 @@
+package org.rj.modelgen.llm.prompt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+public class PromptTemplateTest {
+    private static final String TEMPLATE = "Schema:\n${SCHEMA_CONTENT}\nModel:\n${CURRENT_STATE}\nRequest:\n${PROMPT}\nSchema again:\n${SCHEMA_CONTENT}";
+
+    @Test
+    public void testTemplateIsTokenized() {
+        final var template = PromptTemplate.parse(TEMPLATE);
+        Assertions.assertEquals(List.of("SCHEMA_CONTENT", "CURRENT_STATE", "PROMPT", "SCHEMA_CONTENT"), template.getPlaceholders());
+        Assertions.assertEquals(List.of(), PromptTemplate.parse("No placeholders ${ unterminated").getPlaceholders());
+    }
+
+    @Test
+    public void testAllPlaceholdersAreSubstituted() {
+        final var rendered = PromptTemplate.parse(TEMPLATE).render(List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.SCHEMA_CONTENT, "{schema}"),
+                new PromptSubstitution("${CURRENT_STATE}", "{model}"),
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "Add a step")));
+
+        Assertions.assertEquals("Schema:\n{schema}\nModel:\n{model}\nRequest:\nAdd a step\nSchema again:\n{schema}", rendered);
+    }
+
+    @Test
+    public void testSubstitutedValuesAreNotSubstitutedAgain() {
+        // A value containing placeholder text, e.g. a prompt discussing templates, is inserted verbatim
+        final var rendered = PromptTemplate.parse("${PROMPT} / ${SCHEMA_CONTENT}").render(List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "Use ${SCHEMA_CONTENT} here"),
+                new PromptSubstitution(StandardPromptPlaceholders.SCHEMA_CONTENT, "{schema}")));
+
+        Assertions.assertEquals("Use ${SCHEMA_CONTENT} here / {schema}", rendered);
+    }
+
+    @Test
+    public void testUnmatchedPlaceholdersAreUnchanged() {
+        final var rendered = PromptTemplate.parse("${PROMPT} ${OTHER}").render(List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "first"),
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "second"),
+                new PromptSubstitution("UNUSED", "value")));
+
+        Assertions.assertEquals("first ${OTHER}", rendered);
+    }
+
+    @Test
+    public void testTemplateIsRenderedToOutput() throws Exception {
+        final var output = PromptTemplate.parse("Request: ${PROMPT}.").renderTo(List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "Add a step")), new StringWriter());
+
+        Assertions.assertEquals("Request: Add a step.", output.toString());
+    }
+}
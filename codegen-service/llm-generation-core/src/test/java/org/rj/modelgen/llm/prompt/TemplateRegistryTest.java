@@ -0,0 +1,72 @@
+package org.rj.modelgen.llm.prompt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+public class TemplateRegistryTest {
+    private static final String TEMPLATE = "Schema:\n```\n${SCHEMA_CONTENT}\n```\nApply these updates:\n```\n${PROMPT}\n```\nReturn ONLY the JSON data.";
+
+    @Test
+    public void testTemplateIsRendered() {
+        final var generator = new TemplatedPromptGenerator<TemplatedPromptGenerator<?, String>, String>()
+                .withAvailablePrompt("generate", TEMPLATE);
+
+        final var prompt = generator.getPrompt("generate", List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.SCHEMA_CONTENT, "{\"type\":\"object\"}"),
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "Add a review step")));
+
+        Assertions.assertEquals(Optional.of("Schema:\n```\n{\"type\":\"object\"}\n```\nApply these updates:\n```\nAdd a review step\n```\nReturn ONLY the JSON data."), prompt);
+        Assertions.assertEquals(Optional.empty(), generator.getPrompt("unknown", List.of()));
+        Assertions.assertEquals(Optional.of("Add a review step"),
+                generator.extractSubstitution("generate", StandardPromptPlaceholders.PROMPT, prompt.orElseThrow()));
+    }
+
+    @Test
+    public void testRendersAreIndependent() {
+        final var registry = new TemplateRegistry<String>();
+        registry.register("prompt", "Request: ${PROMPT}");
+
+        // Output buffers are reused, so each render must hold only its own output
+        final var large = "x".repeat(100_000);
+        Assertions.assertEquals(Optional.of("Request: " + large), registry.render("prompt", List.of(new PromptSubstitution(StandardPromptPlaceholders.PROMPT, large))));
+        Assertions.assertEquals(Optional.of("Request: a"), registry.render("prompt", List.of(new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "a"))));
+
+        final var rendered = IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> registry.render("prompt", List.of(new PromptSubstitution(StandardPromptPlaceholders.PROMPT, String.valueOf(i)))).orElseThrow())
+                .toList();
+        Assertions.assertEquals(IntStream.range(0, 1000).mapToObj(i -> "Request: " + i).toList(), rendered);
+    }
+
+    @Test
+    public void testMissingVariableFailsRender() {
+        final var registry = new TemplateRegistry<String>();
+        registry.register("prompt", "Request: ${PROMPT}");
+
+        Assertions.assertThrows(LlmGenerationModelException.class, () -> registry.render("prompt", List.of()));
+    }
+
+    @Test
+    public void testReloadReplacesAllTemplatesOrNone() {
+        final var generator = new TemplatedPromptGenerator<TemplatedPromptGenerator<?, String>, String>(Map.of(
+                "first", "First ${PROMPT}",
+                "second", "Second ${PROMPT}"));
+        final var substitutions = List.of(new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "prompt"));
+
+        Assertions.assertThrows(LlmGenerationConfigException.class, () -> generator.reloadPrompts(Map.of(
+                "first", "Updated ${PROMPT}",
+                "second", "Invalid <#if>")));
+        Assertions.assertEquals(Optional.of("First prompt"), generator.getPrompt("first", substitutions));
+        Assertions.assertEquals(Optional.of("Second prompt"), generator.getPrompt("second", substitutions));
+
+        generator.reloadPrompts(Map.of("first", "Updated ${PROMPT}"));
+        Assertions.assertEquals(Optional.of("Updated prompt"), generator.getPrompt("first", substitutions));
+        Assertions.assertEquals(Optional.empty(), generator.getPrompt("second", substitutions));
+    }
+}
@@ -0,0 +1,81 @@
+package org.rj.modelgen.llm.prompt;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the legacy prompt rendering, which built a Freemarker configuration, parsed the template and built a data
+ * model map for every prompt, with rendering of templates compiled once by the template registry.  Run from the test
+ * classpath via {@link #main(String[])}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplatedPromptGeneratorBenchmark {
+
+    @Param({ "2000", "20000" })
+    public int templateLength;
+
+    private String source;
+    private List<PromptSubstitution> substitutions;
+    private TemplatedPromptGenerator<?, String> generator;
+
+    @Setup
+    public void setup() {
+        final var instructions = new StringBuilder();
+        while (instructions.length() < templateLength) {
+            instructions.append("Each node must have a unique ID, a name, and an element type from the schema.\n");
+        }
+
+        source = "Schema:\n```\n${SCHEMA_CONTENT}\n```\n" + instructions + "Current model:\n```\n${CURRENT_STATE}\n```\n" +
+                 "Apply these updates:\n```\n${PROMPT}\n```\nReturn ONLY the JSON data.";
+        substitutions = List.of(
+                new PromptSubstitution(StandardPromptPlaceholders.SCHEMA_CONTENT, "{ nodes: [{ id: string, name: string, elementType: string }] }"),
+                new PromptSubstitution(new PromptPlaceholder("CURRENT_STATE"), "{\"nodes\":[{\"id\":\"start\",\"name\":\"Start\",\"elementType\":\"startEvent\"}]}"),
+                new PromptSubstitution(StandardPromptPlaceholders.PROMPT, "Add a review step after the start event"));
+
+        generator = new TemplatedPromptGenerator<TemplatedPromptGenerator<?, String>, String>()
+                .withAvailablePrompt("generate", source);
+    }
+
+    @Benchmark
+    public void legacyParsePerPrompt(Blackhole bh) throws Exception {
+        final var configuration = new Configuration(Configuration.VERSION_2_3_23);
+        configuration.setClassForTemplateLoading(configuration.getClass(), "/");
+
+        final Map<String, Object> dataModel = new HashMap<>();
+        for (final var substitution : substitutions) {
+            dataModel.put(substitution.getExistingString(), substitution.getNewString());
+        }
+
+        final var template = new Template("template", new StringReader(source), configuration);
+        final var output = new StringWriter();
+        template.process(dataModel, output);
+        bh.consume(output.toString());
+    }
+
+    @Benchmark
+    public void compiledTemplate(Blackhole bh) {
+        bh.consume(generator.getPrompt("generate", substitutions));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(TemplatedPromptGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
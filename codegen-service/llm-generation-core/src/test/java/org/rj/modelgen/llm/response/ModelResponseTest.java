@@ -0,0 +1,51 @@
+package org.rj.modelgen.llm.response;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
+
+public class ModelResponseTest {
+    private static final String PARTIAL = "{ \"nodes\": [ { \"id\": \"start\", \"name\": \"Start\" }, { \"id\": \"review\", \"na";
+
+    @Test
+    public void testContinuationIsJoined() {
+        final var joined = response(PARTIAL, true, 100).withContinuation(response("me\": \"Review\" } ] }", false, 20));
+
+        Assertions.assertEquals(PARTIAL + "me\": \"Review\" } ] }", joined.getMessage());
+        Assertions.assertEquals(120, joined.getResponseTokenUsage());
+        Assertions.assertEquals(ModelResponse.Status.SUCCESS, joined.getStatus());
+        Assertions.assertFalse(joined.isTruncated());
+        Assertions.assertTrue(joined.isContinued());
+        Assertions.assertFalse(response(PARTIAL, true, 100).isContinued());
+    }
+
+    @Test
+    public void testRepeatedTextAndFenceAreRemovedFromContinuation() {
+        final var repeated = response("```json\n{ \"id\": \"review\", \"name\": \"Review\" } ] }", false, 20);
+        Assertions.assertEquals(PARTIAL.substring(0, PARTIAL.length() - 2) + "name\": \"Review\" } ] }",
+                response(PARTIAL, true, 100).withContinuation(repeated).getMessage());
+
+        // Short overlaps are as likely to be coincidental, and are retained
+        Assertions.assertEquals("[ 1, 2, 2, 3 ]", response("[ 1, 2,", true, 1).withContinuation(response(" 2, 3 ]", false, 1)).getMessage());
+    }
+
+    @Test
+    public void testMaxTokensAreSizedFromLargestModel() {
+        final var options = ResponseLengthOptions.defaultOptions();
+
+        Assertions.assertNull(options.estimateMaxTokens(0));
+        Assertions.assertEquals(options.getMinResponseTokens(), options.estimateMaxTokens(100));
+        Assertions.assertEquals(4500, options.estimateMaxTokens(3000));
+        Assertions.assertEquals(options.getMaxResponseTokens(), options.estimateMaxTokens(100000));
+        Assertions.assertNull(options.withSizeFromHistory(false).estimateMaxTokens(3000));
+    }
+
+    private static ModelResponse response(String message, boolean truncated, int responseTokens) {
+        final var response = new ModelResponse();
+        response.setStatus(ModelResponse.Status.SUCCESS);
+        response.setMessage(message);
+        response.setTruncated(truncated);
+        response.setResponseTokenUsage(responseTokens);
+        return response;
+    }
+}
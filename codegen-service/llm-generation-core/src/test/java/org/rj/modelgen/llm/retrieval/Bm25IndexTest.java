@@ -0,0 +1,89 @@
+package org.rj.modelgen.llm.retrieval;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class Bm25IndexTest {
+    private static final List<IndexedDocument> DOCUMENTS = List.of(
+            new IndexedDocument("expenses", "Submit Expense\nValidate Expense\nApprove expense claims\nProcess Payment", "{\"expenses\":true}"),
+            new IndexedDocument("onboarding", "User Registration\nDocument Verification\nSanctions Screening\nRisk Assessment", "{\"onboarding\":true}"),
+            new IndexedDocument("orders", "Receive Order\nCheck Stock\nShip Order\nSend Invoice for payment", "{\"orders\":true}"));
+
+    @Test
+    public void testDocumentsAreRankedByRelevance() {
+        final var index = Bm25Index.build(DOCUMENTS);
+
+        final var results = index.search("Create a process to approve expenses and make a payment", 3);
+        Assertions.assertEquals(List.of("expenses", "orders"), results.stream().map(ScoredDocument::getId).toList());
+        Assertions.assertTrue(results.get(0).getScore() > results.get(1).getScore());
+        Assertions.assertEquals("{\"expenses\":true}", results.get(0).getContent());
+
+        Assertions.assertEquals(List.of("onboarding"), index.search("sanctionsScreening", 3).stream().map(ScoredDocument::getId).toList());
+        Assertions.assertEquals(List.of(), index.search("unrelated words", 3));
+        Assertions.assertEquals(1, index.search("payment", 1).size());
+    }
+
+    @Test
+    public void testIndexIsQueriedFromMappedFile(@TempDir Path directory) throws Exception {
+        final var built = Bm25Index.build(DOCUMENTS);
+        final var file = directory.resolve("index/examples.idx");
+        built.write(file);
+
+        final var mapped = Bm25Index.open(file);
+        Assertions.assertEquals(built.getSizeBytes(), Files.size(file));
+        Assertions.assertEquals(3, mapped.size());
+        Assertions.assertEquals(Bm25Index.corpusHash(DOCUMENTS), mapped.getCorpusHash());
+        Assertions.assertNotEquals(Bm25Index.corpusHash(DOCUMENTS), Bm25Index.corpusHash(DOCUMENTS.subList(0, 2)));
+
+        for (final var query : List.of("expense payment", "risk verification", "ship orders", "invoice")) {
+            final var expected = built.search(query, 3);
+            final var actual = mapped.search(query, 3);
+            Assertions.assertEquals(expected.stream().map(ScoredDocument::getId).toList(), actual.stream().map(ScoredDocument::getId).toList());
+            Assertions.assertEquals(expected.stream().map(ScoredDocument::getScore).toList(), actual.stream().map(ScoredDocument::getScore).toList());
+        }
+
+        Files.writeString(directory.resolve("invalid.idx"), "not an index");
+        Assertions.assertThrows(LlmGenerationConfigException.class, () -> Bm25Index.open(directory.resolve("invalid.idx")));
+    }
+
+    @Test
+    public void testTextIsTokenized() {
+        Assertions.assertEquals(List.of("submit", "expense", "approval", "policy", "process"),
+                Bm25Index.tokenize("submitExpenses for approval, the policies & process"));
+    }
+
+    @Test
+    public void testExamplesAreSelectedWithinBudget() {
+        final var large = "{\"nodes\":[" + "{\"id\":\"task\",\"name\":\"Expense task\"},".repeat(200) + "{}]}";
+        final var index = Bm25Index.build(List.of(
+                new IndexedDocument("large", "Expense expense approval", large),
+                new IndexedDocument("small", "Expense approval", "{\"nodes\":[]}"),
+                new IndexedDocument("other", "Expense payment", "{\"nodes\":[]}")));
+
+        final var selected = new FewShotExampleSelector(index, 2, 100).select("Expense approval");
+        Assertions.assertEquals(List.of("small", "other"), selected.stream().map(ScoredDocument::getId).toList());
+        Assertions.assertTrue(selected.stream().mapToInt(ScoredDocument::getTokens).sum() <= 100);
+    }
+
+    @Test
+    public void testQueriesAreAnsweredQuickly() {
+        final var documents = IntStream.range(0, 500)
+                .mapToObj(i -> new IndexedDocument("doc" + i, String.format("Task %d reviews item %d for department %d approval", i, i * 7, i % 13), "{}"))
+                .toList();
+        final var index = Bm25Index.build(documents);
+
+        IntStream.range(0, 2000).forEach(i -> index.search("review approval for department " + (i % 13), 2));
+        final long start = System.nanoTime();
+        IntStream.range(0, 1000).forEach(i -> index.search("review approval for department " + (i % 13), 2));
+        final long averageNanos = (System.nanoTime() - start) / 1000;
+
+        Assertions.assertTrue(averageNanos < 1_000_000L, () -> "Average query time " + averageNanos + "ns exceeds 1ms");
+    }
+}
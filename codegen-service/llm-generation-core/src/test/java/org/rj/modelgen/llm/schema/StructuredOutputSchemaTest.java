@@ -0,0 +1,92 @@
+package org.rj.modelgen.llm.schema;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.integrations.openai.OpenAIModelRequestTransformer;
+import org.rj.modelgen.llm.request.ModelRequest;
+import org.rj.modelgen.llm.util.Util;
+
+public class StructuredOutputSchemaTest {
+    private static final String SCHEMA = """
+            {
+              "$id": "https://example.com/test.json",
+              "$schema": "http://json-schema.org/draft-07/schema#",
+              "title": "Test model",
+              "type": "object",
+              "additionalProperties": false,
+              "properties": {
+                "nodes": { "type": "array", "items": { "$ref": "#/$defs/node" } }
+              },
+              "$defs": {
+                "node": {
+                  "type": "object",
+                  "properties": {
+                    "id": { "type": "string" },
+                    "kind": { "oneOf": [ { "const": "start", "description": "Start node" }, { "const": "end" } ] },
+                    "label": { "type": "string", "maxLength": 40 },
+                    "extra": { "type": [ "object", "null" ] },
+                    "next": { "type": [ "array", "null" ] }
+                  },
+                  "allOf": [ {
+                    "if": { "properties": { "kind": { "const": "start" } } },
+                    "then": { "properties": { "next": { "type": "array", "items": { "$ref": "#/$defs/link" } } } },
+                    "else": { "properties": { "next": { "type": "array", "items": { "$ref": "#/$defs/link" }, "maxItems": 0 } } }
+                  } ],
+                  "required": [ "id", "kind" ]
+                },
+                "link": {
+                  "type": "object",
+                  "properties": { "target": { "type": "string" } },
+                  "required": [ "target" ]
+                }
+              }
+            }""";
+
+    @Test
+    public void testSchemaIsConvertedToStrictForm() {
+        final var converted = new ModelSchema(SCHEMA).getStructuredOutputSchema();
+        final var schema = converted.getSchema();
+
+        Assertions.assertTrue(converted.isStrict());
+        Assertions.assertEquals("Test_model", converted.getName());
+        Assertions.assertFalse(schema.has("$id") || schema.has("$schema") || schema.has("title"));
+
+        final var node = schema.at("/$defs/node");
+        Assertions.assertFalse(node.path("additionalProperties").asBoolean(true));
+        Assertions.assertEquals(4, node.path("required").size());
+        Assertions.assertFalse(node.has("allOf"));
+        Assertions.assertFalse(node.path("properties").has("extra"));      // Optional free-form object
+
+        Assertions.assertEquals("[\"start\",\"end\"]", node.at("/properties/kind/enum").toString());
+        Assertions.assertTrue(node.at("/properties/kind/description").asText().contains("start: Start node"));
+        Assertions.assertEquals("[\"string\",\"null\"]", node.at("/properties/label/type").toString());
+        Assertions.assertFalse(node.at("/properties/label").has("maxLength"));
+
+        // Conditional branches are combined, with the remaining difference between branches removed
+        Assertions.assertEquals("[\"array\",\"null\"]", node.at("/properties/next/type").toString());
+        Assertions.assertEquals("#/$defs/link", node.at("/properties/next/items/$ref").asText());
+    }
+
+    @Test
+    public void testNormalizedResponseConformsToModelSchema() {
+        final var modelSchema = new ModelSchema(SCHEMA);
+        final var response = "{\"nodes\":[{\"id\":\"a\",\"kind\":\"end\",\"label\":null,\"next\":null}]}";
+
+        Assertions.assertFalse(modelSchema.validate(response).isValid());
+        Assertions.assertTrue(modelSchema.validate(modelSchema.getStructuredOutputSchema().normalizeResponse(response)).isValid());
+    }
+
+    @Test
+    public void testResponseFormatIsSubmitted() {
+        final var request = new ModelRequest("gpt-4o", 0.7, new Context());
+        request.setResponseSchema(new ModelSchema(SCHEMA).getStructuredOutputSchema());
+
+        final var serialized = Util.serializeOrThrow(new OpenAIModelRequestTransformer().transform(request));
+        Assertions.assertTrue(serialized.contains("\"response_format\":{\"type\":\"json_schema\",\"json_schema\":{\"name\":\"Test_model\""), serialized);
+        Assertions.assertTrue(serialized.contains("\"strict\":true"), serialized);
+
+        final var unconstrained = Util.serializeOrThrow(new OpenAIModelRequestTransformer().transform(new ModelRequest("gpt-4", 0.7, new Context())));
+        Assertions.assertFalse(unconstrained.contains("response_format"), unconstrained);
+    }
+}
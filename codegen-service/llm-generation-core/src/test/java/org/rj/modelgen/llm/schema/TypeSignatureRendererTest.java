@@ -0,0 +1,54 @@
+package org.rj.modelgen.llm.schema;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TypeSignatureRendererTest {
+    private static final String SCHEMA = """
+            {
+              "$schema": "http://json-schema.org/draft-07/schema#",
+              "title": "Test model",
+              "type": "object",
+              "properties": {
+                "nodes": { "type": "array", "items": { "$ref": "#/$defs/node" } }
+              },
+              "$defs": {
+                "node": {
+                  "type": "object",
+                  "properties": {
+                    "id": { "$ref": "#/$defs/nodeId", "description": "Unique ID" },
+                    "kind": { "oneOf": [ { "const": "start", "description": "Start node" }, { "const": "end" } ] },
+                    "label": { "type": [ "string", "null" ], "maxLength": 40 },
+                    "weight": { "type": "integer" },
+                    "next": { "type": [ "array", "null" ] }
+                  },
+                  "allOf": [ {
+                    "if": { "properties": { "kind": { "const": "start" } } },
+                    "then": { "properties": { "next": { "type": "array", "items": { "$ref": "#/$defs/nodeId" } } } },
+                    "else": { "properties": { "next": { "type": [ "array", "null" ], "items": { "$ref": "#/$defs/nodeId" }, "maxItems": 0 } } }
+                  } ],
+                  "required": [ "id", "kind" ]
+                },
+                "nodeId": { "type": "string", "description": "Node identifier" }
+              }
+            }""";
+
+    @Test
+    public void testSchemaIsRenderedAsTypeSignature() {
+        final var schema = new ModelSchema(SCHEMA);
+        final var signature = schema.getTypeSignature();
+
+        Assertions.assertTrue(signature.startsWith("// Test model\ntype TestModel = {\n  nodes?: Node[];\n};\n"), signature);
+        Assertions.assertTrue(signature.contains("  // Unique ID\n  id: NodeId;\n"), signature);
+        Assertions.assertTrue(signature.contains("    | \"start\"   // Start node\n    | \"end\";\n"), signature);
+        Assertions.assertTrue(signature.contains("  // (maxLength 40)\n  label?: string | null;\n"), signature);
+        Assertions.assertTrue(signature.contains("  weight?: number;\n"), signature);
+        Assertions.assertTrue(signature.contains("  // If kind is \"start\": NodeId[]\n  // Otherwise: (maxItems 0)\n  next?: NodeId[] | null;\n"), signature);
+        Assertions.assertTrue(signature.endsWith("// Node identifier\ntype NodeId = string;\n"), signature);
+
+        // Rendered once per schema, and only used in place of the schema content in prompts
+        Assertions.assertSame(signature, schema.getTypeSignature());
+        Assertions.assertSame(schema.getSchemaContent(), schema.getPromptContent(SchemaPromptFormat.JsonSchema));
+        Assertions.assertTrue(signature.length() < SCHEMA.length() / 2);
+    }
+}
@@ -0,0 +1,129 @@
+package org.rj.modelgen.llm.session;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedSessionStoreTest {
+    private final TestClock clock = new TestClock();
+    private final List<String> evicted = new ArrayList<>();
+
+    @Test
+    public void testIdleSessionsExpire() {
+        final var store = store(SessionStoreOptions.unbounded().withIdleTimeout(Duration.ofMinutes(10)));
+        store.getOrCreate("a", SessionState::new);
+        clock.advance(Duration.ofMinutes(6));
+        store.getOrCreate("b", SessionState::new);
+        clock.advance(Duration.ofMinutes(6));
+
+        // Access refreshes the idle timeout of the session
+        Assertions.assertTrue(store.get("b").isPresent());
+        Assertions.assertTrue(store.get("a").isEmpty());
+        Assertions.assertEquals(List.of("a:EXPIRED"), evicted);
+
+        clock.advance(Duration.ofMinutes(11));
+        store.cleanUp();
+        Assertions.assertEquals(0, store.size());
+        Assertions.assertEquals(List.of("a:EXPIRED", "b:EXPIRED"), evicted);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSessionsAreEvictedBeyondCount() {
+        final var store = store(SessionStoreOptions.unbounded().withMaxSessions(2));
+        store.getOrCreate("a", SessionState::new);
+        store.getOrCreate("b", SessionState::new);
+        store.get("a");
+        store.getOrCreate("c", SessionState::new);
+
+        Assertions.assertTrue(store.contains("a"));
+        Assertions.assertFalse(store.contains("b"));
+        Assertions.assertTrue(store.contains("c"));
+        Assertions.assertEquals(List.of("b:SIZE"), evicted);
+    }
+
+    @Test
+    public void testSessionsAreEvictedBeyondSizeAsTheyGrow() {
+        final var store = store(SessionStoreOptions.unbounded().withMaxSizeBytes(20_000));
+        final var a = store.getOrCreate("a", SessionState::new);
+        final var b = store.getOrCreate("b", SessionState::new);
+        a.replaceContext(context(8_000));
+        b.replaceContext(context(8_000));
+
+        // Growth is only observed once a session is next accessed
+        store.get("a");
+        store.get("b");
+        Assertions.assertEquals(2, store.size());
+
+        // Session being accessed is retained even if it alone exceeds the limit
+        b.replaceContext(context(30_000));
+        store.get("b");
+        Assertions.assertEquals(List.of("a:SIZE"), evicted);
+        Assertions.assertTrue(store.contains("b"));
+        Assertions.assertTrue(store.getTotalSizeBytes() > 30_000);
+    }
+
+    @Test
+    public void testAttachmentsAreCountedAndRemovedWithSession() {
+        final var store = store(SessionStoreOptions.unbounded());
+        final var session = store.getOrCreate("a", SessionState::new);
+        final var baseSize = session.estimateSizeBytes();
+
+        session.getOrCreateAttachment(TestAttachment.class, TestAttachment::new);
+        Assertions.assertSame(session.getAttachment(TestAttachment.class).orElseThrow(),
+                session.getOrCreateAttachment(TestAttachment.class, TestAttachment::new));
+        Assertions.assertEquals(baseSize + 1000, session.estimateSizeBytes());
+
+        Assertions.assertTrue(store.remove("a").isPresent());
+        Assertions.assertTrue(store.get("a").isEmpty());
+        Assertions.assertEquals(List.of("a:REMOVED"), evicted);
+    }
+
+    private BoundedSessionStore store(SessionStoreOptions options) {
+        final var store = new BoundedSessionStore(options, clock);
+        store.addEvictionListener((session, cause) -> evicted.add(session.getId() + ":" + cause));
+        return store;
+    }
+
+    private static Context context(int length) {
+        return new Context(List.of(ContextEntry.forModel("x".repeat(length))));
+    }
+
+    private static class TestAttachment implements SessionAttachment {
+        @Override
+        public long estimateSizeBytes() {
+            return 1000;
+        }
+    }
+
+    private static class TestClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
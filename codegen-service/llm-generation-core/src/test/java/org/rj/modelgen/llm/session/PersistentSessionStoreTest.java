@@ -0,0 +1,249 @@
+package org.rj.modelgen.llm.session;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.session.persistence.HttpSessionPersistence;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent session store over networked persistence, against a local stand-in for the shared key-value service
+ */
+public class PersistentSessionStoreTest {
+    private final Map<String, StoredObject> objects = new HashMap<>();
+    private final AtomicLong tags = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile CountDownLatch writeGate = new CountDownLatch(0);
+    private HttpServer server;
+    private URI baseUri;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/sessions/", this::handle);
+        server.start();
+        baseUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/sessions");
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSessionIsLoadedOnDemandByAnotherNode() {
+        try (final var first = node()) {
+            final var session = first.getOrCreate("session/1", SessionState::new);
+            session.replaceContext(new Context(List.of(ContextEntry.forModel("{ \"nodes\": [] }"))));
+            first.put(session);
+        }
+
+        try (final var second = node()) {
+            Assertions.assertFalse(second.contains("session/1"));
+            Assertions.assertTrue(second.lookup("session/1").block().isPresent());
+            Assertions.assertTrue(second.contains("session/1"));
+            Assertions.assertEquals("{ \"nodes\": [] }", second.get("session/1").orElseThrow().getLastResponse().orElseThrow());
+            Assertions.assertSame(second.get("session/1").orElseThrow(), second.getOrCreate("session/1", SessionState::new));
+            Assertions.assertTrue(second.get("session/2").isEmpty());
+        }
+    }
+
+    @Test
+    public void testEvictedSessionIsPersistedAndReloaded() {
+        try (final var store = node(SessionStoreOptions.unbounded().withMaxSessions(1))) {
+            final var session = store.getOrCreate("a", SessionState::new);
+            session.replaceContext(new Context(List.of(ContextEntry.forUser("Modified in place"))));
+
+            // Creating a second session evicts the first from memory, which persists its latest state
+            store.getOrCreate("b", SessionState::new);
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertEquals("Modified in place", store.get("a").orElseThrow().getLastPrompt().orElseThrow());
+        }
+    }
+
+    @Test
+    public void testRemovedSessionIsDeleted() {
+        try (final var store = node()) {
+            store.put(new SessionState("a"));
+            Assertions.assertTrue(store.remove("a").isPresent());
+        }
+
+        try (final var store = node()) {
+            Assertions.assertTrue(store.lookup("a").block().isEmpty());
+            Assertions.assertTrue(objects.isEmpty());
+        }
+    }
+
+    @Test
+    public void testCachedSessionIsRevalidatedOnLookup() {
+        try (final var first = node(); final var second = node()) {
+            first.put(new SessionState("a"));
+            awaitPersisted(first, "a");
+            final var cached = first.lookup("a").block().orElseThrow();
+
+            // Saved by another node while still held in memory by the first
+            final var updated = second.lookup("a").block().orElseThrow();
+            updated.replaceContext(new Context(List.of(ContextEntry.forUser("Saved by second node"))));
+            second.put(updated);
+            awaitPersisted(second, "a");
+
+            final var revalidated = first.lookup("a").block().orElseThrow();
+            Assertions.assertNotSame(cached, revalidated);
+            Assertions.assertEquals("Saved by second node", revalidated.getLastPrompt().orElseThrow());
+            Assertions.assertSame(revalidated, first.lookup("a").block().orElseThrow());
+        }
+    }
+
+    @Test
+    public void testStaleSessionDoesNotOverwriteNewerState() {
+        try (final var first = node(); final var second = node()) {
+            first.put(new SessionState("a"));
+            awaitPersisted(first, "a");
+            final var stale = first.lookup("a").block().orElseThrow();
+
+            final var updated = second.lookup("a").block().orElseThrow();
+            updated.replaceContext(new Context(List.of(ContextEntry.forUser("Saved by second node"))));
+            second.put(updated);
+            awaitPersisted(second, "a");
+
+            // Saved from the stale copy without revalidating, which conflicts and is discarded
+            stale.replaceContext(new Context(List.of(ContextEntry.forUser("Saved by first node"))));
+            first.put(stale);
+            awaitPersisted(first, "a");
+
+            try (final var third = node()) {
+                Assertions.assertEquals("Saved by second node", third.lookup("a").block().orElseThrow().getLastPrompt().orElseThrow());
+            }
+            Assertions.assertEquals("Saved by second node", first.lookup("a").block().orElseThrow().getLastPrompt().orElseThrow());
+        }
+    }
+
+    @Test
+    public void testSessionIsCreatedOnlyIfAbsentFromAllNodes() {
+        try (final var first = node(); final var second = node()) {
+            Assertions.assertTrue(first.create(new SessionState("a")));
+            Assertions.assertFalse(first.create(new SessionState("a")));
+
+            // Not yet held in memory by the second node, but already created in persistence
+            final var conflicting = new SessionState("a");
+            conflicting.replaceContext(new Context(List.of(ContextEntry.forUser("Created by second node"))));
+            Assertions.assertFalse(second.create(conflicting));
+            Assertions.assertNotSame(conflicting, second.lookup("a").block().orElseThrow());
+
+            Assertions.assertTrue(second.create(new SessionState("b")));
+            Assertions.assertTrue(first.lookup("b").block().isPresent());
+        }
+    }
+
+    @Test
+    public void testSupersededSnapshotsAreNotWritten() {
+        try (final var store = node()) {
+            writeGate = new CountDownLatch(1);
+            final var session = store.getOrCreate("a", SessionState::new);
+            for (int i = 0; i < 50; ++i) {
+                session.replaceContext(new Context(List.of(ContextEntry.forUser("Prompt " + i))));
+                store.put(session);
+            }
+
+            // At most the snapshot already being written when the writer was held, and the latest snapshot
+            writeGate.countDown();
+            awaitPersisted(store, "a");
+            Assertions.assertTrue(writes.get() <= 2L);
+        }
+
+        try (final var store = node()) {
+            Assertions.assertEquals("Prompt 49", store.lookup("a").block().orElseThrow().getLastPrompt().orElseThrow());
+        }
+    }
+
+    private PersistentSessionStore node() {
+        return node(SessionStoreOptions.defaultOptions());
+    }
+
+    private PersistentSessionStore node(SessionStoreOptions options) {
+        return new PersistentSessionStore(new BoundedSessionStore(options), new HttpSessionPersistence(baseUri, Duration.ofSeconds(5)));
+    }
+
+    private static void awaitPersisted(PersistentSessionStore store, String id) {
+        final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (store.isPending(id)) {
+            if (System.nanoTime() > deadline) Assertions.fail("Session " + id + " was not persisted");
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitWriteGate() throws IOException {
+        try {
+            writeGate.await();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted awaiting write", ex);
+        }
+    }
+
+    // Conditional requests are evaluated atomically, as by the shared key-value service
+    private synchronized void handle(HttpExchange exchange) throws IOException {
+        final var key = exchange.getRequestURI().getRawPath();
+        try (exchange) {
+            final var object = objects.get(key);
+            switch (exchange.getRequestMethod()) {
+                case "GET", "HEAD" -> {
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    }
+                    else if (exchange.getRequestMethod().equals("HEAD")) {
+                        exchange.getResponseHeaders().set("ETag", object.tag);
+                        exchange.sendResponseHeaders(200, -1);
+                    }
+                    else {
+                        exchange.getResponseHeaders().set("ETag", object.tag);
+                        exchange.sendResponseHeaders(200, object.data.length);
+                        exchange.getResponseBody().write(object.data);
+                    }
+                }
+                case "PUT" -> {
+                    awaitWriteGate();
+                    writes.incrementAndGet();
+                    final var ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+                    final var ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                    if ((ifMatch != null && (object == null || !ifMatch.equals(object.tag))) || (ifNoneMatch != null && object != null)) {
+                        exchange.sendResponseHeaders(412, -1);
+                    }
+                    else {
+                        final var stored = new StoredObject(exchange.getRequestBody().readAllBytes(), "\"" + tags.incrementAndGet() + "\"");
+                        objects.put(key, stored);
+                        exchange.getResponseHeaders().set("ETag", stored.tag);
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                }
+                case "DELETE" -> exchange.sendResponseHeaders(objects.remove(key) == null ? 404 : 204, -1);
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private static class StoredObject {
+        private final byte[] data;
+        private final String tag;
+
+        private StoredObject(byte[] data, String tag) {
+            this.data = data;
+            this.tag = tag;
+        }
+    }
+}
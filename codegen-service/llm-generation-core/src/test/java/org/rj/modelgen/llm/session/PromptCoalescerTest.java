@@ -0,0 +1,103 @@
+package org.rj.modelgen.llm.session;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class PromptCoalescerTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void testPromptToIdleSessionIsExecutedAlone() {
+        final var executed = new CopyOnWriteArrayList<String>();
+        final var coalescer = new PromptCoalescer<String>((id, prompt) -> Mono.fromSupplier(() -> {
+            executed.add(prompt);
+            return id + ":" + prompt;
+        }));
+
+        Assertions.assertEquals("session:Create a process", coalescer.submit("session", "Create a process").block(TIMEOUT));
+        Assertions.assertEquals(List.of("Create a process"), executed);
+    }
+
+    @Test
+    public void testPromptsQueuedWhileBusyAreMerged() {
+        final var executed = new CopyOnWriteArrayList<String>();
+        final var gate = Sinks.<String>one();
+        final var coalescer = new PromptCoalescer<String>((id, prompt) -> {
+            executed.add(prompt);
+            return (executed.size() == 1) ? gate.asMono() : Mono.just("merged");
+        });
+
+        final var first = coalescer.submit("session", "Create a process").toFuture();
+        final var queued = List.of(
+                coalescer.submit("session", "Add a review step").toFuture(),
+                coalescer.submit("session", "Rename the review step").toFuture(),
+                coalescer.submit("session", "Add an end event").toFuture());
+
+        Assertions.assertEquals(3, coalescer.getPendingPrompts("session"));
+        gate.tryEmitValue("first");
+
+        Assertions.assertEquals("first", first.join());
+        Assertions.assertEquals(List.of("merged", "merged", "merged"), queued.stream().map(x -> x.join()).toList());
+        Assertions.assertEquals(List.of("Create a process",
+                "Apply each of the following changes, in order:\n1. Add a review step\n2. Rename the review step\n3. Add an end event"),
+                executed);
+        Assertions.assertEquals(0, coalescer.getPendingPrompts("session"));
+    }
+
+    @Test
+    public void testBatchSizeIsLimited() {
+        final var executed = new CopyOnWriteArrayList<String>();
+        final var gate = Sinks.<String>one();
+        final var coalescer = new PromptCoalescer<String>((id, prompt) -> {
+            executed.add(prompt);
+            return (executed.size() == 1) ? gate.asMono() : Mono.just(prompt);
+        }, 2);
+
+        final var first = coalescer.submit("session", "a").toFuture();
+        final var queued = List.of(
+                coalescer.submit("session", "b").toFuture(),
+                coalescer.submit("session", "c").toFuture(),
+                coalescer.submit("session", "d").toFuture());
+
+        gate.tryEmitValue("a");
+        first.join();
+        queued.forEach(x -> x.join());
+
+        Assertions.assertEquals(3, executed.size());
+        Assertions.assertEquals("Apply each of the following changes, in order:\n1. b\n2. c", executed.get(1));
+        Assertions.assertEquals("d", executed.get(2));
+    }
+
+    @Test
+    public void testSessionsAreNotMerged() {
+        final var gate = Sinks.<String>one();
+        final var coalescer = new PromptCoalescer<String>((id, prompt) -> id.equals("a") ? gate.asMono() : Mono.just(prompt));
+
+        final var blocked = coalescer.submit("a", "first").toFuture();
+        Assertions.assertEquals("second", coalescer.submit("b", "second").block(TIMEOUT));
+        Assertions.assertFalse(blocked.isDone());
+
+        gate.tryEmitValue("first");
+        Assertions.assertEquals("first", blocked.join());
+    }
+
+    @Test
+    public void testFailedExecutionDoesNotBlockSession() {
+        final var gate = Sinks.<String>one();
+        final var coalescer = new PromptCoalescer<String>((id, prompt) -> prompt.equals("fail") ? gate.asMono() : Mono.just(prompt));
+
+        final var failed = coalescer.submit("session", "fail").toFuture();
+        final var next = coalescer.submit("session", "next").toFuture();
+
+        gate.tryEmitError(new IllegalStateException("failed"));
+        Assertions.assertThrows(CompletionException.class, failed::join);
+        Assertions.assertEquals("next", next.join());
+    }
+}
@@ -0,0 +1,85 @@
+package org.rj.modelgen.llm.session;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class SessionMailboxTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void testTasksForOneSessionRunInOrder() {
+        final var mailbox = new SessionMailbox();
+        final var running = new AtomicInteger();
+        final var maxRunning = new AtomicInteger();
+        final var order = new CopyOnWriteArrayList<Integer>();
+
+        final var results = Flux.fromStream(IntStream.range(0, 20).boxed())
+                .flatMap(i -> mailbox.submit("session", () -> Mono.fromRunnable(() -> maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max))
+                        .then(Mono.delay(Duration.ofMillis(2)))
+                        .doOnNext(__ -> order.add(i))
+                        .doOnNext(__ -> running.decrementAndGet())
+                        .thenReturn(i)))
+                .collectList()
+                .block(TIMEOUT);
+
+        Assertions.assertEquals(20, results.size());
+        Assertions.assertEquals(IntStream.range(0, 20).boxed().toList(), order);
+        Assertions.assertEquals(1, maxRunning.get());
+        Assertions.assertEquals(0, mailbox.getQueueDepth("session"));
+    }
+
+    @Test
+    public void testSessionsRunInParallel() {
+        final var mailbox = new SessionMailbox();
+        final var first = Sinks.<String>one();
+
+        // The second session completes even though the first is still waiting
+        final var blocked = mailbox.submit("a", first::asMono).toFuture();
+        Assertions.assertEquals("b", mailbox.submit("b", () -> Mono.just("b")).block(TIMEOUT));
+        Assertions.assertFalse(blocked.isDone());
+
+        first.tryEmitValue("a");
+        Assertions.assertEquals("a", blocked.join());
+    }
+
+    @Test
+    public void testQueueDepthIsReported() {
+        final var mailbox = new SessionMailbox();
+        final var gate = Sinks.<String>one();
+        final var tasks = List.of(
+                mailbox.submit("session", gate::asMono).toFuture(),
+                mailbox.submit("session", () -> Mono.just("second")).toFuture(),
+                mailbox.submit("session", () -> Mono.just("third")).toFuture());
+
+        Assertions.assertEquals(3, mailbox.getQueueDepth("session"));
+        Assertions.assertEquals(3, mailbox.getQueueDepths().get("session"));
+
+        gate.tryEmitValue("first");
+        Assertions.assertEquals(List.of("first", "second", "third"), tasks.stream().map(x -> x.join()).toList());
+        Assertions.assertTrue(mailbox.getQueueDepths().isEmpty());
+    }
+
+    @Test
+    public void testFailedAndCancelledTasksDoNotBlockSession() {
+        final var mailbox = new SessionMailbox();
+        final var gate = Sinks.<String>one();
+
+        final var running = mailbox.submit("session", gate::asMono).subscribe();
+        final var failed = mailbox.submit("session", () -> Mono.<String>error(new IllegalStateException("failed"))).toFuture();
+        final var next = mailbox.submit("session", () -> Mono.just("next")).toFuture();
+
+        running.dispose();
+        Assertions.assertEquals("next", next.join());
+        Assertions.assertThrows(CompletionException.class, failed::join);
+    }
+}
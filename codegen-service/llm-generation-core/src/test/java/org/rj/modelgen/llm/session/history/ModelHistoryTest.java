@@ -0,0 +1,173 @@
+package org.rj.modelgen.llm.session.history;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
+import org.rj.modelgen.llm.session.SessionState;
+import org.rj.modelgen.llm.session.persistence.SessionSnapshotCodec;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ModelHistoryTest {
+    @Test
+    public void testVersionsAreStoredAsDeltas() {
+        final var history = new ModelHistory();
+        for (int i = 1; i <= 20; ++i) {
+            history.commit(model(i));
+        }
+
+        final var versions = history.getVersions();
+        Assertions.assertEquals(20, versions.size());
+        Assertions.assertTrue(versions.get(0).isSnapshot());
+        Assertions.assertTrue(versions.stream().skip(1).noneMatch(ModelVersion::isSnapshot));
+        Assertions.assertTrue(versions.get(19).getStoredLength() < versions.get(19).getModelLength() / 10);
+
+        for (int i = 1; i <= 20; ++i) {
+            Assertions.assertEquals(tree(model(i)), tree(history.getModel(i - 1)));
+        }
+    }
+
+    @Test
+    public void testUnchangedModelIsNotCommitted() {
+        final var history = new ModelHistory();
+        final var first = history.commit(model(1));
+
+        Assertions.assertEquals(first, history.commit(Util.serializeOrThrow(tree(model(1)))));
+        Assertions.assertEquals(1, history.getVersions().size());
+    }
+
+    @Test
+    public void testModelWhichIsNotJsonIsRejected() {
+        final var history = new ModelHistory();
+        history.commit(model(1));
+
+        Assertions.assertThrows(LlmGenerationModelException.class, () -> history.commit("not a model"));
+        Assertions.assertThrows(LlmGenerationModelException.class, () -> history.commit("[1, 2, 3]"));
+        Assertions.assertEquals(1, history.getVersions().size());
+    }
+
+    @Test
+    public void testUndoAndRedo() {
+        final var history = new ModelHistory();
+        history.commit(model(1));
+        history.commit(model(2));
+        history.commit(model(3));
+
+        Assertions.assertEquals(tree(model(2)), tree(history.undo().orElseThrow()));
+        Assertions.assertEquals(tree(model(1)), tree(history.undo().orElseThrow()));
+        Assertions.assertTrue(history.undo().isEmpty());
+
+        Assertions.assertEquals(tree(model(2)), tree(history.redo().orElseThrow()));
+        Assertions.assertTrue(history.isRedoAvailable());
+
+        // Committing after an undo starts a new branch, so the undone version can no longer be redone
+        history.commit(model(4));
+        Assertions.assertFalse(history.isRedoAvailable());
+        Assertions.assertEquals(1, history.getVersions().get(history.getCurrentVersion()).getParent());
+        Assertions.assertEquals(tree(model(3)), tree(history.checkout(2)));
+    }
+
+    @Test
+    public void testForkSharesVersionsUntilCommit() {
+        final var history = new ModelHistory();
+        history.commit(model(1));
+        history.commit(model(2));
+
+        final var fork = history.fork();
+        fork.checkout(0);
+        fork.commit(model(5));
+        history.commit(model(3));
+
+        Assertions.assertEquals(3, fork.getVersions().size());
+        Assertions.assertEquals(3, history.getVersions().size());
+        Assertions.assertEquals(tree(model(5)), tree(fork.getModel(2)));
+        Assertions.assertEquals(tree(model(3)), tree(history.getModel(2)));
+        Assertions.assertSame(history.getVersions().get(1), fork.getVersions().get(1));
+    }
+
+    @Test
+    public void testLongHistoryIsReconstructedFromSnapshots() {
+        final var history = new ModelHistory();
+        for (int i = 1; i <= 100; ++i) {
+            history.commit(model(i));
+        }
+
+        Assertions.assertTrue(history.getVersions().stream().filter(ModelVersion::isSnapshot).count() > 1);
+        Assertions.assertEquals(tree(model(50)), tree(history.checkout(49)));
+    }
+
+    @Test
+    public void testHistoryIsRestoredFromSnapshot() {
+        final var session = new SessionState("session-1");
+        session.replaceContext(new Context());
+        final var history = session.getOrCreateAttachment(ModelHistory.class, ModelHistory::new);
+        history.commit(model(1));
+        history.commit(model(2));
+
+        final var restored = SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(session))
+                .getAttachment(ModelHistory.class).orElseThrow();
+
+        Assertions.assertEquals(1, restored.getCurrentVersion());
+        Assertions.assertEquals(history.estimateSizeBytes(), restored.estimateSizeBytes());
+        Assertions.assertEquals(tree(model(1)), tree(restored.undo().orElseThrow()));
+        Assertions.assertTrue(restored.redo().isPresent());
+    }
+
+    @Test
+    public void testModelStateIsReplacedWithoutRequest() {
+        final var session = new SessionState("session-1");
+        session.replaceContext(new Context(List.of(ContextEntry.forUser("Create a process"), ContextEntry.forModel(model(2)))));
+
+        session.replaceModelState(model(1));
+        Assertions.assertEquals(model(1), session.getLastResponse().orElseThrow());
+        Assertions.assertEquals("Create a process", session.getLastPrompt().orElseThrow());
+        Assertions.assertEquals(2, session.getContext().length());
+    }
+
+    @Test
+    public void testContextIsRewoundWithVersion() {
+        final var history = new ModelHistory();
+        history.commit(model(1), "Create a process");
+        history.commit(model(2), "Add a task");
+        history.commit(model(3), "Add another task");
+        history.undo();
+        history.undo();
+        history.commit(model(4), "Add a gateway");
+
+        // Only the prompts along the branch of the version are retained, followed by its model
+        final var context = history.getContext(1);
+        Assertions.assertEquals(3, context.length());
+        Assertions.assertEquals("Add a task", context.getLatestUserEntry().orElseThrow().getContent());
+        Assertions.assertEquals(tree(model(2)), tree(context.getLatestModelEntry().orElseThrow().getContent()));
+
+        final var branch = history.getContext(history.getCurrentVersion());
+        Assertions.assertEquals(3, branch.length());
+        Assertions.assertEquals("Create a process", branch.getData().get(0).getContent());
+        Assertions.assertEquals("Add a gateway", branch.getData().get(1).getContent());
+        Assertions.assertEquals(tree(model(4)), tree(branch.getLatestModelEntry().orElseThrow().getContent()));
+    }
+
+    // Model of a chain of n tasks, each revision adding a task and renaming the first
+    private static String model(int n) {
+        final var nodes = IntStream.range(0, n + 50)
+                .mapToObj(i -> String.format("{ \"id\": \"task%d\", \"name\": \"%s\", \"elementType\": \"userTask\", \"connectedTo\": [ { \"targetNode\": \"task%d\" } ] }",
+                        i, (i == 0) ? "Revision " + n : "Task " + i, i + 1))
+                .collect(Collectors.joining(", "));
+
+        return "{ \"nodes\": [ " + nodes + " ] }";
+    }
+
+    private static Object tree(String model) {
+        try {
+            return Util.getObjectMapper().readTree(model);
+        }
+        catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
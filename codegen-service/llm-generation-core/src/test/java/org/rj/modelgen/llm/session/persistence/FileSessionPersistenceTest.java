@@ -0,0 +1,133 @@
+package org.rj.modelgen.llm.session.persistence;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.context.ContextEntry;
+import org.rj.modelgen.llm.session.SessionAttachment;
+import org.rj.modelgen.llm.session.SessionState;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class FileSessionPersistenceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSnapshotsAreRecoveredFromLog() {
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            final var a = persistence.save("a", bytes("a1"), null);
+            persistence.save("b", bytes("b1"), null);
+            persistence.save("a", bytes("a2"), a);
+            persistence.save("c", bytes("c1"), null);
+            persistence.delete("b");
+        }
+
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            Assertions.assertEquals("a2", string(persistence.load("a").orElseThrow()));
+            Assertions.assertTrue(persistence.load("b").isEmpty());
+            Assertions.assertEquals("c1", string(persistence.load("c").orElseThrow()));
+        }
+    }
+
+    @Test
+    public void testIncompleteRecordIsTruncated() throws Exception {
+        final long validSize;
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            persistence.save("a", bytes("a1"), null);
+            validSize = persistence.getSize();
+        }
+
+        // Partial record, as if the process failed during a write
+        Files.write(directory.resolve("sessions.log"), new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            Assertions.assertEquals(validSize, persistence.getSize());
+            Assertions.assertEquals("a1", string(persistence.load("a").orElseThrow()));
+
+            persistence.save("b", bytes("b1"), null);
+            Assertions.assertEquals("b1", string(persistence.load("b").orElseThrow()));
+        }
+    }
+
+    @Test
+    public void testLogIsCompactedOnceMostlySuperseded() {
+        try (final var persistence = open(1024)) {
+            // Versions are retained through compaction, so each save remains conditional on the previous one
+            String a = null, b = null;
+            for (int i = 0; i < 100; ++i) {
+                a = persistence.save("a", bytes("a" + i), a);
+                b = persistence.save("b", bytes("b" + i), b);
+            }
+
+            Assertions.assertTrue(persistence.getSize() < 1024);
+            Assertions.assertEquals("a99", string(persistence.load("a").orElseThrow()));
+            Assertions.assertEquals("b99", string(persistence.load("b").orElseThrow()));
+        }
+
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            Assertions.assertEquals("b99", string(persistence.load("b").orElseThrow()));
+        }
+    }
+
+    @Test
+    public void testSaveIsRejectedUnlessAtExpectedVersion() {
+        try (final var persistence = open(Long.MAX_VALUE)) {
+            final var first = persistence.save("a", bytes("a1"), null);
+            final var second = persistence.save("a", bytes("a2"), first);
+
+            Assertions.assertNotEquals(first, second);
+            Assertions.assertEquals(second, persistence.getVersion("a").orElseThrow());
+            Assertions.assertThrows(SessionConflictException.class, () -> persistence.save("a", bytes("stale"), first));
+            Assertions.assertThrows(SessionConflictException.class, () -> persistence.save("a", bytes("new"), null));
+            Assertions.assertEquals("a2", string(persistence.load("a").orElseThrow()));
+            Assertions.assertTrue(persistence.getVersion("b").isEmpty());
+        }
+    }
+
+    @Test
+    public void testSessionStateIsRestoredFromSnapshot() {
+        final var session = new SessionState("session-1");
+        session.replaceContext(new Context(List.of(ContextEntry.forUser("Create a process"), ContextEntry.forModel("{ \"nodes\": [] }"))));
+        session.recordModelSize(42);
+        session.addMetadata("user", "someone");
+        session.getOrCreateAttachment(TestAttachment.class, TestAttachment::new).value = "data";
+
+        final var restored = SessionSnapshotCodec.decode(SessionSnapshotCodec.encode(session));
+
+        Assertions.assertEquals("session-1", restored.getId());
+        Assertions.assertEquals(2, restored.getContext().getData().size());
+        Assertions.assertEquals("{ \"nodes\": [] }", restored.getLastResponse().orElseThrow());
+        Assertions.assertEquals(42, restored.getLargestModelTokens());
+        Assertions.assertEquals("someone", restored.getMetadata().get("user"));
+        Assertions.assertEquals("data", restored.getAttachment(TestAttachment.class).orElseThrow().value);
+    }
+
+    private FileSessionPersistence open(long compactionThresholdBytes) {
+        return new FileSessionPersistence(FileSessionPersistenceOptions.defaultOptions()
+                .withDirectory(directory)
+                .withCompactionThresholdBytes(compactionThresholdBytes));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(SessionSnapshot snapshot) {
+        return new String(snapshot.getData(), StandardCharsets.UTF_8);
+    }
+
+    public static class TestAttachment implements SessionAttachment {
+        private String value;
+
+        @Override
+        public long estimateSizeBytes() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.rj.modelgen.llm.statemodel.states.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.context.Context;
+import org.rj.modelgen.llm.request.ModelRequest;
+import org.rj.modelgen.llm.response.ModelResponse;
+import org.rj.modelgen.llm.schema.StructuredOutputSchema;
+import org.rj.modelgen.llm.util.Util;
+import org.rj.modelgen.llm.validation.generic.GenericIntermediateModelSanitizer;
+
+public class SubmitGenerationRequestToLlmTest {
+    private static final String FENCED = "```json\n{ \"nodes\": [] }\n```";
+
+    @Test
+    public void testOnlyCompleteConstrainedResponsesBypassSanitization() {
+        final var state = new TestSubmitState();
+        final var request = new ModelRequest("model", 0.0, new Context());
+        request.setResponseSchema(new StructuredOutputSchema("model", Util.deserializeOrThrow("{ \"type\": \"object\" }", JsonNode.class), true));
+
+        // Normalized as a conforming response, so content which is not a JSON document is returned unchanged
+        Assertions.assertEquals(FENCED, state.sanitize(request, response(false, false)));
+
+        // Continued responses are joined with unconstrained continuations, and truncated responses are incomplete
+        Assertions.assertEquals("{ \"nodes\": [] }", state.sanitize(request, response(true, false)));
+        Assertions.assertEquals("{ \"nodes\": [] }", state.sanitize(request, response(false, true)));
+    }
+
+    private static ModelResponse response(boolean continued, boolean truncated) {
+        final var response = new ModelResponse();
+        response.setStatus(ModelResponse.Status.SUCCESS);
+        response.setMessage(FENCED);
+        response.setContinued(continued);
+        response.setTruncated(truncated);
+        return response;
+    }
+
+    private static class TestSubmitState extends SubmitGenerationRequestToLlm {
+        private TestSubmitState() {
+            super(TestSubmitState.class, new GenericIntermediateModelSanitizer());
+        }
+
+        @Override
+        public String getSuccessSignalId() {
+            return "Success";
+        }
+    }
+}
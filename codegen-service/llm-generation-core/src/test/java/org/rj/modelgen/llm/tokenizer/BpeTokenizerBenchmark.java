@@ -0,0 +1,64 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full encoding, the count-only path and cached counts for generated IR content.  Run from the test
+ * classpath via {@link #main(String[])}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BpeTokenizerBenchmark {
+
+    @Param({ "20", "200" })
+    public int nodeCount;
+
+    private String content;
+    private StringBuilder uncachedContent;
+    private Tokenizer tokenizer;
+
+    @Setup
+    public void setup() {
+        final var builder = new StringBuilder("{\"nodes\":[");
+        for (int i = 0; i < nodeCount; ++i) {
+            if (i != 0) builder.append(',');
+            builder.append(String.format("{\"id\":\"node%d\",\"name\":\"Node %d\",\"elementType\":\"userTask\"," +
+                    "\"description\":\"Performs step %d of the process\",\"connectedTo\":[{\"targetNode\":\"node%d\"," +
+                    "\"description\":\"Continue to step %d\"}],\"properties\":null}", i, i, i, i + 1, i + 1));
+        }
+        builder.append("]}");
+
+        content = builder.toString();
+        uncachedContent = new StringBuilder(content);
+        tokenizer = Tokenizers.defaultTokenizer();
+    }
+
+    @Benchmark
+    public int[] encode() {
+        return tokenizer.encode(content);
+    }
+
+    @Benchmark
+    public int countTokens() {
+        return tokenizer.countTokens(uncachedContent);
+    }
+
+    @Benchmark
+    public int countTokensCached() {
+        return tokenizer.countTokens(content);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BpeTokenizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
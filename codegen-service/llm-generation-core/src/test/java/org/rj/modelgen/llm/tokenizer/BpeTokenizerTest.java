@@ -0,0 +1,126 @@
+package org.rj.modelgen.llm.tokenizer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+
+import java.util.Random;
+
+public class BpeTokenizerTest {
+    private static final String IR_CONTENT = "{\"nodes\":[{\"id\":\"startEvent1\",\"elementType\":\"startEvent\",\"connectedTo\":[{\"targetNode\":\"task1\"}]}]}";
+
+    @Test
+    public void testEncodingMatchesReferenceTokens() {
+        final var tokenizer = Tokenizers.defaultTokenizer();
+
+        Assertions.assertArrayEquals(new int[] { 15339, 1917 }, tokenizer.encode("hello world"));
+        Assertions.assertArrayEquals(new int[] { 40, 3358, 2019, 433, 596, 256, 2884, 271, 220, 5509 },
+                tokenizer.encode("I'll say it's   done\n\n  ok"));
+        Assertions.assertArrayEquals(new int[] { 57, 5297, 718, 220, 4513, 1774, 73958, 17161, 91416 },
+                tokenizer.encode("Zürich 12345 中文 😀"));
+        Assertions.assertArrayEquals(new int[] { 5018, 20606, 67682, 307, 3332, 2527, 1585, 16, 2247, 94387, 3332, 2527,
+                1585, 2247, 15647, 1271, 67682, 5775, 1997, 3332, 8366, 16, 9388, 14316, 14316 }, tokenizer.encode(IR_CONTENT));
+    }
+
+    @Test
+    public void testCountMatchesEncodingAndDecodeRoundTrips() {
+        final var tokenizer = Tokenizers.defaultTokenizer();
+        final var random = new Random(1L);
+        final var alphabet = " \n\r\tabcXYZ019'sSlLe.{}\"/-é  中٣";
+
+        for (int i = 0; i < 2000; ++i) {
+            final var text = randomText(random, alphabet, random.nextInt(60));
+            final var tokens = tokenizer.encode(text);
+
+            Assertions.assertEquals(tokens.length, tokenizer.countTokens(text));
+            Assertions.assertEquals(tokens.length, tokenizer.countTokens(new StringBuilder(text)));
+            Assertions.assertEquals(text, tokenizer.decode(tokens));
+        }
+    }
+
+    @Test
+    public void testSegmenterMatchesPreTokenizationPattern() {
+        final var random = new Random(2L);
+        final var alphabet = " \n\r\tabcXYZ019'sStTrReEvVmMdDlL.{}\"/-ſé \u0085 \u001C中٣²Ⅻ";
+        final var segmenter = new Cl100kSegmenter();
+        final var reference = new RegexSegmenter(TokenizerEncoding.Patterns.CL100K);
+
+        for (int i = 0; i < 5000; ++i) {
+            final var text = randomText(random, alphabet, random.nextInt(40));
+            segmenter.reset(text);
+            reference.reset(text);
+
+            int start = 0;
+            while (start < text.length()) {
+                final int expected = reference.nextBoundary(start);
+                Assertions.assertEquals(expected, segmenter.nextBoundary(start), "Segment at " + start + " of '" + text + "'");
+                start = expected;
+            }
+        }
+    }
+
+    @Test
+    public void testCountsForRepeatedStringsAreCached() {
+        final var tokenizer = (BpeTokenizer)Tokenizers.load(TokenizerEncoding.Cl100kBase,
+                BpeTokenizerTest.class.getClassLoader().getResourceAsStream(TokenizerEncoding.Cl100kBase.getVocabularyResource()));
+        final var schema = IR_CONTENT.repeat(10);
+
+        // Counts are cached once the same content is seen again, whether or not it is the same string instance
+        final int count = tokenizer.countTokens(schema);
+        Assertions.assertEquals(0, tokenizer.getCachedCountSize());
+        Assertions.assertEquals(count, tokenizer.countTokens(new String(schema.toCharArray())));
+        Assertions.assertEquals(1, tokenizer.getCachedCountSize());
+        Assertions.assertEquals(count, tokenizer.countTokens(schema));
+        Assertions.assertEquals(1, tokenizer.getCachedCountSize());
+
+        // Short strings are not cached
+        tokenizer.countTokens("hello world");
+        Assertions.assertEquals(1, tokenizer.getCachedCountSize());
+    }
+
+    @Test
+    public void testCountCacheIsBounded() {
+        final var cache = new TokenCountCache(10);
+        for (int i = 0; i < 100; ++i) {
+            Assertions.assertEquals(i, cache.getOrCompute("entry-" + i, x -> Integer.parseInt(x.substring(6))));
+            Assertions.assertEquals(i, cache.getOrCompute("entry-" + i, x -> Integer.parseInt(x.substring(6))));
+        }
+
+        Assertions.assertTrue(cache.size() > 0 && cache.size() <= 20, "Cache size " + cache.size());
+    }
+
+    @Test
+    public void testCountCacheOnlyRetainsRepeatedContent() {
+        final var cache = new TokenCountCache(1000);
+        final var computed = new int[1];
+
+        // Content seen once is never cached, and so cannot displace repeated content
+        cache.getOrCompute("system prompt", x -> ++computed[0]);
+        for (int i = 0; i < 100; ++i) {
+            cache.getOrCompute("response " + i, x -> ++computed[0]);
+        }
+        Assertions.assertEquals(0, cache.size());
+
+        cache.getOrCompute("system prompt", x -> ++computed[0]);
+        cache.getOrCompute("system prompt", x -> ++computed[0]);
+        cache.getOrCompute("system prompt", x -> ++computed[0]);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(102, computed[0]);
+    }
+
+    @Test
+    public void testEstimatedTokenSizeUsesTokenizer() {
+        // Space-delimited estimate for this content would be a single token
+        Assertions.assertEquals(25, Util.estimateTokenSize(IR_CONTENT));
+        Assertions.assertEquals(0, Util.estimateTokenSize(""));
+        Assertions.assertEquals(0, Util.estimateTokenSize(null));
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        final var text = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package org.rj.modelgen.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Point-in-time snapshot of heap usage and cumulative garbage collection activity in this JVM
+ */
+public class JvmMetricsSnapshot {
+    private final long heapUsed;
+    private final long heapCommitted;
+    private final long gcCount;
+    private final long gcTimeMs;
+
+    private JvmMetricsSnapshot(long heapUsed, long heapCommitted, long gcCount, long gcTimeMs) {
+        this.heapUsed = heapUsed;
+        this.heapCommitted = heapCommitted;
+        this.gcCount = gcCount;
+        this.gcTimeMs = gcTimeMs;
+    }
+
+    public static JvmMetricsSnapshot capture() {
+        final var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        long gcCount = 0L, gcTimeMs = 0L;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0L, gc.getCollectionCount());
+            gcTimeMs += Math.max(0L, gc.getCollectionTime());
+        }
+
+        return new JvmMetricsSnapshot(heap.getUsed(), heap.getCommitted(), gcCount, gcTimeMs);
+    }
+
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    public long getHeapCommitted() {
+        return heapCommitted;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcTimeMs() {
+        return gcTimeMs;
+    }
+}
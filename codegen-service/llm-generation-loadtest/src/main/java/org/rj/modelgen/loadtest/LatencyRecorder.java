@@ -0,0 +1,46 @@
+package org.rj.modelgen.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records latency samples and reports percentiles.  All samples are retained, since load test steps produce at
+ * most a few hundred thousand observations and exact percentiles are preferred for regression tracking
+ */
+public class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count = 0;
+
+    public synchronized void record(long latencyNanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = latencyNanos;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return      Snapshot of all recorded samples, in ascending order
+     */
+    public synchronized long[] sortedSnapshot() {
+        final var snapshot = Arrays.copyOf(samples, count);
+        Arrays.sort(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Nearest-rank percentile of a sorted sample set
+     *
+     * @param sorted        Samples, in ascending order
+     * @param percentile    Percentile in the range [0 100]
+     * @return              Percentile value, or zero if there are no samples
+     */
+    public static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0L;
+
+        final var rank = (int)Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+}
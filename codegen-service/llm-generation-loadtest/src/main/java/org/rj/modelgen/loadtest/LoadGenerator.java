@@ -0,0 +1,153 @@
+package org.rj.modelgen.loadtest;
+
+import org.rj.modelgen.llm.util.Util;
+import org.rj.modelgen.service.beans.BpmnGenerationPrompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the prompt endpoint of the service with a fixed number of concurrent virtual users.  Each user repeatedly
+ * opens a new generation session, submits a number of prompts drawn from the session mix with think time between
+ * them, and then moves on to a new session, until the step deadline
+ */
+public class LoadGenerator {
+    private static final String PROMPT_PATH = "/api/bpmn/generation/session/%s/prompt";
+
+    private final HttpClient client;
+    private final LoadTestOptions options;
+    private final List<String> initialPrompts;
+    private final List<String> followUpPrompts;
+
+    public LoadGenerator(HttpClient client, LoadTestOptions options, List<String> initialPrompts, List<String> followUpPrompts) {
+        if (initialPrompts.isEmpty() || followUpPrompts.isEmpty()) throw new IllegalArgumentException("Load generator requires initial and follow-up prompts");
+
+        this.client = client;
+        this.options = options;
+        this.initialPrompts = initialPrompts;
+        this.followUpPrompts = followUpPrompts;
+    }
+
+    /**
+     * Run the given number of virtual users until the step duration has elapsed.  Requests already in flight at the
+     * deadline are allowed to complete
+     *
+     * @param concurrency       Number of concurrent virtual users
+     * @param duration          Duration of the step
+     * @param counters          Counters receiving the results of each request
+     * @return                  Publisher completing once all virtual users have finished
+     */
+    public Mono<Void> run(int concurrency, Duration duration, Counters counters) {
+        final var deadline = System.nanoTime() + duration.toNanos();
+
+        return Flux.range(0, concurrency)
+                .flatMap(user -> Mono.defer(() -> session(deadline, counters))
+                        .repeat(() -> System.nanoTime() < deadline), concurrency)
+                .then();
+    }
+
+    private Mono<Void> session(long deadline, Counters counters) {
+        final var sessionId = "loadtest-" + UUID.randomUUID();
+        final var promptCount = samplePromptCount();
+
+        return Flux.range(0, promptCount)
+                .concatMap(index -> thinkTime()
+                        .then(Mono.defer(() -> System.nanoTime() < deadline
+                                ? submitPrompt(sessionId, index == 0 ? pick(initialPrompts) : pick(followUpPrompts), counters)
+                                : Mono.empty())))
+                .then();
+    }
+
+    private Mono<Void> submitPrompt(String sessionId, String prompt, Counters counters) {
+        final var request = new BpmnGenerationPrompt();
+        request.setPrompt(prompt);
+        final var body = Util.serializeOrThrow(request);
+
+        final var start = System.nanoTime();
+        return client.headers(headers -> headers.set("Content-Type", "application/json"))
+                .post()
+                .uri(String.format(PROMPT_PATH, sessionId))
+                .send(ByteBufFlux.fromString(Mono.just(body)))
+                .responseSingle((response, content) -> content.asByteArray()
+                        .then(Mono.just(response.status().code()))
+                        .defaultIfEmpty(response.status().code()))
+                .doOnNext(status -> counters.recordResult(status, System.nanoTime() - start))
+                .onErrorResume(ex -> {
+                    counters.recordFailure(ex.getClass().getSimpleName());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Long> thinkTime() {
+        final var min = options.getMinThinkTime().toMillis();
+        final var max = Math.max(min, options.getMaxThinkTime().toMillis());
+        final var delay = (max == min) ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+
+        return delay <= 0L ? Mono.just(0L) : Mono.delay(Duration.ofMillis(delay));
+    }
+
+    private int samplePromptCount() {
+        final var mix = options.getSessionMix();
+        final var total = mix.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        var sample = ThreadLocalRandom.current().nextDouble() * total;
+        for (final var entry : mix.entrySet()) {
+            if ((sample -= entry.getValue()) < 0.0) return entry.getKey();
+        }
+
+        return mix.keySet().stream().reduce((first, second) -> second).orElse(1);
+    }
+
+    private static String pick(List<String> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    /**
+     * Thread-safe counters for the results of a single load test step
+     */
+    public static class Counters {
+        private final LatencyRecorder latencies = new LatencyRecorder();
+        private final LongAdder requests = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void recordResult(int status, long latencyNanos) {
+            requests.increment();
+            if (status >= 200 && status < 300) {
+                latencies.record(latencyNanos);
+            }
+            else {
+                errors.computeIfAbsent("HTTP " + status, __ -> new LongAdder()).increment();
+            }
+        }
+
+        void recordFailure(String type) {
+            requests.increment();
+            errors.computeIfAbsent(type, __ -> new LongAdder()).increment();
+        }
+
+        public LatencyRecorder getLatencies() {
+            return latencies;
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public Map<String, Long> getErrors() {
+            final var snapshot = new TreeMap<String, Long>();
+            errors.forEach((type, count) -> snapshot.put(type, count.sum()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.rj.modelgen.loadtest;
+
+import org.rj.modelgen.llm.util.Util;
+
+import java.nio.file.Files;
+
+/**
+ * Entry point for the service load test.  Options are given as "--name=value" arguments; see {@link LoadTestOptions}.
+ * The report is printed and written as JSON to the output directory, and the process exits with a non-zero status
+ * if any regression is found against the baseline report
+ */
+public class LoadTestMain {
+    public static void main(String[] args) throws Exception {
+        final var options = LoadTestOptions.fromArgs(args);
+        final var report = new LoadTestRunner(options).run();
+
+        Files.createDirectories(options.getOutputDirectory());
+        final var output = options.getOutputDirectory().resolve(String.format("loadtest-report-%d.json", report.getTimestamp()));
+        Files.writeString(output, Util.getObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report));
+
+        System.out.println(report.format());
+        System.out.println("Report written to " + output.toAbsolutePath());
+
+        System.exit(report.getRegressions().isEmpty() ? 0 : 1);
+    }
+}
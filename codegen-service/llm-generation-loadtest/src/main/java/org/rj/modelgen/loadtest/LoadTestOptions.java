@@ -0,0 +1,296 @@
+package org.rj.modelgen.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadTestOptions {
+    /**
+     * How the simulated LLM backend is attached to the service under test
+     */
+    public enum Backend {
+        /** In-process simulator client; exercises the service pipeline without any LLM network traffic */
+        InProcess,
+
+        /** Local chat-completions simulator server; also exercises the OpenAI client and its network path */
+        Http
+    }
+
+    private List<Integer> concurrencySteps = List.of(1, 4, 16, 64);
+    private Duration warmupDuration = Duration.ofSeconds(10L);
+    private Duration stepDuration = Duration.ofSeconds(30L);
+    private Duration minThinkTime = Duration.ofSeconds(1L);
+    private Duration maxThinkTime = Duration.ofSeconds(3L);
+    private Map<Integer, Double> sessionMix = new LinkedHashMap<>(Map.of(1, 0.5, 3, 0.3, 8, 0.2));
+    private Backend backend = Backend.Http;
+    private long firstTokenLatencyMs = 500L;
+    private double tokensPerSecond = 250.0;
+    private double errorRate = 0.0;
+    private double rateLimitRate = 0.0;
+    private Duration latencySlo = Duration.ofSeconds(15L);
+    private double maxErrorRate = 0.01;
+    private Path outputDirectory = Path.of("target", "loadtest");
+    private Path baseline = null;
+    private double regressionTolerance = 0.1;
+
+    public LoadTestOptions() { }
+
+    public static LoadTestOptions defaultOptions() {
+        return new LoadTestOptions();
+    }
+
+    /**
+     * Parse options from command-line arguments of the form "--name=value".  Unspecified options retain their defaults
+     *
+     * @param args      Command-line arguments
+     * @return          Load test options
+     */
+    public static LoadTestOptions fromArgs(String[] args) {
+        final var options = defaultOptions();
+        for (final var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) throw new IllegalArgumentException("Invalid argument, expected --name=value: " + arg);
+
+            final var name = arg.substring(2, arg.indexOf('='));
+            final var value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "concurrency" -> options.setConcurrencySteps(Arrays.stream(value.split(",")).map(String::trim).map(Integer::parseInt).toList());
+                case "warmup" -> options.setWarmupDuration(parseDuration(value));
+                case "step-duration" -> options.setStepDuration(parseDuration(value));
+                case "think-time" -> {
+                    final var range = value.split("-");
+                    options.setMinThinkTime(parseDuration(range[0]));
+                    options.setMaxThinkTime(parseDuration(range[range.length - 1]));
+                }
+                case "session-mix" -> options.setSessionMix(parseSessionMix(value));
+                case "backend" -> options.setBackend(Backend.valueOf(value));
+                case "first-token-latency-ms" -> options.setFirstTokenLatencyMs(Long.parseLong(value));
+                case "tokens-per-second" -> options.setTokensPerSecond(Double.parseDouble(value));
+                case "error-rate" -> options.setErrorRate(Double.parseDouble(value));
+                case "rate-limit-rate" -> options.setRateLimitRate(Double.parseDouble(value));
+                case "latency-slo" -> options.setLatencySlo(parseDuration(value));
+                case "max-error-rate" -> options.setMaxErrorRate(Double.parseDouble(value));
+                case "output" -> options.setOutputDirectory(Path.of(value));
+                case "baseline" -> options.setBaseline(Path.of(value));
+                case "regression-tolerance" -> options.setRegressionTolerance(Double.parseDouble(value));
+                default -> throw new IllegalArgumentException("Unknown load test option: " + name);
+            }
+        }
+
+        return options;
+    }
+
+    /**
+     * Parse a duration in the form "500ms", "30s" or "2m"
+     */
+    static Duration parseDuration(String value) {
+        final var trimmed = value.trim();
+        if (trimmed.endsWith("ms")) return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        if (trimmed.endsWith("s")) return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        if (trimmed.endsWith("m")) return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+
+        return Duration.ofMillis(Long.parseLong(trimmed));
+    }
+
+    /**
+     * Parse a session mix in the form "promptsPerSession:weight,...", e.g. "1:0.5,3:0.3,8:0.2"
+     */
+    static Map<Integer, Double> parseSessionMix(String value) {
+        final var mix = new LinkedHashMap<Integer, Double>();
+        for (final var entry : value.split(",")) {
+            final var fields = entry.split(":");
+            if (fields.length != 2) throw new IllegalArgumentException("Invalid session mix entry: " + entry);
+            mix.put(Integer.parseInt(fields[0].trim()), Double.parseDouble(fields[1].trim()));
+        }
+
+        return mix;
+    }
+
+    public List<Integer> getConcurrencySteps() {
+        return concurrencySteps;
+    }
+
+    public void setConcurrencySteps(List<Integer> concurrencySteps) {
+        this.concurrencySteps = concurrencySteps;
+    }
+
+    public LoadTestOptions withConcurrencySteps(List<Integer> concurrencySteps) {
+        setConcurrencySteps(concurrencySteps);
+        return this;
+    }
+
+    public Duration getWarmupDuration() {
+        return warmupDuration;
+    }
+
+    public void setWarmupDuration(Duration warmupDuration) {
+        this.warmupDuration = warmupDuration;
+    }
+
+    public LoadTestOptions withWarmupDuration(Duration warmupDuration) {
+        setWarmupDuration(warmupDuration);
+        return this;
+    }
+
+    public Duration getStepDuration() {
+        return stepDuration;
+    }
+
+    public void setStepDuration(Duration stepDuration) {
+        this.stepDuration = stepDuration;
+    }
+
+    public LoadTestOptions withStepDuration(Duration stepDuration) {
+        setStepDuration(stepDuration);
+        return this;
+    }
+
+    public Duration getMinThinkTime() {
+        return minThinkTime;
+    }
+
+    public void setMinThinkTime(Duration minThinkTime) {
+        this.minThinkTime = minThinkTime;
+    }
+
+    public Duration getMaxThinkTime() {
+        return maxThinkTime;
+    }
+
+    public void setMaxThinkTime(Duration maxThinkTime) {
+        this.maxThinkTime = maxThinkTime;
+    }
+
+    public LoadTestOptions withThinkTime(Duration minThinkTime, Duration maxThinkTime) {
+        setMinThinkTime(minThinkTime);
+        setMaxThinkTime(maxThinkTime);
+        return this;
+    }
+
+    /**
+     * @return      Relative weights of sessions by number of prompts submitted within the session
+     */
+    public Map<Integer, Double> getSessionMix() {
+        return sessionMix;
+    }
+
+    public void setSessionMix(Map<Integer, Double> sessionMix) {
+        this.sessionMix = sessionMix;
+    }
+
+    public LoadTestOptions withSessionMix(Map<Integer, Double> sessionMix) {
+        setSessionMix(sessionMix);
+        return this;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public LoadTestOptions withBackend(Backend backend) {
+        setBackend(backend);
+        return this;
+    }
+
+    public long getFirstTokenLatencyMs() {
+        return firstTokenLatencyMs;
+    }
+
+    public void setFirstTokenLatencyMs(long firstTokenLatencyMs) {
+        this.firstTokenLatencyMs = firstTokenLatencyMs;
+    }
+
+    public LoadTestOptions withFirstTokenLatencyMs(long firstTokenLatencyMs) {
+        setFirstTokenLatencyMs(firstTokenLatencyMs);
+        return this;
+    }
+
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    public LoadTestOptions withTokensPerSecond(double tokensPerSecond) {
+        setTokensPerSecond(tokensPerSecond);
+        return this;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getRateLimitRate() {
+        return rateLimitRate;
+    }
+
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    /**
+     * @return      Maximum p99 latency for a concurrency step to be considered within the scaling limit
+     */
+    public Duration getLatencySlo() {
+        return latencySlo;
+    }
+
+    public void setLatencySlo(Duration latencySlo) {
+        this.latencySlo = latencySlo;
+    }
+
+    /**
+     * @return      Maximum error rate for a concurrency step to be considered within the scaling limit
+     */
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    public void setMaxErrorRate(double maxErrorRate) {
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public void setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public LoadTestOptions withOutputDirectory(Path outputDirectory) {
+        setOutputDirectory(outputDirectory);
+        return this;
+    }
+
+    /**
+     * @return      Report from a previous build against which this run is compared for regressions, if any
+     */
+    public Path getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(Path baseline) {
+        this.baseline = baseline;
+    }
+
+    public double getRegressionTolerance() {
+        return regressionTolerance;
+    }
+
+    public void setRegressionTolerance(double regressionTolerance) {
+        this.regressionTolerance = regressionTolerance;
+    }
+}
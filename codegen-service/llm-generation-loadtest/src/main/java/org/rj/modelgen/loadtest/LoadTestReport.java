@@ -0,0 +1,156 @@
+package org.rj.modelgen.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Results of a load test run.  Reports are serialized after each run so that later builds can be compared against
+ * them for regressions in throughput, latency and scaling limit
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LoadTestReport {
+    private long timestamp;
+    private String backend;
+    private long stepDurationMs;
+    private List<StepResult> steps = new ArrayList<>();
+    private int scalingLimit;
+    private List<String> regressions = new ArrayList<>();
+
+    public LoadTestReport() { }
+
+    /**
+     * @return      Highest concurrency step, up to the first step which breached the SLO or error rate limit,
+     *              which was within limits; zero if no step was within limits
+     */
+    public int calculateScalingLimit() {
+        var limit = 0;
+        for (final var step : steps) {
+            if (!step.isWithinLimits()) break;
+            limit = Math.max(limit, step.getConcurrency());
+        }
+
+        return limit;
+    }
+
+    /**
+     * Compare this report against a baseline from a previous build.  Throughput and p99 latency are compared at
+     * each concurrency step present in both reports, along with the overall scaling limit
+     *
+     * @param baseline      Baseline report
+     * @param tolerance     Relative change tolerated before a difference is reported as a regression, e.g. 0.1 for 10%
+     * @return              Description of each regression found
+     */
+    public List<String> findRegressions(LoadTestReport baseline, double tolerance) {
+        final var found = new ArrayList<String>();
+        if (baseline == null) return found;
+
+        if (scalingLimit < baseline.getScalingLimit()) {
+            found.add(String.format("Scaling limit decreased from %d to %d concurrent sessions", baseline.getScalingLimit(), scalingLimit));
+        }
+
+        for (final var step : steps) {
+            final var previous = baseline.findStep(step.getConcurrency());
+            if (previous.isEmpty()) continue;
+
+            compare(found, step, previous.get(), "Throughput", StepResult::getThroughputPerSecond, -tolerance);
+            compare(found, step, previous.get(), "p99 latency", StepResult::getLatencyP99Ms, tolerance);
+        }
+
+        return found;
+    }
+
+    private static void compare(List<String> found, StepResult current, StepResult previous, String metric,
+                                Function<StepResult, Double> value, double tolerance) {
+        final double before = value.apply(previous), after = value.apply(current);
+        if (before <= 0.0) return;
+
+        final var change = (after - before) / before;
+        final var regressed = tolerance < 0.0 ? (change < tolerance) : (change > tolerance);
+        if (regressed) {
+            found.add(String.format("%s at concurrency %d changed by %+.1f%% (%.2f -> %.2f)",
+                    metric, current.getConcurrency(), change * 100.0, before, after));
+        }
+    }
+
+    public Optional<StepResult> findStep(int concurrency) {
+        return steps.stream().filter(step -> step.getConcurrency() == concurrency).findFirst();
+    }
+
+    /**
+     * @return      Human-readable summary table of the report
+     */
+    public String format() {
+        final var sb = new StringBuilder();
+        sb.append(String.format("Load test report (backend: %s, step duration: %ds)%n", backend, stepDurationMs / 1000L));
+        sb.append(String.format("%6s %8s %8s %9s %9s %9s %9s %8s %8s %8s %7s %8s %8s %7s %7s %6s %s%n",
+                "conc", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms", "heapEnd", "heapPk", "gc", "gc ms", "lag99", "lagMax",
+                "cpu%", "busy", "busyPk", "ok"));
+
+        for (final var step : steps) {
+            sb.append(String.format("%6d %8.2f %7.2f%% %9.1f %9.1f %9.1f %9.1f %7.1fM %7.1fM %8d %7d %8.2f %8.2f %6.1f%% %7.1f %6d %s%n",
+                    step.getConcurrency(), step.getThroughputPerSecond(), step.getErrorRate() * 100.0,
+                    step.getLatencyP50Ms(), step.getLatencyP90Ms(), step.getLatencyP99Ms(), step.getLatencyMaxMs(),
+                    step.getHeapUsedEndMb(), step.getHeapPeakMb(), step.getGcCount(), step.getGcTimeMs(),
+                    step.getEventLoopLagP99Ms(), step.getEventLoopLagMaxMs(), step.getRequestThreadUtilization() * 100.0,
+                    step.getRequestThreadsBusyMean(), step.getRequestThreadsBusyPeak(),
+                    step.isWithinLimits() ? "yes" : "NO"));
+        }
+
+        sb.append(String.format("Scaling limit: %d concurrent sessions%n", scalingLimit));
+        regressions.forEach(regression -> sb.append("REGRESSION: ").append(regression).append(System.lineSeparator()));
+
+        return sb.toString();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public long getStepDurationMs() {
+        return stepDurationMs;
+    }
+
+    public void setStepDurationMs(long stepDurationMs) {
+        this.stepDurationMs = stepDurationMs;
+    }
+
+    public List<StepResult> getSteps() {
+        return steps;
+    }
+
+    public void setSteps(List<StepResult> steps) {
+        this.steps = steps;
+    }
+
+    public int getScalingLimit() {
+        return scalingLimit;
+    }
+
+    public void setScalingLimit(int scalingLimit) {
+        this.scalingLimit = scalingLimit;
+    }
+
+    public List<String> getRegressions() {
+        return regressions;
+    }
+
+    public void setRegressions(List<String> regressions) {
+        this.regressions = regressions;
+    }
+}
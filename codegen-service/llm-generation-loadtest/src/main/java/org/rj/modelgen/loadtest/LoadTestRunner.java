@@ -0,0 +1,249 @@
+package org.rj.modelgen.loadtest;
+
+import org.rj.modelgen.llm.integrations.simulator.LatencyDistribution;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulator;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorCorpus;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorOptions;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorServer;
+import org.rj.modelgen.llm.util.Util;
+import org.rj.modelgen.service.CodegenServiceApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a stepped load test against an in-process instance of the codegen service, backed by the LLM simulator.
+ * Service, simulator and load generator share one JVM, so heap and GC figures cover all three.  The service serves
+ * requests on its Tomcat worker pool, which is measured by thread name and through the Tomcat thread pool MBean,
+ * while its LLM client runs on the default reactor client event loops, which are probed for lag.  The simulator
+ * server and load generator run on dedicated event loops so that these metrics cover only the service itself
+ */
+public class LoadTestRunner {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestRunner.class);
+    private static final Duration MONITOR_INTERVAL = Duration.ofMillis(50L);
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final LoadTestOptions options;
+
+    public LoadTestRunner(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public LoadTestReport run() {
+        final var simulatorLoops = LoopResources.create("llm-simulator");
+        final var clientLoops = LoopResources.create("loadtest-client");
+
+        LlmSimulatorServer simulatorServer = null;
+        ConfigurableApplicationContext service = null;
+        try {
+            if (options.getBackend() == LoadTestOptions.Backend.Http) {
+                simulatorServer = LlmSimulatorServer.start(new LlmSimulator(simulatorOptions(), loadCorpus()), 0, simulatorLoops);
+            }
+
+            service = startService(simulatorServer);
+            final var port = service.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            final var maxConcurrency = options.getConcurrencySteps().stream().mapToInt(Integer::intValue).max().orElse(1);
+
+            final var client = HttpClient.create(ConnectionProvider.builder("loadtest")
+                            .maxConnections(Math.max(16, maxConcurrency * 2))
+                            .pendingAcquireMaxCount(-1)
+                            .build())
+                    .runOn(clientLoops)
+                    .baseUrl("http://localhost:" + port)
+                    .responseTimeout(Duration.ofMinutes(5L));
+
+            final var generator = new LoadGenerator(client, options,
+                    loadPrompts("loadtest/initial-prompts.txt"), loadPrompts("loadtest/follow-up-prompts.txt"));
+
+            final var threadPool = findRequestThreadPool();
+            try (final var monitor = new ServiceThreadMonitor(HttpResources.get().onClient(LoopResources.DEFAULT_NATIVE),
+                    ObjectName.unquote(threadPool.getKeyProperty("name")) + "-exec-", threadPool, MONITOR_INTERVAL)) {
+                if (!options.getWarmupDuration().isZero()) {
+                    LOG.info("Warming up for {}s", options.getWarmupDuration().toSeconds());
+                    generator.run(options.getConcurrencySteps().get(0), options.getWarmupDuration(), new LoadGenerator.Counters()).block();
+                }
+
+                final var steps = new ArrayList<StepResult>();
+                for (final var concurrency : options.getConcurrencySteps()) {
+                    LOG.info("Running load test step with {} concurrent sessions for {}s", concurrency, options.getStepDuration().toSeconds());
+                    steps.add(runStep(generator, monitor, concurrency));
+                }
+
+                return buildReport(steps);
+            }
+        }
+        finally {
+            if (service != null) service.close();
+            if (simulatorServer != null) simulatorServer.close();
+            simulatorLoops.dispose();
+            clientLoops.dispose();
+        }
+    }
+
+    private StepResult runStep(LoadGenerator generator, ServiceThreadMonitor monitor, int concurrency) {
+        System.gc();        // Start each step from a comparable heap state
+
+        final var counters = new LoadGenerator.Counters();
+        final var jvmStart = JvmMetricsSnapshot.capture();
+        monitor.beginStep();
+
+        final var start = System.nanoTime();
+        generator.run(concurrency, options.getStepDuration(), counters).block();
+        final var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        final var threads = monitor.endStep();
+        final var jvmEnd = JvmMetricsSnapshot.capture();
+        final var latencies = counters.getLatencies().sortedSnapshot();
+        final var lag = threads.getSortedLagNanos();
+
+        final var step = new StepResult();
+        step.setConcurrency(concurrency);
+        step.setDurationMs(elapsed.toMillis());
+        step.setRequests(counters.getRequests());
+        step.setSuccesses(latencies.length);
+        step.setErrors(counters.getErrors());
+        step.setThroughputPerSecond(latencies.length / Math.max(0.001, elapsed.toNanos() / 1e9));
+        step.setLatencyP50Ms(toMillis(LatencyRecorder.percentile(latencies, 50.0)));
+        step.setLatencyP90Ms(toMillis(LatencyRecorder.percentile(latencies, 90.0)));
+        step.setLatencyP99Ms(toMillis(LatencyRecorder.percentile(latencies, 99.0)));
+        step.setLatencyMaxMs(toMillis(LatencyRecorder.percentile(latencies, 100.0)));
+        step.setHeapUsedStartMb(jvmStart.getHeapUsed() / BYTES_PER_MB);
+        step.setHeapUsedEndMb(jvmEnd.getHeapUsed() / BYTES_PER_MB);
+        step.setHeapPeakMb(threads.getPeakHeapUsed() / BYTES_PER_MB);
+        step.setGcCount(jvmEnd.getGcCount() - jvmStart.getGcCount());
+        step.setGcTimeMs(jvmEnd.getGcTimeMs() - jvmStart.getGcTimeMs());
+        step.setEventLoopLagP99Ms(toMillis(LatencyRecorder.percentile(lag, 99.0)));
+        step.setEventLoopLagMaxMs(toMillis(LatencyRecorder.percentile(lag, 100.0)));
+        step.setRequestThreadUtilization(threads.getUtilization());
+        step.setRequestThreads(threads.getThreadCount());
+        step.setRequestThreadsBusyMean(threads.getBusyThreadsMean());
+        step.setRequestThreadsBusyPeak(threads.getBusyThreadsPeak());
+        step.setWithinLimits(step.getSuccesses() > 0L
+                && step.getErrorRate() <= options.getMaxErrorRate()
+                && step.getLatencyP99Ms() <= options.getLatencySlo().toMillis());
+
+        return step;
+    }
+
+    private LoadTestReport buildReport(List<StepResult> steps) {
+        final var report = new LoadTestReport();
+        report.setTimestamp(System.currentTimeMillis());
+        report.setBackend(options.getBackend().name());
+        report.setStepDurationMs(options.getStepDuration().toMillis());
+        report.setSteps(steps);
+        report.setScalingLimit(report.calculateScalingLimit());
+
+        if (options.getBaseline() != null) {
+            final var baseline = Util.deserializeOrThrow(readFile(options.getBaseline()), LoadTestReport.class);
+            report.setRegressions(report.findRegressions(baseline, options.getRegressionTolerance()));
+        }
+
+        return report;
+    }
+
+    private ConfigurableApplicationContext startService(LlmSimulatorServer simulatorServer) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("app.audit.enabled", false);
+        properties.put("app.token-path", "loadtest/simulator-token");
+        properties.put("server.tomcat.mbeanregistry.enabled", true);        // Exposes the thread pool busy count
+
+        if (simulatorServer != null) {
+            properties.put("app.llm.type", "default");
+            properties.put("app.llm.base-url", simulatorServer.getBaseUrl());
+        }
+        else {
+            properties.put("app.llm.type", "simulator");
+            properties.put("app.llm.simulator.first-token-latency-ms", options.getFirstTokenLatencyMs());
+            properties.put("app.llm.simulator.tokens-per-second", options.getTokensPerSecond());
+            properties.put("app.llm.simulator.error-rate", options.getErrorRate());
+            properties.put("app.llm.simulator.rate-limit-rate", options.getRateLimitRate());
+        }
+
+        // Passed as arguments rather than default properties, so they take precedence over the service application.yml
+        return new SpringApplicationBuilder(CodegenServiceApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .run(properties.entrySet().stream()
+                        .map(property -> String.format("--%s=%s", property.getKey(), property.getValue()))
+                        .toArray(String[]::new));
+    }
+
+    // Worker threads are named after the connector, which is named after its configured port, or e.g. "http-nio-auto-1"
+    // for the random port used here, so the thread pool is found through its MBean rather than derived from the port
+    private static ObjectName findRequestThreadPool() {
+        try {
+            return ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("Tomcat:type=ThreadPool,name=*"), null).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Service request thread pool MBean is not registered"));
+        }
+        catch (MalformedObjectNameException ex) {
+            throw new RuntimeException("Invalid thread pool MBean name: " + ex.getMessage(), ex);
+        }
+    }
+
+    private LlmSimulatorOptions simulatorOptions() {
+        return LlmSimulatorOptions.defaultOptions()
+                .withFirstTokenLatency(LatencyDistribution.logNormal(Duration.ofMillis(options.getFirstTokenLatencyMs()), 0.5))
+                .withTokensPerSecond(options.getTokensPerSecond())
+                .withErrorRate(options.getErrorRate())
+                .withRateLimitRate(options.getRateLimitRate());
+    }
+
+    private static LlmSimulatorCorpus loadCorpus() {
+        try {
+            final var resources = new PathMatchingResourcePatternResolver().getResources("classpath:content/samples/*.json");
+            final var serialized = new ArrayList<String>();
+            for (final var resource : resources) {
+                try (final var input = resource.getInputStream()) {
+                    serialized.add(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+
+            return LlmSimulatorCorpus.fromSerialized(serialized);
+        }
+        catch (IOException ex) {
+            throw new RuntimeException("Failed to load simulator corpus: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static List<String> loadPrompts(String resource) {
+        return Arrays.stream(Util.loadStringResource(resource).split("\\R"))
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+    }
+
+    private static String readFile(Path path) {
+        try {
+            return Files.readString(path);
+        }
+        catch (IOException ex) {
+            throw new RuntimeException(String.format("Failed to read load test report '%s': %s", path, ex.getMessage()), ex);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,173 @@
+package org.rj.modelgen.loadtest;
+
+import io.netty.channel.EventLoopGroup;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitors the threads used by the service under test.  Requests are served by the Tomcat worker pool, whose
+ * utilization is derived from the CPU time consumed by the worker threads, while the number of busy workers is
+ * sampled from the thread pool MBean.  Scheduling lag is measured on the event loops of the service LLM client by
+ * periodically submitting a probe task to every event loop and recording the delay before it runs.  Peak heap usage
+ * is sampled at the same interval
+ */
+public class ServiceThreadMonitor implements AutoCloseable {
+    private final EventLoopGroup eventLoops;
+    private final String requestThreadPrefix;
+    private final ObjectName requestThreadPool;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile LatencyRecorder lag = new LatencyRecorder();
+    private volatile long peakHeapUsed = 0L;
+    private volatile long busySamples = 0L;
+    private volatile long busyTotal = 0L;
+    private volatile int busyPeak = 0;
+    private Map<Long, Long> stepStartCpuTimes = Map.of();
+    private long stepStartNanos = System.nanoTime();
+
+    /**
+     * @param eventLoops            Event loops to probe for scheduling lag
+     * @param requestThreadPrefix   Name prefix of the request worker threads, used to attribute CPU time
+     * @param requestThreadPool     Name of the MBean of the request worker pool, sampled for busy threads
+     * @param interval              Probe interval
+     */
+    public ServiceThreadMonitor(EventLoopGroup eventLoops, String requestThreadPrefix, ObjectName requestThreadPool, Duration interval) {
+        this.eventLoops = eventLoops;
+        this.requestThreadPrefix = requestThreadPrefix;
+        this.requestThreadPool = requestThreadPool;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "loadtest-service-thread-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.scheduler.scheduleAtFixedRate(this::probe, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        final var recorder = lag;
+        eventLoops.forEach(executor -> {
+            final var submitted = System.nanoTime();
+            executor.execute(() -> recorder.record(System.nanoTime() - submitted));
+        });
+
+        final var heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        if (heapUsed > peakHeapUsed) peakHeapUsed = heapUsed;
+
+        final var busy = busyRequestThreads();
+        if (busy >= 0) {
+            busySamples += 1L;
+            busyTotal += busy;
+            if (busy > busyPeak) busyPeak = busy;
+        }
+    }
+
+    public synchronized void beginStep() {
+        lag = new LatencyRecorder();
+        peakHeapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        busySamples = 0L;
+        busyTotal = 0L;
+        busyPeak = 0;
+        stepStartCpuTimes = requestThreadCpuTimes();
+        stepStartNanos = System.nanoTime();
+    }
+
+    public synchronized Measurement endStep() {
+        final var elapsed = System.nanoTime() - stepStartNanos;
+        final var cpuTimes = requestThreadCpuTimes();
+
+        long cpuNanos = 0L;
+        for (final var entry : cpuTimes.entrySet()) {
+            cpuNanos += entry.getValue() - stepStartCpuTimes.getOrDefault(entry.getKey(), 0L);
+        }
+
+        final var utilization = (cpuTimes.isEmpty() || elapsed <= 0L) ? 0.0 : (double)cpuNanos / ((double)elapsed * cpuTimes.size());
+        final var busyMean = (busySamples == 0L) ? 0.0 : (double)busyTotal / busySamples;
+        return new Measurement(lag.sortedSnapshot(), utilization, cpuTimes.size(), busyMean, busyPeak, peakHeapUsed);
+    }
+
+    private Map<Long, Long> requestThreadCpuTimes() {
+        final var threads = ManagementFactory.getThreadMXBean();
+        final var cpuTimes = new HashMap<Long, Long>();
+        if (!threads.isThreadCpuTimeSupported()) return cpuTimes;
+
+        for (final var thread : Thread.getAllStackTraces().keySet()) {
+            if (!thread.getName().startsWith(requestThreadPrefix)) continue;
+
+            final var cpuTime = threads.getThreadCpuTime(thread.getId());
+            if (cpuTime >= 0L) cpuTimes.put(thread.getId(), cpuTime);
+        }
+
+        return cpuTimes;
+    }
+
+    /**
+     * @return      Number of busy request worker threads, or -1 if the thread pool MBean is not available
+     */
+    private int busyRequestThreads() {
+        final var server = ManagementFactory.getPlatformMBeanServer();
+        if (requestThreadPool == null || !server.isRegistered(requestThreadPool)) return -1;
+
+        try {
+            return ((Number)server.getAttribute(requestThreadPool, "currentThreadsBusy")).intValue();
+        }
+        catch (JMException ex) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public static class Measurement {
+        private final long[] sortedLagNanos;
+        private final double utilization;
+        private final int threadCount;
+        private final double busyThreadsMean;
+        private final int busyThreadsPeak;
+        private final long peakHeapUsed;
+
+        Measurement(long[] sortedLagNanos, double utilization, int threadCount, double busyThreadsMean, int busyThreadsPeak, long peakHeapUsed) {
+            this.sortedLagNanos = sortedLagNanos;
+            this.utilization = utilization;
+            this.threadCount = threadCount;
+            this.busyThreadsMean = busyThreadsMean;
+            this.busyThreadsPeak = busyThreadsPeak;
+            this.peakHeapUsed = peakHeapUsed;
+        }
+
+        public long[] getSortedLagNanos() {
+            return sortedLagNanos;
+        }
+
+        public double getUtilization() {
+            return utilization;
+        }
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        public double getBusyThreadsMean() {
+            return busyThreadsMean;
+        }
+
+        public int getBusyThreadsPeak() {
+            return busyThreadsPeak;
+        }
+
+        public long getPeakHeapUsed() {
+            return peakHeapUsed;
+        }
+    }
+}
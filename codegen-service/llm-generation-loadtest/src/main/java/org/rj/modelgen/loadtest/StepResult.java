@@ -0,0 +1,234 @@
+package org.rj.modelgen.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measurements for a single concurrency step of a load test
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StepResult {
+    private int concurrency;
+    private long durationMs;
+    private long requests;
+    private long successes;
+    private Map<String, Long> errors = new TreeMap<>();
+    private double throughputPerSecond;
+    private double latencyP50Ms;
+    private double latencyP90Ms;
+    private double latencyP99Ms;
+    private double latencyMaxMs;
+    private double heapUsedStartMb;
+    private double heapUsedEndMb;
+    private double heapPeakMb;
+    private long gcCount;
+    private long gcTimeMs;
+    private double eventLoopLagP99Ms;
+    private double eventLoopLagMaxMs;
+    private double requestThreadUtilization;
+    private int requestThreads;
+    private double requestThreadsBusyMean;
+    private int requestThreadsBusyPeak;
+    private boolean withinLimits;
+
+    public StepResult() { }
+
+    public double getErrorRate() {
+        return requests == 0L ? 0.0 : (double)(requests - successes) / requests;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public void setSuccesses(long successes) {
+        this.successes = successes;
+    }
+
+    /**
+     * @return      Count of failed requests, by HTTP status code or client-side failure type
+     */
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, Long> errors) {
+        this.errors = errors;
+    }
+
+    public double getThroughputPerSecond() {
+        return throughputPerSecond;
+    }
+
+    public void setThroughputPerSecond(double throughputPerSecond) {
+        this.throughputPerSecond = throughputPerSecond;
+    }
+
+    public double getLatencyP50Ms() {
+        return latencyP50Ms;
+    }
+
+    public void setLatencyP50Ms(double latencyP50Ms) {
+        this.latencyP50Ms = latencyP50Ms;
+    }
+
+    public double getLatencyP90Ms() {
+        return latencyP90Ms;
+    }
+
+    public void setLatencyP90Ms(double latencyP90Ms) {
+        this.latencyP90Ms = latencyP90Ms;
+    }
+
+    public double getLatencyP99Ms() {
+        return latencyP99Ms;
+    }
+
+    public void setLatencyP99Ms(double latencyP99Ms) {
+        this.latencyP99Ms = latencyP99Ms;
+    }
+
+    public double getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+
+    public void setLatencyMaxMs(double latencyMaxMs) {
+        this.latencyMaxMs = latencyMaxMs;
+    }
+
+    public double getHeapUsedStartMb() {
+        return heapUsedStartMb;
+    }
+
+    public void setHeapUsedStartMb(double heapUsedStartMb) {
+        this.heapUsedStartMb = heapUsedStartMb;
+    }
+
+    public double getHeapUsedEndMb() {
+        return heapUsedEndMb;
+    }
+
+    public void setHeapUsedEndMb(double heapUsedEndMb) {
+        this.heapUsedEndMb = heapUsedEndMb;
+    }
+
+    public double getHeapPeakMb() {
+        return heapPeakMb;
+    }
+
+    public void setHeapPeakMb(double heapPeakMb) {
+        this.heapPeakMb = heapPeakMb;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public void setGcCount(long gcCount) {
+        this.gcCount = gcCount;
+    }
+
+    public long getGcTimeMs() {
+        return gcTimeMs;
+    }
+
+    public void setGcTimeMs(long gcTimeMs) {
+        this.gcTimeMs = gcTimeMs;
+    }
+
+    /**
+     * @return      99th percentile scheduling lag of the event loops on which the service LLM client runs
+     */
+    public double getEventLoopLagP99Ms() {
+        return eventLoopLagP99Ms;
+    }
+
+    public void setEventLoopLagP99Ms(double eventLoopLagP99Ms) {
+        this.eventLoopLagP99Ms = eventLoopLagP99Ms;
+    }
+
+    public double getEventLoopLagMaxMs() {
+        return eventLoopLagMaxMs;
+    }
+
+    public void setEventLoopLagMaxMs(double eventLoopLagMaxMs) {
+        this.eventLoopLagMaxMs = eventLoopLagMaxMs;
+    }
+
+    /**
+     * @return      Mean proportion of wall-clock time the service Tomcat request worker threads spent on-CPU during
+     *              the step.  Requests are processed asynchronously, so workers are released while awaiting the LLM
+     */
+    public double getRequestThreadUtilization() {
+        return requestThreadUtilization;
+    }
+
+    public void setRequestThreadUtilization(double requestThreadUtilization) {
+        this.requestThreadUtilization = requestThreadUtilization;
+    }
+
+    public int getRequestThreads() {
+        return requestThreads;
+    }
+
+    public void setRequestThreads(int requestThreads) {
+        this.requestThreads = requestThreads;
+    }
+
+    /**
+     * @return      Mean number of request worker threads busy with a request during the step, as sampled from the
+     *              Tomcat thread pool
+     */
+    public double getRequestThreadsBusyMean() {
+        return requestThreadsBusyMean;
+    }
+
+    public void setRequestThreadsBusyMean(double requestThreadsBusyMean) {
+        this.requestThreadsBusyMean = requestThreadsBusyMean;
+    }
+
+    public int getRequestThreadsBusyPeak() {
+        return requestThreadsBusyPeak;
+    }
+
+    public void setRequestThreadsBusyPeak(int requestThreadsBusyPeak) {
+        this.requestThreadsBusyPeak = requestThreadsBusyPeak;
+    }
+
+    /**
+     * @return      True if the step met the latency SLO and maximum error rate of the load test
+     */
+    public boolean isWithinLimits() {
+        return withinLimits;
+    }
+
+    public void setWithinLimits(boolean withinLimits) {
+        this.withinLimits = withinLimits;
+    }
+}
@@ -0,0 +1,72 @@
+package org.rj.modelgen.loadtest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.rj.modelgen.llm.util.Util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+public class LoadTestReportTest {
+
+    @Test
+    public void testScalingLimitAndRegressions() {
+        final var baseline = report(step(1, 2.0, 900.0, true), step(4, 7.5, 1200.0, true), step(16, 20.0, 4000.0, true));
+        final var current = report(step(1, 2.0, 920.0, true), step(4, 6.0, 1250.0, true), step(16, 18.0, 20000.0, false));
+
+        Assertions.assertEquals(16, baseline.getScalingLimit());
+        Assertions.assertEquals(4, current.getScalingLimit());
+
+        final var regressions = current.findRegressions(baseline, 0.1);
+        Assertions.assertEquals(3, regressions.size(), String.join("\n", regressions));
+        Assertions.assertTrue(regressions.get(0).startsWith("Scaling limit decreased from 16 to 4"));
+        Assertions.assertTrue(regressions.get(1).startsWith("Throughput at concurrency 4"));
+        Assertions.assertTrue(regressions.get(2).startsWith("p99 latency at concurrency 16"));
+
+        // Reports must round-trip, so that they can be used as the baseline of later builds
+        final var restored = Util.deserializeOrThrow(Util.serializeOrThrow(current), LoadTestReport.class);
+        Assertions.assertEquals(current.getScalingLimit(), restored.getScalingLimit());
+        Assertions.assertEquals(3, restored.getSteps().size());
+    }
+
+    @Test
+    public void testParsingOptions() {
+        final var options = LoadTestOptions.fromArgs(new String[] {
+                "--concurrency=2,8,32", "--step-duration=45s", "--think-time=200ms-2s", "--session-mix=1:0.7,4:0.3", "--backend=InProcess" });
+
+        Assertions.assertEquals(List.of(2, 8, 32), options.getConcurrencySteps());
+        Assertions.assertEquals(Duration.ofSeconds(45L), options.getStepDuration());
+        Assertions.assertEquals(Duration.ofMillis(200L), options.getMinThinkTime());
+        Assertions.assertEquals(Duration.ofSeconds(2L), options.getMaxThinkTime());
+        Assertions.assertEquals(Map.of(1, 0.7, 4, 0.3), options.getSessionMix());
+        Assertions.assertEquals(LoadTestOptions.Backend.InProcess, options.getBackend());
+    }
+
+    @Test
+    public void testPercentiles() {
+        final var recorder = new LatencyRecorder();
+        for (int i = 100; i >= 1; --i) recorder.record(i);
+
+        final var sorted = recorder.sortedSnapshot();
+        Assertions.assertEquals(50L, LatencyRecorder.percentile(sorted, 50.0));
+        Assertions.assertEquals(99L, LatencyRecorder.percentile(sorted, 99.0));
+        Assertions.assertEquals(100L, LatencyRecorder.percentile(sorted, 100.0));
+    }
+
+    private static LoadTestReport report(StepResult... steps) {
+        final var report = new LoadTestReport();
+        report.setSteps(List.of(steps));
+        report.setScalingLimit(report.calculateScalingLimit());
+        return report;
+    }
+
+    private static StepResult step(int concurrency, double throughput, double p99, boolean withinLimits) {
+        final var step = new StepResult();
+        step.setConcurrency(concurrency);
+        step.setThroughputPerSecond(throughput);
+        step.setLatencyP99Ms(p99);
+        step.setWithinLimits(withinLimits);
+        return step;
+    }
+}
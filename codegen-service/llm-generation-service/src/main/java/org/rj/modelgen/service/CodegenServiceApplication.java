@@ -1,65 +1,188 @@
 package org.rj.modelgen.service;
 
+import jakarta.annotation.PreDestroy;
 import org.camunda.bpm.model.bpmn.Bpmn;
+import org.rj.modelgen.bpmn.generation.BasicBpmnModelGenerator;
+import org.rj.modelgen.bpmn.intrep.model.BpmnIntermediateModel;
 import org.rj.modelgen.bpmn.intrep.schema.BpmnIntermediateModelSchema;
 import org.rj.modelgen.bpmn.models.generation.BpmnGenerationExecutionModel;
 import org.rj.modelgen.bpmn.models.generation.BpmnGenerationExecutionModelOptions;
 import org.rj.modelgen.bpmn.models.generation.BpmnGenerationResult;
+import org.rj.modelgen.bpmn.models.generation.context.BpmnGenerationExamples;
+import org.rj.modelgen.llm.audit.AsyncLlmAuditSink;
+import org.rj.modelgen.llm.audit.LlmAuditSink;
 import org.rj.modelgen.llm.beans.Prompt;
+import org.rj.modelgen.llm.exception.LlmGenerationConfigException;
+import org.rj.modelgen.llm.exception.LlmGenerationModelException;
 import org.rj.modelgen.llm.integrations.openai.OpenAIModelInterface;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorCorpus;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorModelInterface;
+import org.rj.modelgen.llm.intrep.IntermediateModelParser;
+import org.rj.modelgen.llm.intrep.encoding.IntermediateModelEncoding;
+import org.rj.modelgen.llm.intrep.slice.GraphModelSlicer;
+import org.rj.modelgen.llm.model.ModelInterface;
+import org.rj.modelgen.llm.request.ResponseLengthOptions;
+import org.rj.modelgen.llm.retrieval.FewShotExampleSelector;
 import org.rj.modelgen.llm.schema.ModelSchema;
+import org.rj.modelgen.llm.session.BoundedSessionStore;
+import org.rj.modelgen.llm.session.PersistentSessionStore;
+import org.rj.modelgen.llm.session.SessionState;
+import org.rj.modelgen.llm.session.SessionStore;
+import org.rj.modelgen.llm.session.history.ModelHistory;
+import org.rj.modelgen.llm.session.persistence.FileSessionPersistence;
+import org.rj.modelgen.llm.session.persistence.FileSessionPersistenceOptions;
+import org.rj.modelgen.llm.session.persistence.HttpSessionPersistence;
 import org.rj.modelgen.llm.util.Util;
 import org.rj.modelgen.service.beans.BpmnGenerationPrompt;
 import org.rj.modelgen.service.beans.BpmnGenerationSessionData;
+import org.rj.modelgen.service.beans.ModelHistorySummary;
+import org.rj.modelgen.service.config.AuditProperties;
+import org.rj.modelgen.service.config.ContextBudgetProperties;
+import org.rj.modelgen.service.config.GenerationProperties;
+import org.rj.modelgen.service.config.LlmBackendProperties;
+import org.rj.modelgen.service.config.SessionStoreProperties;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import static org.rj.modelgen.llm.util.FuncUtil.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "org.rj")
+@EnableConfigurationProperties({ LlmBackendProperties.class, ContextBudgetProperties.class, SessionStoreProperties.class,
+		GenerationProperties.class, AuditProperties.class })
 @RestController
 public class CodegenServiceApplication {
-	private final ConcurrentMap<String, BpmnGenerationSessionData> sessions;
+	private final SessionStore sessions;
+	private final LlmAuditSink auditSink;
 	private final BpmnGenerationExecutionModel bpmnGenerationModel;
+	private final IntermediateModelParser<BpmnIntermediateModel> modelParser = new IntermediateModelParser<>(BpmnIntermediateModel.class);
+	private final BasicBpmnModelGenerator bpmnGenerator = new BasicBpmnModelGenerator();
 
-	@Value("${app.tokenPath}")
+	@Value("${app.token-path}")
 	private String tokenPath;
 
-	public CodegenServiceApplication() {
-		this.sessions = new ConcurrentHashMap<>();
-		this.bpmnGenerationModel = buildModel();
+	public CodegenServiceApplication(
+			LlmBackendProperties llmBackend,
+			ContextBudgetProperties contextBudget,
+			SessionStoreProperties sessionStore,
+			GenerationProperties generation,
+			AuditProperties audit
+	) {
+		this.sessions = buildSessionStore(sessionStore);
+		this.auditSink = audit.isEnabled() ? new AsyncLlmAuditSink(audit.toOptions()) : LlmAuditSink.disabled();
+		this.bpmnGenerationModel = buildModel(llmBackend, contextBudget, generation);
+
+		// Generated BPMN is recorded within the same turn of the session mailbox as the generation itself
+		this.bpmnGenerationModel.setCompletionListener((id, result) -> Optional.ofNullable(result.getGeneratedBpmn())
+				.ifPresent(bpmn -> updateSession(id, data -> data.setCurrentBpmnData(Bpmn.convertToString(bpmn)))));
+	}
+
+	private SessionStore buildSessionStore(SessionStoreProperties properties) {
+		final var cache = new BoundedSessionStore(properties.toOptions());
+		return switch (properties.getPersistence()) {
+			case None -> cache;
+
+			case File -> new PersistentSessionStore(cache, new FileSessionPersistence(FileSessionPersistenceOptions.defaultOptions()
+					.withDirectory(Optional.ofNullable(properties.getDirectory()).filter(x -> !x.isBlank()).map(Path::of)
+							.orElseThrow(() -> new LlmGenerationConfigException("File session persistence requires a directory")))));
+
+			case Http -> new PersistentSessionStore(cache, new HttpSessionPersistence(
+					URI.create(Optional.ofNullable(properties.getUrl()).filter(x -> !x.isBlank())
+							.orElseThrow(() -> new LlmGenerationConfigException("HTTP session persistence requires a URL"))),
+					properties.getTimeout()));
+		};
 	}
 
-	private BpmnGenerationExecutionModel buildModel() {
-		final var modelInterface = new OpenAIModelInterface.Builder()
-				.withApiKeyGenerator(() -> Util.loadStringResource(tokenPath))
-				.build();
+	private BpmnGenerationExecutionModel buildModel(LlmBackendProperties llmBackend, ContextBudgetProperties contextBudget,
+												 GenerationProperties generation) {
+		final ModelInterface modelInterface = switch (llmBackend.getType()) {
+			case Simulator -> new LlmSimulatorModelInterface.Builder()
+					.withOptions(llmBackend.getSimulator().toOptions())
+					.withCorpus(loadSimulatorCorpus(llmBackend.getSimulator().getCorpus()))
+					.withAuditSink(auditSink)
+					.withSessionStore(sessions)
+					.build();
+
+			default -> new OpenAIModelInterface.Builder()
+					.withApiKeyGenerator(() -> Util.loadStringResource(tokenPath))
+					.withBaseUrl(llmBackend.getBaseUrl())
+					.withStructuredOutput(llmBackend.isStructuredOutput())
+					.withAuditSink(auditSink)
+					.withSessionStore(sessions)
+					.build();
+		};
 
 		final var modelSchema = new BpmnIntermediateModelSchema();
+		final var options = BpmnGenerationExecutionModelOptions.defaultOptions()
+				.withUseContextBudget(contextBudget.isEnabled())
+				.withContextBudget(contextBudget.toOptions())
+				.withUseDeltaResponses(generation.isDeltaResponses())
+				.withUseCompactModelEncoding(generation.isCompactModelEncoding())
+				.withModelSlicer(generation.isModelSlicing() ? new GraphModelSlicer() : null)
+				.withUsePartitionedGeneration(generation.isPartitionedGeneration())
+				.withResponseLength(ResponseLengthOptions.defaultOptions().withMaxContinuations(generation.getMaxContinuations()))
+				.withUseCoalescedPrompts(generation.isCoalescePrompts());
+		options.withExampleSelector(generation.isFewShotExamples()
+				? buildExampleSelector(generation.getExampleIndex(), BpmnGenerationExecutionModel.createModelEncoding(options))
+				: null);
 
-		return BpmnGenerationExecutionModel.create(modelInterface, modelSchema, BpmnGenerationExecutionModelOptions.defaultOptions());
+		return BpmnGenerationExecutionModel.create(modelInterface, modelSchema, options);
 	}
 
+	// The example index is memory-mapped from the given file, which is built on first use, or otherwise held on the heap.
+	// Examples are indexed in the encoding in which models are submitted
+	private FewShotExampleSelector buildExampleSelector(String indexFile, IntermediateModelEncoding encoding) {
+		return new FewShotExampleSelector((indexFile == null || indexFile.isBlank())
+				? BpmnGenerationExamples.buildIndex(encoding)
+				: BpmnGenerationExamples.openIndex(Path.of(indexFile), encoding));
+	}
 
+	private LlmSimulatorCorpus loadSimulatorCorpus(String pattern) {
+		try {
+			final var resources = new PathMatchingResourcePatternResolver().getResources(pattern);
+			final var serialized = Arrays.stream(resources)
+					.map(resource -> {
+						try (final var input = resource.getInputStream()) {
+							return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+						}
+						catch (IOException ex) {
+							throw new LlmGenerationConfigException(String.format("Failed to load simulator response '%s': %s", resource, ex.getMessage()), ex);
+						}
+					})
+					.toList();
+
+			return LlmSimulatorCorpus.fromSerialized(serialized);
+		}
+		catch (IOException ex) {
+			throw new LlmGenerationConfigException(String.format("Failed to resolve simulator corpus '%s': %s", pattern, ex.getMessage()), ex);
+		}
+	}
 
 	@GetMapping("/api/bpmn/generation/session/{id}")
-	public BpmnGenerationSessionData getSessionData(
+	public Mono<BpmnGenerationSessionData> getSessionData(
 			@PathVariable("id") String id
 	) {
-		return getSession(id)
-				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No session exists with that ID"));
+		return sessions.lookup(id)
+				.map(session -> session.flatMap(x -> x.getAttachment(BpmnGenerationSessionData.class))
+						.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No session exists with that ID")));
 	}
 
 	@PostMapping("/api/bpmn/generation/session/{id}/prompt")
@@ -74,16 +197,165 @@ public class CodegenServiceApplication {
 					System.out.println("Result.bpmnValidation = " + String.join(", ", result.getBpmnValidationMessages()));
 				})
 				.map(BpmnGenerationResult::getGeneratedBpmn)
-				.map(generatedBpmn -> doVoid(generatedBpmn, bpmn -> getOrCreateSession(id).setCurrentBpmnData(Bpmn.convertToString(bpmn))))
 				.map(__ -> getSession(id).orElseThrow());
 	}
 
+	@GetMapping("/api/bpmn/generation/session/{id}/history")
+	public Mono<ModelHistorySummary> getHistory(
+			@PathVariable("id") String id
+	) {
+		return sessions.lookup(id).map(session -> ModelHistorySummary.of(getHistory(session)));
+	}
+
+	@GetMapping("/api/bpmn/generation/session/{id}/history/{version}")
+	public Mono<Map<String, Object>> getHistoryVersion(
+			@PathVariable("id") String id,
+			@PathVariable("version") int version
+	) {
+		return sessions.lookup(id).map(session -> {
+			final var history = getHistory(session);
+			try {
+				return Map.of("sessionId", id, "version", version, "model", history.getModel(version));
+			}
+			catch (LlmGenerationModelException ex) {
+				throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+			}
+		});
+	}
+
+	@PostMapping("/api/bpmn/generation/session/{id}/history/undo")
+	public Mono<BpmnGenerationSessionData> undo(
+			@PathVariable("id") String id
+	) {
+		return inSession(id, () -> {
+			final var history = getHistory(sessions.get(id));
+			final var model = history.undo()
+					.orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "No earlier version exists"));
+
+			return applyModelVersion(bpmnGenerationModel.getModelInterface().getOrCreateSession(id), history, model);
+		});
+	}
+
+	@PostMapping("/api/bpmn/generation/session/{id}/history/redo")
+	public Mono<BpmnGenerationSessionData> redo(
+			@PathVariable("id") String id
+	) {
+		return inSession(id, () -> {
+			final var history = getHistory(sessions.get(id));
+			final var model = history.redo()
+					.orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "No undone version exists"));
+
+			return applyModelVersion(bpmnGenerationModel.getModelInterface().getOrCreateSession(id), history, model);
+		});
+	}
+
+	@PostMapping("/api/bpmn/generation/session/{id}/history/checkout/{version}")
+	public Mono<BpmnGenerationSessionData> checkout(
+			@PathVariable("id") String id,
+			@PathVariable("version") int version
+	) {
+		return inSession(id, () -> {
+			final var history = getHistory(sessions.get(id));
+			final var model = checkoutVersion(history, version);
+			return applyModelVersion(bpmnGenerationModel.getModelInterface().getOrCreateSession(id), history, model);
+		});
+	}
+
+	@PostMapping("/api/bpmn/generation/session/{id}/history/fork/{version}")
+	public Mono<BpmnGenerationSessionData> fork(
+			@PathVariable("id") String id,
+			@PathVariable("version") int version,
+			@RequestParam("session") String newId
+	) {
+		// Serialized with work on the source session only.  Creating the new session may block on persistence
+		return bpmnGenerationModel.getModelInterface().getSessionMailbox().submit(id, () -> sessions.lookup(id)
+				.publishOn(Schedulers.boundedElastic())
+				.map(source -> forkSession(source, version, newId)));
+	}
+
+	@GetMapping("/api/bpmn/generation/session/{id}/queue")
+	public Map<String, Object> getQueue(
+			@PathVariable("id") String id
+	) {
+		return Map.of("sessionId", id,
+				"queueDepth", bpmnGenerationModel.getModelInterface().getSessionMailbox().getQueueDepth(id),
+				"pendingPrompts", bpmnGenerationModel.getPendingPrompts(id));
+	}
+
+	@PreDestroy
+	public void shutdown() throws Exception {
+		auditSink.close();
+		if (sessions instanceof AutoCloseable closeable) closeable.close();
+	}
+
+	// Service session data is attached to the generation session state, so that both share one store and are evicted together
 	private Optional<BpmnGenerationSessionData> getSession(String id) {
-		return Optional.ofNullable(sessions.getOrDefault(id, null));
+		return sessions.get(id).flatMap(session -> session.getAttachment(BpmnGenerationSessionData.class));
+	}
+
+	private void updateSession(String id, Consumer<BpmnGenerationSessionData> update) {
+		final var modelInterface = bpmnGenerationModel.getModelInterface();
+		final var session = modelInterface.getOrCreateSession(id);
+		update.accept(session.getOrCreateAttachment(BpmnGenerationSessionData.class, () -> new BpmnGenerationSessionData(id)));
+
+		modelInterface.updateSession(session);
 	}
 
-	private BpmnGenerationSessionData getOrCreateSession(String id) {
-		return sessions.computeIfAbsent(id, BpmnGenerationSessionData::new);
+	// Work which modifies a session is serialized with any generation requests for the same session, and runs once
+	// the session has been loaded so that the work itself does not block on persistence
+	private <T> Mono<T> inSession(String id, Supplier<T> work) {
+		return bpmnGenerationModel.getModelInterface().getSessionMailbox().submit(id, () -> sessions.lookup(id).then(Mono.fromSupplier(work)));
+	}
+
+	private BpmnGenerationSessionData forkSession(Optional<SessionState> source, int version, String newId) {
+		// The new session shares the model versions of the source session until either commits a new version
+		final var history = getHistory(source).fork();
+		final var model = checkoutVersion(history, version);
+
+		final var session = new SessionState(newId);
+		session.getOrCreateAttachment(ModelHistory.class, () -> history);
+		final var data = setModelVersion(session, history, model);
+
+		// Added complete and in one atomic step, since work on the new session is not serialized with the fork
+		if (!sessions.create(session)) throw new ResponseStatusException(HttpStatus.CONFLICT, "A session already exists with the new ID");
+		return data;
+	}
+
+	private ModelHistory getHistory(Optional<SessionState> session) {
+		return session
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No session exists with that ID"))
+				.getAttachment(ModelHistory.class)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No model has been generated in this session"));
+	}
+
+	private String checkoutVersion(ModelHistory history, int version) {
+		try {
+			return history.checkout(version);
+		}
+		catch (LlmGenerationModelException ex) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage());
+		}
+	}
+
+	// Reverting to another version rewinds the session context to the prompts and model of that version, and regenerates
+	// its BPMN, without any request to the LLM
+	private BpmnGenerationSessionData applyModelVersion(SessionState session, ModelHistory history, String model) {
+		final var data = setModelVersion(session, history, model);
+		bpmnGenerationModel.getModelInterface().updateSession(session);
+		return data;
+	}
+
+	private BpmnGenerationSessionData setModelVersion(SessionState session, ModelHistory history, String model) {
+		session.replaceContext(history.getContext(history.getCurrentVersion()));
+
+		final var data = session.getOrCreateAttachment(BpmnGenerationSessionData.class, () -> new BpmnGenerationSessionData(session.getId()));
+		data.setCurrentIntermediateModelData(model);
+		data.setCurrentBpmnData(modelParser.parse(model).getValueIfPresent()
+				.flatMap(intermediateModel -> bpmnGenerator.generateModel(intermediateModel).getValueIfPresent())
+				.map(Bpmn::convertToString)
+				.orElse(null));
+
+		return data;
 	}
 
 	public static void main(String[] args) {
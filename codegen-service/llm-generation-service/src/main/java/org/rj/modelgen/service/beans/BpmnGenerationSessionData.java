@@ -1,11 +1,21 @@
 package org.rj.modelgen.service.beans;
 
-public class BpmnGenerationSessionData {
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.rj.modelgen.llm.session.SessionAttachment;
+
+import java.util.Optional;
+
+/**
+ * Service data for a generation session, held as an attachment of the session state so that it is evicted with it
+ */
+public class BpmnGenerationSessionData implements SessionAttachment {
     private final String id;
     private String currentIntermediateModelData;
     private String currentBpmnData;
 
-    public BpmnGenerationSessionData(String id) {
+    @JsonCreator
+    public BpmnGenerationSessionData(@JsonProperty("id") String id) {
         this.id = id;
     }
 
@@ -28,4 +38,10 @@ public class BpmnGenerationSessionData {
     public void setCurrentBpmnData(String currentBpmnData) {
         this.currentBpmnData = currentBpmnData;
     }
+
+    @Override
+    public long estimateSizeBytes() {
+        return Optional.ofNullable(currentIntermediateModelData).map(String::length).orElse(0) +
+               Optional.ofNullable(currentBpmnData).map(String::length).orElse(0);
+    }
 }
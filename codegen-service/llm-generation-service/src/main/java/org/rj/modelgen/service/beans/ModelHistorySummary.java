@@ -0,0 +1,81 @@
+package org.rj.modelgen.service.beans;
+
+import org.rj.modelgen.llm.session.history.ModelHistory;
+import org.rj.modelgen.llm.session.history.ModelVersion;
+
+import java.util.List;
+
+/**
+ * Metadata of the model history of a session, without the content of any version.  The model at each version is
+ * retrieved separately
+ */
+public class ModelHistorySummary {
+    private final int currentVersion;
+    private final boolean undoAvailable;
+    private final boolean redoAvailable;
+    private final List<VersionSummary> versions;
+
+    private ModelHistorySummary(int currentVersion, boolean undoAvailable, boolean redoAvailable, List<VersionSummary> versions) {
+        this.currentVersion = currentVersion;
+        this.undoAvailable = undoAvailable;
+        this.redoAvailable = redoAvailable;
+        this.versions = versions;
+    }
+
+    public static ModelHistorySummary of(ModelHistory history) {
+        synchronized (history) {
+            return new ModelHistorySummary(history.getCurrentVersion(), history.isUndoAvailable(), history.isRedoAvailable(),
+                    history.getVersions().stream().map(VersionSummary::new).toList());
+        }
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public boolean isUndoAvailable() {
+        return undoAvailable;
+    }
+
+    public boolean isRedoAvailable() {
+        return redoAvailable;
+    }
+
+    public List<VersionSummary> getVersions() {
+        return versions;
+    }
+
+    public static class VersionSummary {
+        private final int id;
+        private final int parent;
+        private final int modelLength;
+        private final long createdAt;
+
+        private VersionSummary(ModelVersion version) {
+            this.id = version.getId();
+            this.parent = version.getParent();
+            this.modelLength = version.getModelLength();
+            this.createdAt = version.getCreatedAt();
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return      ID of the version from which this version was derived, or {@link ModelVersion#NONE} for an
+         *              initial version
+         */
+        public int getParent() {
+            return parent;
+        }
+
+        public int getModelLength() {
+            return modelLength;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
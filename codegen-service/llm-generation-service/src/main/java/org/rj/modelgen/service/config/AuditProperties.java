@@ -0,0 +1,70 @@
+package org.rj.modelgen.service.config;
+
+import org.rj.modelgen.llm.audit.LlmAuditOptions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Audit log of the requests made to, and responses received from, the LLM backend
+ */
+@ConfigurationProperties(prefix = "app.audit")
+public class AuditProperties {
+    private boolean enabled = true;
+    private String directory;
+    private double sampleRate = 0.1;
+    private int maxFieldLength = 4096;
+
+    public LlmAuditOptions toOptions() {
+        final var options = LlmAuditOptions.defaultOptions()
+                .withSampleRate(sampleRate)
+                .withMaxFieldLength(maxFieldLength);
+
+        if (directory != null && !directory.isBlank()) {
+            options.setDirectory(Path.of(directory));
+        }
+
+        return options;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return      Directory of the audit log segments; defaults to the audit options default if not set
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return      Proportion of requests whose records are retained
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return      Length beyond which string fields of audit records are truncated
+     */
+    public int getMaxFieldLength() {
+        return maxFieldLength;
+    }
+
+    public void setMaxFieldLength(int maxFieldLength) {
+        this.maxFieldLength = maxFieldLength;
+    }
+}
@@ -0,0 +1,75 @@
+package org.rj.modelgen.service.config;
+
+import org.rj.modelgen.llm.context.provider.impl.TokenBudgetedContextProviderOptions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Token budget within which session history is fitted for each generation request.  If disabled, the complete session
+ * history is submitted with each request
+ */
+@ConfigurationProperties(prefix = "app.context")
+public class ContextBudgetProperties {
+    private boolean enabled = true;
+    private int windowTokens = 8192;
+    private int reservedResponseTokens = 2048;
+    private int maxPromptTokens = Integer.MAX_VALUE;
+    private double maxHistoryCostRatio = 3.0;
+    private int summaryTokenLimit = 256;
+
+    public TokenBudgetedContextProviderOptions toOptions() {
+        return TokenBudgetedContextProviderOptions.defaultOptions()
+                .withContextWindowTokens(windowTokens)
+                .withReservedResponseTokens(reservedResponseTokens)
+                .withMaxPromptTokens(maxPromptTokens)
+                .withMaxHistoryCostRatio(maxHistoryCostRatio)
+                .withSummaryTokenLimit(summaryTokenLimit);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWindowTokens() {
+        return windowTokens;
+    }
+
+    public void setWindowTokens(int windowTokens) {
+        this.windowTokens = windowTokens;
+    }
+
+    public int getReservedResponseTokens() {
+        return reservedResponseTokens;
+    }
+
+    public void setReservedResponseTokens(int reservedResponseTokens) {
+        this.reservedResponseTokens = reservedResponseTokens;
+    }
+
+    public int getMaxPromptTokens() {
+        return maxPromptTokens;
+    }
+
+    public void setMaxPromptTokens(int maxPromptTokens) {
+        this.maxPromptTokens = maxPromptTokens;
+    }
+
+    public double getMaxHistoryCostRatio() {
+        return maxHistoryCostRatio;
+    }
+
+    public void setMaxHistoryCostRatio(double maxHistoryCostRatio) {
+        this.maxHistoryCostRatio = maxHistoryCostRatio;
+    }
+
+    public int getSummaryTokenLimit() {
+        return summaryTokenLimit;
+    }
+
+    public void setSummaryTokenLimit(int summaryTokenLimit) {
+        this.summaryTokenLimit = summaryTokenLimit;
+    }
+}
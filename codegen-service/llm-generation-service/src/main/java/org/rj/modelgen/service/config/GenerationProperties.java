@@ -0,0 +1,111 @@
+package org.rj.modelgen.service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Features of the BPMN generation pipeline enabled by the service.  Defaults here are those of the service, and are
+ * repeated in application.yml only for documentation; they may differ from the library defaults of the generation
+ * model options, which leave optional features disabled
+ */
+@ConfigurationProperties(prefix = "app.generation")
+public class GenerationProperties {
+    private boolean deltaResponses = true;
+    private boolean compactModelEncoding = true;
+    private boolean modelSlicing = true;
+    private boolean partitionedGeneration = false;
+    private int maxContinuations = 3;
+    private boolean coalescePrompts = false;
+    private boolean fewShotExamples = true;
+    private String exampleIndex = Path.of(System.getProperty("java.io.tmpdir"), "codegen-examples.idx").toString();
+
+    /**
+     * @return      Whether only the changes to the current model are requested from the LLM, where possible
+     */
+    public boolean isDeltaResponses() {
+        return deltaResponses;
+    }
+
+    public void setDeltaResponses(boolean deltaResponses) {
+        this.deltaResponses = deltaResponses;
+    }
+
+    /**
+     * @return      Whether models are submitted in compact form in the prompt context
+     */
+    public boolean isCompactModelEncoding() {
+        return compactModelEncoding;
+    }
+
+    public void setCompactModelEncoding(boolean compactModelEncoding) {
+        this.compactModelEncoding = compactModelEncoding;
+    }
+
+    /**
+     * @return      Whether only the part of a large model relevant to each request is submitted
+     */
+    public boolean isModelSlicing() {
+        return modelSlicing;
+    }
+
+    public void setModelSlicing(boolean modelSlicing) {
+        this.modelSlicing = modelSlicing;
+    }
+
+    /**
+     * @return      Whether new processes are outlined in phases and the phases generated in parallel
+     */
+    public boolean isPartitionedGeneration() {
+        return partitionedGeneration;
+    }
+
+    public void setPartitionedGeneration(boolean partitionedGeneration) {
+        this.partitionedGeneration = partitionedGeneration;
+    }
+
+    /**
+     * @return      Maximum number of continuations requested for a response cut off by the response length limit
+     */
+    public int getMaxContinuations() {
+        return maxContinuations;
+    }
+
+    public void setMaxContinuations(int maxContinuations) {
+        this.maxContinuations = maxContinuations;
+    }
+
+    /**
+     * @return      Whether prompts sent during a generation for the same session are merged into one request
+     */
+    public boolean isCoalescePrompts() {
+        return coalescePrompts;
+    }
+
+    public void setCoalescePrompts(boolean coalescePrompts) {
+        this.coalescePrompts = coalescePrompts;
+    }
+
+    /**
+     * @return      Whether the generation examples most relevant to each request are included in its prompt
+     */
+    public boolean isFewShotExamples() {
+        return fewShotExamples;
+    }
+
+    public void setFewShotExamples(boolean fewShotExamples) {
+        this.fewShotExamples = fewShotExamples;
+    }
+
+    /**
+     * @return      File from which the example index is memory-mapped, and to which it is built if required.  The index
+     *              is held on the heap if blank
+     */
+    public String getExampleIndex() {
+        return exampleIndex;
+    }
+
+    public void setExampleIndex(String exampleIndex) {
+        this.exampleIndex = exampleIndex;
+    }
+}
@@ -0,0 +1,165 @@
+package org.rj.modelgen.service.config;
+
+import org.rj.modelgen.llm.client.LlmClientType;
+import org.rj.modelgen.llm.integrations.openai.OpenAIClientConfig;
+import org.rj.modelgen.llm.integrations.simulator.LatencyDistribution;
+import org.rj.modelgen.llm.integrations.simulator.LlmSimulatorOptions;
+import org.rj.modelgen.llm.util.Util;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Selection and configuration of the LLM backend used by the service.  The simulator backend allows the service
+ * to be run and load-tested without access to a hosted LLM
+ */
+@ConfigurationProperties(prefix = "app.llm")
+public class LlmBackendProperties {
+    private LlmClientType type = LlmClientType.Default;
+    private String baseUrl = OpenAIClientConfig.DEFAULT_BASE_URL;
+    private boolean structuredOutput = false;
+    private final Simulator simulator = new Simulator();
+
+    public LlmClientType getType() {
+        return type;
+    }
+
+    public void setType(LlmClientType type) {
+        this.type = type;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @return      Whether the backend model supports responses constrained to a JSON schema
+     */
+    public boolean isStructuredOutput() {
+        return structuredOutput;
+    }
+
+    public void setStructuredOutput(boolean structuredOutput) {
+        this.structuredOutput = structuredOutput;
+    }
+
+    public Simulator getSimulator() {
+        return simulator;
+    }
+
+    public static class Simulator {
+        private String corpus = "classpath:content/samples/*.json";
+        private long firstTokenLatencyMs = 800L;
+        private double latencySigma = 0.5;
+        private String latencyHistogram = null;
+        private double tokensPerSecond = 40.0;
+        private double errorRate = 0.0;
+        private double rateLimitRate = 0.0;
+        private double timeoutRate = 0.0;
+        private long timeoutMs = 30000L;
+        private Long seed = null;
+
+        /**
+         * @return      Simulator options; latency is replayed from the histogram resource if one is configured,
+         *              otherwise it follows a lognormal distribution around the configured median
+         */
+        public LlmSimulatorOptions toOptions() {
+            final var latency = (latencyHistogram != null && !latencyHistogram.isBlank())
+                    ? LatencyDistribution.parseHistogram(Util.loadStringResource(latencyHistogram))
+                    : LatencyDistribution.logNormal(Duration.ofMillis(firstTokenLatencyMs), latencySigma);
+
+            return LlmSimulatorOptions.defaultOptions()
+                    .withFirstTokenLatency(latency)
+                    .withTokensPerSecond(tokensPerSecond)
+                    .withErrorRate(errorRate)
+                    .withRateLimitRate(rateLimitRate)
+                    .withTimeoutRate(timeoutRate)
+                    .withTimeout(Duration.ofMillis(timeoutMs))
+                    .withSeed(seed);
+        }
+
+        public String getCorpus() {
+            return corpus;
+        }
+
+        public void setCorpus(String corpus) {
+            this.corpus = corpus;
+        }
+
+        public long getFirstTokenLatencyMs() {
+            return firstTokenLatencyMs;
+        }
+
+        public void setFirstTokenLatencyMs(long firstTokenLatencyMs) {
+            this.firstTokenLatencyMs = firstTokenLatencyMs;
+        }
+
+        public double getLatencySigma() {
+            return latencySigma;
+        }
+
+        public void setLatencySigma(double latencySigma) {
+            this.latencySigma = latencySigma;
+        }
+
+        public String getLatencyHistogram() {
+            return latencyHistogram;
+        }
+
+        public void setLatencyHistogram(String latencyHistogram) {
+            this.latencyHistogram = latencyHistogram;
+        }
+
+        public double getTokensPerSecond() {
+            return tokensPerSecond;
+        }
+
+        public void setTokensPerSecond(double tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+
+        public double getRateLimitRate() {
+            return rateLimitRate;
+        }
+
+        public void setRateLimitRate(double rateLimitRate) {
+            this.rateLimitRate = rateLimitRate;
+        }
+
+        public double getTimeoutRate() {
+            return timeoutRate;
+        }
+
+        public void setTimeoutRate(double timeoutRate) {
+            this.timeoutRate = timeoutRate;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        public Long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(Long seed) {
+            this.seed = seed;
+        }
+    }
+}
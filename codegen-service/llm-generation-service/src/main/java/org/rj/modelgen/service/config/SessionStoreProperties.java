@@ -0,0 +1,128 @@
+package org.rj.modelgen.service.config;
+
+import org.rj.modelgen.llm.context.OffHeapContentStore;
+import org.rj.modelgen.llm.session.SessionStoreOptions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Limits on the session state held in memory by the service, beyond which idle or least recently used sessions are
+ * evicted, and the persistence from which sessions can be reloaded after eviction, after a restart, or on another node
+ */
+@ConfigurationProperties(prefix = "app.sessions")
+public class SessionStoreProperties {
+    public enum Persistence {
+        /** Sessions are held in memory only */
+        None,
+        /** Sessions are persisted in a log file local to the node */
+        File,
+        /** Sessions are persisted in a networked key-value service shared between nodes */
+        Http
+    }
+
+    private Duration idleTimeout = Duration.ofHours(1);
+    private int maxSessions = 10000;
+    private long maxSizeBytes = 512L * 1024 * 1024;
+    private boolean offHeapContent = true;
+    private int offHeapMinLength = OffHeapContentStore.DEFAULT_MIN_CONTENT_LENGTH;
+    private Persistence persistence = Persistence.None;
+    private String directory;
+    private String url;
+    private Duration timeout = Duration.ofSeconds(5);
+
+    public SessionStoreOptions toOptions() {
+        return SessionStoreOptions.defaultOptions()
+                .withIdleTimeout(idleTimeout)
+                .withMaxSessions(maxSessions)
+                .withMaxSizeBytes(maxSizeBytes)
+                .withContentStore(offHeapContent ? new OffHeapContentStore(offHeapMinLength) : null);
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public long getMaxSizeBytes() {
+        return maxSizeBytes;
+    }
+
+    public void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * @return      Whether session context content is held off-heap, in compressed and deduplicated form
+     */
+    public boolean isOffHeapContent() {
+        return offHeapContent;
+    }
+
+    public void setOffHeapContent(boolean offHeapContent) {
+        this.offHeapContent = offHeapContent;
+    }
+
+    /**
+     * @return      Minimum length of context content which is held off-heap
+     */
+    public int getOffHeapMinLength() {
+        return offHeapMinLength;
+    }
+
+    public void setOffHeapMinLength(int offHeapMinLength) {
+        this.offHeapMinLength = offHeapMinLength;
+    }
+
+    public Persistence getPersistence() {
+        return persistence;
+    }
+
+    public void setPersistence(Persistence persistence) {
+        this.persistence = persistence;
+    }
+
+    /**
+     * @return      Directory of the session log, for file persistence
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return      Base URL under which sessions are stored, for HTTP persistence
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return      Timeout of each request, for HTTP persistence
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}